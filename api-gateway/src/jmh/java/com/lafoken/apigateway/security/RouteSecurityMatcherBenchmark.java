@@ -0,0 +1,113 @@
+package com.withfy.apigateway.security;
+
+import com.withfy.apigateway.config.RouteSecurityProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous per-request {@code AuthenticationFilter.isSecured} check with {@link RouteSecurityMatcher}
+ * over a path mix weighted towards what the frontend actually calls. Run with {@code gradle jmh};
+ * add {@code -prof gc} through {@code jmh.profilers} to see the allocation difference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteSecurityMatcherBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteSecurityMatcherBenchmark.class);
+
+    private static final String[] PATHS = {
+        "/api/v1/user/profile/me",
+        "/api/v1/user/profile/me",
+        "/api/v1/user/profile/me",
+        "/api/v1/identity/auth/me",
+        "/api/v1/identity/auth/me",
+        "/api/v1/identity/auth/login",
+        "/api/v1/identity/auth/refresh",
+        "/api/v1/user/profile/me/avatar",
+        "/api/v1/identity/admin/users",
+        "/api/v1/identity/admin/check-admin-role",
+        "/api/v1/storage/upload",
+        "/minio/images/avatars/5f0c3c1e-8a4b-4b8e-9d7a-0c2f3e1a9b77/3b2d1f0e-7c6a-4e5d-9b8a-1f2e3d4c5b6a.png",
+        "/minio/songs/tracks/0a1b2c3d-4e5f-6a7b-8c9d-0e1f2a3b4c5d.mp3",
+        "/login/oauth2/code/google",
+        "/api/v1/playlist/42/songs",
+        "/api/v1/billing/subscription",
+    };
+
+    private RouteSecurityMatcher matcher;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        matcher = new RouteSecurityMatcher(new RouteSecurityProperties(
+            List.of("/api/v1/identity/auth/register", "/api/v1/identity/auth/login", "/api/v1/identity/auth/refresh",
+                "/api/v1/identity/auth/forgot-password", "/api/v1/identity/auth/reset-password",
+                "/oauth2/authorization/google", "/login/oauth2/code/google", "/api/v1/identity/admin/init-fixed-admin"),
+            List.of("/api/v1/identity/**", "/api/v1/user/**", "/api/v1/song/**", "/api/v1/playlist/**",
+                "/api/v1/billing/**", "/api/v1/identity/admin/check-admin-role"),
+            List.of("/api/v1/identity/admin/**"),
+            List.of("/api/v1/user/internal/**")
+        ));
+    }
+
+    private String nextPath() {
+        String path = PATHS[index];
+        index = (index + 1) % PATHS.length;
+        return path;
+    }
+
+    @Benchmark
+    public boolean legacyIsSecured() {
+        return isSecured(nextPath());
+    }
+
+    @Benchmark
+    public RoutePolicy routeSecurityMatcher() {
+        return matcher.match(nextPath());
+    }
+
+    private static boolean isSecured(String path) {
+        final List<String> openApiEndpoints = List.of(
+            "/api/v1/identity/auth/register",
+            "/api/v1/identity/auth/login",
+            "/api/v1/identity/auth/refresh",
+            "/api/v1/identity/auth/forgot-password",
+            "/api/v1/identity/auth/reset-password",
+            "/oauth2/authorization/google",
+            "/login/oauth2/code/google",
+            "/api/v1/identity/admin/init-fixed-admin"
+        );
+
+        log.debug("Checking security for path: {}", path);
+
+        for (String openEndpoint : openApiEndpoints) {
+            if (path.equals(openEndpoint)) {
+                log.debug("Path {} is an open endpoint.", path);
+                return false;
+            }
+        }
+
+        if (path.startsWith("/api/v1/identity/") ||
+            path.startsWith("/api/v1/user/") ||
+            path.startsWith("/api/v1/song/") ||
+            path.startsWith("/api/v1/playlist/") ||
+            path.startsWith("/api/v1/billing/")) {
+            log.debug("Path {} is a potentially secured API endpoint.", path);
+            return true;
+        }
+
+        log.debug("Path {} is not considered secured by this filter's rules.", path);
+        return false;
+    }
+}
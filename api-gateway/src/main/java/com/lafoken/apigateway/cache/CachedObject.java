@@ -0,0 +1,47 @@
+package com.withfy.apigateway.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A cached response body with the validators needed to revalidate it. {@code content} is either a heap
+ * buffer (memory tier) or a read-only mapping of the backing file (disk tier) and is never mutated.
+ * Disk-tier objects carry the {@link MappedSegment} that owns the mapping; an object returned by
+ * {@link EdgeCache#get} holds a reference to it, which the reader gives back with {@link #release()} once it
+ * has finished reading {@code content}.
+ */
+public record CachedObject(
+    ByteBuffer content,
+    String contentType,
+    String etag,
+    long lastModifiedMillis,
+    long storedAtMillis,
+    EdgeCache.Tier tier,
+    MappedSegment segment
+) {
+
+    public long length() {
+        return content.capacity();
+    }
+
+    public ByteBuffer slice(long start, long length) {
+        return content.slice((int) start, (int) length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gives back the reference taken by {@link EdgeCache#get}. Memory-tier objects need none, so this is a no-op
+     * for them.
+     */
+    public void release() {
+        if (segment != null) {
+            segment.release();
+        }
+    }
+
+    boolean retain() {
+        return segment == null || segment.retain();
+    }
+
+    CachedObject withStoredAt(long storedAtMillis) {
+        return new CachedObject(content, contentType, etag, lastModifiedMillis, storedAtMillis, tier, segment);
+    }
+}
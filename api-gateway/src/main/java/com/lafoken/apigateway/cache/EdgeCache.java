@@ -0,0 +1,410 @@
+package com.withfy.apigateway.cache;
+
+import com.withfy.apigateway.config.EdgeCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier LRU cache of public object bodies. Small objects are kept on the heap. Larger ones are
+ * written to a spill directory and served from a read-only memory mapping, so their bytes live in the
+ * page cache instead of the Java heap. Objects larger than the disk tier's object limit are not admitted.
+ * <p>
+ * Bodies enter through a {@link Fill}, which copies them as they stream from the origin: into a heap array
+ * for the memory tier, into the spill file for the disk tier, so a large object is never held on the heap
+ * whole. Only one fill per key runs at a time, and the bytes of all running fills are capped at
+ * {@code app.edge-cache.max-filling-size}.
+ * <p>
+ * Spill files are unlinked once mapped, so a disk-tier object's blocks are held by its {@link MappedSegment},
+ * which is unmapped when the tier drops the object and the last reader has released it.
+ */
+@Component
+public class EdgeCache {
+
+    static final String CACHE_NAME = "gateway.edge";
+    private static final Logger log = LoggerFactory.getLogger(EdgeCache.class);
+
+    public enum Tier { MEMORY, DISK }
+
+    private final LruTier memory;
+    private final LruTier disk;
+    private final long memoryMaxObjectBytes;
+    private final long diskMaxObjectBytes;
+    private final long maxFillingBytes;
+    private final ConcurrentHashMap<String, Fill> fills = new ConcurrentHashMap<>();
+    private final AtomicLong fillingBytes = new AtomicLong();
+    private final AtomicLong mappedBytes = new AtomicLong();
+    private final Path directory;
+    private final Executor diskWriter;
+    private final LongSupplier clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter evictions;
+    private final Counter fillsBusy;
+    private final Counter fillsOverBudget;
+
+    public EdgeCache(EdgeCacheProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Schedulers.boundedElastic()::schedule, System::currentTimeMillis);
+    }
+
+    EdgeCache(EdgeCacheProperties properties, MeterRegistry meterRegistry, Executor diskWriter, LongSupplier clock) {
+        this.memoryMaxObjectBytes = bytes(properties.memory().maxObjectSize());
+        this.diskMaxObjectBytes = Math.min(bytes(properties.disk().maxObjectSize()), Integer.MAX_VALUE);
+        this.maxFillingBytes = properties.maxFillingSize() != null ? properties.maxFillingSize().toBytes() : 4 * diskMaxObjectBytes;
+        this.memory = new LruTier(bytes(properties.memory().maxSize()));
+        this.disk = new LruTier(bytes(properties.disk().maxSize()));
+        this.directory = Path.of(properties.disk().directory());
+        this.diskWriter = diskWriter;
+        this.clock = clock;
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.puts = Counter.builder("cache.puts").tag("cache", CACHE_NAME).register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        this.fillsBusy = Counter.builder("cache.fills.skipped").tag("cache", CACHE_NAME).tag("reason", "busy").register(meterRegistry);
+        this.fillsOverBudget = Counter.builder("cache.fills.skipped").tag("cache", CACHE_NAME).tag("reason", "budget").register(meterRegistry);
+        Gauge.builder("cache.filling.bytes", fillingBytes, AtomicLong::get).tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.mapped.bytes", mappedBytes, AtomicLong::get).tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", memory, LruTier::size).tag("cache", CACHE_NAME).tag("tier", "memory").register(meterRegistry);
+        Gauge.builder("cache.size", disk, LruTier::size).tag("cache", CACHE_NAME).tag("tier", "disk").register(meterRegistry);
+        Gauge.builder("cache.bytes", memory, LruTier::bytes).tag("cache", CACHE_NAME).tag("tier", "memory").register(meterRegistry);
+        Gauge.builder("cache.bytes", disk, LruTier::bytes).tag("cache", CACHE_NAME).tag("tier", "disk").register(meterRegistry);
+        prepareDirectory();
+    }
+
+    /**
+     * Looks up {@code key}. A returned object holds a reference to its content, which the caller gives back with
+     * {@link CachedObject#release()} once it has finished reading it.
+     */
+    public CachedObject get(String key) {
+        CachedObject cached = memory.get(key);
+        if (cached == null) {
+            cached = disk.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    public boolean isFresh(CachedObject cached, long ttlMillis) {
+        return clock.getAsLong() - cached.storedAtMillis() < ttlMillis;
+    }
+
+    public boolean admits(long contentLength) {
+        return contentLength >= 0 && contentLength <= diskMaxObjectBytes;
+    }
+
+    public void put(String key, byte[] body, String contentType, String etag, long lastModifiedMillis) {
+        Fill fill = startFill(key, body.length, contentType, etag, lastModifiedMillis);
+        if (fill != null) {
+            fill.write(ByteBuffer.wrap(body));
+            fill.complete();
+        }
+    }
+
+    /**
+     * Starts copying the body of {@code key} into the cache as it streams past. Returns {@code null} when the
+     * object is not admitted, another fill for {@code key} is running, or the fill would take the bytes being
+     * filled over the budget; the caller then serves the body without caching it. Every fill returned must end
+     * in {@link Fill#complete()} or {@link Fill#abandon()}.
+     */
+    public Fill startFill(String key, long contentLength, String contentType, String etag, long lastModifiedMillis) {
+        if (!admits(contentLength)) {
+            return null;
+        }
+        Fill fill = new Fill(key, contentLength, contentType, etag, lastModifiedMillis);
+        if (fills.putIfAbsent(key, fill) != null) {
+            fillsBusy.increment();
+            return null;
+        }
+        if (fillingBytes.addAndGet(contentLength) > maxFillingBytes) {
+            fillingBytes.addAndGet(-contentLength);
+            fills.remove(key, fill);
+            fillsOverBudget.increment();
+            return null;
+        }
+        if (!fill.open()) {
+            fill.release();
+            return null;
+        }
+        return fill;
+    }
+
+    /**
+     * Marks {@code cached} as freshly validated against the origin.
+     */
+    public void touch(String key, CachedObject cached) {
+        CachedObject refreshed = cached.withStoredAt(clock.getAsLong());
+        (cached.tier() == Tier.MEMORY ? memory : disk).replace(key, cached, refreshed);
+    }
+
+    public void invalidate(String key) {
+        memory.remove(key);
+        disk.remove(key);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // best effort; leftovers are cleared on the next start
+        }
+    }
+
+    private void prepareDirectory() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> leftovers = Files.list(directory)) {
+                leftovers.forEach(path -> path.toFile().delete());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Edge cache directory " + directory + " is not usable", e);
+        }
+    }
+
+    private static long bytes(DataSize size) {
+        return size != null ? size.toBytes() : 0;
+    }
+
+    /**
+     * One object being copied into the cache. Memory-tier objects are gathered in a heap array of their exact
+     * length. Disk-tier chunks are copied and written to the spill file on {@code diskWriter}, one after the
+     * other, so the caller's thread never waits on the file system; the spill file is mapped once the last
+     * write is done. Copies waiting to be written count towards the fill's length, so the filling budget also
+     * bounds them.
+     */
+    public final class Fill {
+        private final String key;
+        private final long length;
+        private final String contentType;
+        private final String etag;
+        private final long lastModifiedMillis;
+        private final long startedAtMillis;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private ByteBuffer heap;
+        private Path file;
+        private FileChannel channel;
+        private CompletableFuture<Void> spilled = CompletableFuture.completedFuture(null);
+        private long written;
+        private volatile boolean failed;
+
+        private Fill(String key, long length, String contentType, String etag, long lastModifiedMillis) {
+            this.key = key;
+            this.length = length;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.startedAtMillis = clock.getAsLong();
+        }
+
+        private boolean open() {
+            if (length <= memoryMaxObjectBytes) {
+                heap = ByteBuffer.allocate((int) length);
+                return true;
+            }
+            file = directory.resolve(UUID.randomUUID().toString());
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                return true;
+            } catch (IOException e) {
+                log.warn("Could not create spill file {}: {}", file, e.getMessage());
+                delete(file);
+                return false;
+            }
+        }
+
+        /**
+         * Appends the remaining bytes of {@code chunk} without moving its position. A body longer than announced, or
+         * a failed write, spoils the fill; the stream to the client is unaffected.
+         */
+        public void write(ByteBuffer chunk) {
+            if (failed || finished.get()) {
+                return;
+            }
+            int readable = chunk.remaining();
+            if (written + readable > length) {
+                failed = true;
+                return;
+            }
+            if (heap != null) {
+                heap.put(chunk.duplicate());
+            } else {
+                ByteBuffer copy = ByteBuffer.allocate(readable).put(chunk.duplicate()).flip();
+                long position = written;
+                spilled = spilled.thenRunAsync(() -> spill(copy, position), diskWriter);
+            }
+            written += readable;
+        }
+
+        private void spill(ByteBuffer chunk, long position) {
+            if (failed) {
+                return;
+            }
+            try {
+                while (chunk.hasRemaining()) {
+                    position += channel.write(chunk, position);
+                }
+            } catch (IOException e) {
+                log.warn("Could not spill cached object to {}: {}", file, e.getMessage());
+                failed = true;
+            }
+        }
+
+        /**
+         * Publishes the object if every announced byte arrived, otherwise drops it.
+         */
+        public void complete() {
+            if (failed || written != length) {
+                abandon();
+                return;
+            }
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (heap != null) {
+                disk.remove(key);
+                memory.put(key, new CachedObject(heap.flip().asReadOnlyBuffer(), contentType, etag, lastModifiedMillis, startedAtMillis, Tier.MEMORY, null));
+                puts.increment();
+                release();
+                return;
+            }
+            spilled.whenCompleteAsync((ignored, error) -> {
+                try {
+                    if (failed || error != null) {
+                        return;
+                    }
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                    MappedSegment segment = new MappedSegment(mapped, mappedBytes);
+                    memory.remove(key);
+                    disk.put(key, new CachedObject(segment.buffer(), contentType, etag, lastModifiedMillis, startedAtMillis, Tier.DISK, segment));
+                    puts.increment();
+                } catch (IOException e) {
+                    log.warn("Could not map spill file {}: {}", file, e.getMessage());
+                } finally {
+                    closeAndDelete();
+                    release();
+                }
+            }, diskWriter);
+        }
+
+        /**
+         * Drops whatever was copied so far.
+         */
+        public void abandon() {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            heap = null;
+            if (channel != null) {
+                spilled.whenCompleteAsync((ignored, error) -> {
+                    closeAndDelete();
+                    release();
+                }, diskWriter);
+            } else {
+                release();
+            }
+        }
+
+        private void closeAndDelete() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to flush; the mapping, if any, stays valid
+            }
+            // the mapping stays valid after the file is unlinked; its segment frees the blocks when unmapped
+            delete(file);
+        }
+
+        private void release() {
+            fillingBytes.addAndGet(-length);
+            fills.remove(key, this);
+        }
+    }
+
+    private final class LruTier {
+        private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        LruTier(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * The tier holds one reference to each object it stores and gives it back when the object leaves the tier.
+         * Readers take theirs under the same lock, so an object cannot be unmapped between lookup and retain.
+         */
+        synchronized CachedObject get(String key) {
+            CachedObject cached = entries.get(key);
+            return cached != null && cached.retain() ? cached : null;
+        }
+
+        synchronized void put(String key, CachedObject cached) {
+            if (cached.length() > maxBytes) {
+                cached.release();
+                return;
+            }
+            CachedObject previous = entries.put(key, cached);
+            if (previous != null) {
+                bytes -= previous.length();
+                previous.release();
+            }
+            bytes += cached.length();
+            Iterator<Map.Entry<String, CachedObject>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                CachedObject evicted = eldest.next().getValue();
+                eldest.remove();
+                bytes -= evicted.length();
+                evicted.release();
+                evictions.increment();
+            }
+        }
+
+        synchronized void replace(String key, CachedObject expected, CachedObject replacement) {
+            entries.replace(key, expected, replacement);
+        }
+
+        synchronized void remove(String key) {
+            CachedObject removed = entries.remove(key);
+            if (removed != null) {
+                bytes -= removed.length();
+                removed.release();
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
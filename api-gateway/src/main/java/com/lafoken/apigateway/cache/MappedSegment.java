@@ -0,0 +1,96 @@
+package com.withfy.apigateway.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The read-only mapping behind a disk-tier object. The spill file is unlinked as soon as it is mapped, so its disk
+ * blocks are freed only when the mapping goes away; left to the garbage collector, that can be long after the tier
+ * has evicted the object. The mapping is therefore reference counted, one reference held by the tier and one by
+ * each response reading it, and unmapped when the last one is released.
+ * <p>
+ * A response that does not finish normally keeps its reference, since the transport may still hold a slice of the
+ * mapping; that mapping is unmapped by the collector instead. {@code mappedBytes} counts every mapping until it is
+ * unmapped either way.
+ */
+public final class MappedSegment {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedSegment.class);
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final Unmapper UNMAPPER = Unmapper.load();
+
+    private final MappedByteBuffer buffer;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final Cleaner.Cleanable accounting;
+
+    MappedSegment(MappedByteBuffer buffer, AtomicLong mappedBytes) {
+        this.buffer = buffer;
+        long length = buffer.capacity();
+        mappedBytes.addAndGet(length);
+        this.accounting = CLEANER.register(buffer, () -> mappedBytes.addAndGet(-length));
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Takes a reference for a reader. Fails once the segment has been unmapped.
+     */
+    boolean retain() {
+        while (true) {
+            int current = references.get();
+            if (current == 0) {
+                return false;
+            }
+            if (references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        if (references.decrementAndGet() == 0 && UNMAPPER.unmap(buffer)) {
+            accounting.clean();
+        }
+    }
+
+    /**
+     * {@code sun.misc.Unsafe#invokeCleaner}, looked up reflectively. Without it, mappings are left to the collector.
+     */
+    private record Unmapper(Object unsafe, Method invokeCleaner) {
+
+        static Unmapper load() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Unmapper(field.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.warn("Evicted edge cache mappings will be released by the garbage collector: {}", e.toString());
+                return new Unmapper(null, null);
+            }
+        }
+
+        boolean unmap(ByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return false;
+            }
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+                return true;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.warn("Could not unmap an evicted edge cache object: {}", e.toString());
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.withfy.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.access-log")
+public record AccessLogProperties(
+    boolean enabled,
+    double sampleRate,
+    Map<String, Double> routeSampleRates,
+    Duration slowThreshold
+) {}
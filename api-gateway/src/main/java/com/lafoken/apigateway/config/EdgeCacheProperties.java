@@ -0,0 +1,22 @@
+package com.withfy.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * {@code maxFillingSize} caps the bytes of all objects being copied into the cache at once; misses beyond it are
+ * passed through uncached.
+ */
+@ConfigurationProperties(prefix = "app.edge-cache")
+public record EdgeCacheProperties(
+    Duration ttl,
+    TierProperties memory,
+    DiskTierProperties disk,
+    DataSize maxFillingSize
+) {
+    public record TierProperties(DataSize maxSize, DataSize maxObjectSize) {}
+
+    public record DiskTierProperties(String directory, DataSize maxSize, DataSize maxObjectSize) {}
+}
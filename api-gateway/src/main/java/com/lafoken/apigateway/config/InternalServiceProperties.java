@@ -0,0 +1,12 @@
+package com.withfy.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * {@code token} is the shared secret services accept in {@code X-Internal-Service-Token}. While it is blank, the
+ * gateway forwards no token and those services refuse the requests that need one.
+ */
+@ConfigurationProperties(prefix = "app.internal-service")
+public record InternalServiceProperties(
+    String token
+) {}
@@ -3,4 +3,6 @@ package com.withfy.apigateway.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "app.jwt")
-public record JwtProperties(String secret) {}
+public record JwtProperties(String secret, CacheProperties cache) {
+    public record CacheProperties(int maxEntries) {}
+}
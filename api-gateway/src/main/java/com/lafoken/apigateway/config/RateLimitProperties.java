@@ -0,0 +1,13 @@
+package com.withfy.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * {@code trustedProxies} is the number of proxies in front of the gateway that append to {@code X-Forwarded-For}.
+ * Anonymous clients are limited by the address that many hops back; with {@code 0} the header is ignored, since a
+ * client could put anything in it.
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(int stripes, Duration idleTimeout, int trustedProxies) {}
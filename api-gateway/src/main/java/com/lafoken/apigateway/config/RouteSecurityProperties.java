@@ -0,0 +1,13 @@
+package com.withfy.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.security.routes")
+public record RouteSecurityProperties(
+    List<String> open,
+    List<String> authenticated,
+    List<String> admin,
+    List<String> internal
+) {}
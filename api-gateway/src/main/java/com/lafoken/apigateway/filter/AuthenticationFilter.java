@@ -1,88 +1,81 @@
 package com.withfy.apigateway.filter;
 
-import com.withfy.apigateway.config.JwtProperties;
+import com.withfy.apigateway.security.AuthDecision;
+import com.withfy.apigateway.security.JwtTokenVerifier;
+import com.withfy.apigateway.security.RoutePolicy;
+import com.withfy.apigateway.security.RouteSecurityMatcher;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.UnsupportedJwtException;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
-import jakarta.annotation.PostConstruct;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import javax.crypto.SecretKey;
-import java.util.List;
-
 @Component
 public class AuthenticationFilter extends AbstractGatewayFilterFactory<AuthenticationFilter.Config> {
 
-    private static final Logger log = LoggerFactory.getLogger(AuthenticationFilter.class);
-    private final JwtProperties jwtProperties;
-    private SecretKey key;
+    public static final String AUTH_DECISION_ATTR = AuthenticationFilter.class.getName() + ".authDecision";
+    public static final String USER_ID_ATTR = AuthenticationFilter.class.getName() + ".userId";
 
-    public AuthenticationFilter(JwtProperties jwtProperties) {
-        super(Config.class);
-        this.jwtProperties = jwtProperties;
-    }
+    private static final String ADMIN_ROLE = "ROLE_ADMIN";
 
-    @PostConstruct
-    public void init() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtProperties.secret());
-        this.key = Keys.hmacShaKeyFor(keyBytes);
+    private final JwtTokenVerifier jwtTokenVerifier;
+    private final RouteSecurityMatcher routeSecurityMatcher;
+
+    public AuthenticationFilter(JwtTokenVerifier jwtTokenVerifier, RouteSecurityMatcher routeSecurityMatcher) {
+        super(Config.class);
+        this.jwtTokenVerifier = jwtTokenVerifier;
+        this.routeSecurityMatcher = routeSecurityMatcher;
     }
 
     public static class Config {
     }
 
-    private boolean isSecured(ServerHttpRequest request) {
-        final List<String> openApiEndpoints = List.of(
-            "/api/v1/identity/auth/register",
-            "/api/v1/identity/auth/login",
-            "/api/v1/identity/auth/refresh",
-            "/api/v1/identity/auth/forgot-password",
-            "/api/v1/identity/auth/reset-password",
-            "/oauth2/authorization/google",
-            "/login/oauth2/code/google",
-            "/api/v1/identity/admin/init-fixed-admin"
-        );
-
-        String path = request.getURI().getPath();
-        log.debug("Checking security for path: {}", path);
-
-        for (String openEndpoint : openApiEndpoints) {
-            if (path.equals(openEndpoint)) {
-                log.debug("Path {} is an open endpoint.", path);
+    private static boolean hasRole(String roles, String role) {
+        int from = 0;
+        while (from <= roles.length()) {
+            int comma = roles.indexOf(',', from);
+            int to = comma == -1 ? roles.length() : comma;
+            int start = from;
+            while (start < to && roles.charAt(start) == ' ') {
+                start++;
+            }
+            int end = to;
+            while (end > start && roles.charAt(end - 1) == ' ') {
+                end--;
+            }
+            if (end - start == role.length() && roles.regionMatches(start, role, 0, role.length())) {
+                return true;
+            }
+            if (comma == -1) {
                 return false;
             }
+            from = comma + 1;
         }
+        return false;
+    }
 
-        if (path.startsWith("/api/v1/identity/") ||
-            path.startsWith("/api/v1/user/") ||
-            path.startsWith("/api/v1/song/") ||
-            path.startsWith("/api/v1/playlist/") ||
-            path.startsWith("/api/v1/billing/")) {
-            log.debug("Path {} is a potentially secured API endpoint.", path);
-            return true;
+    /**
+     * The request path as the downstream service dispatches it: percent-decoded, with {@code ;} parameters dropped
+     * from every segment. Matching the raw path instead would let {@code /objects;x} slip past a rule for
+     * {@code /objects} while still reaching the same handler.
+     */
+    static String matchablePath(ServerHttpRequest request) {
+        StringBuilder path = new StringBuilder();
+        for (PathContainer.Element element : request.getPath().pathWithinApplication().elements()) {
+            path.append(element instanceof PathContainer.PathSegment segment ? segment.valueToMatch() : element.value());
         }
-
-        log.debug("Path {} is not considered secured by this filter's rules.", path);
-        return false;
+        return path.toString();
     }
 
-    private Mono<Void> onError(ServerWebExchange exchange, HttpStatus httpStatus) {
+    private Mono<Void> onError(ServerWebExchange exchange, HttpStatus httpStatus, AuthDecision decision) {
+        exchange.getAttributes().put(AUTH_DECISION_ATTR, decision);
         ServerHttpResponse response = exchange.getResponse();
         response.setStatusCode(httpStatus);
         return response.setComplete();
@@ -104,66 +97,55 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
         return null;
     }
 
-    private boolean isTokenInvalid(String token) {
-         try {
-            Jwts.parser().verifyWith(this.key).build().parseSignedClaims(token);
-            return false;
-        } catch (ExpiredJwtException | MalformedJwtException | SignatureException | UnsupportedJwtException | IllegalArgumentException e) {
-            log.warn("JWT validation error: {}", e.getMessage());
-            return true;
-        }
-    }
-
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser().verifyWith(this.key).build().parseSignedClaims(token).getPayload();
-    }
-
     @Override
     public GatewayFilter apply(Config config) {
         return (exchange, chain) -> {
             ServerHttpRequest request = exchange.getRequest();
-            log.info("AuthenticationFilter: Processing request to {} {}", request.getMethod(), request.getURI().getPath());
 
             if (request.getMethod() == HttpMethod.OPTIONS) {
-                log.info("AuthenticationFilter: Allowing OPTIONS preflight request for {}. Skipping authentication.", request.getURI().getPath());
+                exchange.getAttributes().put(AUTH_DECISION_ATTR, AuthDecision.PREFLIGHT);
                 return chain.filter(exchange);
             }
 
-            if (this.isSecured(request)) {
-                log.info("AuthenticationFilter: Path {} is SECURED", request.getURI().getPath());
+            RoutePolicy policy = routeSecurityMatcher.match(matchablePath(request));
+            if (policy == RoutePolicy.INTERNAL) {
+                return this.onError(exchange, HttpStatus.NOT_FOUND, AuthDecision.INTERNAL_ONLY);
+            }
+            if (policy != RoutePolicy.OPEN) {
                 if (this.isAuthMissing(request)) {
-                    log.warn("AuthenticationFilter: Authorization header is missing for {}", request.getURI().getPath());
-                    return this.onError(exchange, HttpStatus.UNAUTHORIZED);
+                    return this.onError(exchange, HttpStatus.UNAUTHORIZED, AuthDecision.MISSING_TOKEN);
                 }
 
                 final String token = this.getTokenFromHeader(request);
 
                 if (token == null) {
-                    log.warn("AuthenticationFilter: Bearer token is missing after header check for {}", request.getURI().getPath());
-                    return this.onError(exchange, HttpStatus.UNAUTHORIZED);
+                    return this.onError(exchange, HttpStatus.UNAUTHORIZED, AuthDecision.MISSING_TOKEN);
                 }
 
-                if (this.isTokenInvalid(token)) {
-                     log.warn("AuthenticationFilter: Invalid token for {}", request.getURI().getPath());
-                    return this.onError(exchange, HttpStatus.UNAUTHORIZED);
+                Claims claims = jwtTokenVerifier.verify(token);
+                if (claims == null) {
+                    return this.onError(exchange, HttpStatus.UNAUTHORIZED, AuthDecision.INVALID_TOKEN);
                 }
 
-                log.info("AuthenticationFilter: Token is valid for {}. Adding user headers.", request.getURI().getPath());
-                Claims claims = this.getAllClaimsFromToken(token);
+                String userId = String.valueOf(claims.get("userId", String.class));
+                exchange.getAttributes().put(USER_ID_ATTR, userId);
                 String roles = claims.get("auth", String.class);
                 if (roles == null) {
                     roles = "";
                 }
+                if (policy == RoutePolicy.ADMIN && !hasRole(roles, ADMIN_ROLE)) {
+                    return this.onError(exchange, HttpStatus.FORBIDDEN, AuthDecision.FORBIDDEN);
+                }
 
+                exchange.getAttributes().put(AUTH_DECISION_ATTR, AuthDecision.AUTHENTICATED);
                 ServerHttpRequest modifiedRequest = exchange.getRequest().mutate()
-                    .header("X-User-ID", String.valueOf(claims.get("userId", String.class)))
+                    .header("X-User-ID", userId)
                     .header("X-User-Email", claims.getSubject())
                     .header("X-User-Roles", roles)
                     .build();
                 return chain.filter(exchange.mutate().request(modifiedRequest).build());
-            } else {
-                 log.info("AuthenticationFilter: Path {} is NOT SECURED, passing through.", request.getURI().getPath());
             }
+            exchange.getAttributes().put(AUTH_DECISION_ATTR, AuthDecision.OPEN);
             return chain.filter(exchange);
         };
     }
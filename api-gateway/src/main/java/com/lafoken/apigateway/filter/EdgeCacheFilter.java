@@ -0,0 +1,323 @@
+package com.withfy.apigateway.filter;
+
+import com.withfy.apigateway.cache.CachedObject;
+import com.withfy.apigateway.cache.EdgeCache;
+import com.withfy.apigateway.config.EdgeCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves public objects from {@link EdgeCache}, going to the origin only on a miss or once a cached copy
+ * is older than {@code app.edge-cache.ttl}. Stale copies are revalidated with {@code If-None-Match}, and a
+ * {@code 304} from the origin refreshes the copy without transferring the body again. Cached responses
+ * honour the client's own validators and single byte ranges.
+ */
+@Component
+public class EdgeCacheFilter extends AbstractGatewayFilterFactory<EdgeCacheFilter.Config> {
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+    private static final String BYTES_UNIT = "bytes";
+    private static final String FULL_RANGE = "bytes=0-";
+
+    private final EdgeCache edgeCache;
+    private final long ttlMillis;
+    private final Counter notModified;
+    private final Counter modified;
+
+    public EdgeCacheFilter(EdgeCache edgeCache, EdgeCacheProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.edgeCache = edgeCache;
+        this.ttlMillis = (properties.ttl() != null ? properties.ttl() : Duration.ofMinutes(1)).toMillis();
+        this.notModified = Counter.builder("gateway.edge.cache.revalidations").tag("outcome", "not_modified").register(meterRegistry);
+        this.modified = Counter.builder("gateway.edge.cache.revalidations").tag("outcome", "modified").register(meterRegistry);
+    }
+
+    public static class Config {
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpMethod method = request.getMethod();
+            if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+                return chain.filter(exchange);
+            }
+
+            String key = cacheKey(request);
+            CachedObject cached = edgeCache.get(key);
+            if (cached != null && edgeCache.isFresh(cached, ttlMillis)) {
+                return writeCached(exchange.getResponse(), request, cached, "HIT");
+            }
+            if (method == HttpMethod.HEAD) {
+                if (cached != null) {
+                    cached.release();
+                }
+                return chain.filter(exchange);
+            }
+
+            String range = request.getHeaders().getFirst(HttpHeaders.RANGE);
+            if (cached == null && range != null && !FULL_RANGE.equals(range.trim())) {
+                // a seek into an uncached object; fetching the whole thing would delay playback
+                return chain.filter(exchange);
+            }
+
+            ServerHttpRequest upstream = request.mutate().headers(headers -> {
+                headers.remove(HttpHeaders.RANGE);
+                headers.remove(HttpHeaders.IF_RANGE);
+                if (cached != null) {
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    if (cached.etag() != null) {
+                        headers.setIfNoneMatch(cached.etag());
+                    } else if (cached.lastModifiedMillis() >= 0) {
+                        headers.setIfModifiedSince(cached.lastModifiedMillis());
+                    }
+                }
+            }).build();
+            CachingResponse response = new CachingResponse(exchange.getResponse(), request, key, cached);
+            return chain.filter(exchange.mutate().request(upstream).response(response).build())
+                .doFinally(signal -> response.releaseRevalidating());
+        };
+    }
+
+    private static String cacheKey(ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        String path = request.getURI().getRawPath();
+        return query != null ? path + '?' + query : path;
+    }
+
+    /**
+     * Writes {@code cached}, taking over the reference the caller holds on it. The reference is given back once the
+     * body has been written; a response that ends any other way leaves the mapping to the collector, since the
+     * transport may still hold a slice of it.
+     */
+    private static Mono<Void> writeCached(ServerHttpResponse response, ServerHttpRequest request, CachedObject cached, String cacheStatus) {
+        HttpHeaders headers = response.getHeaders();
+        headers.remove(HttpHeaders.CONTENT_RANGE);
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        headers.set(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        if (cached.etag() != null) {
+            headers.setETag(cached.etag());
+        }
+        if (cached.lastModifiedMillis() >= 0) {
+            headers.setLastModified(cached.lastModifiedMillis());
+        }
+
+        if (isNotModified(request.getHeaders(), cached)) {
+            cached.release();
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        if (cached.contentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, cached.contentType());
+        }
+
+        long total = cached.length();
+        long start = 0;
+        long length = total;
+        ByteRange range = ByteRange.parse(request.getHeaders(), cached, total);
+        if (range == ByteRange.UNSATISFIABLE) {
+            cached.release();
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + total);
+            response.setStatusCode(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            return response.setComplete();
+        }
+        if (range != null) {
+            start = range.start();
+            length = range.end() - range.start() + 1;
+            headers.set(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " " + range.start() + "-" + range.end() + "/" + total);
+            response.setStatusCode(HttpStatus.PARTIAL_CONTENT);
+        } else {
+            response.setStatusCode(HttpStatus.OK);
+        }
+        headers.setContentLength(length);
+
+        if (request.getMethod() == HttpMethod.HEAD) {
+            cached.release();
+            return response.setComplete();
+        }
+        ByteBuffer body = cached.slice(start, length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)))
+            .doOnSuccess(done -> cached.release());
+    }
+
+    private static boolean isNotModified(HttpHeaders requestHeaders, CachedObject cached) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            if (cached.etag() == null) {
+                return false;
+            }
+            String etag = weakless(cached.etag());
+            for (String candidate : ifNoneMatch) {
+                if ("*".equals(candidate) || weakless(candidate).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return ifModifiedSince >= 0 && cached.lastModifiedMillis() >= 0
+            && cached.lastModifiedMillis() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static String weakless(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static boolean isCacheable(HttpHeaders responseHeaders) {
+        String cacheControl = responseHeaders.getCacheControl();
+        return cacheControl == null || !(cacheControl.contains("no-store") || cacheControl.contains("private"));
+    }
+
+    private record ByteRange(long start, long end) {
+
+        static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+        /**
+         * Parses a single {@code bytes=} range. Returns {@code null} when the whole object should be sent,
+         * which is also how multi-range and malformed requests are answered.
+         */
+        static ByteRange parse(HttpHeaders requestHeaders, CachedObject cached, long total) {
+            String header = requestHeaders.getFirst(HttpHeaders.RANGE);
+            if (header == null || !header.startsWith(BYTES_UNIT + "=") || header.indexOf(',') >= 0) {
+                return null;
+            }
+            String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+            if (ifRange != null && (cached.etag() == null || !ifRange.equals(cached.etag()))) {
+                return null;
+            }
+            String spec = header.substring(BYTES_UNIT.length() + 1).trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                if (dash == 0) {
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0) {
+                        return UNSATISFIABLE;
+                    }
+                    return new ByteRange(Math.max(0, total - suffix), total - 1);
+                }
+                long start = Long.parseLong(spec.substring(0, dash));
+                long end = dash == spec.length() - 1 ? total - 1 : Long.parseLong(spec.substring(dash + 1));
+                if (start >= total) {
+                    return UNSATISFIABLE;
+                }
+                if (end < start) {
+                    return null;
+                }
+                return new ByteRange(start, Math.min(end, total - 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Copies a cacheable origin body into the cache as it streams to the client, and swaps a {@code 304}
+     * from a revalidation for the cached body. Concurrent misses for one key all stream from the origin, but
+     * only the first is copied.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerHttpRequest clientRequest;
+        private final String key;
+        private final CachedObject revalidating;
+        private final AtomicBoolean revalidatingReleased = new AtomicBoolean();
+
+        CachingResponse(ServerHttpResponse delegate, ServerHttpRequest clientRequest, String key, CachedObject revalidating) {
+            super(delegate);
+            this.clientRequest = clientRequest;
+            this.key = key;
+            this.revalidating = revalidating;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (revalidating != null && getStatusCode() == HttpStatus.NOT_MODIFIED
+                && revalidatingReleased.compareAndSet(false, true)) {
+                notModified.increment();
+                edgeCache.touch(key, revalidating);
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                    .then(Mono.defer(() -> writeCached(getDelegate(), clientRequest, revalidating, "REVALIDATED")));
+            }
+            releaseRevalidating();
+            if (revalidating != null) {
+                modified.increment();
+            }
+            if (getStatusCode() != HttpStatus.OK) {
+                return super.writeWith(body);
+            }
+
+            HttpHeaders headers = getHeaders();
+            long contentLength = headers.getContentLength();
+            if (!edgeCache.admits(contentLength) || !isCacheable(headers)) {
+                if (revalidating != null) {
+                    edgeCache.invalidate(key);
+                }
+                return super.writeWith(body);
+            }
+
+            String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+            String etag = headers.getETag();
+            long lastModified = headers.getLastModified();
+            Flux<DataBuffer> tapped = Flux.defer(() -> {
+                EdgeCache.Fill fill = edgeCache.startFill(key, contentLength, contentType, etag, lastModified);
+                if (fill == null) {
+                    // another request is already filling this key, or too many bytes are being filled
+                    return Flux.from(body);
+                }
+                return Flux.<DataBuffer>from(body)
+                    .doOnNext(buffer -> {
+                        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+                            while (chunks.hasNext()) {
+                                fill.write(chunks.next());
+                            }
+                        }
+                    })
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_COMPLETE) {
+                            fill.complete();
+                        } else {
+                            fill.abandon();
+                        }
+                    });
+            });
+            return super.writeWith(tapped);
+        }
+
+        /**
+         * Gives back the reference to the copy being revalidated unless it was handed to {@link #writeCached}.
+         */
+        void releaseRevalidating() {
+            if (revalidating != null && revalidatingReleased.compareAndSet(false, true)) {
+                revalidating.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.withfy.apigateway.filter;
+
+import com.withfy.apigateway.config.InternalServiceProperties;
+import com.withfy.apigateway.security.AuthDecision;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vouches for requests this gateway has authenticated by adding the internal service token, so the downstream
+ * service can tell them from calls that went around the gateway. Any token a client sent is dropped first.
+ * Must come after {@link AuthenticationFilter}, and only on routes to services that trust the token.
+ */
+@Component
+public class InternalServiceTokenFilter extends AbstractGatewayFilterFactory<InternalServiceTokenFilter.Config> {
+
+    public static final String HEADER = "X-Internal-Service-Token";
+
+    private final String token;
+
+    public InternalServiceTokenFilter(InternalServiceProperties properties) {
+        super(Config.class);
+        this.token = properties.token() != null && !properties.token().isBlank() ? properties.token() : null;
+    }
+
+    public static class Config {
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            boolean authenticated = exchange.getAttribute(AuthenticationFilter.AUTH_DECISION_ATTR) == AuthDecision.AUTHENTICATED;
+            ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(HEADER);
+                    if (authenticated && token != null) {
+                        headers.set(HEADER, token);
+                    }
+                })
+                .build();
+            return chain.filter(exchange.mutate().request(request).build());
+        };
+    }
+}
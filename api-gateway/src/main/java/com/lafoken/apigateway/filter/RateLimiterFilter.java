@@ -0,0 +1,106 @@
+package com.withfy.apigateway.filter;
+
+import com.withfy.apigateway.config.RateLimitProperties;
+import com.withfy.apigateway.ratelimit.TokenBucketStore;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-route, per-principal token bucket. The principal is the user id verified by
+ * {@link AuthenticationFilter} when that filter ran earlier in the chain, otherwise the client IP. Behind
+ * {@code app.rate-limit.trusted-proxies} proxies the client IP is taken from {@code X-Forwarded-For}, so clients
+ * behind a load balancer do not all share its bucket.
+ * Usage: {@code RateLimiterFilter=<burstCapacity>,<replenishRatePerSecond>}, both greater than zero.
+ */
+@Component
+public class RateLimiterFilter extends AbstractGatewayFilterFactory<RateLimiterFilter.Config> {
+
+    private final TokenBucketStore tokenBucketStore;
+    private final RemoteAddressResolver clientAddressResolver;
+
+    public RateLimiterFilter(TokenBucketStore tokenBucketStore, RateLimitProperties properties) {
+        super(Config.class);
+        this.tokenBucketStore = tokenBucketStore;
+        this.clientAddressResolver = properties.trustedProxies() > 0
+            ? XForwardedRemoteAddressResolver.maxTrustedIndex(properties.trustedProxies())
+            : new RemoteAddressResolver() {};
+    }
+
+    public static class Config {
+        private int burstCapacity = 20;
+        private double replenishRate = 10;
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("burstCapacity", "replenishRate");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getBurstCapacity() <= 0 || !(config.getReplenishRate() > 0)) {
+            throw new IllegalArgumentException("RateLimiterFilter needs a positive burst capacity and replenish rate, got "
+                + config.getBurstCapacity() + "," + config.getReplenishRate());
+        }
+        return (exchange, chain) -> {
+            long waitNanos = tokenBucketStore.tryAcquire(bucketKey(exchange), config.getBurstCapacity(), config.getReplenishRate());
+            if (waitNanos == 0) {
+                return chain.filter(exchange);
+            }
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            long retryAfterSeconds = Math.max(1, (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            return response.setComplete();
+        };
+    }
+
+    private String bucketKey(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "-";
+        String userId = exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR);
+        if (userId != null) {
+            return routeId + "|u:" + userId;
+        }
+        InetSocketAddress remoteAddress = clientAddressResolver.resolve(exchange);
+        String ip;
+        if (remoteAddress == null) {
+            ip = "unknown";
+        } else if (remoteAddress.getAddress() != null) {
+            ip = remoteAddress.getAddress().getHostAddress();
+        } else {
+            // forwarded addresses come back unresolved
+            ip = remoteAddress.getHostString();
+        }
+        return routeId + "|ip:" + ip;
+    }
+}
@@ -0,0 +1,89 @@
+package com.withfy.apigateway.logging;
+
+import com.withfy.apigateway.config.AccessLogProperties;
+import com.withfy.apigateway.filter.AuthenticationFilter;
+import com.withfy.apigateway.security.AuthDecision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emits one access record per gateway request to the {@code access-log} logger, which logback-spring.xml
+ * routes through an async appender. Slow requests and 5xx responses are always logged; everything else
+ * is sampled at the route's configured rate.
+ */
+@Component
+public class AccessLogFilter implements GlobalFilter, Ordered {
+
+    private static final Logger accessLog = LoggerFactory.getLogger("access-log");
+
+    private final boolean enabled;
+    private final double defaultSampleRate;
+    private final Map<String, Double> routeSampleRates;
+    private final long slowThresholdNanos;
+
+    public AccessLogFilter(AccessLogProperties properties) {
+        this.enabled = properties.enabled();
+        this.defaultSampleRate = properties.sampleRate();
+        this.routeSampleRates = properties.routeSampleRates() != null ? Map.copyOf(properties.routeSampleRates()) : Map.of();
+        this.slowThresholdNanos = properties.slowThreshold() != null ? properties.slowThreshold().toNanos() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!enabled || !accessLog.isInfoEnabled()) {
+            return chain.filter(exchange);
+        }
+        long startNanos = System.nanoTime();
+        return chain.filter(exchange)
+            .doFinally(signal -> record(exchange, System.nanoTime() - startNanos));
+    }
+
+    private void record(ServerWebExchange exchange, long elapsedNanos) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "-";
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        boolean slow = elapsedNanos >= slowThresholdNanos;
+        boolean serverError = status != null && status.is5xxServerError();
+
+        if (!slow && !serverError && !sampled(routeId)) {
+            return;
+        }
+
+        AuthDecision decision = exchange.getAttribute(AuthenticationFilter.AUTH_DECISION_ATTR);
+        String userId = exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR);
+        accessLog.info("method={} path={} route={} status={} auth={} user={} latencyMs={} slow={}",
+            exchange.getRequest().getMethod(),
+            exchange.getRequest().getPath().value(),
+            routeId,
+            status != null ? status.value() : 0,
+            decision != null ? decision : AuthDecision.OPEN,
+            userId != null ? userId : "-",
+            elapsedNanos / 1_000_000,
+            slow);
+    }
+
+    private boolean sampled(String routeId) {
+        double rate = routeSampleRates.getOrDefault(routeId, defaultSampleRate);
+        if (rate >= 1.0) {
+            return true;
+        }
+        return rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
@@ -0,0 +1,114 @@
+package com.withfy.apigateway.ratelimit;
+
+import com.withfy.apigateway.config.RateLimitProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token buckets keyed by an arbitrary string, split across independent stripes.
+ * Buckets are updated with compare-and-set, so concurrent requests never block each other.
+ * Each stripe drops buckets that have been idle longer than the configured timeout; the sweep runs
+ * lazily on access and touches only the stripe being accessed.
+ */
+@Component
+public class TokenBucketStore {
+
+    private static final int DEFAULT_STRIPES = 16;
+    private static final long DEFAULT_IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final Stripe[] stripes;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+
+    public TokenBucketStore(RateLimitProperties properties) {
+        this(properties.stripes(),
+            properties.idleTimeout() != null ? properties.idleTimeout().toNanos() : DEFAULT_IDLE_TIMEOUT_NANOS,
+            System::nanoTime);
+    }
+
+    TokenBucketStore(int stripes, long idleTimeoutNanos, LongSupplier nanoClock) {
+        int count = Integer.highestOneBit(Math.max(1, stripes > 0 ? stripes : DEFAULT_STRIPES));
+        long now = nanoClock.getAsLong();
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(now);
+        }
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes one token from the bucket for {@code key}, creating a full bucket on first use.
+     *
+     * @return {@code 0} when the token was granted, otherwise the number of nanoseconds until one is available
+     */
+    public long tryAcquire(String key, int burstCapacity, double replenishRatePerSecond) {
+        long now = nanoClock.getAsLong();
+        Stripe stripe = stripeFor(key);
+        stripe.sweepIfDue(now, idleTimeoutNanos);
+
+        AtomicReference<BucketState> bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            bucket = stripe.buckets.computeIfAbsent(key, k -> new AtomicReference<>(new BucketState(burstCapacity, now)));
+        }
+
+        while (true) {
+            BucketState current = bucket.get();
+            long elapsed = Math.max(0, now - current.updatedAtNanos());
+            double tokens = Math.min(burstCapacity, current.tokens() + elapsed / NANOS_PER_SECOND * replenishRatePerSecond);
+            if (tokens >= 1) {
+                if (bucket.compareAndSet(current, new BucketState(tokens - 1, now))) {
+                    return 0;
+                }
+            } else {
+                if (bucket.compareAndSet(current, new BucketState(tokens, now))) {
+                    return replenishRatePerSecond > 0
+                        ? (long) Math.ceil((1 - tokens) / replenishRatePerSecond * NANOS_PER_SECOND)
+                        : Long.MAX_VALUE;
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private record BucketState(double tokens, long updatedAtNanos) {}
+
+    private static final class Stripe {
+        private final ConcurrentHashMap<String, AtomicReference<BucketState>> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong lastSweepAt;
+
+        Stripe(long now) {
+            this.lastSweepAt = new AtomicLong(now);
+        }
+
+        void sweepIfDue(long now, long idleTimeoutNanos) {
+            long last = lastSweepAt.get();
+            if (now - last < idleTimeoutNanos || !lastSweepAt.compareAndSet(last, now)) {
+                return;
+            }
+            buckets.forEach((key, bucket) -> {
+                if (now - bucket.get().updatedAtNanos() >= idleTimeoutNanos) {
+                    buckets.remove(key, bucket);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.withfy.apigateway.security;
+
+public enum AuthDecision {
+    OPEN,
+    PREFLIGHT,
+    AUTHENTICATED,
+    MISSING_TOKEN,
+    INVALID_TOKEN,
+    FORBIDDEN,
+    INTERNAL_ONLY
+}
@@ -0,0 +1,122 @@
+package com.withfy.apigateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of verified JWT claims keyed by the SHA-256 digest of the raw token.
+ * Entries expire at the token's {@code exp} claim; tokens without one are never cached.
+ */
+public class JwtClaimsCache {
+
+    static final String CACHE_NAME = "gateway.jwt";
+    private static final long PURGE_INTERVAL_MS = 1000;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final AtomicLong lastPurgeAt = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public JwtClaimsCache(int maxEntries, MeterRegistry meterRegistry) {
+        this(maxEntries, meterRegistry, System::currentTimeMillis);
+    }
+
+    JwtClaimsCache(int maxEntries, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", entries, ConcurrentHashMap::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached claims for {@code token}, or verifies it with {@code verifier} and caches the result.
+     * The verifier returns {@code null} for tokens that fail verification; those are not cached.
+     */
+    public Claims resolve(String token, Function<String, Claims> verifier) {
+        if (maxEntries <= 0) {
+            return verifier.apply(token);
+        }
+        String key = digest(token);
+        long now = clock.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAtMillis() > now) {
+                hits.increment();
+                return entry.claims();
+            }
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        Claims claims = verifier.apply(token);
+        if (claims != null) {
+            admit(key, claims, now);
+        }
+        return claims;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void admit(String key, Claims claims, long now) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null || expiration.getTime() <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            purgeExpired(now);
+            if (entries.size() >= maxEntries) {
+                return;
+            }
+        }
+        entries.put(key, new Entry(claims, expiration.getTime()));
+    }
+
+    private void purgeExpired(long now) {
+        long last = lastPurgeAt.get();
+        if (now - last < PURGE_INTERVAL_MS || !lastPurgeAt.compareAndSet(last, now)) {
+            return;
+        }
+        entries.forEach((key, entry) -> {
+            if (entry.expiresAtMillis() <= now && entries.remove(key, entry)) {
+                evictions.increment();
+            }
+        });
+    }
+
+    private static String digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        sha256.reset();
+        return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private record Entry(Claims claims, long expiresAtMillis) {}
+}
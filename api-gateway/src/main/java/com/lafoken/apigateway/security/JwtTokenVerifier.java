@@ -0,0 +1,55 @@
+package com.withfy.apigateway.security;
+
+import com.withfy.apigateway.config.JwtProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+
+@Component
+public class JwtTokenVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenVerifier.class);
+
+    private final JwtProperties jwtProperties;
+    private final JwtClaimsCache claimsCache;
+    private JwtParser parser;
+
+    public JwtTokenVerifier(JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+        this.jwtProperties = jwtProperties;
+        int maxEntries = jwtProperties.cache() != null ? jwtProperties.cache().maxEntries() : 0;
+        this.claimsCache = new JwtClaimsCache(maxEntries, meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(jwtProperties.secret());
+        SecretKey key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser().verifyWith(key).build();
+    }
+
+    public Claims verify(String token) {
+        return claimsCache.resolve(token, this::parseAndVerify);
+    }
+
+    private Claims parseAndVerify(String token) {
+        try {
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (ExpiredJwtException | MalformedJwtException | SignatureException | UnsupportedJwtException | IllegalArgumentException e) {
+            log.warn("JWT validation error: {}", e.getMessage());
+            return null;
+        }
+    }
+}
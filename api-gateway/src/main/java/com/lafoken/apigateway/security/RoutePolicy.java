@@ -0,0 +1,8 @@
+package com.withfy.apigateway.security;
+
+public enum RoutePolicy {
+    OPEN,
+    AUTHENTICATED,
+    ADMIN,
+    INTERNAL
+}
@@ -0,0 +1,151 @@
+package com.withfy.apigateway.security;
+
+import com.withfy.apigateway.config.RouteSecurityProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Radix tree over the configured route patterns, built once at startup.
+ * Patterns ending in {@code /**} match by prefix, anything else matches the exact path.
+ * An exact match wins over a prefix match, and the longest matching prefix wins over shorter ones.
+ * Paths that match nothing are {@link RoutePolicy#OPEN}. {@link RoutePolicy#INTERNAL} paths are only for
+ * service-to-service calls and are never forwarded.
+ */
+@Component
+public class RouteSecurityMatcher {
+
+    private static final String PREFIX_WILDCARD = "**";
+
+    private final Node root = new Node("");
+
+    public RouteSecurityMatcher(RouteSecurityProperties properties) {
+        register(properties.open(), RoutePolicy.OPEN);
+        register(properties.authenticated(), RoutePolicy.AUTHENTICATED);
+        register(properties.admin(), RoutePolicy.ADMIN);
+        register(properties.internal(), RoutePolicy.INTERNAL);
+    }
+
+    public RoutePolicy match(String path) {
+        Node node = root;
+        RoutePolicy longestPrefix = root.prefixPolicy;
+        int offset = 0;
+        int length = path.length();
+        while (offset < length) {
+            Node child = node.child(path.charAt(offset));
+            if (child == null || !labelMatches(path, offset, child.label)) {
+                return longestPrefix != null ? longestPrefix : RoutePolicy.OPEN;
+            }
+            offset += child.label.length();
+            node = child;
+            if (node.prefixPolicy != null) {
+                longestPrefix = node.prefixPolicy;
+            }
+        }
+        if (node.exactPolicy != null) {
+            return node.exactPolicy;
+        }
+        return longestPrefix != null ? longestPrefix : RoutePolicy.OPEN;
+    }
+
+    private static boolean labelMatches(String path, int offset, String label) {
+        int labelLength = label.length();
+        if (path.length() - offset < labelLength) {
+            return false;
+        }
+        // the first character was already matched by the child lookup
+        for (int i = 1; i < labelLength; i++) {
+            if (path.charAt(offset + i) != label.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void register(List<String> patterns, RoutePolicy policy) {
+        if (patterns == null) {
+            return;
+        }
+        for (String pattern : patterns) {
+            String trimmed = pattern.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            boolean prefix = trimmed.endsWith(PREFIX_WILDCARD);
+            String path = prefix ? trimmed.substring(0, trimmed.length() - PREFIX_WILDCARD.length()) : trimmed;
+
+            Node node = insert(path);
+            RoutePolicy existing = prefix ? node.prefixPolicy : node.exactPolicy;
+            if (existing != null && existing != policy) {
+                throw new IllegalStateException("Route pattern '" + trimmed + "' is configured as both " + existing + " and " + policy);
+            }
+            if (prefix) {
+                node.prefixPolicy = policy;
+            } else {
+                node.exactPolicy = policy;
+            }
+        }
+    }
+
+    private Node insert(String path) {
+        Node node = root;
+        int offset = 0;
+        while (offset < path.length()) {
+            String remaining = path.substring(offset);
+            Node child = node.child(remaining.charAt(0));
+            if (child == null) {
+                return node.addChild(new Node(remaining));
+            }
+            int common = commonPrefixLength(child.label, remaining);
+            if (common < child.label.length()) {
+                Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.addChild(child);
+                node.replaceChild(split);
+                child = split;
+            }
+            offset += common;
+            node = child;
+        }
+        return node;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private static final int ASCII = 128;
+
+        private String label;
+        private final Node[] children = new Node[ASCII];
+        private RoutePolicy exactPolicy;
+        private RoutePolicy prefixPolicy;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char firstChar) {
+            return firstChar < ASCII ? children[firstChar] : null;
+        }
+
+        Node addChild(Node child) {
+            char firstChar = child.label.charAt(0);
+            if (firstChar >= ASCII) {
+                throw new IllegalStateException("Route patterns must be ASCII: '" + child.label + "'");
+            }
+            children[firstChar] = child;
+            return child;
+        }
+
+        void replaceChild(Node child) {
+            addChild(child);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.withfy.apigateway.cache;
+
+import com.withfy.apigateway.config.EdgeCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EdgeCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+    private EdgeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong(1_000_000L);
+        EdgeCacheProperties properties = new EdgeCacheProperties(
+            Duration.ofSeconds(60),
+            new EdgeCacheProperties.TierProperties(DataSize.ofBytes(100), DataSize.ofBytes(40)),
+            new EdgeCacheProperties.DiskTierProperties(directory.toString(), DataSize.ofBytes(1000), DataSize.ofBytes(500)),
+            DataSize.ofBytes(500));
+        cache = new EdgeCache(properties, meterRegistry, Runnable::run, now::get);
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) (seed + i);
+        }
+        return body;
+    }
+
+    private static byte[] read(ByteBuffer buffer) {
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.get(copy);
+        return copy;
+    }
+
+    @Test
+    void put_whenSmallObject_shouldKeepOnHeap() {
+        byte[] body = bytes(30, 1);
+        cache.put("/images/a.png", body, "image/png", "\"e1\"", -1);
+
+        CachedObject cached = cache.get("/images/a.png");
+
+        assertNotNull(cached);
+        assertEquals(EdgeCache.Tier.MEMORY, cached.tier());
+        assertArrayEquals(body, read(cached.slice(0, cached.length())));
+    }
+
+    @Test
+    void put_whenLargeObject_shouldServeFromMappedFile() {
+        byte[] body = bytes(300, 7);
+        cache.put("/songs/a.mp3", body, "audio/mpeg", "\"e2\"", 1_000L);
+
+        CachedObject cached = cache.get("/songs/a.mp3");
+
+        assertNotNull(cached);
+        assertEquals(EdgeCache.Tier.DISK, cached.tier());
+        assertTrue(cached.content().isDirect());
+        assertArrayEquals(Arrays.copyOfRange(body, 100, 150), read(cached.slice(100, 50)));
+    }
+
+    @Test
+    void put_whenAboveDiskObjectLimit_shouldNotAdmit() {
+        cache.put("/songs/huge.mp3", bytes(600, 0), "audio/mpeg", "\"e3\"", -1);
+
+        assertFalse(cache.admits(600));
+        assertNull(cache.get("/songs/huge.mp3"));
+    }
+
+    @Test
+    void put_whenMemoryTierFull_shouldEvictLeastRecentlyUsed() {
+        cache.put("/images/a", bytes(40, 0), null, null, -1);
+        cache.put("/images/b", bytes(40, 0), null, null, -1);
+        cache.get("/images/a");
+        cache.put("/images/c", bytes(40, 0), null, null, -1);
+
+        assertNotNull(cache.get("/images/a"));
+        assertNull(cache.get("/images/b"));
+        assertNotNull(cache.get("/images/c"));
+        assertEquals(1.0, meterRegistry.get("cache.evictions").tag("cache", EdgeCache.CACHE_NAME).counter().count());
+    }
+
+    @Test
+    void touch_shouldRestartFreshnessWindow() {
+        cache.put("/images/a", bytes(10, 0), null, "\"e1\"", -1);
+        CachedObject cached = cache.get("/images/a");
+        now.addAndGet(61_000);
+        assertFalse(cache.isFresh(cached, 60_000));
+
+        cache.touch("/images/a", cached);
+
+        assertTrue(cache.isFresh(cache.get("/images/a"), 60_000));
+    }
+
+    @Test
+    void startFill_whenLargeObjectStreamedInChunks_shouldMapSpillFileAndRemoveIt() throws Exception {
+        byte[] body = bytes(300, 3);
+        EdgeCache.Fill fill = cache.startFill("/songs/b.mp3", body.length, "audio/mpeg", "\"e4\"", -1);
+        assertNotNull(fill);
+
+        for (int offset = 0; offset < body.length; offset += 64) {
+            fill.write(ByteBuffer.wrap(body, offset, Math.min(64, body.length - offset)));
+        }
+        fill.complete();
+
+        CachedObject cached = cache.get("/songs/b.mp3");
+        assertNotNull(cached);
+        assertEquals(EdgeCache.Tier.DISK, cached.tier());
+        assertArrayEquals(body, read(cached.slice(0, cached.length())));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void startFill_whenKeyAlreadyFilling_shouldNotStartAnother() {
+        EdgeCache.Fill first = cache.startFill("/songs/a.mp3", 300, null, null, -1);
+
+        assertNotNull(first);
+        assertNull(cache.startFill("/songs/a.mp3", 300, null, null, -1));
+
+        first.abandon();
+        assertNotNull(cache.startFill("/songs/a.mp3", 300, null, null, -1));
+    }
+
+    @Test
+    void startFill_whenFillingBudgetExhausted_shouldNotStartUntilBytesAreReleased() {
+        EdgeCache.Fill first = cache.startFill("/songs/a.mp3", 300, null, null, -1);
+
+        assertNull(cache.startFill("/songs/b.mp3", 300, null, null, -1));
+        assertEquals(300.0, meterRegistry.get("cache.filling.bytes").gauge().value());
+
+        first.abandon();
+        assertEquals(0.0, meterRegistry.get("cache.filling.bytes").gauge().value());
+        assertNotNull(cache.startFill("/songs/b.mp3", 300, null, null, -1));
+    }
+
+    @Test
+    void complete_whenBodyShorterThanAnnounced_shouldNotCache() throws Exception {
+        EdgeCache.Fill fill = cache.startFill("/songs/a.mp3", 300, null, null, -1);
+        fill.write(ByteBuffer.wrap(bytes(200, 0)));
+
+        fill.complete();
+
+        assertNull(cache.get("/songs/a.mp3"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void write_whenBodyLongerThanAnnounced_shouldNotCache() {
+        EdgeCache.Fill fill = cache.startFill("/images/a", 10, null, null, -1);
+        fill.write(ByteBuffer.wrap(bytes(20, 0)));
+
+        fill.complete();
+
+        assertNull(cache.get("/images/a"));
+    }
+
+    @Test
+    void write_whenDiskTier_shouldLeaveFileWritesToDiskWriter() throws Exception {
+        List<Runnable> diskTasks = new ArrayList<>();
+        EdgeCache deferred = new EdgeCache(new EdgeCacheProperties(
+            Duration.ofSeconds(60),
+            new EdgeCacheProperties.TierProperties(DataSize.ofBytes(100), DataSize.ofBytes(40)),
+            new EdgeCacheProperties.DiskTierProperties(directory.toString(), DataSize.ofBytes(1000), DataSize.ofBytes(500)),
+            DataSize.ofBytes(500)), new SimpleMeterRegistry(), diskTasks::add, now::get);
+        byte[] body = bytes(300, 5);
+        ByteBuffer chunk = ByteBuffer.wrap(body);
+        EdgeCache.Fill fill = deferred.startFill("/songs/c.mp3", body.length, null, null, -1);
+
+        fill.write(chunk);
+        Arrays.fill(body, (byte) 0);
+        fill.complete();
+
+        assertEquals(300, chunk.remaining());
+        assertNull(deferred.get("/songs/c.mp3"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.findFirst().map(file -> file.toFile().length()).orElseThrow());
+        }
+        while (!diskTasks.isEmpty()) {
+            diskTasks.remove(0).run();
+        }
+        CachedObject cached = deferred.get("/songs/c.mp3");
+        assertNotNull(cached);
+        assertArrayEquals(bytes(300, 5), read(cached.slice(0, cached.length())));
+    }
+
+    @Test
+    void invalidate_whenDiskObjectIsBeingRead_shouldUnmapAfterLastReaderReleases() {
+        cache.put("/songs/a.mp3", bytes(300, 1), "audio/mpeg", "\"e5\"", -1);
+        CachedObject reading = cache.get("/songs/a.mp3");
+        assertEquals(300.0, meterRegistry.get("cache.mapped.bytes").gauge().value());
+
+        cache.invalidate("/songs/a.mp3");
+        assertEquals(300.0, meterRegistry.get("cache.mapped.bytes").gauge().value());
+        assertEquals(1, read(reading.slice(0, 1)).length);
+
+        reading.release();
+        assertEquals(0.0, meterRegistry.get("cache.mapped.bytes").gauge().value());
+    }
+
+    @Test
+    void put_whenDiskTierFull_shouldUnmapEvictedObject() {
+        cache.put("/songs/a.mp3", bytes(400, 1), null, null, -1);
+        cache.put("/songs/b.mp3", bytes(400, 2), null, null, -1);
+        cache.put("/songs/c.mp3", bytes(400, 3), null, null, -1);
+
+        assertNull(cache.get("/songs/a.mp3"));
+        assertEquals(800.0, meterRegistry.get("cache.mapped.bytes").gauge().value());
+    }
+}
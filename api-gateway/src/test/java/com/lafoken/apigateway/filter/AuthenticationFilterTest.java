@@ -0,0 +1,135 @@
+package com.withfy.apigateway.filter;
+
+import com.withfy.apigateway.config.RouteSecurityProperties;
+import com.withfy.apigateway.security.AuthDecision;
+import com.withfy.apigateway.security.JwtTokenVerifier;
+import com.withfy.apigateway.security.RouteSecurityMatcher;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuthenticationFilterTest {
+
+    private static final String TOKEN = "token";
+
+    @Mock
+    private JwtTokenVerifier jwtTokenVerifier;
+
+    private GatewayFilter filter;
+    private AtomicReference<ServerHttpRequest> forwarded;
+    private GatewayFilterChain downstream;
+
+    @BeforeEach
+    void setUp() {
+        RouteSecurityMatcher matcher = new RouteSecurityMatcher(new RouteSecurityProperties(
+            List.of("/api/v1/identity/auth/login"),
+            List.of("/api/v1/user/**"),
+            List.of("/api/v1/storage/objects", "/api/v1/storage/object"),
+            List.of("/api/v1/user/internal/**", "/api/v1/storage/presign/**")
+        ));
+        filter = new AuthenticationFilter(jwtTokenVerifier, matcher).apply(new AuthenticationFilter.Config());
+        forwarded = new AtomicReference<>();
+        downstream = exchange -> {
+            forwarded.set(exchange.getRequest());
+            return Mono.empty();
+        };
+    }
+
+    private MockServerWebExchange filter(HttpMethod method, String path, String roles) {
+        MockServerHttpRequest.BodyBuilder request = MockServerHttpRequest.method(method, URI.create(path));
+        if (roles != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN);
+            when(jwtTokenVerifier.verify(TOKEN)).thenReturn(Jwts.claims()
+                .subject("user@example.com")
+                .add("userId", "user-1")
+                .add("auth", roles)
+                .build());
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, downstream).block();
+        return exchange;
+    }
+
+    @Test
+    void filter_whenAdminPath_shouldForbidNonAdmins() {
+        MockServerWebExchange exchange = filter(HttpMethod.DELETE, "/api/v1/storage/objects", "ROLE_USER");
+
+        assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+        assertEquals(AuthDecision.FORBIDDEN, exchange.getAttribute(AuthenticationFilter.AUTH_DECISION_ATTR));
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void filter_whenAdminPathCarriesSegmentParameters_shouldStillRequireAdmin() {
+        MockServerWebExchange exchange = filter(HttpMethod.DELETE, "/api/v1/storage/objects;x", "ROLE_USER");
+
+        assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void filter_whenMetadataOrListingPathCarriesSegmentParameters_shouldStillRequireAdmin() {
+        MockServerWebExchange head = filter(HttpMethod.HEAD, "/api/v1/storage/object;v=1?bucketName=images&objectKey=a", null);
+        MockServerWebExchange list = filter(HttpMethod.GET, "/api/v1/storage/objects;x?bucketName=images", null);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, head.getResponse().getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, list.getResponse().getStatusCode());
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void filter_whenAdminPathIsPercentEncoded_shouldStillRequireAuthentication() {
+        MockServerWebExchange exchange = filter(HttpMethod.DELETE, "/api/v1/storage/%6Fbject", null);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void filter_whenInternalPathCarriesSegmentParameters_shouldNotBeForwarded() {
+        MockServerWebExchange exchange = filter(HttpMethod.GET, "/api/v1/user/internal;x/avatar-keys", null);
+
+        assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode());
+        assertEquals(AuthDecision.INTERNAL_ONLY, exchange.getAttribute(AuthenticationFilter.AUTH_DECISION_ATTR));
+    }
+
+    @Test
+    void filter_whenPresignPath_shouldNotBeForwardedEvenWhenAuthenticated() {
+        MockServerWebExchange exchange = filter(HttpMethod.POST, "/api/v1/storage/presign/upload", null);
+
+        assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode());
+        assertEquals(AuthDecision.INTERNAL_ONLY, exchange.getAttribute(AuthenticationFilter.AUTH_DECISION_ATTR));
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void filter_whenAdmin_shouldForwardUserHeaders() {
+        MockServerWebExchange exchange = filter(HttpMethod.DELETE, "/api/v1/storage/objects", "ROLE_USER, ROLE_ADMIN");
+
+        assertNull(exchange.getResponse().getStatusCode());
+        assertEquals(AuthDecision.AUTHENTICATED, exchange.getAttribute(AuthenticationFilter.AUTH_DECISION_ATTR));
+        assertEquals("user-1", forwarded.get().getHeaders().getFirst("X-User-ID"));
+        assertEquals("ROLE_USER, ROLE_ADMIN", forwarded.get().getHeaders().getFirst("X-User-Roles"));
+    }
+}
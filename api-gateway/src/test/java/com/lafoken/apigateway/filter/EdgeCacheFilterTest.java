@@ -0,0 +1,133 @@
+package com.withfy.apigateway.filter;
+
+import com.withfy.apigateway.cache.EdgeCache;
+import com.withfy.apigateway.config.EdgeCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EdgeCacheFilterTest {
+
+    private static final String BODY = "0123456789";
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayFilter filter;
+    private AtomicInteger originCalls;
+    private GatewayFilterChain origin;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        EdgeCacheProperties properties = new EdgeCacheProperties(
+            Duration.ofMinutes(1),
+            new EdgeCacheProperties.TierProperties(DataSize.ofKilobytes(1), DataSize.ofKilobytes(1)),
+            new EdgeCacheProperties.DiskTierProperties(directory.toString(), DataSize.ofKilobytes(4), DataSize.ofKilobytes(2)),
+            DataSize.ofKilobytes(8));
+        EdgeCache edgeCache = new EdgeCache(properties, meterRegistry);
+        filter = new EdgeCacheFilter(edgeCache, properties, meterRegistry).apply(new EdgeCacheFilter.Config());
+        originCalls = new AtomicInteger();
+        origin = exchange -> {
+            originCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setETag("\"v1\"");
+            exchange.getResponse().getHeaders().setContentLength(BODY.length());
+            exchange.getResponse().getHeaders().set(HttpHeaders.CONTENT_TYPE, "image/png");
+            return exchange.getResponse().writeWith(Mono.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(BODY.getBytes(StandardCharsets.US_ASCII))));
+        };
+    }
+
+    private MockServerWebExchange send(MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, origin).block();
+        return exchange;
+    }
+
+    @Test
+    void filter_whenObjectCached_shouldNotCallOriginAgain() {
+        MockServerWebExchange first = send(MockServerHttpRequest.get("/images/a.png").build());
+        MockServerWebExchange second = send(MockServerHttpRequest.get("/images/a.png").build());
+
+        assertEquals(1, originCalls.get());
+        assertEquals(BODY, first.getResponse().getBodyAsString().block());
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_whenClientEtagMatchesCachedCopy_shouldReturnNotModified() {
+        send(MockServerHttpRequest.get("/images/a.png").build());
+
+        MockServerWebExchange exchange = send(MockServerHttpRequest.get("/images/a.png").ifNoneMatch("\"v1\"").build());
+
+        assertEquals(HttpStatus.NOT_MODIFIED, exchange.getResponse().getStatusCode());
+        assertEquals(1, originCalls.get());
+    }
+
+    @Test
+    void filter_whenRangeRequestedFromCache_shouldReturnPartialContent() {
+        send(MockServerHttpRequest.get("/images/a.png").build());
+
+        MockServerWebExchange exchange = send(MockServerHttpRequest.get("/images/a.png").header(HttpHeaders.RANGE, "bytes=2-5").build());
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, exchange.getResponse().getStatusCode());
+        assertEquals("bytes 2-5/10", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void filter_whenSeekingIntoUncachedObject_shouldPassThroughWithoutCaching() {
+        send(MockServerHttpRequest.get("/songs/a.mp3").header(HttpHeaders.RANGE, "bytes=4-").build());
+        send(MockServerHttpRequest.get("/songs/a.mp3").header(HttpHeaders.RANGE, "bytes=4-").build());
+
+        assertEquals(2, originCalls.get());
+    }
+
+    @Test
+    void filter_whenSameObjectAlreadyFilling_shouldPassThroughWithoutStartingAnotherFill() {
+        Sinks.Many<DataBuffer> slowBody = Sinks.many().unicast().onBackpressureBuffer();
+        GatewayFilterChain slowOrigin = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setETag("\"v1\"");
+            exchange.getResponse().getHeaders().setContentLength(BODY.length());
+            return exchange.getResponse().writeWith(slowBody.asFlux());
+        };
+        MockServerWebExchange first = MockServerWebExchange.from(MockServerHttpRequest.get("/images/a.png").build());
+        filter.filter(first, slowOrigin).subscribe();
+
+        MockServerWebExchange second = send(MockServerHttpRequest.get("/images/a.png").build());
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+        assertEquals(1.0, meterRegistry.get("cache.fills.skipped").tag("reason", "busy").counter().count());
+
+        slowBody.tryEmitNext(DefaultDataBufferFactory.sharedInstance.wrap(BODY.getBytes(StandardCharsets.US_ASCII)));
+        slowBody.tryEmitComplete();
+        MockServerWebExchange third = send(MockServerHttpRequest.get("/images/a.png").build());
+
+        assertEquals(1, originCalls.get());
+        assertEquals("HIT", third.getResponse().getHeaders().getFirst("X-Cache"));
+        assertEquals(BODY, third.getResponse().getBodyAsString().block());
+    }
+}
@@ -0,0 +1,56 @@
+package com.withfy.apigateway.filter;
+
+import com.withfy.apigateway.config.InternalServiceProperties;
+import com.withfy.apigateway.security.AuthDecision;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InternalServiceTokenFilterTest {
+
+    private final AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+    private final GatewayFilterChain downstream = exchange -> {
+        forwarded.set(exchange.getRequest());
+        return Mono.empty();
+    };
+
+    private String forwardedToken(String configuredToken, AuthDecision decision, String presentedToken) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.delete("/api/v1/storage/objects");
+        if (presentedToken != null) {
+            request.header(InternalServiceTokenFilter.HEADER, presentedToken);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        if (decision != null) {
+            exchange.getAttributes().put(AuthenticationFilter.AUTH_DECISION_ATTR, decision);
+        }
+        new InternalServiceTokenFilter(new InternalServiceProperties(configuredToken))
+            .apply(new InternalServiceTokenFilter.Config())
+            .filter(exchange, downstream)
+            .block();
+        return forwarded.get().getHeaders().getFirst(InternalServiceTokenFilter.HEADER);
+    }
+
+    @Test
+    void filter_whenAuthenticated_shouldAddToken() {
+        assertEquals("s3cret", forwardedToken("s3cret", AuthDecision.AUTHENTICATED, null));
+    }
+
+    @Test
+    void filter_whenNotAuthenticated_shouldDropClientToken() {
+        assertNull(forwardedToken("s3cret", AuthDecision.OPEN, "guess"));
+        assertNull(forwardedToken("s3cret", null, "guess"));
+    }
+
+    @Test
+    void filter_whenNoTokenConfigured_shouldForwardNone() {
+        assertNull(forwardedToken("", AuthDecision.AUTHENTICATED, "guess"));
+    }
+}
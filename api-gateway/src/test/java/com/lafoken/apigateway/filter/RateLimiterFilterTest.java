@@ -0,0 +1,168 @@
+package com.withfy.apigateway.filter;
+
+import com.withfy.apigateway.config.RateLimitProperties;
+import com.withfy.apigateway.ratelimit.TokenBucketStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimiterFilterTest {
+
+    private static final String ROUTE_ID = "user-service-api-route";
+
+    @Mock
+    private TokenBucketStore tokenBucketStore;
+
+    private GatewayFilter filter;
+    private AtomicInteger downstreamCalls;
+    private GatewayFilterChain downstream;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterFilter.Config config = new RateLimiterFilter.Config();
+        config.setBurstCapacity(40);
+        config.setReplenishRate(20);
+        filter = new RateLimiterFilter(tokenBucketStore, properties(0)).apply(config);
+        downstreamCalls = new AtomicInteger();
+        downstream = exchange -> {
+            downstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        };
+    }
+
+    private static RateLimitProperties properties(int trustedProxies) {
+        return new RateLimitProperties(16, null, trustedProxies);
+    }
+
+    private static MockServerWebExchange exchange(String userId) {
+        return exchange(userId, null);
+    }
+
+    private static MockServerWebExchange exchange(String userId, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/v1/user/profile")
+            .remoteAddress(new InetSocketAddress("203.0.113.7", 51000));
+        if (forwardedFor != null) {
+            request.header("X-Forwarded-For", forwardedFor);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+            Route.async().id(ROUTE_ID).uri("http://user-service").predicate(e -> true).build());
+        if (userId != null) {
+            exchange.getAttributes().put(AuthenticationFilter.USER_ID_ATTR, userId);
+        }
+        return exchange;
+    }
+
+    @Test
+    void filter_whenUserAuthenticated_shouldLimitPerUser() {
+        when(tokenBucketStore.tryAcquire(anyString(), anyInt(), anyDouble())).thenReturn(0L);
+        MockServerWebExchange exchange = exchange("user-1");
+
+        filter.filter(exchange, downstream).block();
+
+        verify(tokenBucketStore).tryAcquire(ROUTE_ID + "|u:user-1", 40, 20.0);
+        assertEquals(1, downstreamCalls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_whenAnonymous_shouldFallBackToClientIp() {
+        when(tokenBucketStore.tryAcquire(anyString(), anyInt(), anyDouble())).thenReturn(0L);
+
+        filter.filter(exchange(null), downstream).block();
+
+        verify(tokenBucketStore).tryAcquire(ROUTE_ID + "|ip:203.0.113.7", 40, 20.0);
+        assertEquals(1, downstreamCalls.get());
+    }
+
+    @Test
+    void filter_whenBehindTrustedProxy_shouldUseForwardedClientIp() {
+        when(tokenBucketStore.tryAcquire(anyString(), anyInt(), anyDouble())).thenReturn(0L);
+        RateLimiterFilter.Config config = new RateLimiterFilter.Config();
+        config.setBurstCapacity(5);
+        config.setReplenishRate(0.2);
+        GatewayFilter behindProxy = new RateLimiterFilter(tokenBucketStore, properties(1)).apply(config);
+
+        behindProxy.filter(exchange(null, "10.9.9.9, 198.51.100.23"), downstream).block();
+
+        verify(tokenBucketStore).tryAcquire(ROUTE_ID + "|ip:198.51.100.23", 5, 0.2);
+    }
+
+    @Test
+    void filter_whenNoProxyTrusted_shouldIgnoreForwardedHeader() {
+        when(tokenBucketStore.tryAcquire(anyString(), anyInt(), anyDouble())).thenReturn(0L);
+
+        filter.filter(exchange(null, "198.51.100.23"), downstream).block();
+
+        verify(tokenBucketStore).tryAcquire(ROUTE_ID + "|ip:203.0.113.7", 40, 20.0);
+    }
+
+    @Test
+    void apply_whenReplenishRateIsNotPositive_shouldFail() {
+        RateLimiterFilter.Config config = new RateLimiterFilter.Config();
+        config.setBurstCapacity(5);
+        config.setReplenishRate(0);
+
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiterFilter(tokenBucketStore, properties(0)).apply(config));
+    }
+
+    @Test
+    void filter_whenBucketEmpty_shouldRejectWith429AndRetryAfter() {
+        when(tokenBucketStore.tryAcquire(anyString(), anyInt(), anyDouble()))
+            .thenReturn(TimeUnit.MILLISECONDS.toNanos(2500));
+        MockServerWebExchange exchange = exchange("user-1");
+
+        filter.filter(exchange, downstream).block();
+
+        assertEquals(0, downstreamCalls.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals("3", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void filter_whenWaitIsUnderASecond_shouldRoundRetryAfterUpToOne() {
+        when(tokenBucketStore.tryAcquire(anyString(), anyInt(), anyDouble()))
+            .thenReturn(TimeUnit.MILLISECONDS.toNanos(40));
+        MockServerWebExchange exchange = exchange(null);
+
+        filter.filter(exchange, downstream).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals("1", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void filter_whenTokenGranted_shouldNotSetRetryAfter() {
+        when(tokenBucketStore.tryAcquire(anyString(), anyInt(), anyDouble())).thenReturn(0L);
+        MockServerWebExchange exchange = exchange(null);
+
+        filter.filter(exchange, downstream).block();
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
@@ -0,0 +1,160 @@
+package com.withfy.apigateway.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.withfy.apigateway.config.AccessLogProperties;
+import com.withfy.apigateway.filter.AuthenticationFilter;
+import com.withfy.apigateway.security.AuthDecision;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogFilterTest {
+
+    private static final String ROUTE_ID = "user-service-api-route";
+
+    private Logger logger;
+    private ListAppender<ILoggingEvent> appender;
+    private AtomicInteger chainCalls;
+
+    @BeforeEach
+    void setUp() {
+        logger = (Logger) LoggerFactory.getLogger("access-log");
+        logger.setLevel(Level.INFO);
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        chainCalls = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(null);
+    }
+
+    private static AccessLogFilter filter(double sampleRate, Map<String, Double> routeSampleRates, Duration slowThreshold) {
+        return new AccessLogFilter(new AccessLogProperties(true, sampleRate, routeSampleRates, slowThreshold));
+    }
+
+    private GatewayFilterChain respondWith(HttpStatus status) {
+        return exchange -> {
+            chainCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(status);
+            return Mono.empty();
+        };
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/user/profile").build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+            Route.async().id(ROUTE_ID).uri("http://user-service").predicate(e -> true).build());
+        return exchange;
+    }
+
+    @Test
+    void filter_whenSampledOut_shouldNotLogButStillRunChain() {
+        filter(0.0, Map.of(), Duration.ofSeconds(10)).filter(exchange(), respondWith(HttpStatus.OK)).block();
+
+        assertEquals(1, chainCalls.get());
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void filter_whenRouteRateOverridesDefault_shouldUseRouteRate() {
+        filter(0.0, Map.of(ROUTE_ID, 1.0), Duration.ofSeconds(10)).filter(exchange(), respondWith(HttpStatus.OK)).block();
+
+        assertEquals(1, appender.list.size());
+        assertEquals(false, appender.list.get(0).getArgumentArray()[7]);
+    }
+
+    @Test
+    void filter_whenSlow_shouldLogEvenIfSampledOut() {
+        filter(0.0, Map.of(), Duration.ZERO).filter(exchange(), respondWith(HttpStatus.OK)).block();
+
+        assertEquals(1, appender.list.size());
+        assertEquals(true, appender.list.get(0).getArgumentArray()[7]);
+    }
+
+    @Test
+    void filter_whenServerError_shouldLogEvenIfSampledOut() {
+        filter(0.0, Map.of(), Duration.ofSeconds(10)).filter(exchange(), respondWith(HttpStatus.BAD_GATEWAY)).block();
+
+        assertEquals(1, appender.list.size());
+        assertEquals(502, appender.list.get(0).getArgumentArray()[3]);
+    }
+
+    @Test
+    void filter_shouldRecordRequestRouteAndAuthDecision() {
+        MockServerWebExchange exchange = exchange();
+        GatewayFilterChain chain = e -> {
+            e.getAttributes().put(AuthenticationFilter.AUTH_DECISION_ATTR, AuthDecision.AUTHENTICATED);
+            e.getAttributes().put(AuthenticationFilter.USER_ID_ATTR, "user-1");
+            return respondWith(HttpStatus.OK).filter(e);
+        };
+
+        filter(1.0, Map.of(), Duration.ofSeconds(10)).filter(exchange, chain).block();
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals(Level.INFO, event.getLevel());
+        String message = event.getFormattedMessage();
+        assertTrue(message.startsWith("method=GET path=/api/v1/user/profile route=" + ROUTE_ID
+            + " status=200 auth=AUTHENTICATED user=user-1 latencyMs="), message);
+        assertTrue(message.endsWith(" slow=false"), message);
+    }
+
+    @Test
+    void filter_whenAuthenticationDidNotRun_shouldRecordOpenAndNoUser() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/unknown").build());
+
+        filter(1.0, Map.of(), Duration.ofSeconds(10)).filter(exchange, respondWith(HttpStatus.NOT_FOUND)).block();
+
+        Object[] fields = appender.list.get(0).getArgumentArray();
+        assertEquals("-", fields[2]);
+        assertEquals(404, fields[3]);
+        assertEquals(AuthDecision.OPEN, fields[4]);
+        assertEquals("-", fields[5]);
+    }
+
+    @Test
+    void filter_whenAuthenticationRejected_shouldRecordDecision() {
+        GatewayFilterChain chain = e -> {
+            e.getAttributes().put(AuthenticationFilter.AUTH_DECISION_ATTR, AuthDecision.INVALID_TOKEN);
+            return respondWith(HttpStatus.UNAUTHORIZED).filter(e);
+        };
+
+        filter(1.0, Map.of(), Duration.ofSeconds(10)).filter(exchange(), chain).block();
+
+        Object[] fields = appender.list.get(0).getArgumentArray();
+        assertEquals(401, fields[3]);
+        assertEquals(AuthDecision.INVALID_TOKEN, fields[4]);
+        assertEquals("-", fields[5]);
+    }
+
+    @Test
+    void filter_whenDisabled_shouldNotLog() {
+        new AccessLogFilter(new AccessLogProperties(false, 1.0, Map.of(), Duration.ZERO))
+            .filter(exchange(), respondWith(HttpStatus.INTERNAL_SERVER_ERROR)).block();
+
+        assertEquals(1, chainCalls.get());
+        assertTrue(appender.list.isEmpty());
+    }
+}
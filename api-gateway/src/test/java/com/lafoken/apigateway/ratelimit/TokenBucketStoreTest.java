@@ -0,0 +1,69 @@
+package com.withfy.apigateway.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketStoreTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private AtomicLong now;
+    private TokenBucketStore store;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(0);
+        store = new TokenBucketStore(4, TimeUnit.MINUTES.toNanos(1), now::get);
+    }
+
+    @Test
+    void tryAcquire_whenBurstExhausted_shouldReturnWaitUntilNextToken() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.tryAcquire("route|ip:1", 3, 2));
+        }
+
+        long wait = store.tryAcquire("route|ip:1", 3, 2);
+
+        assertEquals(ONE_SECOND / 2, wait);
+    }
+
+    @Test
+    void tryAcquire_afterRefillInterval_shouldGrantAgain() {
+        for (int i = 0; i < 3; i++) {
+            store.tryAcquire("route|ip:1", 3, 2);
+        }
+
+        now.addAndGet(ONE_SECOND / 2);
+
+        assertEquals(0, store.tryAcquire("route|ip:1", 3, 2));
+        assertTrue(store.tryAcquire("route|ip:1", 3, 2) > 0);
+    }
+
+    @Test
+    void tryAcquire_shouldKeepSeparateBucketsPerKey() {
+        store.tryAcquire("route|u:1", 1, 1);
+
+        assertTrue(store.tryAcquire("route|u:1", 1, 1) > 0);
+        assertEquals(0, store.tryAcquire("route|u:2", 1, 1));
+    }
+
+    @Test
+    void tryAcquire_shouldEvictIdleBuckets() {
+        store.tryAcquire("route|ip:1", 3, 2);
+        store.tryAcquire("route|ip:2", 3, 2);
+        assertEquals(2, store.size());
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        for (int i = 0; i < 64; i++) {
+            store.tryAcquire("route|ip:probe-" + i, 3, 2);
+        }
+
+        assertEquals(64, store.size());
+    }
+}
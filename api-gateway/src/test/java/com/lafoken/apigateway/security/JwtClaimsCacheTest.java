@@ -0,0 +1,89 @@
+package com.withfy.apigateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JwtClaimsCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong now;
+    private AtomicInteger verifications;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong(1_000_000L);
+        verifications = new AtomicInteger();
+    }
+
+    private Claims claimsExpiringAt(long expiresAtMillis) {
+        return Jwts.claims().subject("user@example.com").expiration(new Date(expiresAtMillis)).build();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", JwtClaimsCache.CACHE_NAME).tag("result", result).counter().count();
+    }
+
+    @Test
+    void resolve_whenTokenSeenTwice_shouldVerifyOnceAndRecordHit() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, meterRegistry, now::get);
+        Claims claims = claimsExpiringAt(now.get() + 60_000);
+
+        Claims first = cache.resolve("token-a", token -> { verifications.incrementAndGet(); return claims; });
+        Claims second = cache.resolve("token-a", token -> { verifications.incrementAndGet(); return claims; });
+
+        assertSame(claims, first);
+        assertSame(claims, second);
+        assertEquals(1, verifications.get());
+        assertEquals(1.0, gets("hit"));
+        assertEquals(1.0, gets("miss"));
+    }
+
+    @Test
+    void resolve_whenEntryPassedExpiration_shouldVerifyAgain() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, meterRegistry, now::get);
+        Claims claims = claimsExpiringAt(now.get() + 1_000);
+        cache.resolve("token-a", token -> claims);
+
+        now.addAndGet(1_000);
+        Claims result = cache.resolve("token-a", token -> { verifications.incrementAndGet(); return null; });
+
+        assertNull(result);
+        assertEquals(1, verifications.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void resolve_whenVerificationFails_shouldNotCache() {
+        JwtClaimsCache cache = new JwtClaimsCache(10, meterRegistry, now::get);
+
+        cache.resolve("bad-token", token -> null);
+        cache.resolve("bad-token", token -> { verifications.incrementAndGet(); return null; });
+
+        assertEquals(1, verifications.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void resolve_whenFull_shouldNotGrowBeyondMaxEntries() {
+        JwtClaimsCache cache = new JwtClaimsCache(2, meterRegistry, now::get);
+        Claims claims = claimsExpiringAt(now.get() + 60_000);
+
+        cache.resolve("token-a", token -> claims);
+        cache.resolve("token-b", token -> claims);
+        cache.resolve("token-c", token -> claims);
+
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,73 @@
+package com.withfy.apigateway.security;
+
+import com.withfy.apigateway.config.RouteSecurityProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RouteSecurityMatcherTest {
+
+    private RouteSecurityMatcher matcher;
+
+    @BeforeEach
+    void setUp() {
+        matcher = new RouteSecurityMatcher(new RouteSecurityProperties(
+            List.of("/api/v1/identity/auth/login", "/api/v1/identity/admin/init-fixed-admin"),
+            List.of("/api/v1/identity/**", "/api/v1/user/**", "/api/v1/identity/admin/check-admin-role"),
+            List.of("/api/v1/identity/admin/**", "/api/v1/storage/objects", "/api/v1/storage/object"),
+            List.of("/api/v1/user/internal/**")
+        ));
+    }
+
+    @Test
+    void match_whenExactOpenEndpoint_shouldBeOpen() {
+        assertEquals(RoutePolicy.OPEN, matcher.match("/api/v1/identity/auth/login"));
+        assertEquals(RoutePolicy.OPEN, matcher.match("/api/v1/identity/admin/init-fixed-admin"));
+    }
+
+    @Test
+    void match_whenUnderSecuredPrefix_shouldRequireAuthentication() {
+        assertEquals(RoutePolicy.AUTHENTICATED, matcher.match("/api/v1/user/profile/me"));
+        assertEquals(RoutePolicy.AUTHENTICATED, matcher.match("/api/v1/identity/auth/login/extra"));
+        assertEquals(RoutePolicy.AUTHENTICATED, matcher.match("/api/v1/identity/admin/check-admin-role"));
+    }
+
+    @Test
+    void match_whenLongerPrefixIsAdmin_shouldRequireAdmin() {
+        assertEquals(RoutePolicy.ADMIN, matcher.match("/api/v1/identity/admin/users"));
+        assertEquals(RoutePolicy.ADMIN, matcher.match("/api/v1/identity/admin/"));
+    }
+
+    @Test
+    void match_whenExactAdminEndpoint_shouldRequireAdminOnlyForThatPath() {
+        assertEquals(RoutePolicy.ADMIN, matcher.match("/api/v1/storage/objects"));
+        assertEquals(RoutePolicy.ADMIN, matcher.match("/api/v1/storage/object"));
+        assertEquals(RoutePolicy.OPEN, matcher.match("/api/v1/storage/stream"));
+    }
+
+    @Test
+    void match_whenUnderInternalPrefix_shouldBeInternal() {
+        assertEquals(RoutePolicy.INTERNAL, matcher.match("/api/v1/user/internal/profiles:batchGet"));
+        assertEquals(RoutePolicy.INTERNAL, matcher.match("/api/v1/user/internal/avatar-keys"));
+        assertEquals(RoutePolicy.AUTHENTICATED, matcher.match("/api/v1/user/internals"));
+    }
+
+    @Test
+    void match_whenNoRuleApplies_shouldBeOpen() {
+        assertEquals(RoutePolicy.OPEN, matcher.match("/minio/images/avatar.png"));
+        assertEquals(RoutePolicy.OPEN, matcher.match("/api/v1/identity"));
+        assertEquals(RoutePolicy.OPEN, matcher.match(""));
+    }
+
+    @Test
+    void constructor_whenPatternHasConflictingPolicies_shouldFail() {
+        RouteSecurityProperties conflicting = new RouteSecurityProperties(
+            List.of("/api/v1/user/**"), List.of(), List.of("/api/v1/user/**"), List.of());
+
+        assertThrows(IllegalStateException.class, () -> new RouteSecurityMatcher(conflicting));
+    }
+}
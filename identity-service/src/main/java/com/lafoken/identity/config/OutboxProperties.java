@@ -0,0 +1,17 @@
+package com.lafoken.identity.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * {@code lease} must outlast publishing a batch and waiting {@code app.rabbitmq.publisher.confirm-timeout} for its
+ * confirms, or another relay may claim the same events while they are still in flight.
+ */
+@ConfigurationProperties(prefix = "app.outbox")
+public record OutboxProperties(
+    int batchSize,
+    Duration pollInterval,
+    Duration lease,
+    Duration retryDelay
+) {}
@@ -0,0 +1,16 @@
+package com.lafoken.identity.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * {@code threads} should not exceed {@code spring.rabbitmq.cache.channel.size}: each publishing thread holds one
+ * cached channel while it writes.
+ */
+@ConfigurationProperties(prefix = "app.rabbitmq.publisher")
+public record PublisherProperties(
+    int threads,
+    int queueCapacity,
+    Duration confirmTimeout
+) {}
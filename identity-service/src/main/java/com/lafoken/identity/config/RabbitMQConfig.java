@@ -31,6 +31,8 @@ public class RabbitMQConfig {
     public RabbitTemplate rabbitTemplate(final ConnectionFactory connectionFactory) {
         final RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(producerJackson2MessageConverter());
+        // unroutable messages come back to the publisher instead of being dropped, so the outbox can retry them
+        rabbitTemplate.setMandatory(true);
         return rabbitTemplate;
     }
 }
@@ -5,6 +5,7 @@ import com.lafoken.identity.dto.IsAdminResponse;
 import com.lafoken.identity.dto.PageResponse;
 import com.lafoken.identity.service.AdminService;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -23,24 +24,36 @@ import java.util.List;
 import com.lafoken.identity.dto.AdminInitRequest;
 import com.lafoken.identity.exception.OperationNotAllowedException;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 
 @RestController
 @RequestMapping("/api/v1/identity/admin")
 public class AdminController {
 
+    private static final CacheControl LIST_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final AdminService adminService;
 
     public AdminController(AdminService adminService) {
         this.adminService = adminService;
     }
 
+    /**
+     * The ETag is read before the page, so a write in between can only make it older than the content, which costs
+     * the client one extra full response rather than a stale 304.
+     */
     @GetMapping(value = "/users", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasRole('ADMIN')")
-    public Mono<PageResponse<AdminUserView>> getAllUsers(
+    public Mono<ResponseEntity<PageResponse<AdminUserView>>> getAllUsers(
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "10") int size) {
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            ServerWebExchange exchange) {
         PageRequest pageable = PageRequest.of(page, size);
-        return adminService.getAllUsersPaged(pageable);
+        return adminService.getUsersETag()
+            .flatMap(eTag -> exchange.checkNotModified(eTag)
+                ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(LIST_CACHE_CONTROL).<PageResponse<AdminUserView>>build())
+                : adminService.getAllUsersPaged(pageable)
+                    .map(body -> ResponseEntity.ok().eTag(eTag).cacheControl(LIST_CACHE_CONTROL).body(body)));
     }
 
     @PostMapping("/users/{userId}/ban")
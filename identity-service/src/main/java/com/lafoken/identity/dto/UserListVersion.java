@@ -0,0 +1,17 @@
+package com.lafoken.identity.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Changes whenever a user is added, removed or written, and so whenever any page of the admin user list may have.
+ */
+public record UserListVersion(
+    long total,
+    LocalDateTime lastModified
+) {
+    public String eTag() {
+        long micros = lastModified == null ? 0 : lastModified.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastModified.getNano() / 1_000;
+        return "W/\"users-" + total + "-" + Long.toHexString(micros) + "\"";
+    }
+}
@@ -0,0 +1,30 @@
+package com.lafoken.identity.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("outbox_events")
+public class OutboxEvent {
+    @Id
+    private Long id;
+    private UUID eventId;
+    private String exchange;
+    private String routingKey;
+    private String eventType;
+    private String payload;
+    private Integer attempts;
+    private String lastError;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+}
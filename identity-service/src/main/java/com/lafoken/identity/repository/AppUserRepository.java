@@ -1,5 +1,6 @@
 package com.lafoken.identity.repository;
 
+import com.lafoken.identity.dto.UserListVersion;
 import com.lafoken.identity.entity.AppUser;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
@@ -24,6 +25,9 @@ public interface AppUserRepository extends ReactiveCrudRepository<AppUser, UUID>
     @Query("SELECT COUNT(*) FROM app_users")
     Mono<Long> countAllUsers();
 
+    @Query("SELECT COUNT(*) AS total, MAX(updated_at) AS last_modified FROM app_users")
+    Mono<UserListVersion> findUserListVersion();
+
     @Query("INSERT INTO app_users (id, email, hashed_password, full_name, is_active, is_email_verified, auth_provider, roles, created_at, updated_at) " +
            "VALUES (:#{#appUser.id}, :#{#appUser.email}, :#{#appUser.hashedPassword}, :#{#appUser.fullName}, " +
            ":#{#appUser.isActive}, :#{#appUser.isEmailVerified}, :#{#appUser.authProvider.name()}, :#{#appUser.roles}, " +
@@ -0,0 +1,44 @@
+package com.lafoken.identity.repository;
+
+import com.lafoken.identity.entity.OutboxEvent;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends ReactiveCrudRepository<OutboxEvent, Long> {
+
+    @Modifying
+    @Query("INSERT INTO outbox_events (event_id, exchange, routing_key, event_type, payload) " +
+           "VALUES (:eventId, :exchange, :routingKey, :eventType, :payload)")
+    Mono<Integer> append(@Param("eventId") UUID eventId, @Param("exchange") String exchange,
+                         @Param("routingKey") String routingKey, @Param("eventType") String eventType,
+                         @Param("payload") String payload);
+
+    /**
+     * Leases up to {@code limit} due events, oldest first, by pushing their next attempt past the lease. Rows
+     * another relay is claiming at the same moment are skipped rather than waited on.
+     */
+    @Query("UPDATE outbox_events SET next_attempt_at = NOW() + make_interval(secs => :leaseSeconds) " +
+           "WHERE id IN (SELECT id FROM outbox_events WHERE next_attempt_at <= NOW() ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+           "RETURNING *")
+    Flux<OutboxEvent> claim(@Param("limit") int limit, @Param("leaseSeconds") double leaseSeconds);
+
+    @Modifying
+    @Query("DELETE FROM outbox_events WHERE id = ANY(:ids)")
+    Mono<Integer> deleteByIds(@Param("ids") Long[] ids);
+
+    /**
+     * Schedules another attempt, backing off exponentially up to 64 times the base delay.
+     */
+    @Modifying
+    @Query("UPDATE outbox_events SET attempts = attempts + 1, last_error = :lastError, " +
+           "next_attempt_at = NOW() + make_interval(secs => :delaySeconds * POWER(2, LEAST(attempts, 6))) WHERE id = ANY(:ids)")
+    Mono<Integer> reschedule(@Param("ids") Long[] ids, @Param("lastError") String lastError, @Param("delaySeconds") double delaySeconds);
+}
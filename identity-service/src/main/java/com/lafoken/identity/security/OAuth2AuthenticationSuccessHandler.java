@@ -138,14 +138,14 @@ public class OAuth2AuthenticationSuccessHandler implements ServerAuthenticationS
             .updatedAt(LocalDateTime.now())
             .build();
         return appUserRepository.save(newUser)
-            .doOnSuccess(savedUser -> {
+            .flatMap(savedUser -> {
                 UserRegisteredEvent event = new UserRegisteredEvent(
                     savedUser.getId().toString(),
                     savedUser.getEmail(),
                     savedUser.getFullName(),
                     savedUser.getAuthProvider().toString()
                 );
-                eventProducerService.sendUserRegisteredEvent(event);
+                return eventProducerService.sendUserRegisteredEvent(event).thenReturn(savedUser);
             });
     }
 
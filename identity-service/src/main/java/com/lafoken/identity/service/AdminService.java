@@ -2,6 +2,7 @@ package com.lafoken.identity.service;
 
 import com.lafoken.identity.dto.AdminUserView;
 import com.lafoken.identity.dto.PageResponse;
+import com.lafoken.identity.dto.UserListVersion;
 import com.lafoken.identity.event.UserBannedEvent;
 import com.lafoken.identity.exception.UserNotFoundException;
 import com.lafoken.identity.repository.AppUserRepository;
@@ -96,6 +97,14 @@ public class AdminService {
             }));
     }
 
+    /**
+     * Entity tag for every page of the user list, from an aggregate over {@code app_users} that reads no user rows
+     * into memory.
+     */
+    public Mono<String> getUsersETag() {
+        return appUserRepository.findUserListVersion().map(UserListVersion::eTag);
+    }
+
     public Mono<PageResponse<AdminUserView>> getAllUsersPaged(Pageable pageable) {
         log.info("AdminService: Fetching paged users. Page: {}, Size: {}", pageable.getPageNumber(), pageable.getPageSize());
         Mono<List<AdminUserView>> contentMono = appUserRepository.findAllUsersPaged(pageable)
@@ -140,10 +149,8 @@ public class AdminService {
                 user.setUpdatedAt(LocalDateTime.now());
                 return appUserRepository.save(user)
                     .then(refreshTokenRepository.deleteByUserId(userId))
-                    .doOnSuccess(v -> {
-                        log.info("User {} banned successfully. Refresh tokens deleted.", userIdString);
-                        eventProducerService.sendUserBannedEvent(new UserBannedEvent(userIdString));
-                    });
+                    .then(eventProducerService.sendUserBannedEvent(new UserBannedEvent(userIdString)))
+                    .doOnSuccess(v -> log.info("User {} banned successfully. Refresh tokens deleted.", userIdString));
             })
             .then();
     }
@@ -1,18 +1,28 @@
 package com.lafoken.identity.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lafoken.identity.event.UserBannedEvent;
 import com.lafoken.identity.event.UserRegisteredEvent;
+import com.lafoken.identity.repository.OutboxEventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.util.UUID;
+
+/**
+ * Writes user events to the {@code outbox_events} table instead of publishing them directly. Callers compose the
+ * returned {@link Mono} into their own transaction, so an event is stored if and only if the change it describes
+ * commits; {@link OutboxRelay} then delivers it to RabbitMQ.
+ */
 @Service
 public class EventProducerService {
 
     private static final Logger log = LoggerFactory.getLogger(EventProducerService.class);
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
 
     @Value("${app.rabbitmq.exchange.user-events}")
     private String userEventsExchange;
@@ -23,17 +33,25 @@ public class EventProducerService {
     @Value("${app.rabbitmq.routing-key.user-banned}")
     private String userBannedRoutingKey;
 
-    public EventProducerService(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public EventProducerService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public Mono<Void> sendUserRegisteredEvent(UserRegisteredEvent event) {
+        log.info("Queueing UserRegisteredEvent: {}", event);
+        return append(userRegisteredRoutingKey, event);
     }
 
-    public void sendUserRegisteredEvent(UserRegisteredEvent event) {
-        log.info("Sending UserRegisteredEvent: {}", event);
-        rabbitTemplate.convertAndSend(userEventsExchange, userRegisteredRoutingKey, event);
+    public Mono<Void> sendUserBannedEvent(UserBannedEvent event) {
+        log.info("Queueing UserBannedEvent: {}", event);
+        return append(userBannedRoutingKey, event);
     }
 
-    public void sendUserBannedEvent(UserBannedEvent event) {
-        log.info("Sending UserBannedEvent: {}", event);
-        rabbitTemplate.convertAndSend(userEventsExchange, userBannedRoutingKey, event);
+    private Mono<Void> append(String routingKey, Object event) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(event))
+            .flatMap(payload -> outboxEventRepository.append(UUID.randomUUID(), userEventsExchange, routingKey,
+                event.getClass().getName(), payload))
+            .then();
     }
 }
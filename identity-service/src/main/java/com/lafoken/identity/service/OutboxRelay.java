@@ -0,0 +1,128 @@
+package com.lafoken.identity.service;
+
+import com.lafoken.identity.config.OutboxProperties;
+import com.lafoken.identity.entity.OutboxEvent;
+import com.lafoken.identity.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers the events {@link EventProducerService} wrote to {@code outbox_events}.
+ * <p>
+ * Every {@code app.outbox.poll-interval} the relay leases a batch of due events and hands it to
+ * {@link ReactiveRabbitPublisher}, which writes the batch in order and reports each publisher confirm as it arrives.
+ * Confirmed events are deleted; events that were nacked, returned as unroutable or not confirmed in time are retried
+ * with a growing delay. Full batches are followed by the next one straight away, so a backlog drains without waiting
+ * for the next tick. Delivery is at least once: an event whose confirm is lost is published again, and carries the
+ * same message id both times.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ReactiveRabbitPublisher publisher;
+    private final OutboxProperties properties;
+    private final Disposable schedule;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, ReactiveRabbitPublisher publisher, OutboxProperties properties) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.publisher = publisher;
+        this.properties = properties;
+        this.schedule = Flux.interval(properties.pollInterval(), properties.pollInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> drain()
+                .doOnError(e -> log.warn("Outbox relay failed: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty()))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        schedule.dispose();
+    }
+
+    /**
+     * Relays batches until one comes back short.
+     */
+    Mono<Void> drain() {
+        return relayBatch()
+            .expand(claimed -> claimed == properties.batchSize() ? relayBatch() : Mono.empty())
+            .then();
+    }
+
+    private Mono<Integer> relayBatch() {
+        return outboxEventRepository.claim(properties.batchSize(), properties.lease().toMillis() / 1000.0)
+            .collectList()
+            .flatMap(batch -> batch.isEmpty() ? Mono.just(0) : publish(batch).thenReturn(batch.size()));
+    }
+
+    private Mono<Void> publish(List<OutboxEvent> batch) {
+        Map<String, OutboxEvent> byMessageId = new HashMap<>();
+        List<ReactiveRabbitPublisher.Outbound> messages = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            byMessageId.put(event.getEventId().toString(), event);
+            messages.add(new ReactiveRabbitPublisher.Outbound(event.getExchange(), event.getRoutingKey(), toMessage(event)));
+        }
+        return publisher.publishAll(messages)
+            .map(result -> new Outcome(byMessageId.get(result.outbound().message().getMessageProperties().getMessageId()), result.error()))
+            .collectList()
+            .flatMap(this::settle);
+    }
+
+    private Mono<Void> settle(List<Outcome> outcomes) {
+        List<Long> confirmed = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        String error = null;
+        for (Outcome outcome : outcomes) {
+            if (outcome.error() == null) {
+                confirmed.add(outcome.event().getId());
+            } else {
+                failed.add(outcome.event().getId());
+                error = outcome.error();
+            }
+        }
+        Mono<Integer> deleted = confirmed.isEmpty()
+            ? Mono.just(0)
+            : outboxEventRepository.deleteByIds(confirmed.toArray(Long[]::new));
+        if (failed.isEmpty()) {
+            log.debug("Relayed {} outbox events", confirmed.size());
+            return deleted.then();
+        }
+        log.warn("Relayed {} outbox events, {} will be retried: {}", confirmed.size(), failed.size(), error);
+        return deleted
+            .then(outboxEventRepository.reschedule(failed.toArray(Long[]::new), error, properties.retryDelay().toMillis() / 1000.0))
+            .then();
+    }
+
+    /**
+     * Builds the same message {@code Jackson2JsonMessageConverter} would, from the JSON stored at write time.
+     */
+    private static Message toMessage(OutboxEvent event) {
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        messageProperties.setContentEncoding(StandardCharsets.UTF_8.name());
+        messageProperties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        messageProperties.setMessageId(event.getEventId().toString());
+        messageProperties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, event.getEventType());
+        return new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), messageProperties);
+    }
+
+    private record Outcome(OutboxEvent event, String error) {}
+}
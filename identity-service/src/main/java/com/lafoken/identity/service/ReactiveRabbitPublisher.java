@@ -0,0 +1,120 @@
+package com.lafoken.identity.service;
+
+import com.lafoken.identity.config.PublisherProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Publishes to RabbitMQ without blocking the caller's thread, and reports each message as published only once the
+ * broker has confirmed it.
+ * <p>
+ * The channel writes run on a small dedicated pool of {@code app.rabbitmq.publisher.threads}; the channels
+ * themselves come from the connection factory's channel cache. Confirms and returns arrive on the AMQP connection
+ * thread and complete each message's {@link CorrelationData} future, so any number of confirms can be outstanding
+ * while nothing waits on them. A nack, an unroutable return or a missing confirm after
+ * {@code app.rabbitmq.publisher.confirm-timeout} fails the message with an {@link AmqpException}.
+ */
+@Service
+public class ReactiveRabbitPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveRabbitPublisher.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final PublisherProperties properties;
+    private final Scheduler scheduler;
+
+    public ReactiveRabbitPublisher(RabbitTemplate rabbitTemplate, PublisherProperties properties) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.properties = properties;
+        this.scheduler = Schedulers.newBoundedElastic(properties.threads(), properties.queueCapacity(), "rabbit-publisher");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+
+    /**
+     * Publishes one message; completes when the broker acks it.
+     */
+    public Mono<Void> publish(String exchange, String routingKey, Message message) {
+        return publishAll(List.of(new Outbound(exchange, routingKey, message)))
+            .single()
+            .flatMap(result -> result.isConfirmed() ? Mono.<Void>empty() : Mono.error(new AmqpException(result.error())));
+    }
+
+    /**
+     * Writes {@code messages} in order from a single task, then emits a result for each as its confirm arrives.
+     * Failures are reported in the results rather than as errors, so one bad message does not hide the others.
+     */
+    public Flux<Result> publishAll(List<Outbound> messages) {
+        if (messages.isEmpty()) {
+            return Flux.empty();
+        }
+        return Mono.fromCallable(() -> messages.stream().map(this::send).toList())
+            .subscribeOn(scheduler)
+            .onErrorMap(RejectedExecutionException.class, e -> new AmqpException("Publisher queue is full", e))
+            .flatMapMany(Flux::fromIterable)
+            .flatMap(this::awaitConfirm);
+    }
+
+    private Pending send(Outbound outbound) {
+        String id = outbound.message().getMessageProperties().getMessageId();
+        CorrelationData correlation = new CorrelationData(id != null ? id : UUID.randomUUID().toString());
+        try {
+            rabbitTemplate.send(outbound.exchange(), outbound.routingKey(), outbound.message(), correlation);
+            return new Pending(outbound, correlation, null);
+        } catch (RuntimeException e) {
+            log.debug("Could not publish message {} to {}: {}", correlation.getId(), outbound.exchange(), e.getMessage());
+            return new Pending(outbound, correlation, e.getMessage());
+        }
+    }
+
+    private Mono<Result> awaitConfirm(Pending pending) {
+        if (pending.error() != null) {
+            return Mono.just(new Result(pending.outbound(), pending.error()));
+        }
+        CorrelationData correlation = pending.correlation();
+        return Mono.fromFuture(correlation.getFuture())
+            .timeout(properties.confirmTimeout())
+            .map(confirm -> {
+                if (!confirm.isAck()) {
+                    return new Result(pending.outbound(), "nacked: " + confirm.getReason());
+                }
+                // the broker reports unroutable messages before acking them
+                if (correlation.getReturned() != null) {
+                    return new Result(pending.outbound(), "unroutable: " + correlation.getReturned().getReplyText());
+                }
+                return new Result(pending.outbound(), null);
+            })
+            .onErrorResume(e -> Mono.just(new Result(pending.outbound(), "no confirm: " + e.getMessage())));
+    }
+
+    public record Outbound(String exchange, String routingKey, Message message) {}
+
+    /**
+     * {@code error} is {@code null} when the broker confirmed the message.
+     */
+    public record Result(Outbound outbound, String error) {
+
+        public boolean isConfirmed() {
+            return error == null;
+        }
+    }
+
+    private record Pending(Outbound outbound, CorrelationData correlation, String error) {}
+}
@@ -2,6 +2,7 @@ package com.lafoken.identity.service;
 
 import com.lafoken.identity.dto.AdminUserView;
 import com.lafoken.identity.dto.PageResponse;
+import com.lafoken.identity.dto.UserListVersion;
 import com.lafoken.identity.entity.AppUser;
 import com.lafoken.identity.entity.AuthProvider;
 import com.lafoken.identity.event.UserBannedEvent;
@@ -28,6 +29,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -84,12 +88,38 @@ class AdminServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void getUsersETag_shouldChangeWhenUserCountOrLastUpdateChanges() {
+        LocalDateTime lastModified = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(appUserRepository.findUserListVersion())
+            .thenReturn(Mono.just(new UserListVersion(3, lastModified)))
+            .thenReturn(Mono.just(new UserListVersion(3, lastModified)))
+            .thenReturn(Mono.just(new UserListVersion(3, lastModified.plusSeconds(1))))
+            .thenReturn(Mono.just(new UserListVersion(2, lastModified)));
+
+        String first = adminService.getUsersETag().block();
+        assertTrue(first.startsWith("W/\""));
+        assertEquals(first, adminService.getUsersETag().block());
+        assertNotEquals(first, adminService.getUsersETag().block());
+        assertNotEquals(first, adminService.getUsersETag().block());
+        verify(appUserRepository, never()).findAllUsersPaged(any());
+    }
+
+    @Test
+    void getUsersETag_whenNoUsers_shouldStillReturnETag() {
+        when(appUserRepository.findUserListVersion()).thenReturn(Mono.just(new UserListVersion(0, null)));
+
+        StepVerifier.create(adminService.getUsersETag())
+            .expectNext("W/\"users-0-0\"")
+            .verifyComplete();
+    }
+
     @Test
     void banUser_whenUserExistsAndIsActive_shouldBanUserAndEmitEvent() {
         when(appUserRepository.findById(user1.getId())).thenReturn(Mono.just(user1));
         when(appUserRepository.save(any(AppUser.class))).thenReturn(Mono.just(user1));
         when(refreshTokenRepository.deleteByUserId(user1.getId())).thenReturn(Mono.empty());
-        doNothing().when(eventProducerService).sendUserBannedEvent(any(UserBannedEvent.class));
+        when(eventProducerService.sendUserBannedEvent(any(UserBannedEvent.class))).thenReturn(Mono.empty());
 
         Mono<Void> result = adminService.banUser(user1.getId().toString());
 
@@ -157,7 +157,7 @@ class AuthServiceTest {
         when(passwordEncoder.encode(registrationRequest.password())).thenReturn("encodedPassword");
         AppUser savedUser = AppUser.builder().id(UUID.randomUUID()).email(registrationRequest.email()).fullName(registrationRequest.fullName()).authProvider(AuthProvider.LOCAL).roles("ROLE_USER").build();
         when(appUserRepository.save(any(AppUser.class))).thenReturn(Mono.just(savedUser));
-        doNothing().when(eventProducerService).sendUserRegisteredEvent(any(UserRegisteredEvent.class));
+        when(eventProducerService.sendUserRegisteredEvent(any(UserRegisteredEvent.class))).thenReturn(Mono.empty());
 
         Mono<UserRegistrationResponse> result = authService.registerUser(registrationRequest);
 
@@ -1,38 +1,45 @@
 package com.lafoken.identity.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lafoken.identity.event.UserBannedEvent;
 import com.lafoken.identity.event.UserRegisteredEvent;
+import com.lafoken.identity.repository.OutboxEventRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 
 @ExtendWith(MockitoExtension.class)
 class EventProducerServiceTest {
 
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
     @Mock
     private RabbitTemplate rabbitTemplate;
 
-    @InjectMocks
-    private EventProducerService eventProducerService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    @Captor
-    private ArgumentCaptor<UserRegisteredEvent> userRegisteredEventCaptor;
+    private EventProducerService eventProducerService;
 
     @Captor
-    private ArgumentCaptor<UserBannedEvent> userBannedEventCaptor;
+    private ArgumentCaptor<String> payloadCaptor;
 
     private final String USER_EVENTS_EXCHANGE = "user.events.test.exchange";
     private final String USER_REGISTERED_ROUTING_KEY = "user.registered.test";
@@ -40,34 +47,44 @@ class EventProducerServiceTest {
 
     @BeforeEach
     void setUp() {
+        eventProducerService = new EventProducerService(outboxEventRepository, objectMapper);
         ReflectionTestUtils.setField(eventProducerService, "userEventsExchange", USER_EVENTS_EXCHANGE);
         ReflectionTestUtils.setField(eventProducerService, "userRegisteredRoutingKey", USER_REGISTERED_ROUTING_KEY);
         ReflectionTestUtils.setField(eventProducerService, "userBannedRoutingKey", USER_BANNED_ROUTING_KEY);
     }
 
     @Test
-    void sendUserRegisteredEvent_shouldSendCorrectEventToRabbit() {
+    void sendUserRegisteredEvent_shouldWriteEventToOutboxWithoutPublishing() throws Exception {
         UserRegisteredEvent event = new UserRegisteredEvent("userId1", "test@example.com", "Test User", "LOCAL");
-        eventProducerService.sendUserRegisteredEvent(event);
+        when(outboxEventRepository.append(any(), any(), any(), any(), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(eventProducerService.sendUserRegisteredEvent(event)).verifyComplete();
 
-        verify(rabbitTemplate, times(1)).convertAndSend(
+        verify(outboxEventRepository, times(1)).append(
+            any(),
             eq(USER_EVENTS_EXCHANGE),
             eq(USER_REGISTERED_ROUTING_KEY),
-            userRegisteredEventCaptor.capture()
+            eq(UserRegisteredEvent.class.getName()),
+            payloadCaptor.capture()
         );
-        assertEquals(event, userRegisteredEventCaptor.getValue());
+        assertEquals(event, objectMapper.readValue(payloadCaptor.getValue(), UserRegisteredEvent.class));
+        verifyNoInteractions(rabbitTemplate);
     }
 
     @Test
-    void sendUserBannedEvent_shouldSendCorrectEventToRabbit() {
+    void sendUserBannedEvent_shouldWriteEventToOutbox() throws Exception {
         UserBannedEvent event = new UserBannedEvent("userId2");
-        eventProducerService.sendUserBannedEvent(event);
+        when(outboxEventRepository.append(any(), any(), any(), any(), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(eventProducerService.sendUserBannedEvent(event)).verifyComplete();
 
-        verify(rabbitTemplate, times(1)).convertAndSend(
+        verify(outboxEventRepository, times(1)).append(
+            any(),
             eq(USER_EVENTS_EXCHANGE),
             eq(USER_BANNED_ROUTING_KEY),
-            userBannedEventCaptor.capture()
+            eq(UserBannedEvent.class.getName()),
+            payloadCaptor.capture()
         );
-        assertEquals(event, userBannedEventCaptor.getValue());
+        assertEquals(event, objectMapper.readValue(payloadCaptor.getValue(), UserBannedEvent.class));
     }
 }
@@ -0,0 +1,143 @@
+package com.lafoken.identity.service;
+
+import com.lafoken.identity.config.OutboxProperties;
+import com.lafoken.identity.config.PublisherProperties;
+import com.lafoken.identity.entity.OutboxEvent;
+import com.lafoken.identity.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    private static final String EXCHANGE = "user.events.exchange";
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private ReactiveRabbitPublisher publisher;
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new ReactiveRabbitPublisher(rabbitTemplate, new PublisherProperties(1, 10, Duration.ofMillis(200)));
+        OutboxProperties properties = new OutboxProperties(2, Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(5));
+        outboxRelay = new OutboxRelay(outboxEventRepository, publisher, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboxRelay.shutdown();
+        publisher.shutdown();
+    }
+
+    private static OutboxEvent event(long id) {
+        return OutboxEvent.builder()
+            .id(id)
+            .eventId(UUID.randomUUID())
+            .exchange(EXCHANGE)
+            .routingKey("user.registered")
+            .eventType("com.lafoken.identity.event.UserRegisteredEvent")
+            .payload("{\"userId\":\"u" + id + "\"}")
+            .attempts(0)
+            .build();
+    }
+
+    private void confirmWith(boolean ack) {
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "queue full"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void drain_whenBrokerAcks_shouldPublishAndDeleteEvents() {
+        OutboxEvent event = event(1);
+        when(outboxEventRepository.claim(eq(2), anyDouble())).thenReturn(Flux.just(event));
+        confirmWith(true);
+        when(outboxEventRepository.deleteByIds(any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(outboxRelay.drain()).verifyComplete();
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(EXCHANGE), eq("user.registered"), message.capture(), any(CorrelationData.class));
+        assertEquals(event.getEventId().toString(), message.getValue().getMessageProperties().getMessageId());
+        assertEquals(event.getEventType(), message.getValue().getMessageProperties().getHeader("__TypeId__"));
+        verify(outboxEventRepository).deleteByIds(new Long[] {1L});
+        verify(outboxEventRepository, never()).reschedule(any(), any(), anyDouble());
+    }
+
+    @Test
+    void drain_whenBatchIsFull_shouldClaimAgainUntilShortBatch() {
+        when(outboxEventRepository.claim(eq(2), anyDouble()))
+            .thenReturn(Flux.just(event(1), event(2)))
+            .thenReturn(Flux.just(event(3)));
+        confirmWith(true);
+        when(outboxEventRepository.deleteByIds(any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(outboxRelay.drain()).verifyComplete();
+
+        verify(outboxEventRepository, times(2)).claim(anyInt(), anyDouble());
+        verify(rabbitTemplate, times(3)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void drain_whenBrokerNacks_shouldRescheduleEvent() {
+        when(outboxEventRepository.claim(eq(2), anyDouble())).thenReturn(Flux.just(event(7)));
+        confirmWith(false);
+        when(outboxEventRepository.reschedule(any(), anyString(), anyDouble())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(outboxRelay.drain()).verifyComplete();
+
+        ArgumentCaptor<Long[]> ids = ArgumentCaptor.forClass(Long[].class);
+        verify(outboxEventRepository).reschedule(ids.capture(), eq("nacked: queue full"), eq(5.0));
+        assertArrayEquals(new Long[] {7L}, ids.getValue());
+        verify(outboxEventRepository, never()).deleteByIds(any());
+    }
+
+    @Test
+    void drain_whenBrokerIsDownOrSilent_shouldKeepEventsForRetry() {
+        when(outboxEventRepository.claim(eq(2), anyDouble())).thenReturn(Flux.just(event(1), event(2)))
+            .thenReturn(Flux.empty());
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+            .doNothing()
+            .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        when(outboxEventRepository.reschedule(any(), anyString(), anyDouble())).thenReturn(Mono.just(2));
+
+        StepVerifier.create(outboxRelay.drain()).verifyComplete();
+
+        ArgumentCaptor<Long[]> ids = ArgumentCaptor.forClass(Long[].class);
+        verify(outboxEventRepository).reschedule(ids.capture(), anyString(), anyDouble());
+        assertEquals(2, ids.getValue().length);
+        verify(outboxEventRepository, never()).deleteByIds(any());
+    }
+}
@@ -0,0 +1,101 @@
+package com.lafoken.identity.service;
+
+import com.lafoken.identity.config.PublisherProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveRabbitPublisherTest {
+
+    private static final String EXCHANGE = "user.events.exchange";
+    private static final String ROUTING_KEY = "user.banned";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private ReactiveRabbitPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new ReactiveRabbitPublisher(rabbitTemplate, new PublisherProperties(1, 10, Duration.ofMillis(200)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    private static Message message(String id) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(id);
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    @Test
+    void publish_shouldCompleteOnAckOffTheCallingThread() {
+        Thread caller = Thread.currentThread();
+        doAnswer(invocation -> {
+            assertNotEquals(caller, Thread.currentThread());
+            CorrelationData correlation = invocation.getArgument(3);
+            assertEquals("m1", correlation.getId());
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        StepVerifier.create(publisher.publish(EXCHANGE, ROUTING_KEY, message("m1"))).verifyComplete();
+    }
+
+    @Test
+    void publish_whenReturnedAsUnroutable_shouldFail() {
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.setReturned(new ReturnedMessage(invocation.getArgument(2), 312, "NO_ROUTE", EXCHANGE, ROUTING_KEY));
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        StepVerifier.create(publisher.publish(EXCHANGE, ROUTING_KEY, message("m1")))
+            .expectErrorMatches(e -> e instanceof AmqpException && e.getMessage().equals("unroutable: NO_ROUTE"))
+            .verify();
+    }
+
+    @Test
+    void publishAll_shouldReportEachMessageIndependently() {
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            boolean ack = !correlation.getId().equals("m2");
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "rejected"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        StepVerifier.create(publisher.publishAll(List.of(
+                    new ReactiveRabbitPublisher.Outbound(EXCHANGE, ROUTING_KEY, message("m1")),
+                    new ReactiveRabbitPublisher.Outbound(EXCHANGE, ROUTING_KEY, message("m2"))))
+                .filter(result -> !result.isConfirmed())
+                .map(result -> result.outbound().message().getMessageProperties().getMessageId() + " " + result.error()))
+            .expectNext("m2 nacked: rejected")
+            .verifyComplete();
+        verify(rabbitTemplate, times(2)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+}
@@ -0,0 +1,24 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "storage.dedup")
+public record DedupProperties(
+    List<String> buckets,
+    String blobPrefix
+) {
+    public DedupProperties {
+        if (buckets == null) {
+            buckets = List.of();
+        }
+        if (blobPrefix == null || blobPrefix.isBlank()) {
+            blobPrefix = ".blobs/";
+        }
+    }
+
+    public boolean isEnabledFor(String bucketName) {
+        return buckets.contains(bucketName);
+    }
+}
@@ -0,0 +1,45 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "storage.delete-queue")
+public record DeleteQueueProperties(
+    int batchSize,
+    Duration flushInterval,
+    int capacity,
+    int maxRetries,
+    Duration retryBackoff,
+    Duration sweepInterval,
+    int sweepBatchSize,
+    Duration retryDelay
+) {
+    public DeleteQueueProperties {
+        // a DeleteObjects request takes at most 1000 keys
+        if (batchSize <= 0 || batchSize > 1000) {
+            batchSize = 1000;
+        }
+        if (flushInterval == null) {
+            flushInterval = Duration.ofMillis(500);
+        }
+        if (capacity <= 0) {
+            capacity = 10_000;
+        }
+        if (maxRetries < 0) {
+            maxRetries = 0;
+        }
+        if (retryBackoff == null) {
+            retryBackoff = Duration.ofMillis(500);
+        }
+        if (sweepInterval == null) {
+            sweepInterval = Duration.ofMinutes(1);
+        }
+        if (sweepBatchSize <= 0) {
+            sweepBatchSize = 1000;
+        }
+        if (retryDelay == null) {
+            retryDelay = Duration.ofMinutes(1);
+        }
+    }
+}
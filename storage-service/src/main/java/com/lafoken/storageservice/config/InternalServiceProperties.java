@@ -0,0 +1,22 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * Requests to {@code paths} (Spring path patterns) must carry {@code token} in {@code X-Internal-Service-Token}.
+ * The gateway adds it only to requests it has authenticated and other services send it themselves. While the
+ * token is blank, those paths refuse every request.
+ */
+@ConfigurationProperties(prefix = "storage.internal-service")
+public record InternalServiceProperties(
+    String token,
+    List<String> paths
+) {
+    public InternalServiceProperties {
+        if (paths == null) {
+            paths = List.of();
+        }
+    }
+}
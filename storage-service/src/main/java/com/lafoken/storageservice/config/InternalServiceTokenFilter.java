@@ -0,0 +1,68 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Refuses requests to the configured internal paths unless they carry the internal service token. Paths are
+ * matched the way handlers are dispatched, so {@code ;} parameters or percent-encoding cannot route a request
+ * around the check.
+ */
+@Component
+public class InternalServiceTokenFilter implements WebFilter {
+
+    public static final String HEADER = "X-Internal-Service-Token";
+
+    private final byte[] token;
+    private final List<PathPattern> paths;
+
+    public InternalServiceTokenFilter(InternalServiceProperties properties) {
+        this.token = properties.token() != null && !properties.token().isBlank()
+            ? properties.token().getBytes(StandardCharsets.UTF_8)
+            : null;
+        this.paths = properties.paths().stream()
+            .map(String::trim)
+            .filter(path -> !path.isEmpty())
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!isInternal(exchange) || matches(exchange.getRequest().getHeaders().getFirst(HEADER))) {
+            return chain.filter(exchange);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.FORBIDDEN);
+        return response.setComplete();
+    }
+
+    private boolean isInternal(ServerWebExchange exchange) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        for (PathPattern pattern : paths) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(String presented) {
+        if (token == null || presented == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,6 +2,7 @@ package com.withfy.storageservice.config;
 
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import io.minio.SetBucketPolicyArgs;
 import lombok.RequiredArgsConstructor;
@@ -25,6 +26,7 @@ public class MinioConfig {
         try {
             createBucketIfNotExists(client, minioProperties.bucket().images(), true);
             createBucketIfNotExists(client, minioProperties.bucket().songs(), true);
+            createBucketIfNotExists(client, minioProperties.bucket().system(), false);
         } catch (Exception e) {
             log.error("Error initializing MinIO buckets", e);
             throw new RuntimeException("Could not initialize MinIO buckets", e);
@@ -32,6 +34,14 @@ public class MinioConfig {
         return client;
     }
 
+    @Bean
+    public MultipartMinioClient minioAsyncClient() {
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(minioProperties.url())
+                .credentials(minioProperties.accessKey(), minioProperties.secretKey())
+                .build());
+    }
+
     private void createBucketIfNotExists(MinioClient client, String bucketName, boolean makePublicReadable) throws Exception {
         boolean found = client.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
         if (!found) {
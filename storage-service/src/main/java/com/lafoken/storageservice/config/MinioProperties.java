@@ -9,6 +9,6 @@ public record MinioProperties(
     String secretKey,
     BucketProperties bucket
 ) {
-    public record BucketProperties(String images, String songs) {}
+    public record BucketProperties(String images, String songs, String system) {}
 }
 
@@ -0,0 +1,45 @@
+package com.withfy.storageservice.config;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.UploadPartResponse;
+import io.minio.messages.Part;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exposes the S3 multipart primitives that {@link MinioAsyncClient} keeps protected, so uploads can be
+ * driven part by part from a reactive pipeline instead of through a blocking {@code InputStream}.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public CompletableFuture<String> createMultipartUpload(String bucketName, String objectKey, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", contentType);
+        return createMultipartUploadAsync(bucketName, null, objectKey, headers, HashMultimap.create())
+            .thenApply(response -> response.result().uploadId());
+    }
+
+    /**
+     * Uploads one part. The SDK sends a {@code Content-MD5} header for byte-array bodies, so the server
+     * rejects a part whose bytes were corrupted in transit with {@code BadDigest}.
+     */
+    public CompletableFuture<UploadPartResponse> uploadPart(String bucketName, String objectKey, String uploadId,
+                                                            int partNumber, byte[] data, int length) throws Exception {
+        return uploadPartAsync(bucketName, null, objectKey, data, length, uploadId, partNumber, HashMultimap.create(), HashMultimap.create());
+    }
+
+    public CompletableFuture<ObjectWriteResponse> completeMultipartUpload(String bucketName, String objectKey, String uploadId, Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucketName, null, objectKey, uploadId, parts, HashMultimap.create(), HashMultimap.create());
+    }
+
+    public CompletableFuture<Void> abortMultipartUpload(String bucketName, String objectKey, String uploadId) throws Exception {
+        return abortMultipartUploadAsync(bucketName, null, objectKey, uploadId, HashMultimap.create(), HashMultimap.create()).thenApply(response -> null);
+    }
+}
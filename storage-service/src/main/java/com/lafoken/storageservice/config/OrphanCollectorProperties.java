@@ -0,0 +1,56 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "storage.gc")
+public record OrphanCollectorProperties(
+    boolean enabled,
+    String bucket,
+    String prefix,
+    String referencesUrl,
+    String referencesToken,
+    Duration initialDelay,
+    Duration interval,
+    Duration gracePeriod,
+    long expectedReferences,
+    double falsePositiveRate,
+    int deleteBatchSize,
+    int deletesPerSecond,
+    boolean dryRun
+) {
+    public OrphanCollectorProperties {
+        if (prefix == null) {
+            prefix = "";
+        }
+        if (initialDelay == null) {
+            initialDelay = Duration.ofMinutes(10);
+        }
+        if (interval == null) {
+            interval = Duration.ofHours(24);
+        }
+        if (gracePeriod == null) {
+            gracePeriod = Duration.ofHours(24);
+        }
+        if (expectedReferences <= 0) {
+            expectedReferences = 1_000_000L;
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            falsePositiveRate = 0.01;
+        }
+        if (deleteBatchSize <= 0 || deleteBatchSize > 1000) {
+            deleteBatchSize = 100;
+        }
+        if (deletesPerSecond <= 0) {
+            deletesPerSecond = 50;
+        }
+    }
+
+    /**
+     * The pause between delete batches that keeps the collector at {@code deletesPerSecond}.
+     */
+    public Duration batchDelay() {
+        return Duration.ofMillis(Math.max(1, deleteBatchSize * 1000L / deletesPerSecond));
+    }
+}
@@ -0,0 +1,30 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "storage.presign")
+public record PresignProperties(
+    String publicEndpoint,
+    String region,
+    Duration uploadExpiry,
+    Duration downloadExpiry,
+    DataSize maxUploadSize
+) {
+    public PresignProperties {
+        if (region == null || region.isBlank()) {
+            region = "us-east-1";
+        }
+        if (uploadExpiry == null) {
+            uploadExpiry = Duration.ofMinutes(10);
+        }
+        if (downloadExpiry == null) {
+            downloadExpiry = Duration.ofMinutes(15);
+        }
+        if (maxUploadSize == null) {
+            maxUploadSize = DataSize.ofMegabytes(10);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "storage.io")
+public record StorageIoProperties(
+    int threads,
+    int queueCapacity,
+    Duration keepAlive,
+    Map<String, Integer> bucketConcurrency
+) {
+    public StorageIoProperties {
+        if (threads <= 0) {
+            threads = 10 * Runtime.getRuntime().availableProcessors();
+        }
+        if (queueCapacity <= 0) {
+            queueCapacity = 1000;
+        }
+        if (keepAlive == null) {
+            keepAlive = Duration.ofSeconds(60);
+        }
+        if (bucketConcurrency == null) {
+            bucketConcurrency = Map.of();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "storage.thumbnails")
+public record ThumbnailProperties(
+    List<String> buckets,
+    List<Integer> sizes,
+    String format,
+    float quality,
+    int workers,
+    int queueCapacity,
+    long maxSourcePixels,
+    Duration timeout
+) {
+    public ThumbnailProperties {
+        if (buckets == null) {
+            buckets = List.of();
+        }
+        if (sizes == null || sizes.isEmpty()) {
+            sizes = List.of(64, 128, 256);
+        }
+        if (format == null || format.isBlank()) {
+            format = "jpg";
+        }
+        if (quality <= 0 || quality > 1) {
+            quality = 0.85f;
+        }
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        if (queueCapacity <= 0) {
+            queueCapacity = 32;
+        }
+        if (maxSourcePixels <= 0) {
+            maxSourcePixels = 50_000_000L;
+        }
+        if (timeout == null) {
+            timeout = Duration.ofSeconds(10);
+        }
+    }
+
+    public boolean isEnabledFor(String bucketName) {
+        return buckets.contains(bucketName);
+    }
+}
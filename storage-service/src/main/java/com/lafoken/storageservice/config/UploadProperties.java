@@ -0,0 +1,46 @@
+package com.withfy.storageservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "storage.upload")
+public record UploadProperties(
+    PartUploadProperties defaults,
+    PartUploadProperties songs,
+    Duration sessionTtl,
+    Duration reapInterval
+) {
+    public UploadProperties {
+        if (sessionTtl == null) {
+            sessionTtl = Duration.ofHours(24);
+        }
+        if (reapInterval == null) {
+            reapInterval = Duration.ofHours(1);
+        }
+        if (defaults == null) {
+            defaults = new PartUploadProperties(null, 0, 0, null);
+        }
+        if (songs == null) {
+            songs = defaults;
+        }
+    }
+
+    public record PartUploadProperties(DataSize partSize, int concurrency, int maxPartRetries, Duration retryBackoff) {
+        public PartUploadProperties {
+            if (partSize == null) {
+                partSize = DataSize.ofMegabytes(8);
+            }
+            if (concurrency <= 0) {
+                concurrency = 2;
+            }
+            if (maxPartRetries < 0) {
+                maxPartRetries = 0;
+            }
+            if (retryBackoff == null) {
+                retryBackoff = Duration.ofMillis(200);
+            }
+        }
+    }
+}
@@ -1,23 +1,37 @@
 package com.withfy.storageservice.controller;
 
+import com.withfy.storageservice.dto.DeleteObjectsRequest;
+import com.withfy.storageservice.dto.DeleteObjectsResponse;
 import com.withfy.storageservice.dto.FileUploadResponse;
 import com.withfy.storageservice.dto.FileUrlResponse;
+import com.withfy.storageservice.dto.ObjectListResponse;
+import com.withfy.storageservice.dto.ObjectMetadataResponse;
 import com.withfy.storageservice.exception.InvalidStorageRequestException;
+import com.withfy.storageservice.exception.RangeNotSatisfiableException;
 import com.withfy.storageservice.service.FileStorageService;
+import com.withfy.storageservice.service.ObjectMetadataIndex;
+import com.withfy.storageservice.service.ObjectStream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Base64;
+import java.util.HexFormat;
+
 @RestController
 @RequestMapping("/api/v1/storage")
 @RequiredArgsConstructor
 public class FileController {
 
     private final FileStorageService fileStorageService;
+    private final ObjectMetadataIndex metadataIndex;
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public Mono<FileUploadResponse> uploadFile(
@@ -37,6 +51,70 @@ public class FileController {
                 .map(FileUrlResponse::new);
     }
 
+    @GetMapping("/stream")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> streamFile(
+            @RequestParam("bucketName") String bucketName,
+            @RequestParam("objectKey") String objectKey,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
+        return fileStorageService.streamFile(bucketName, objectKey, range)
+                .map(this::toStreamResponse)
+                .onErrorResume(RangeNotSatisfiableException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + e.getObjectSize())
+                                .build()));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> toStreamResponse(ObjectStream stream) {
+        ResponseEntity.BodyBuilder builder = stream.range() != null
+                ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).header(HttpHeaders.CONTENT_RANGE, stream.range().contentRange(stream.objectSize()))
+                : ResponseEntity.ok();
+        builder.header(HttpHeaders.ACCEPT_RANGES, "bytes").contentLength(stream.contentLength());
+        if (stream.etag() != null) {
+            builder.eTag(stream.etag());
+        }
+        MediaType contentType = stream.contentType() != null
+                ? MediaType.parseMediaType(stream.contentType())
+                : MediaType.APPLICATION_OCTET_STREAM;
+        return builder.contentType(contentType).body(stream.content());
+    }
+
+    /**
+     * Answers from the metadata index without touching MinIO. {@code Repr-Digest} carries the SHA-256 of the
+     * content when it is known.
+     */
+    @RequestMapping(value = "/object", method = RequestMethod.HEAD)
+    public Mono<ResponseEntity<Void>> headObject(
+            @RequestParam("bucketName") String bucketName,
+            @RequestParam("objectKey") String objectKey) {
+        return metadataIndex.find(bucketName, objectKey)
+                .map(this::toHeadResponse);
+    }
+
+    private ResponseEntity<Void> toHeadResponse(ObjectMetadataResponse metadata) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentLength(metadata.size())
+                .contentType(metadata.contentType() != null
+                        ? MediaType.parseMediaType(metadata.contentType())
+                        : MediaType.APPLICATION_OCTET_STREAM)
+                .lastModified(metadata.lastModified());
+        if (metadata.etag() != null) {
+            builder.eTag(metadata.etag());
+        }
+        if (metadata.sha256() != null) {
+            builder.header("Repr-Digest", "sha-256=:" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(metadata.sha256())) + ":");
+        }
+        return builder.build();
+    }
+
+    @GetMapping("/objects")
+    public Mono<ObjectListResponse> listObjects(
+            @RequestParam("bucketName") String bucketName,
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return metadataIndex.list(bucketName, prefix, after, limit);
+    }
+
     @DeleteMapping("/object")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteFile(
@@ -44,4 +122,11 @@ public class FileController {
             @RequestParam("objectKey") String objectKey) {
         return fileStorageService.deleteFile(bucketName, objectKey);
     }
+
+    @DeleteMapping("/objects")
+    public Mono<DeleteObjectsResponse> deleteFiles(
+            @RequestBody DeleteObjectsRequest request,
+            @RequestParam(value = "deferred", defaultValue = "false") boolean deferred) {
+        return fileStorageService.deleteFiles(request.bucketName(), request.objectKeys(), deferred);
+    }
 }
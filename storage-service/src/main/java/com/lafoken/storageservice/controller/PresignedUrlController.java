@@ -0,0 +1,46 @@
+package com.withfy.storageservice.controller;
+
+import com.withfy.storageservice.dto.FileUploadResponse;
+import com.withfy.storageservice.dto.PresignedUploadResponse;
+import com.withfy.storageservice.dto.PresignedUrlResponse;
+import com.withfy.storageservice.service.PresignedUrlService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Signs MinIO URLs for any bucket and key, so it is only for other services: the gateway never forwards these
+ * paths and {@code InternalServiceTokenFilter} requires the internal service token on them.
+ */
+@RestController
+@RequestMapping("/api/v1/storage/presign")
+@RequiredArgsConstructor
+public class PresignedUrlController {
+
+    private final PresignedUrlService presignedUrlService;
+
+    @PostMapping("/upload")
+    public Mono<PresignedUploadResponse> presignUpload(
+            @RequestParam("bucketName") String bucketName,
+            @RequestParam("objectKey") String objectKey,
+            @RequestParam("contentType") String contentType,
+            @RequestParam("contentLength") long contentLength) {
+        return presignedUrlService.presignUpload(bucketName, objectKey, contentType, contentLength);
+    }
+
+    @GetMapping("/download")
+    public Mono<PresignedUrlResponse> presignDownload(
+            @RequestParam("bucketName") String bucketName,
+            @RequestParam("objectKey") String objectKey) {
+        return presignedUrlService.presignDownload(bucketName, objectKey);
+    }
+
+    @PostMapping("/confirm")
+    public Mono<FileUploadResponse> confirmUpload(
+            @RequestParam("bucketName") String bucketName,
+            @RequestParam("objectKey") String objectKey,
+            @RequestParam(value = "contentTypePrefix", required = false) String contentTypePrefix,
+            @RequestParam(value = "maxContentLength", required = false) Long maxContentLength) {
+        return presignedUrlService.confirmUpload(bucketName, objectKey, contentTypePrefix, maxContentLength);
+    }
+}
@@ -0,0 +1,95 @@
+package com.withfy.storageservice.controller;
+
+import com.withfy.storageservice.dto.FileUploadResponse;
+import com.withfy.storageservice.dto.UploadSessionResponse;
+import com.withfy.storageservice.service.ResumableUploadService;
+import com.withfy.storageservice.service.UploadSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Resumable uploads for signed-in users. The gateway authenticates the caller and passes the user in
+ * {@code X-User-ID}; {@code InternalServiceTokenFilter} rejects requests that did not come through it.
+ */
+@RestController
+@RequestMapping("/api/v1/storage/uploads")
+@RequiredArgsConstructor
+public class ResumableUploadController {
+
+    public static final String USER_ID = "X-User-ID";
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+    public static final String OFFSET_OCTET_STREAM_VALUE = "application/offset+octet-stream";
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public Mono<ResponseEntity<UploadSessionResponse>> createSession(
+            @RequestHeader(USER_ID) String userId,
+            @RequestParam("bucketName") String bucketName,
+            @RequestParam("objectKey") String objectKey,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestHeader(value = UPLOAD_LENGTH, required = false) Long uploadLength) {
+        return resumableUploadService.createSession(userId, bucketName, objectKey, contentType, uploadLength)
+                .map(session -> ResponseEntity.created(URI.create("/api/v1/storage/uploads/" + session.id()))
+                        .header(UPLOAD_OFFSET, String.valueOf(session.offset()))
+                        .body(toResponse(session)));
+    }
+
+    @RequestMapping(value = "/{sessionId}", method = RequestMethod.HEAD)
+    public Mono<ResponseEntity<Void>> getOffset(@RequestHeader(USER_ID) String userId, @PathVariable String sessionId) {
+        return resumableUploadService.getSession(userId, sessionId)
+                .map(session -> ResponseEntity.ok().headers(offsetHeaders(session)).<Void>build());
+    }
+
+    @GetMapping("/{sessionId}")
+    public Mono<UploadSessionResponse> getSession(@RequestHeader(USER_ID) String userId, @PathVariable String sessionId) {
+        return resumableUploadService.getSession(userId, sessionId).map(this::toResponse);
+    }
+
+    @PatchMapping(value = "/{sessionId}", consumes = {OFFSET_OCTET_STREAM_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Mono<ResponseEntity<Void>> appendChunk(
+            @RequestHeader(USER_ID) String userId,
+            @PathVariable String sessionId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            @RequestBody Flux<DataBuffer> body) {
+        return resumableUploadService.appendChunk(userId, sessionId, offset, body)
+                .map(session -> ResponseEntity.noContent().headers(offsetHeaders(session)).<Void>build());
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public Mono<FileUploadResponse> complete(@RequestHeader(USER_ID) String userId, @PathVariable String sessionId) {
+        return resumableUploadService.complete(userId, sessionId);
+    }
+
+    @DeleteMapping("/{sessionId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> abort(@RequestHeader(USER_ID) String userId, @PathVariable String sessionId) {
+        return resumableUploadService.abort(userId, sessionId);
+    }
+
+    private HttpHeaders offsetHeaders(UploadSession session) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(UPLOAD_OFFSET, String.valueOf(session.offset()));
+        headers.setCacheControl(CacheControl.noStore());
+        if (session.uploadLength() != null) {
+            headers.set(UPLOAD_LENGTH, String.valueOf(session.uploadLength()));
+        }
+        return headers;
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        return new UploadSessionResponse(session.id(), session.bucketName(), session.objectKey(),
+                session.offset(), session.uploadLength(), session.expiresAt());
+    }
+}
@@ -0,0 +1,5 @@
+package com.withfy.storageservice.dto;
+
+import java.util.List;
+
+public record DeleteObjectsRequest(String bucketName, List<String> objectKeys) {}
@@ -0,0 +1,8 @@
+package com.withfy.storageservice.dto;
+
+import java.util.List;
+
+/**
+ * {@code pending} lists the keys that are not gone yet; storage-service keeps retrying them in the background.
+ */
+public record DeleteObjectsResponse(String bucketName, List<String> deleted, List<String> pending) {}
@@ -1,4 +1,14 @@
 package com.withfy.storageservice.dto;
 
-public record FileUploadResponse(String objectKey, String bucketName, String publicUrl) {}
+import java.util.Map;
 
+/**
+ * {@code renditions} maps each thumbnail size to its public URL; it is empty for buckets and content without them.
+ * Renditions are rendered after the response is sent, so their URLs may not resolve yet.
+ */
+public record FileUploadResponse(String objectKey, String bucketName, String publicUrl, Map<String, String> renditions) {
+
+    public FileUploadResponse(String objectKey, String bucketName, String publicUrl) {
+        this(objectKey, bucketName, publicUrl, Map.of());
+    }
+}
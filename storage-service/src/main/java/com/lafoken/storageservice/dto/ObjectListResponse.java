@@ -0,0 +1,8 @@
+package com.withfy.storageservice.dto;
+
+import java.util.List;
+
+/**
+ * {@code nextAfter} is the cursor for the following page, or {@code null} when this page is the last.
+ */
+public record ObjectListResponse(String bucketName, String prefix, List<ObjectMetadataResponse> objects, String nextAfter) {}
@@ -0,0 +1,6 @@
+package com.withfy.storageservice.dto;
+
+import java.time.Instant;
+
+public record ObjectMetadataResponse(String objectKey, long size, String contentType, String etag, String sha256,
+                                     Instant lastModified) {}
@@ -0,0 +1,12 @@
+package com.withfy.storageservice.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record PresignedUploadResponse(
+    String bucketName,
+    String objectKey,
+    String url,
+    Map<String, String> formData,
+    Instant expiresAt
+) {}
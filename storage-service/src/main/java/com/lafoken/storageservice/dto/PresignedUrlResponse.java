@@ -0,0 +1,5 @@
+package com.withfy.storageservice.dto;
+
+import java.time.Instant;
+
+public record PresignedUrlResponse(String url, Instant expiresAt) {}
@@ -0,0 +1,3 @@
+package com.withfy.storageservice.dto;
+
+public record ReferencedObject(String objectKey) {}
@@ -0,0 +1,12 @@
+package com.withfy.storageservice.dto;
+
+import java.time.Instant;
+
+public record UploadSessionResponse(
+    String sessionId,
+    String bucketName,
+    String objectKey,
+    long offset,
+    Long uploadLength,
+    Instant expiresAt
+) {}
@@ -0,0 +1,27 @@
+package com.withfy.storageservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("content_blobs")
+public class ContentBlob {
+    @Id
+    private Long id;
+    private String bucketName;
+    private String digest;
+    private long size;
+    private String contentType;
+    private int refCount;
+    private boolean stored;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.withfy.storageservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("content_refs")
+public class ContentRef {
+    @Id
+    private Long id;
+    private String bucketName;
+    private String objectKey;
+    private String digest;
+    private LocalDateTime createdAt;
+}
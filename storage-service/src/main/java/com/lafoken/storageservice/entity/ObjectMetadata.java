@@ -0,0 +1,28 @@
+package com.withfy.storageservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("object_metadata")
+public class ObjectMetadata {
+    @Id
+    private Long id;
+    private String bucketName;
+    private String objectKey;
+    private String storedKey;
+    private Long size;
+    private String contentType;
+    private String etag;
+    private String sha256;
+    private Instant updatedAt;
+}
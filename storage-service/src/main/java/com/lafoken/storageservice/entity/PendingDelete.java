@@ -0,0 +1,26 @@
+package com.withfy.storageservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("pending_deletes")
+public class PendingDelete {
+    @Id
+    private Long id;
+    private String bucketName;
+    private String objectKey;
+    private Integer attempts;
+    private String lastError;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package com.withfy.storageservice.exception;
+
+public class PartChecksumMismatchException extends MinioOperationException {
+    public PartChecksumMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.withfy.storageservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class RangeNotSatisfiableException extends AppException {
+    private final long objectSize;
+
+    public RangeNotSatisfiableException(String message, long objectSize) {
+        super(message, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        this.objectSize = objectSize;
+    }
+
+    public long getObjectSize() {
+        return objectSize;
+    }
+}
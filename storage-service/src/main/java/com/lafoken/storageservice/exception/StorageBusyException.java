@@ -0,0 +1,9 @@
+package com.withfy.storageservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class StorageBusyException extends AppException {
+    public StorageBusyException(String message, Throwable cause) {
+        super(message, HttpStatus.SERVICE_UNAVAILABLE, cause);
+    }
+}
@@ -0,0 +1,9 @@
+package com.withfy.storageservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class StorageObjectNotFoundException extends AppException {
+    public StorageObjectNotFoundException(String message) {
+        super(message, HttpStatus.NOT_FOUND);
+    }
+}
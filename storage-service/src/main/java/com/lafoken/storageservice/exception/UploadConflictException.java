@@ -0,0 +1,9 @@
+package com.withfy.storageservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadConflictException extends AppException {
+    public UploadConflictException(String message) {
+        super(message, HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,9 @@
+package com.withfy.storageservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadSessionNotFoundException extends AppException {
+    public UploadSessionNotFoundException(String message) {
+        super(message, HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,43 @@
+package com.withfy.storageservice.repository;
+
+import com.withfy.storageservice.entity.ContentBlob;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ContentBlobRepository extends ReactiveCrudRepository<ContentBlob, Long> {
+
+    /**
+     * Creates an unreferenced, not yet stored row for the blob unless one exists, and returns whether the blob's
+     * MinIO object has been stored.
+     */
+    @Query("INSERT INTO content_blobs (bucket_name, digest, size, content_type, ref_count, stored) " +
+           "VALUES (:bucketName, :digest, :size, :contentType, 0, FALSE) " +
+           "ON CONFLICT (bucket_name, digest) DO UPDATE SET ref_count = content_blobs.ref_count " +
+           "RETURNING stored")
+    Mono<Boolean> reserve(@Param("bucketName") String bucketName, @Param("digest") String digest,
+                          @Param("size") long size, @Param("contentType") String contentType);
+
+    @Modifying
+    @Query("UPDATE content_blobs SET stored = TRUE WHERE bucket_name = :bucketName AND digest = :digest")
+    Mono<Integer> markStored(@Param("bucketName") String bucketName, @Param("digest") String digest);
+
+    /**
+     * Takes a reference on a stored blob and returns the new reference count. Emits nothing if the row is gone or
+     * its object has not been stored; rows are deleted when their count drops back to 0.
+     */
+    @Query("UPDATE content_blobs SET ref_count = ref_count + 1 " +
+           "WHERE bucket_name = :bucketName AND digest = :digest AND stored RETURNING ref_count")
+    Mono<Integer> acquire(@Param("bucketName") String bucketName, @Param("digest") String digest);
+
+    @Query("UPDATE content_blobs SET ref_count = ref_count - 1 WHERE bucket_name = :bucketName AND digest = :digest RETURNING ref_count")
+    Mono<Integer> release(@Param("bucketName") String bucketName, @Param("digest") String digest);
+
+    @Modifying
+    @Query("DELETE FROM content_blobs WHERE bucket_name = :bucketName AND digest = :digest AND ref_count <= 0")
+    Mono<Integer> deleteIfUnreferenced(@Param("bucketName") String bucketName, @Param("digest") String digest);
+}
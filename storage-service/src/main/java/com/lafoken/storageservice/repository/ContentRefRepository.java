@@ -0,0 +1,28 @@
+package com.withfy.storageservice.repository;
+
+import com.withfy.storageservice.entity.ContentRef;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ContentRefRepository extends ReactiveCrudRepository<ContentRef, Long> {
+
+    @Query("SELECT digest FROM content_refs WHERE bucket_name = :bucketName AND object_key = :objectKey")
+    Mono<String> findDigest(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+
+    @Query("SELECT digest FROM content_refs WHERE bucket_name = :bucketName AND object_key = :objectKey FOR UPDATE")
+    Mono<String> findDigestForUpdate(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+
+    @Modifying
+    @Query("INSERT INTO content_refs (bucket_name, object_key, digest) VALUES (:bucketName, :objectKey, :digest) " +
+           "ON CONFLICT (bucket_name, object_key) DO UPDATE SET digest = EXCLUDED.digest, created_at = NOW()")
+    Mono<Integer> upsert(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey, @Param("digest") String digest);
+
+    @Modifying
+    @Query("DELETE FROM content_refs WHERE bucket_name = :bucketName AND object_key = :objectKey")
+    Mono<Integer> deleteByKey(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey);
+}
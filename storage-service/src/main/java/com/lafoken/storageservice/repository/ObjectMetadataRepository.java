@@ -0,0 +1,49 @@
+package com.withfy.storageservice.repository;
+
+import com.withfy.storageservice.entity.ObjectMetadata;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ObjectMetadataRepository extends ReactiveCrudRepository<ObjectMetadata, Long> {
+
+    @Modifying
+    @Query("INSERT INTO object_metadata (bucket_name, object_key, stored_key, size, content_type, etag, sha256) " +
+           "VALUES (:bucketName, :objectKey, :storedKey, :size, :contentType, :etag, :sha256) " +
+           "ON CONFLICT (bucket_name, object_key) DO UPDATE SET stored_key = EXCLUDED.stored_key, size = EXCLUDED.size, " +
+           "content_type = EXCLUDED.content_type, etag = EXCLUDED.etag, sha256 = EXCLUDED.sha256, updated_at = NOW()")
+    Mono<Integer> upsert(@Param("bucketName") String bucketName, @Param("objectKey") String objectKey,
+                         @Param("storedKey") String storedKey, @Param("size") long size,
+                         @Param("contentType") String contentType, @Param("etag") String etag, @Param("sha256") String sha256);
+
+    Mono<ObjectMetadata> findByBucketNameAndObjectKey(String bucketName, String objectKey);
+
+    /**
+     * One page of keys after {@code after} that start with {@code prefix}, in byte order. Only the lower bound is
+     * indexed, so a prefix with few matches scans every later key; use {@link #findPageInRange} when the prefix has
+     * an upper bound.
+     */
+    @Query("SELECT * FROM object_metadata WHERE bucket_name = :bucketName AND object_key > :after " +
+           "AND object_key >= :prefix AND starts_with(object_key, :prefix) ORDER BY object_key LIMIT :limit")
+    Flux<ObjectMetadata> findPage(@Param("bucketName") String bucketName, @Param("prefix") String prefix,
+                                  @Param("after") String after, @Param("limit") int limit);
+
+    /**
+     * One page of keys after {@code after} in {@code [prefix, prefixEnd)}, in byte order. Both bounds are index
+     * conditions, so the scan stops at the end of the prefix even when it has fewer than {@code limit} keys.
+     */
+    @Query("SELECT * FROM object_metadata WHERE bucket_name = :bucketName AND object_key > :after " +
+           "AND object_key >= :prefix AND object_key < :prefixEnd ORDER BY object_key LIMIT :limit")
+    Flux<ObjectMetadata> findPageInRange(@Param("bucketName") String bucketName, @Param("prefix") String prefix,
+                                         @Param("prefixEnd") String prefixEnd, @Param("after") String after,
+                                         @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM object_metadata WHERE bucket_name = :bucketName AND object_key = ANY(:objectKeys)")
+    Mono<Integer> deleteByKeys(@Param("bucketName") String bucketName, @Param("objectKeys") String[] objectKeys);
+}
@@ -0,0 +1,34 @@
+package com.withfy.storageservice.repository;
+
+import com.withfy.storageservice.entity.PendingDelete;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface PendingDeleteRepository extends ReactiveCrudRepository<PendingDelete, Long> {
+
+    /**
+     * Records keys whose removal failed. A key that is already pending has its attempt count bumped and its next
+     * attempt pushed back exponentially, capped at 64 times the base delay.
+     */
+    @Modifying
+    @Query("INSERT INTO pending_deletes (bucket_name, object_key, last_error, next_attempt_at) " +
+           "SELECT :bucketName, key, :lastError, NOW() + make_interval(secs => :delaySeconds) FROM UNNEST(:objectKeys) AS key " +
+           "ON CONFLICT (bucket_name, object_key) DO UPDATE SET attempts = pending_deletes.attempts + 1, " +
+           "last_error = EXCLUDED.last_error, " +
+           "next_attempt_at = NOW() + make_interval(secs => :delaySeconds * POWER(2, LEAST(pending_deletes.attempts + 1, 6)))")
+    Mono<Integer> upsert(@Param("bucketName") String bucketName, @Param("objectKeys") String[] objectKeys,
+                         @Param("lastError") String lastError, @Param("delaySeconds") double delaySeconds);
+
+    @Query("SELECT * FROM pending_deletes WHERE next_attempt_at <= NOW() ORDER BY next_attempt_at LIMIT :limit")
+    Flux<PendingDelete> findDue(@Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM pending_deletes WHERE bucket_name = :bucketName AND object_key = ANY(:objectKeys)")
+    Mono<Integer> deleteByKeys(@Param("bucketName") String bucketName, @Param("objectKeys") String[] objectKeys);
+}
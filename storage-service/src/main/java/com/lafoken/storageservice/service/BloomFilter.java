@@ -0,0 +1,70 @@
+package com.withfy.storageservice.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-size Bloom filter over strings. {@link #mightContain} never returns {@code false} for a key that was put,
+ * and returns {@code true} for an absent key with roughly the false positive rate the filter was sized for.
+ */
+final class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.bits = new long[(int) ((bitCount + 63) / 64)];
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long bitCount = Math.max(64, (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        bitCount = Math.min(bitCount, (long) Integer.MAX_VALUE * 64);
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+        return new BloomFilter(bitCount, hashCount);
+    }
+
+    void put(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    // FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so both 32-bit halves are usable
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,50 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.exception.RangeNotSatisfiableException;
+
+/**
+ * A single inclusive byte window of an object, resolved from an HTTP {@code Range} header.
+ */
+public record ByteRange(long start, long end) {
+
+    private static final String BYTES_PREFIX = "bytes=";
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange(long objectSize) {
+        return "bytes " + start + "-" + end + "/" + objectSize;
+    }
+
+    /**
+     * Returns {@code null} when the whole object should be sent: no header, a non-byte unit, or several ranges.
+     */
+    public static ByteRange parse(String header, long objectSize) {
+        if (header == null || !header.startsWith(BYTES_PREFIX) || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(BYTES_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            throw new RangeNotSatisfiableException("Malformed range: " + header, objectSize);
+        }
+        try {
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0 || objectSize == 0) {
+                    throw new RangeNotSatisfiableException("Range not satisfiable: " + header, objectSize);
+                }
+                return new ByteRange(Math.max(0, objectSize - suffix), objectSize - 1);
+            }
+            long start = Long.parseLong(spec.substring(0, dash));
+            long end = dash == spec.length() - 1 ? objectSize - 1 : Long.parseLong(spec.substring(dash + 1));
+            if (start >= objectSize || end < start) {
+                throw new RangeNotSatisfiableException("Range not satisfiable: " + header, objectSize);
+            }
+            return new ByteRange(start, Math.min(end, objectSize - 1));
+        } catch (NumberFormatException e) {
+            throw new RangeNotSatisfiableException("Malformed range: " + header, objectSize);
+        }
+    }
+}
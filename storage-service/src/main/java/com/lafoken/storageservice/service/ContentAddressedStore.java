@@ -0,0 +1,197 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.DedupProperties;
+import com.withfy.storageservice.exception.MinioOperationException;
+import com.withfy.storageservice.repository.ContentBlobRepository;
+import com.withfy.storageservice.repository.ContentRefRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.MinioAsyncClient;
+import io.minio.RemoveObjectArgs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Content-addressed storage for buckets listed in {@code storage.dedup.buckets}. Each distinct content is stored
+ * once under {@code <blob-prefix>sha256/<xx>/<digest>}, and object keys are reference-counted pointers to it.
+ * <p>
+ * A new blob is copied into place before any transaction starts: its row is first reserved as not yet stored, and
+ * only flagged as stored once the copy is done. The reference transaction that follows takes a reference only on a
+ * stored row, so it holds row locks for a few statements rather than for a copy of a multi-megabyte object. If the
+ * blob is released and removed between the two steps, the commit finds no stored row and starts over. Removing a
+ * blob still happens inside the transaction that deletes its row, so a concurrent commit of the same content waits
+ * for the removal and then copies the content again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContentAddressedStore {
+
+    static final int MAX_COMMIT_RETRIES = 3;
+
+    private final ContentBlobRepository blobRepository;
+    private final ContentRefRepository refRepository;
+    private final MinioAsyncClient minioAsyncClient;
+    private final DedupProperties dedupProperties;
+    private final MeterRegistry meterRegistry;
+    private final TransactionalOperator transactionalOperator;
+
+    public boolean isEnabledFor(String bucketName) {
+        return dedupProperties.isEnabledFor(bucketName);
+    }
+
+    public boolean isBlobKey(String objectKey) {
+        return objectKey.startsWith(dedupProperties.blobPrefix());
+    }
+
+    public String blobKey(String digest) {
+        return dedupProperties.blobPrefix() + "sha256/" + digest.substring(0, 2) + "/" + digest;
+    }
+
+    public String stagingKey() {
+        return dedupProperties.blobPrefix() + "staging/" + UUID.randomUUID();
+    }
+
+    /**
+     * Resolves an object key to the MinIO object holding its content: the blob key if the key is a reference,
+     * otherwise the key itself.
+     */
+    public Mono<String> resolve(String bucketName, String objectKey) {
+        if (!isEnabledFor(bucketName)) {
+            return Mono.just(objectKey);
+        }
+        return refRepository.findDigest(bucketName, objectKey)
+            .map(this::blobKey)
+            .defaultIfEmpty(objectKey);
+    }
+
+    /**
+     * Points {@code objectKey} at the content uploaded to {@code stagingKey}. The staged object is copied to its blob
+     * key only if no blob with this digest has been stored yet; the caller removes the staged object afterwards either
+     * way. Returns the blob key.
+     */
+    public Mono<String> commit(String bucketName, String objectKey, String stagingKey, String digest, long size, String contentType) {
+        return Mono.defer(() -> storeBlob(bucketName, stagingKey, digest, size, contentType))
+            .flatMap(copied -> transactionalOperator.transactional(reference(bucketName, objectKey, digest, size, copied)))
+            .repeatWhenEmpty(MAX_COMMIT_RETRIES, retries -> retries
+                .doOnNext(retry -> log.info("Blob {} in bucket {} was removed while committing {}, retrying", digest, bucketName, objectKey)));
+    }
+
+    /**
+     * Makes sure the blob's MinIO object exists, copying the staged object outside any transaction if it does not.
+     * Emits whether this call copied it.
+     */
+    private Mono<Boolean> storeBlob(String bucketName, String stagingKey, String digest, long size, String contentType) {
+        return blobRepository.reserve(bucketName, digest, size, contentType)
+            .flatMap(stored -> {
+                if (stored) {
+                    return Mono.just(false);
+                }
+                return copyObject(bucketName, stagingKey, blobKey(digest))
+                    .then(Mono.defer(() -> blobRepository.markStored(bucketName, digest)))
+                    .thenReturn(true);
+            });
+    }
+
+    /**
+     * Moves {@code objectKey}'s reference to {@code digest}, releasing the blob it pointed at before. Emits nothing,
+     * having changed nothing, if the blob is no longer stored.
+     */
+    private Mono<String> reference(String bucketName, String objectKey, String digest, long size, boolean copied) {
+        String blobKey = blobKey(digest);
+        return refRepository.findDigestForUpdate(bucketName, objectKey)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(previous -> {
+                if (previous.isPresent() && previous.get().equals(digest)) {
+                    record(bucketName, "unchanged", size);
+                    return Mono.just(blobKey);
+                }
+                return blobRepository.acquire(bucketName, digest)
+                    .flatMap(refCount -> {
+                        if (copied) {
+                            record(bucketName, "stored", 0);
+                        } else {
+                            record(bucketName, "deduplicated", size);
+                        }
+                        return refRepository.upsert(bucketName, objectKey, digest)
+                            .then(previous.map(oldDigest -> releaseBlob(bucketName, oldDigest)).orElse(Mono.empty()))
+                            .thenReturn(blobKey);
+                    });
+            });
+    }
+
+    /**
+     * Drops the reference held by {@code objectKey}, removing the blob when it was the last one.
+     * Emits {@code false} if the key is not a reference.
+     */
+    @Transactional
+    public Mono<Boolean> release(String bucketName, String objectKey) {
+        return refRepository.findDigestForUpdate(bucketName, objectKey)
+            .flatMap(digest -> refRepository.deleteByKey(bucketName, objectKey)
+                .then(releaseBlob(bucketName, digest))
+                .thenReturn(true))
+            .defaultIfEmpty(false);
+    }
+
+    public Mono<Void> removeStaging(String bucketName, String stagingKey) {
+        return removeObject(bucketName, stagingKey)
+            .doOnError(e -> log.warn("Failed to remove staged upload {}/{}: {}", bucketName, stagingKey, e.getMessage()))
+            .onErrorResume(e -> Mono.empty());
+    }
+
+    private Mono<Void> releaseBlob(String bucketName, String digest) {
+        return blobRepository.release(bucketName, digest)
+            .filter(refCount -> refCount <= 0)
+            .flatMap(refCount -> blobRepository.deleteIfUnreferenced(bucketName, digest))
+            .flatMap(deleted -> {
+                log.info("Last reference to blob {} in bucket {} released, removing it", digest, bucketName);
+                return removeObject(bucketName, blobKey(digest));
+            });
+    }
+
+    private void record(String bucketName, String result, long bytesSaved) {
+        meterRegistry.counter("storage.dedup.commits", "bucket", bucketName, "result", result).increment();
+        if (bytesSaved > 0) {
+            meterRegistry.counter("storage.dedup.bytes.saved", "bucket", bucketName).increment(bytesSaved);
+        }
+    }
+
+    private Mono<Void> copyObject(String bucketName, String sourceKey, String targetKey) {
+        return Mono.fromFuture(() -> {
+                try {
+                    return minioAsyncClient.copyObject(CopyObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(targetKey)
+                        .source(CopySource.builder().bucket(bucketName).object(sourceKey).build())
+                        .build());
+                } catch (Exception e) {
+                    throw new MinioOperationException("Error copying object in MinIO: " + sourceKey, e);
+                }
+            })
+            .onErrorMap(e -> !(e instanceof MinioOperationException),
+                        e -> new MinioOperationException("Error copying object in MinIO: " + sourceKey, e))
+            .then();
+    }
+
+    private Mono<Void> removeObject(String bucketName, String objectKey) {
+        return Mono.fromFuture(() -> {
+                try {
+                    return minioAsyncClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+                } catch (Exception e) {
+                    throw new MinioOperationException("Error deleting file from MinIO: " + objectKey, e);
+                }
+            })
+            .onErrorMap(e -> !(e instanceof MinioOperationException),
+                        e -> new MinioOperationException("Error deleting file from MinIO: " + objectKey, e))
+            .then();
+    }
+}
@@ -0,0 +1,48 @@
+package com.withfy.storageservice.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of an upload, computed from the buffers as they stream past. Valid once the observed flux has completed.
+ */
+final class ContentDigest {
+
+    private final MessageDigest sha256;
+    private long size;
+    private String hex;
+
+    ContentDigest() {
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    Flux<DataBuffer> observe(Flux<DataBuffer> content) {
+        return content.doOnNext(buffer -> {
+            size += buffer.readableByteCount();
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    sha256.update(iterator.next());
+                }
+            }
+        });
+    }
+
+    String hex() {
+        if (hex == null) {
+            hex = HexFormat.of().formatHex(sha256.digest());
+        }
+        return hex;
+    }
+
+    long size() {
+        return size;
+    }
+}
@@ -0,0 +1,227 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.DeleteQueueProperties;
+import com.withfy.storageservice.entity.PendingDelete;
+import com.withfy.storageservice.repository.PendingDeleteRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Removes objects from MinIO in {@code DeleteObjects} batches of up to {@code storage.delete-queue.batch-size} keys.
+ * <p>
+ * Keys handed to {@link #enqueue} are held in a bounded in-memory queue and flushed when a batch fills up or the
+ * flush interval passes, so many small deletes coalesce into a few requests. A batch that still fails after its
+ * retries is written to {@code pending_deletes}, which a periodic sweep works through with a growing delay until the
+ * keys are gone. Keys that do not fit the queue go straight to the table, so no delete is dropped.
+ */
+@Service
+@Slf4j
+public class DeleteQueue {
+
+    private final MinioClient minioClient;
+    private final PendingDeleteRepository pendingDeleteRepository;
+    private final DeleteQueueProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final StorageIoScheduler ioScheduler;
+    private final BlockingQueue<PendingKey> queue;
+    private final Sinks.Many<PendingKey> sink;
+    private final Mono<Void> drained;
+    private final Disposable sweeper;
+
+    public DeleteQueue(MinioClient minioClient, PendingDeleteRepository pendingDeleteRepository,
+                       DeleteQueueProperties properties, MeterRegistry meterRegistry, StorageIoScheduler ioScheduler) {
+        this.minioClient = minioClient;
+        this.pendingDeleteRepository = pendingDeleteRepository;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.ioScheduler = ioScheduler;
+        this.queue = new ArrayBlockingQueue<>(properties.capacity());
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(queue);
+        meterRegistry.gaugeCollectionSize("storage.deletes.queued", Tags.empty(), queue);
+        this.drained = sink.asFlux()
+            .bufferTimeout(properties.batchSize(), properties.flushInterval(), true)
+            .concatMap(batch -> Flux.fromIterable(byBucket(batch).entrySet())
+                .concatMap(entry -> removeOrPersist(entry.getKey(), entry.getValue())))
+            .then()
+            .cache();
+        this.drained.subscribe();
+        this.sweeper = Flux.interval(properties.sweepInterval(), properties.sweepInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> sweep()
+                .doOnError(e -> log.warn("Pending delete sweep failed: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty()))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.dispose();
+        synchronized (sink) {
+            sink.tryEmitComplete();
+        }
+        try {
+            drained.block(Duration.ofSeconds(10));
+        } catch (RuntimeException e) {
+            log.warn("Delete queue did not drain before shutdown; {} keys left in memory", queue.size());
+        }
+    }
+
+    /**
+     * Queues {@code objectKeys} for removal and completes once they are accepted, without waiting for MinIO.
+     */
+    public Mono<Void> enqueue(String bucketName, Collection<String> objectKeys) {
+        return Mono.defer(() -> {
+            List<String> overflow = new ArrayList<>();
+            synchronized (sink) {
+                for (String objectKey : objectKeys) {
+                    if (sink.tryEmitNext(new PendingKey(bucketName, objectKey)).isFailure()) {
+                        overflow.add(objectKey);
+                    }
+                }
+            }
+            if (overflow.isEmpty()) {
+                return Mono.empty();
+            }
+            log.warn("Delete queue is full, persisting {} keys from bucket {} for the sweep", overflow.size(), bucketName);
+            return persist(bucketName, overflow, "delete queue full", Duration.ZERO);
+        });
+    }
+
+    /**
+     * Removes {@code objectKeys} now. Keys that could not be removed are persisted for the sweep and emitted, so the
+     * caller can report them as pending rather than failed.
+     */
+    public Mono<List<String>> remove(String bucketName, Collection<String> objectKeys) {
+        return Flux.fromIterable(new LinkedHashSet<>(objectKeys))
+            .buffer(properties.batchSize())
+            .concatMap(batch -> removeOrPersist(bucketName, batch))
+            .flatMapIterable(failed -> failed)
+            .collectList();
+    }
+
+    private Mono<List<String>> removeOrPersist(String bucketName, List<String> objectKeys) {
+        return removeBatch(bucketName, objectKeys)
+            .retryWhen(Retry.backoff(properties.maxRetries(), properties.retryBackoff()))
+            .onErrorResume(e -> Mono.just(new BatchResult(List.of(), objectKeys, rootMessage(e))))
+            .flatMap(result -> {
+                record(bucketName, "deleted", result.deleted().size());
+                if (result.failed().isEmpty()) {
+                    return Mono.just(List.<String>of());
+                }
+                record(bucketName, "deferred", result.failed().size());
+                log.warn("Could not remove {} objects from bucket {}, deferring them: {}", result.failed().size(), bucketName, result.error());
+                return persist(bucketName, result.failed(), result.error(), properties.retryDelay())
+                    .thenReturn(result.failed());
+            });
+    }
+
+    /**
+     * Issues one {@code DeleteObjects} request. A transport failure fails the whole batch, so it can be retried;
+     * per-key errors reported by MinIO are returned as failed keys.
+     */
+    private Mono<BatchResult> removeBatch(String bucketName, List<String> objectKeys) {
+        return ioScheduler.call(bucketName, () -> {
+                List<DeleteObject> objects = objectKeys.stream().map(DeleteObject::new).toList();
+                Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
+                Set<String> failed = new LinkedHashSet<>();
+                String error = null;
+                for (Result<DeleteError> result : results) {
+                    DeleteError deleteError = result.get();
+                    failed.add(deleteError.objectName());
+                    error = deleteError.code() + ": " + deleteError.message();
+                }
+                List<String> deleted = objectKeys.stream().filter(key -> !failed.contains(key)).toList();
+                return new BatchResult(deleted, List.copyOf(failed), error);
+            });
+    }
+
+    /**
+     * Retries the persisted keys that are due. Removed keys leave the table; the rest are pushed back again.
+     */
+    Mono<Void> sweep() {
+        return pendingDeleteRepository.findDue(properties.sweepBatchSize())
+            .collectMultimap(PendingDelete::getBucketName, PendingDelete::getObjectKey)
+            .flatMapMany(due -> Flux.fromIterable(due.entrySet()))
+            .concatMap(entry -> {
+                String bucketName = entry.getKey();
+                List<String> objectKeys = List.copyOf(entry.getValue());
+                return Flux.fromIterable(objectKeys)
+                    .buffer(properties.batchSize())
+                    .concatMap(batch -> removeBatch(bucketName, batch)
+                        .onErrorResume(e -> Mono.just(new BatchResult(List.of(), batch, rootMessage(e)))))
+                    .concatMap(result -> {
+                        record(bucketName, "swept", result.deleted().size());
+                        Mono<Integer> cleared = result.deleted().isEmpty()
+                            ? Mono.just(0)
+                            : pendingDeleteRepository.deleteByKeys(bucketName, result.deleted().toArray(String[]::new));
+                        return result.failed().isEmpty()
+                            ? cleared
+                            : cleared.then(persist(bucketName, result.failed(), result.error(), properties.retryDelay()).thenReturn(0));
+                    });
+            })
+            .then();
+    }
+
+    private Mono<Void> persist(String bucketName, List<String> objectKeys, String error, Duration delay) {
+        return pendingDeleteRepository.upsert(bucketName, objectKeys.toArray(String[]::new), error, delay.toMillis() / 1000.0)
+            .then()
+            .onErrorResume(e -> {
+                log.error("Failed to persist {} pending deletes for bucket {}; they will be orphaned: {}",
+                          objectKeys.size(), bucketName, e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private static Map<String, List<String>> byBucket(List<PendingKey> batch) {
+        Map<String, Set<String>> keys = new LinkedHashMap<>();
+        for (PendingKey key : batch) {
+            keys.computeIfAbsent(key.bucketName(), bucket -> new LinkedHashSet<>()).add(key.objectKey());
+        }
+        Map<String, List<String>> grouped = new LinkedHashMap<>();
+        keys.forEach((bucket, objectKeys) -> grouped.put(bucket, List.copyOf(objectKeys)));
+        return grouped;
+    }
+
+    private void record(String bucketName, String result, int count) {
+        if (count > 0) {
+            meterRegistry.counter("storage.deletes", "bucket", bucketName, "result", result).increment(count);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName() + ": " + root.getMessage();
+    }
+
+    private record PendingKey(String bucketName, String objectKey) {}
+
+    private record BatchResult(List<String> deleted, List<String> failed, String error) {}
+}
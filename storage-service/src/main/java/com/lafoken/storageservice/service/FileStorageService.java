@@ -1,95 +1,267 @@
 package com.withfy.storageservice.service;
 
+import com.withfy.storageservice.config.MinioProperties;
 import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.dto.DeleteObjectsResponse;
 import com.withfy.storageservice.dto.FileUploadResponse;
 import com.withfy.storageservice.exception.InvalidStorageRequestException;
 import com.withfy.storageservice.exception.MinioOperationException;
+import com.withfy.storageservice.exception.RangeNotSatisfiableException;
+import com.withfy.storageservice.exception.StorageBusyException;
+import com.withfy.storageservice.exception.StorageObjectNotFoundException;
+import io.minio.GetObjectArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileStorageService {
 
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+    private static final int MAX_DELETE_KEYS = 1000;
+
     private final MinioClient minioClient;
+    private final MinioAsyncClient minioAsyncClient;
+    private final MultipartUploader multipartUploader;
     private final StorageConfigProperties storageConfigProperties;
+    private final MinioProperties minioProperties;
+    private final ContentAddressedStore contentStore;
+    private final ThumbnailService thumbnailService;
+    private final DeleteQueue deleteQueue;
+    private final StorageIoScheduler ioScheduler;
+    private final ObjectMetadataIndex metadataIndex;
 
     public Mono<FileUploadResponse> uploadFile(String bucketName, String objectKey, FilePart filePart) {
         if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey) || filePart == null) {
             return Mono.error(new InvalidStorageRequestException("Bucket name, object key, and file part are required."));
         }
+        if (isReserved(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
         if (filePart.filename().isEmpty()){
             return Mono.error(new InvalidStorageRequestException("File part is empty or filename is missing."));
         }
 
-        return Mono.fromCallable(() -> {
-            try (PipedInputStream pipedInputStream = new PipedInputStream();
-                 PipedOutputStream pipedOutputStream = new PipedOutputStream(pipedInputStream)) {
-
-                DataBufferUtils.write(filePart.content(), pipedOutputStream)
-                    .subscribe(DataBufferUtils.releaseConsumer(),
-                               e -> {
-                                   try { pipedOutputStream.close(); } catch (Exception ignored) {}
-                                   log.error("Error writing file part to stream for {}", objectKey, e);
-                               },
-                               () -> {
-                                   try { pipedOutputStream.close(); } catch (Exception ignored) {}
-                               });
-
-                long size = -1;
-                long partSize = 10 * 1024 * 1024;
-                String contentType = Objects.requireNonNullElse(
-                        filePart.headers().getContentType(),
-                        MediaType.APPLICATION_OCTET_STREAM
-                ).toString();
-
-                minioClient.putObject(
-                    PutObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(objectKey)
-                        .stream(pipedInputStream, size, partSize)
-                        .contentType(contentType)
-                        .build());
+        String contentType = Objects.requireNonNullElse(
+                filePart.headers().getContentType(),
+                MediaType.APPLICATION_OCTET_STREAM
+        ).toString();
+
+        ContentDigest digest = new ContentDigest();
+        Flux<DataBuffer> content = digest.observe(filePart.content());
+        Mono<StoredUpload> stored = contentStore.isEnabledFor(bucketName)
+            ? uploadDeduplicated(bucketName, objectKey, contentType, content, digest).map(blobKey -> new StoredUpload(blobKey, null))
+            : multipartUploader.upload(bucketName, objectKey, contentType, content).map(etag -> new StoredUpload(objectKey, etag));
 
-                String publicUrl = String.join("/", storageConfigProperties.publicUrlPrefix(), bucketName, objectKey);
+        return stored
+            .flatMap(upload -> metadataIndex.record(bucketName, objectKey, upload.key(), digest.size(), contentType, upload.etag(), digest.hex())
+                .thenReturn(upload.key()))
+            .map(key -> {
+                Map<String, String> renditions = thumbnailService.generateInBackground(bucketName, objectKey, key, contentType);
+                String publicUrl = String.join("/", storageConfigProperties.publicUrlPrefix(), bucketName, key);
                 log.info("File uploaded successfully: {}/{}, public URL: {}", bucketName, objectKey, publicUrl);
-                return new FileUploadResponse(objectKey, bucketName, publicUrl);
-            } catch (Exception e) {
+                return new FileUploadResponse(objectKey, bucketName, publicUrl, renditions);
+            })
+            .onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException), e -> {
                 log.error("Error uploading file {} to bucket {}: {}", objectKey, bucketName, e.getMessage(), e);
-                throw new MinioOperationException("Error uploading file to MinIO: " + objectKey, e);
-            }
-        }).onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException) ,
-                      e -> new MinioOperationException("Unexpected error during upload for " + objectKey, e));
+                return new MinioOperationException("Error uploading file to MinIO: " + objectKey, e);
+            });
+    }
+
+    /**
+     * Streams the upload to a staging key, then hands it to the content store, which keeps one blob per digest.
+     * {@code digest} must be observing {@code content}. Emits the blob key the public URL must point at.
+     */
+    private Mono<String> uploadDeduplicated(String bucketName, String objectKey, String contentType, Flux<DataBuffer> content,
+                                            ContentDigest digest) {
+        String stagingKey = contentStore.stagingKey();
+        return multipartUploader.upload(bucketName, stagingKey, contentType, content)
+            .then(Mono.defer(() -> contentStore.commit(bucketName, objectKey, stagingKey, digest.hex(), digest.size(), contentType)))
+            .flatMap(blobKey -> contentStore.removeStaging(bucketName, stagingKey).thenReturn(blobKey))
+            .onErrorResume(e -> contentStore.removeStaging(bucketName, stagingKey).then(Mono.error(e)));
     }
 
     public Mono<String> getPublicUrl(String bucketName, String objectKey) {
         if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey)) {
             return Mono.error(new InvalidStorageRequestException("Bucket name and object key are required for getting URL."));
         }
-        String fullUrl = String.join("/", storageConfigProperties.publicUrlPrefix(), bucketName, objectKey);
-        log.debug("Generated public URL for {}/{}: {}", bucketName, objectKey, fullUrl);
-        return Mono.just(fullUrl);
+        return contentStore.resolve(bucketName, objectKey)
+            .map(key -> {
+                String fullUrl = String.join("/", storageConfigProperties.publicUrlPrefix(), bucketName, key);
+                log.debug("Generated public URL for {}/{}: {}", bucketName, objectKey, fullUrl);
+                return fullUrl;
+            });
+    }
+
+    public Mono<ObjectStream> streamFile(String bucketName, String objectKey, String rangeHeader) {
+        if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name and object key are required for streaming."));
+        }
+        if (isReserved(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
+        return contentStore.resolve(bucketName, objectKey)
+            .flatMap(storedKey -> Mono.fromFuture(() -> statObject(bucketName, storedKey))
+                .map(stat -> {
+                    ByteRange range = ByteRange.parse(rangeHeader, stat.size());
+                    GetObjectArgs.Builder args = GetObjectArgs.builder().bucket(bucketName).object(storedKey);
+                    if (range != null) {
+                        args.offset(range.start()).length(range.length());
+                    }
+                    return new ObjectStream(stat.size(), stat.contentType(), stat.etag(), range, readObject(args.build()));
+                }))
+            .onErrorMap(ErrorResponseException.class, e -> NO_SUCH_KEY.equals(e.errorResponse().code())
+                ? new StorageObjectNotFoundException("Object not found: " + bucketName + "/" + objectKey)
+                : new MinioOperationException("Error reading object metadata from MinIO: " + objectKey, e))
+            .onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException
+                               || e instanceof StorageObjectNotFoundException || e instanceof RangeNotSatisfiableException
+                               || e instanceof StorageBusyException),
+                        e -> new MinioOperationException("Unexpected error during streaming for " + objectKey, e));
+    }
+
+    private boolean isReserved(String bucketName) {
+        return bucketName.equals(minioProperties.bucket().system());
+    }
+
+    private CompletableFuture<StatObjectResponse> statObject(String bucketName, String objectKey) {
+        try {
+            return minioAsyncClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+        } catch (Exception e) {
+            throw new MinioOperationException("Error reading object metadata from MinIO: " + objectKey, e);
+        }
+    }
+
+    private Flux<DataBuffer> readObject(GetObjectArgs args) {
+        // the MinIO response body is a blocking InputStream; readInputStream only pulls a chunk per downstream request
+        return Mono.fromFuture(() -> {
+                try {
+                    return minioAsyncClient.getObject(args);
+                } catch (Exception e) {
+                    throw new MinioOperationException("Error reading object from MinIO: " + args.object(), e);
+                }
+            })
+            .flatMapMany(response -> ioScheduler.stream(args.bucket(),
+                DataBufferUtils.readInputStream(() -> response, DefaultDataBufferFactory.sharedInstance, STREAM_CHUNK_SIZE)))
+            .onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof StorageBusyException),
+                        e -> new MinioOperationException("Error reading object from MinIO: " + args.object(), e));
     }
 
     public Mono<Void> deleteFile(String bucketName, String objectKey) {
          if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey)) {
             return Mono.error(new InvalidStorageRequestException("Bucket name and object key are required for deletion."));
         }
-        return Mono.fromRunnable(() -> {
+        if (isReserved(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
+        if (contentStore.isEnabledFor(bucketName)) {
+            if (contentStore.isBlobKey(objectKey)) {
+                return Mono.error(new InvalidStorageRequestException("Blob '" + objectKey + "' is shared; delete the object key that references it."));
+            }
+            return contentStore.release(bucketName, objectKey)
+                .flatMap(released -> released ? Mono.<Void>empty() : removeObject(bucketName, objectKey))
+                .then(metadataIndex.remove(bucketName, List.of(objectKey)))
+                .then(deleteRenditions(bucketName, List.of(objectKey)))
+                .onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException || e instanceof StorageBusyException),
+                            e -> new MinioOperationException("Unexpected error during deletion for " + objectKey, e));
+        }
+        return removeObject(bucketName, objectKey)
+            .then(metadataIndex.remove(bucketName, List.of(objectKey)))
+            .then(deleteRenditions(bucketName, List.of(objectKey)));
+    }
+
+    /**
+     * Deletes up to {@value #MAX_DELETE_KEYS} objects with batched {@code DeleteObjects} requests. Keys that MinIO
+     * could not remove are persisted and retried in the background, and are reported as {@code pending} rather than
+     * failing the request. With {@code deferred} the keys are only queued, and all of them are reported as pending.
+     */
+    public Mono<DeleteObjectsResponse> deleteFiles(String bucketName, List<String> objectKeys, boolean deferred) {
+        if (!StringUtils.hasText(bucketName) || objectKeys == null || objectKeys.isEmpty()) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name and at least one object key are required for deletion."));
+        }
+        if (objectKeys.size() > MAX_DELETE_KEYS) {
+            return Mono.error(new InvalidStorageRequestException("At most " + MAX_DELETE_KEYS + " object keys can be deleted at once."));
+        }
+        if (isReserved(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
+        Set<String> keys = new LinkedHashSet<>(objectKeys);
+        for (String objectKey : keys) {
+            if (!StringUtils.hasText(objectKey)) {
+                return Mono.error(new InvalidStorageRequestException("Object keys must not be blank."));
+            }
+            if (contentStore.isEnabledFor(bucketName) && contentStore.isBlobKey(objectKey)) {
+                return Mono.error(new InvalidStorageRequestException("Blob '" + objectKey + "' is shared; delete the object key that references it."));
+            }
+        }
+
+        // references only drop their row here; the shared blob goes once its last reference is released
+        Mono<List<String>> storedKeys = contentStore.isEnabledFor(bucketName)
+            ? Flux.fromIterable(keys)
+                .concatMap(key -> contentStore.release(bucketName, key).filter(released -> !released).map(released -> key))
+                .collectList()
+            : Mono.just(List.copyOf(keys));
+
+        // pending keys are already gone as far as callers are concerned, so they leave the index with the rest
+        return storedKeys
+            .flatMap(stored -> metadataIndex.remove(bucketName, keys).thenReturn(stored))
+            .flatMap(stored -> deferred
+                ? deleteQueue.enqueue(bucketName, stored).then(deleteRenditions(bucketName, keys))
+                    .thenReturn(new DeleteObjectsResponse(bucketName, List.of(), List.copyOf(keys)))
+                : deleteQueue.remove(bucketName, stored)
+                    .flatMap(pending -> deleteRenditions(bucketName, keys).thenReturn(toDeleteResponse(bucketName, keys, pending))))
+            .doOnSuccess(response -> log.info("Batch delete in bucket {}: {} deleted, {} pending",
+                                              bucketName, response.deleted().size(), response.pending().size()))
+            .onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException || e instanceof StorageBusyException),
+                        e -> new MinioOperationException("Unexpected error during batch deletion in bucket " + bucketName, e));
+    }
+
+    private static DeleteObjectsResponse toDeleteResponse(String bucketName, Set<String> keys, List<String> pending) {
+        Set<String> pendingKeys = Set.copyOf(pending);
+        List<String> deleted = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (!pendingKeys.contains(key)) {
+                deleted.add(key);
+            }
+        }
+        return new DeleteObjectsResponse(bucketName, deleted, List.copyOf(pending));
+    }
+
+    private Mono<Void> deleteRenditions(String bucketName, Iterable<String> objectKeys) {
+        if (!thumbnailService.hasRenditions(bucketName)) {
+            return Mono.empty();
+        }
+        List<String> renditionKeys = new ArrayList<>();
+        objectKeys.forEach(objectKey -> renditionKeys.addAll(thumbnailService.renditionKeys(objectKey)));
+        return deleteQueue.enqueue(bucketName, renditionKeys);
+    }
+
+    private Mono<Void> removeObject(String bucketName, String objectKey) {
+        return ioScheduler.call(bucketName, () -> {
             try {
                 minioClient.removeObject(
                     RemoveObjectArgs.builder()
@@ -97,12 +269,15 @@ public class FileStorageService {
                         .object(objectKey)
                         .build());
                 log.info("File deleted successfully: {}/{}", bucketName, objectKey);
+                return objectKey;
             } catch (Exception e) {
                 log.error("Error deleting file {} from bucket {}: {}", objectKey, bucketName, e.getMessage(), e);
                 throw new MinioOperationException("Error deleting file from MinIO: " + objectKey, e);
             }
-        }).onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException) ,
+        }).onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException || e instanceof StorageBusyException),
                       e -> new MinioOperationException("Unexpected error during deletion for " + objectKey, e))
           .then();
     }
+
+    private record StoredUpload(String key, String etag) {}
 }
@@ -0,0 +1,332 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.MinioProperties;
+import com.withfy.storageservice.config.MultipartMinioClient;
+import com.withfy.storageservice.config.UploadProperties;
+import com.withfy.storageservice.config.UploadProperties.PartUploadProperties;
+import com.withfy.storageservice.exception.PartChecksumMismatchException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a reactive body into MinIO as an S3 multipart upload without ever blocking the calling thread.
+ * Incoming buffers are copied into part-sized chunks and released immediately; parts are uploaded with
+ * bounded concurrency and a prefetch of one, so at most {@code concurrency + 2} parts are held in memory
+ * per upload. Bodies that fit in a single part are sent with a plain PUT.
+ * <p>
+ * Part size, concurrency and retry policy come from {@link UploadProperties}, with a separate profile for the
+ * songs bucket. A failed part is retried on its own; each stored part's ETag is checked against the MD5 of
+ * the bytes that were sent.
+ */
+@Component
+@Slf4j
+public class MultipartUploader {
+
+    private static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+    private static final long MAX_PART_SIZE = DataSize.ofMegabytes(512).toBytes();
+    private static final int INITIAL_CHUNK_CAPACITY = 64 * 1024;
+    private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-fA-F]{32}");
+    private static final Set<String> RETRYABLE_ERROR_CODES = Set.of("BadDigest", "InternalError", "RequestTimeout", "SlowDown", "ServiceUnavailable");
+
+    private final MultipartMinioClient minioClient;
+    private final UploadProperties uploadProperties;
+    private final MinioProperties minioProperties;
+    private final MeterRegistry meterRegistry;
+
+    public MultipartUploader(MultipartMinioClient minioClient, UploadProperties uploadProperties,
+                             MinioProperties minioProperties, MeterRegistry meterRegistry) {
+        validatePartSize(uploadProperties.defaults());
+        validatePartSize(uploadProperties.songs());
+        this.minioClient = minioClient;
+        this.uploadProperties = uploadProperties;
+        this.minioProperties = minioProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Uploads {@code content} and returns the ETag of the stored object.
+     */
+    public Mono<String> upload(String bucketName, String objectKey, String contentType, Flux<DataBuffer> content) {
+        PartUploadProperties settings = settingsFor(bucketName);
+        return upload(bucketName, objectKey, contentType, content, (int) settings.partSize().toBytes(), settings);
+    }
+
+    public int partSize(String bucketName) {
+        return (int) settingsFor(bucketName).partSize().toBytes();
+    }
+
+    /**
+     * Starts a multipart upload that the caller drives part by part, returning its upload id.
+     */
+    public Mono<String> createUpload(String bucketName, String objectKey, String contentType) {
+        return fromFuture(() -> minioClient.createMultipartUpload(bucketName, objectKey, contentType));
+    }
+
+    /**
+     * Uploads one part of an upload started with {@link #createUpload}, with the same verification and
+     * retry policy as streamed uploads.
+     */
+    public Mono<Part> uploadPart(String bucketName, String objectKey, String uploadId, int partNumber, byte[] data, int length) {
+        return uploadPart(bucketName, objectKey, uploadId, new Chunk(partNumber, data, length, false),
+            settingsFor(bucketName), new UploadMetrics(bucketName));
+    }
+
+    public Mono<String> completeUpload(String bucketName, String objectKey, String uploadId, List<Part> parts) {
+        return fromFuture(() -> minioClient.completeMultipartUpload(bucketName, objectKey, uploadId, parts.toArray(new Part[0])))
+            .map(ObjectWriteResponse::etag);
+    }
+
+    public Mono<Void> abortUpload(String bucketName, String objectKey, String uploadId) {
+        return abort(bucketName, objectKey, uploadId);
+    }
+
+    public Mono<String> put(String bucketName, String objectKey, String contentType, byte[] data, int length) {
+        return putSingle(bucketName, objectKey, contentType, new Chunk(1, data, length, true), new UploadMetrics(bucketName));
+    }
+
+    private PartUploadProperties settingsFor(String bucketName) {
+        return bucketName.equals(minioProperties.bucket().songs())
+            ? uploadProperties.songs()
+            : uploadProperties.defaults();
+    }
+
+    Mono<String> upload(String bucketName, String objectKey, String contentType, Flux<DataBuffer> content,
+                        int partSize, PartUploadProperties settings) {
+        UploadMetrics metrics = new UploadMetrics(bucketName);
+        Flux<Chunk> chunks = Flux.defer(() -> {
+            ChunkAccumulator accumulator = new ChunkAccumulator(partSize);
+            return content
+                .concatMapIterable(accumulator::append)
+                .concatWith(Mono.fromSupplier(accumulator::finish))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+
+        return chunks
+            .switchOnFirst((first, all) -> {
+                Chunk chunk = first.get();
+                if (chunk != null && chunk.last()) {
+                    return putSingle(bucketName, objectKey, contentType, chunk, metrics);
+                }
+                return uploadMultipart(bucketName, objectKey, contentType, all, settings, metrics);
+            })
+            .next()
+            .doOnSuccess(etag -> metrics.recordThroughput());
+    }
+
+    private Mono<String> putSingle(String bucketName, String objectKey, String contentType, Chunk chunk, UploadMetrics metrics) {
+        return fromFuture(() -> minioClient.putObject(PutObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectKey)
+                .stream(new ByteArrayInputStream(chunk.data(), 0, chunk.length()), chunk.length(), -1)
+                .contentType(contentType)
+                .build()))
+            .doOnSuccess(response -> metrics.recordBytes(chunk.length()))
+            .map(ObjectWriteResponse::etag);
+    }
+
+    private Mono<String> uploadMultipart(String bucketName, String objectKey, String contentType, Flux<Chunk> chunks,
+                                         PartUploadProperties settings, UploadMetrics metrics) {
+        return fromFuture(() -> minioClient.createMultipartUpload(bucketName, objectKey, contentType))
+            .flatMap(uploadId -> chunks
+                .flatMapSequential(chunk -> uploadPart(bucketName, objectKey, uploadId, chunk, settings, metrics), settings.concurrency(), 1)
+                .collectList()
+                .flatMap(parts -> fromFuture(() -> minioClient.completeMultipartUpload(
+                    bucketName, objectKey, uploadId, parts.toArray(new Part[0]))))
+                .map(ObjectWriteResponse::etag)
+                .onErrorResume(e -> abort(bucketName, objectKey, uploadId).then(Mono.error(e)))
+                .doOnCancel(() -> abort(bucketName, objectKey, uploadId).subscribe()));
+    }
+
+    private Mono<Part> uploadPart(String bucketName, String objectKey, String uploadId, Chunk chunk,
+                                  PartUploadProperties settings, UploadMetrics metrics) {
+        // hashing a part is CPU-bound, keep it (and the SDK's own signing digests) off the event loop
+        return Mono.fromCallable(() -> md5Hex(chunk))
+            .subscribeOn(Schedulers.parallel())
+            .flatMap(md5 -> Mono.defer(() -> {
+                    long startedAt = System.nanoTime();
+                    return fromFuture(() -> minioClient.uploadPart(bucketName, objectKey, uploadId, chunk.partNumber(), chunk.data(), chunk.length()))
+                        .doOnSuccess(response -> metrics.recordPart(System.nanoTime() - startedAt))
+                        .map(response -> verifiedPart(response.partNumber(), response.etag(), md5));
+                })
+                .retryWhen(Retry.backoff(settings.maxPartRetries(), settings.retryBackoff())
+                    .filter(MultipartUploader::isRetryable)
+                    .doBeforeRetry(signal -> {
+                        metrics.recordRetry();
+                        log.warn("Retrying part {} of upload {} for {}/{} (attempt {}): {}", chunk.partNumber(), uploadId,
+                            bucketName, objectKey, signal.totalRetries() + 1, signal.failure().getMessage());
+                    })
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure())))
+            .doOnSuccess(part -> metrics.recordBytes(chunk.length()));
+    }
+
+    private static Part verifiedPart(int partNumber, String etag, String md5) {
+        // MinIO returns the hex MD5 as the part ETag unless the object is encrypted
+        if (etag != null && MD5_ETAG.matcher(etag).matches() && !etag.equalsIgnoreCase(md5)) {
+            throw new PartChecksumMismatchException("Part " + partNumber + " was stored with ETag " + etag + " but MD5 " + md5 + " was sent");
+        }
+        return new Part(partNumber, etag);
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof ErrorResponseException ere) {
+            return RETRYABLE_ERROR_CODES.contains(ere.errorResponse().code());
+        }
+        return e instanceof IOException || e instanceof ServerException || e instanceof PartChecksumMismatchException;
+    }
+
+    private Mono<Void> abort(String bucketName, String objectKey, String uploadId) {
+        return fromFuture(() -> minioClient.abortMultipartUpload(bucketName, objectKey, uploadId))
+            .doOnSubscribe(s -> log.warn("Aborting multipart upload {} for {}/{}", uploadId, bucketName, objectKey))
+            .onErrorResume(e -> {
+                log.error("Could not abort multipart upload {} for {}/{}: {}", uploadId, bucketName, objectKey, e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private static String md5Hex(Chunk chunk) throws NoSuchAlgorithmException {
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        md5.update(chunk.data(), 0, chunk.length());
+        return HexFormat.of().formatHex(md5.digest());
+    }
+
+    private static <T> Mono<T> fromFuture(Callable<CompletableFuture<T>> call) {
+        return Mono.fromFuture(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private static void validatePartSize(PartUploadProperties settings) {
+        long partSize = settings.partSize().toBytes();
+        if (partSize < MIN_PART_SIZE || partSize > MAX_PART_SIZE) {
+            throw new IllegalArgumentException("Multipart part size must be between 5MB and 512MB, got " + settings.partSize());
+        }
+    }
+
+    /**
+     * Per-upload view of the upload meters: bytes stored, part latency, part retries and end-to-end throughput.
+     */
+    private final class UploadMetrics {
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong bytes = new AtomicLong();
+        private final Counter bytesCounter;
+        private final Timer partTimer;
+        private final Counter retries;
+        private final DistributionSummary throughput;
+
+        UploadMetrics(String bucketName) {
+            this.bytesCounter = Counter.builder("storage.upload.bytes").baseUnit("bytes")
+                .tag("bucket", bucketName).register(meterRegistry);
+            this.partTimer = Timer.builder("storage.upload.part.duration").publishPercentileHistogram()
+                .tag("bucket", bucketName).register(meterRegistry);
+            this.retries = Counter.builder("storage.upload.part.retries")
+                .tag("bucket", bucketName).register(meterRegistry);
+            this.throughput = DistributionSummary.builder("storage.upload.throughput").baseUnit("bytes.per.second")
+                .tag("bucket", bucketName).register(meterRegistry);
+        }
+
+        void recordBytes(long count) {
+            bytes.addAndGet(count);
+            bytesCounter.increment(count);
+        }
+
+        void recordPart(long elapsedNanos) {
+            partTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void recordRetry() {
+            retries.increment();
+        }
+
+        void recordThroughput() {
+            long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+            throughput.record(bytes.get() * 1_000_000_000d / elapsedNanos);
+        }
+    }
+
+    record Chunk(int partNumber, byte[] data, int length, boolean last) {}
+
+    /**
+     * Copies buffers into part-sized byte arrays. A full chunk is held back until more data arrives so that
+     * the final chunk can be flagged, which is how a single-part body is recognised.
+     */
+    static final class ChunkAccumulator {
+        private final int partSize;
+        private byte[] current;
+        private int length;
+        private int partNumber = 1;
+
+        ChunkAccumulator(int partSize) {
+            this.partSize = partSize;
+            this.current = new byte[Math.min(partSize, INITIAL_CHUNK_CAPACITY)];
+        }
+
+        List<Chunk> append(DataBuffer buffer) {
+            List<Chunk> ready = new ArrayList<>(1);
+            try {
+                int remaining = buffer.readableByteCount();
+                while (remaining > 0) {
+                    if (length == partSize) {
+                        ready.add(new Chunk(partNumber++, current, length, false));
+                        current = new byte[partSize];
+                        length = 0;
+                    }
+                    int n = Math.min(remaining, partSize - length);
+                    ensureCapacity(length + n);
+                    buffer.read(current, length, n);
+                    length += n;
+                    remaining -= n;
+                }
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            return ready;
+        }
+
+        Chunk finish() {
+            Chunk last = new Chunk(partNumber, current, length, true);
+            current = null;
+            return last;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > current.length) {
+                current = Arrays.copyOf(current, Math.min(partSize, Math.max(required, current.length * 2)));
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.dto.ObjectListResponse;
+import com.withfy.storageservice.dto.ObjectMetadataResponse;
+import com.withfy.storageservice.entity.ObjectMetadata;
+import com.withfy.storageservice.exception.InvalidStorageRequestException;
+import com.withfy.storageservice.exception.StorageObjectNotFoundException;
+import com.withfy.storageservice.repository.ObjectMetadataRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Size, content type, ETag and checksum of every object uploaded through storage-service, kept in
+ * {@code object_metadata} so that existence checks and listings are answered by one indexed query rather than
+ * {@code StatObject} or {@code ListObjects} calls against MinIO.
+ * <p>
+ * The index follows the object store: it is written after an upload succeeds and cleared when an object is deleted.
+ * A failed index write is logged and counted but does not fail the request, since the object operation itself has
+ * already happened. Objects written to MinIO by other means are not indexed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ObjectMetadataIndex {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final ObjectMetadataRepository repository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Indexes {@code objectKey}, replacing any earlier entry. {@code storedKey} is the key the bytes live under,
+     * which differs from {@code objectKey} for deduplicated uploads.
+     */
+    public Mono<Void> record(String bucketName, String objectKey, String storedKey, long size, String contentType,
+                             String etag, String sha256) {
+        return repository.upsert(bucketName, objectKey, storedKey, size, contentType, etag, sha256)
+            .then()
+            .onErrorResume(e -> failed("record", bucketName, 1, e));
+    }
+
+    public Mono<Void> remove(String bucketName, Collection<String> objectKeys) {
+        if (objectKeys.isEmpty()) {
+            return Mono.empty();
+        }
+        return repository.deleteByKeys(bucketName, objectKeys.toArray(String[]::new))
+            .then()
+            .onErrorResume(e -> failed("remove", bucketName, objectKeys.size(), e));
+    }
+
+    public Mono<ObjectMetadataResponse> find(String bucketName, String objectKey) {
+        if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name and object key are required."));
+        }
+        return repository.findByBucketNameAndObjectKey(bucketName, objectKey)
+            .map(ObjectMetadataIndex::toResponse)
+            .switchIfEmpty(Mono.error(new StorageObjectNotFoundException("Object not found: " + bucketName + "/" + objectKey)));
+    }
+
+    /**
+     * Lists the objects whose keys start with {@code prefix}, in key order, starting after the {@code after} cursor.
+     */
+    public Mono<ObjectListResponse> list(String bucketName, String prefix, String after, Integer limit) {
+        if (!StringUtils.hasText(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name is required for listing."));
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return Mono.error(new InvalidStorageRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE + "."));
+        }
+        String keyPrefix = prefix != null ? prefix : "";
+        String cursor = after != null ? after : "";
+        String prefixEnd = prefixUpperBound(keyPrefix);
+        // fetch one extra row to learn whether another page follows
+        Flux<ObjectMetadata> rows = prefixEnd != null
+            ? repository.findPageInRange(bucketName, keyPrefix, prefixEnd, cursor, pageSize + 1)
+            : repository.findPage(bucketName, keyPrefix, cursor, pageSize + 1);
+        return rows
+            .map(ObjectMetadataIndex::toResponse)
+            .collectList()
+            .map(objects -> {
+                if (objects.size() <= pageSize) {
+                    return new ObjectListResponse(bucketName, keyPrefix, objects, null);
+                }
+                List<ObjectMetadataResponse> page = objects.subList(0, pageSize);
+                return new ObjectListResponse(bucketName, keyPrefix, List.copyOf(page), page.get(pageSize - 1).objectKey());
+            });
+    }
+
+    /**
+     * The smallest string above every key that starts with {@code prefix}: the prefix with its last code point
+     * incremented, after dropping trailing code points that cannot be. Code point order is the byte order of the
+     * {@code "C"} collation on {@code object_key}. Returns {@code null} when there is no such bound, as for the empty
+     * prefix.
+     */
+    static String prefixUpperBound(String prefix) {
+        int end = prefix.length();
+        while (end > 0) {
+            int last = prefix.codePointBefore(end);
+            int start = end - Character.charCount(last);
+            if (last < Character.MAX_CODE_POINT) {
+                int next = last + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : last + 1;
+                return new StringBuilder(start + 2).append(prefix, 0, start).appendCodePoint(next).toString();
+            }
+            end = start;
+        }
+        return null;
+    }
+
+    private Mono<Void> failed(String operation, String bucketName, int count, Throwable e) {
+        meterRegistry.counter("storage.index.failures", "bucket", bucketName, "operation", operation).increment(count);
+        log.error("Failed to {} {} entries in the metadata index for bucket {}: {}", operation, count, bucketName, e.getMessage());
+        return Mono.empty();
+    }
+
+    private static ObjectMetadataResponse toResponse(ObjectMetadata metadata) {
+        return new ObjectMetadataResponse(metadata.getObjectKey(), metadata.getSize(), metadata.getContentType(),
+                                          metadata.getEtag(), metadata.getSha256(), metadata.getUpdatedAt());
+    }
+}
@@ -0,0 +1,19 @@
+package com.withfy.storageservice.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+/**
+ * An object body, or a window of it when {@code range} is set, along with the metadata needed for response headers.
+ */
+public record ObjectStream(
+    long objectSize,
+    String contentType,
+    String etag,
+    ByteRange range,
+    Flux<DataBuffer> content
+) {
+    public long contentLength() {
+        return range != null ? range.length() : objectSize;
+    }
+}
@@ -0,0 +1,220 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.OrphanCollectorProperties;
+import com.withfy.storageservice.dto.ReferencedObject;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically removes objects under {@code storage.gc.prefix} in {@code storage.gc.bucket} that no stored record
+ * points at, such as avatars whose best-effort deletion failed or whose owner was banned.
+ * <p>
+ * Each run loads the referenced keys from {@code storage.gc.references-url}, authenticating with
+ * {@code storage.gc.references-token} as the internal service token, into a Bloom filter, then streams the
+ * bucket listing page by page and tests every key against it, so memory stays fixed however large either side grows.
+ * A false positive only keeps an orphan until a later run. Objects younger than the grace period are never touched,
+ * since their reference may not have been written yet, and orphans are deleted in throttled batches.
+ * <p>
+ * Deduplicated buckets are not collected: their public URLs name shared blobs, so a reference cannot be mapped back
+ * to the object key that owns it.
+ */
+@Service
+@Slf4j
+public class OrphanCollector {
+
+    static final String INTERNAL_TOKEN_HEADER = "X-Internal-Service-Token";
+
+    private final MinioClient minioClient;
+    private final FileStorageService fileStorageService;
+    private final ContentAddressedStore contentStore;
+    private final ThumbnailService thumbnailService;
+    private final OrphanCollectorProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final StorageIoScheduler ioScheduler;
+    private final WebClient webClient;
+    private final AtomicLong progress = new AtomicLong();
+    private final Disposable schedule;
+
+    public OrphanCollector(MinioClient minioClient, FileStorageService fileStorageService, ContentAddressedStore contentStore,
+                           ThumbnailService thumbnailService, OrphanCollectorProperties properties, MeterRegistry meterRegistry,
+                           StorageIoScheduler ioScheduler, WebClient.Builder webClientBuilder) {
+        this.minioClient = minioClient;
+        this.fileStorageService = fileStorageService;
+        this.contentStore = contentStore;
+        this.thumbnailService = thumbnailService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.ioScheduler = ioScheduler;
+        this.webClient = webClientBuilder.build();
+        meterRegistry.gauge("storage.gc.progress", Tags.of("bucket", String.valueOf(properties.bucket())), progress);
+        this.schedule = isRunnable() ? schedule() : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    private boolean isRunnable() {
+        if (!properties.enabled()) {
+            return false;
+        }
+        if (properties.bucket() == null || properties.referencesUrl() == null) {
+            log.error("Orphan collection is enabled but storage.gc.bucket or storage.gc.references-url is not set; not running");
+            return false;
+        }
+        if (properties.referencesToken() == null || properties.referencesToken().isBlank()) {
+            log.error("Orphan collection is enabled but storage.gc.references-token is not set; not running");
+            return false;
+        }
+        if (contentStore.isEnabledFor(properties.bucket())) {
+            log.error("Bucket {} is deduplicated and cannot be collected; not running", properties.bucket());
+            return false;
+        }
+        return true;
+    }
+
+    private Disposable schedule() {
+        log.info("Collecting orphans under {}/{} every {}{}", properties.bucket(), properties.prefix(), properties.interval(),
+                 properties.dryRun() ? " (dry run)" : "");
+        return Flux.interval(properties.initialDelay(), properties.interval())
+            .onBackpressureDrop()
+            .concatMap(tick -> collect()
+                .doOnError(e -> log.warn("Orphan collection in bucket {} failed: {}", properties.bucket(), e.getMessage()))
+                .onErrorResume(e -> Mono.empty()))
+            .subscribe();
+    }
+
+    /**
+     * Runs one collection pass. Fails without deleting anything if the referenced keys cannot be loaded in full.
+     */
+    public Mono<CollectionResult> collect() {
+        String bucketName = properties.bucket();
+        Instant cutoff = Instant.now().minus(properties.gracePeriod());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return loadReferences(bucketName)
+            .flatMap(references -> {
+                progress.set(0);
+                return listObjects(bucketName)
+                    .doOnNext(object -> progress.incrementAndGet())
+                    .filter(object -> object.lastModified().isBefore(cutoff) && !references.mightContain(object.key()))
+                    .buffer(properties.deleteBatchSize())
+                    .delayElements(properties.batchDelay())
+                    .concatMap(orphans -> delete(bucketName, orphans))
+                    .reduce(new CollectionResult(0, 0, 0, 0), CollectionResult::plus)
+                    .map(result -> new CollectionResult(progress.get(), result.orphans(), result.deleted(), result.bytesReclaimed()));
+            })
+            .doOnSuccess(result -> {
+                sample.stop(meterRegistry.timer("storage.gc.duration", "bucket", bucketName));
+                meterRegistry.counter("storage.gc.runs", "bucket", bucketName, "result", "completed").increment();
+                log.info("Orphan collection in bucket {} scanned {} objects, found {} orphans, deleted {} ({} bytes)",
+                         bucketName, result.scanned(), result.orphans(), result.deleted(), result.bytesReclaimed());
+            })
+            .doOnError(e -> meterRegistry.counter("storage.gc.runs", "bucket", bucketName, "result", "failed").increment());
+    }
+
+    private Mono<BloomFilter> loadReferences(String bucketName) {
+        boolean renditions = thumbnailService.hasRenditions(bucketName);
+        // every reference also protects its renditions, which take a slot each
+        long keysPerReference = renditions ? 1 + thumbnailService.renditionCount() : 1;
+        BloomFilter references = BloomFilter.create(properties.expectedReferences() * keysPerReference, properties.falsePositiveRate());
+        AtomicLong count = new AtomicLong();
+        return webClient.get()
+            .uri(properties.referencesUrl())
+            .header(INTERNAL_TOKEN_HEADER, properties.referencesToken())
+            .accept(MediaType.APPLICATION_NDJSON)
+            .retrieve()
+            .bodyToFlux(ReferencedObject.class)
+            .doOnNext(reference -> {
+                references.put(reference.objectKey());
+                if (renditions) {
+                    thumbnailService.renditionKeys(reference.objectKey()).forEach(references::put);
+                }
+                count.incrementAndGet();
+            })
+            .then(Mono.fromCallable(() -> {
+                if (count.get() == 0) {
+                    throw new IllegalStateException("No references loaded from " + properties.referencesUrl() + "; refusing to treat every object as an orphan");
+                }
+                if (count.get() > properties.expectedReferences()) {
+                    log.warn("Loaded {} references, more than the {} the filter is sized for; fewer orphans will be found",
+                             count.get(), properties.expectedReferences());
+                }
+                log.debug("Loaded {} references into a {} byte filter", count.get(), references.sizeInBytes());
+                return references;
+            }));
+    }
+
+    /**
+     * Streams the listing; the MinIO iterator fetches one page per 1000 keys as it is consumed.
+     */
+    private Flux<ListedObject> listObjects(String bucketName) {
+        return ioScheduler.stream(bucketName, Flux.defer(() -> Flux.fromIterable(minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(properties.prefix())
+                .recursive(true)
+                .build())))
+            .<ListedObject>handle((result, sink) -> {
+                Item item = get(result);
+                if (!item.isDir()) {
+                    sink.next(new ListedObject(item.objectName(), item.size(), item.lastModified().toInstant()));
+                }
+            }));
+    }
+
+    private static Item get(Result<Item> result) {
+        try {
+            return result.get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Error listing objects: " + e.getMessage(), e);
+        }
+    }
+
+    private Mono<CollectionResult> delete(String bucketName, List<ListedObject> orphans) {
+        meterRegistry.counter("storage.gc.orphans", "bucket", bucketName).increment(orphans.size());
+        if (properties.dryRun()) {
+            orphans.forEach(orphan -> log.info("Orphan {}/{} ({} bytes, dry run)", bucketName, orphan.key(), orphan.size()));
+            return Mono.just(new CollectionResult(0, orphans.size(), 0, 0));
+        }
+        Map<String, Long> sizes = new HashMap<>();
+        orphans.forEach(orphan -> sizes.put(orphan.key(), orphan.size()));
+        return fileStorageService.deleteFiles(bucketName, List.copyOf(sizes.keySet()), false)
+            .map(response -> {
+                long bytesReclaimed = response.deleted().stream().mapToLong(sizes::get).sum();
+                meterRegistry.counter("storage.gc.deleted", "bucket", bucketName).increment(response.deleted().size());
+                meterRegistry.counter("storage.gc.bytes.reclaimed", "bucket", bucketName).increment(bytesReclaimed);
+                return new CollectionResult(0, orphans.size(), response.deleted().size(), bytesReclaimed);
+            });
+    }
+
+    private record ListedObject(String key, long size, Instant lastModified) {}
+
+    public record CollectionResult(long scanned, long orphans, long deleted, long bytesReclaimed) {
+
+        CollectionResult plus(CollectionResult other) {
+            return new CollectionResult(scanned + other.scanned, orphans + other.orphans, deleted + other.deleted,
+                                        bytesReclaimed + other.bytesReclaimed);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.MinioProperties;
+import com.withfy.storageservice.config.PresignProperties;
+import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.dto.FileUploadResponse;
+import com.withfy.storageservice.dto.PresignedUploadResponse;
+import com.withfy.storageservice.dto.PresignedUrlResponse;
+import com.withfy.storageservice.exception.InvalidStorageRequestException;
+import com.withfy.storageservice.exception.MinioOperationException;
+import com.withfy.storageservice.exception.StorageObjectNotFoundException;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Issues presigned URLs so clients move object bytes to and from MinIO directly.
+ * Uploads use a POST policy rather than a presigned PUT: S3 only signs the host header of a presigned PUT,
+ * so it cannot pin the content type or bound the size, while a POST policy makes MinIO enforce both.
+ * URLs are signed against the public endpoint, since the signature covers the host the client talks to.
+ * <p>
+ * Deduplicated buckets are download-only here: a presigned upload would land at its key as a plain object with no
+ * reference behind it, so uploads to them go through {@link FileStorageService} instead. Downloads are signed for
+ * the blob a key refers to.
+ */
+@Service
+@Slf4j
+public class PresignedUrlService {
+
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+
+    private final MinioClient presigningClient;
+    private final MinioAsyncClient minioAsyncClient;
+    private final PresignProperties presignProperties;
+    private final MinioProperties minioProperties;
+    private final StorageConfigProperties storageConfigProperties;
+    private final ThumbnailService thumbnailService;
+    private final ObjectMetadataIndex metadataIndex;
+    private final ContentAddressedStore contentStore;
+
+    public PresignedUrlService(MinioAsyncClient minioAsyncClient, PresignProperties presignProperties, MinioProperties minioProperties,
+                               StorageConfigProperties storageConfigProperties, ThumbnailService thumbnailService,
+                               ObjectMetadataIndex metadataIndex, ContentAddressedStore contentStore) {
+        // an explicit region keeps signing offline; otherwise the client would look the bucket region up first
+        this(MinioClient.builder()
+                .endpoint(publicEndpoint(presignProperties, minioProperties))
+                .region(presignProperties.region())
+                .credentials(minioProperties.accessKey(), minioProperties.secretKey())
+                .build(),
+            minioAsyncClient, presignProperties, minioProperties, storageConfigProperties, thumbnailService, metadataIndex,
+            contentStore);
+    }
+
+    PresignedUrlService(MinioClient presigningClient, MinioAsyncClient minioAsyncClient, PresignProperties presignProperties,
+                        MinioProperties minioProperties, StorageConfigProperties storageConfigProperties, ThumbnailService thumbnailService,
+                        ObjectMetadataIndex metadataIndex, ContentAddressedStore contentStore) {
+        this.presigningClient = presigningClient;
+        this.minioAsyncClient = minioAsyncClient;
+        this.presignProperties = presignProperties;
+        this.minioProperties = minioProperties;
+        this.storageConfigProperties = storageConfigProperties;
+        this.thumbnailService = thumbnailService;
+        this.metadataIndex = metadataIndex;
+        this.contentStore = contentStore;
+    }
+
+    public Mono<PresignedUploadResponse> presignUpload(String bucketName, String objectKey, String contentType, long contentLength) {
+        if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey) || !StringUtils.hasText(contentType)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name, object key, and content type are required."));
+        }
+        if (isReserved(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
+        if (contentStore.isEnabledFor(bucketName)) {
+            return Mono.error(deduplicated(bucketName));
+        }
+        if (contentLength <= 0 || contentLength > presignProperties.maxUploadSize().toBytes()) {
+            return Mono.error(new InvalidStorageRequestException(
+                "Content length must be between 1 and " + presignProperties.maxUploadSize().toBytes() + " bytes."));
+        }
+        Instant expiresAt = Instant.now().plus(presignProperties.uploadExpiry());
+        return Mono.fromCallable(() -> {
+                PostPolicy policy = new PostPolicy(bucketName, expiresAt.atZone(ZoneOffset.UTC));
+                policy.addEqualsCondition("key", objectKey);
+                policy.addEqualsCondition("Content-Type", contentType);
+                policy.addContentLengthRangeCondition(1, contentLength);
+                Map<String, String> formData = new HashMap<>(presigningClient.getPresignedPostFormData(policy));
+                formData.put("key", objectKey);
+                formData.put("Content-Type", contentType);
+                String url = String.join("/", publicEndpoint(presignProperties, minioProperties), bucketName);
+                log.info("Presigned upload issued for {}/{} ({} bytes max, expires {})", bucketName, objectKey, contentLength, expiresAt);
+                return new PresignedUploadResponse(bucketName, objectKey, url, formData, expiresAt);
+            })
+            .onErrorMap(e -> !(e instanceof InvalidStorageRequestException),
+                        e -> new MinioOperationException("Error presigning upload for " + objectKey, e));
+    }
+
+    public Mono<PresignedUrlResponse> presignDownload(String bucketName, String objectKey) {
+        if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name and object key are required."));
+        }
+        if (isReserved(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
+        Instant expiresAt = Instant.now().plus(presignProperties.downloadExpiry());
+        return contentStore.resolve(bucketName, objectKey)
+            .map(storedKey -> {
+                try {
+                    return presigningClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                        .method(Method.GET)
+                        .bucket(bucketName)
+                        .object(storedKey)
+                        .expiry((int) presignProperties.downloadExpiry().toSeconds())
+                        .build());
+                } catch (Exception e) {
+                    throw new MinioOperationException("Error presigning download for " + objectKey, e);
+                }
+            })
+            .map(url -> new PresignedUrlResponse(url, expiresAt))
+            .onErrorMap(e -> !(e instanceof MinioOperationException),
+                        e -> new MinioOperationException("Error presigning download for " + objectKey, e));
+    }
+
+    /**
+     * Checks an object the client reports as uploaded through a presigned form. Objects that break the given
+     * constraints are removed, so callers only ever record keys that point at acceptable content. Deduplicated
+     * buckets are refused, since nothing can have been uploaded to them through a presigned form.
+     */
+    public Mono<FileUploadResponse> confirmUpload(String bucketName, String objectKey, String contentTypePrefix, Long maxContentLength) {
+        if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name and object key are required."));
+        }
+        if (isReserved(bucketName)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
+        if (contentStore.isEnabledFor(bucketName)) {
+            return Mono.error(deduplicated(bucketName));
+        }
+        long maxLength = maxContentLength != null ? maxContentLength : presignProperties.maxUploadSize().toBytes();
+        return Mono.fromFuture(() -> {
+                try {
+                    return minioAsyncClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+                } catch (Exception e) {
+                    throw new MinioOperationException("Error reading object metadata from MinIO: " + objectKey, e);
+                }
+            })
+            .onErrorMap(ErrorResponseException.class, e -> NO_SUCH_KEY.equals(e.errorResponse().code())
+                ? new StorageObjectNotFoundException("Object not found: " + bucketName + "/" + objectKey)
+                : new MinioOperationException("Error reading object metadata from MinIO: " + objectKey, e))
+            .flatMap(stat -> {
+                String violation = violation(stat, contentTypePrefix, maxLength);
+                if (violation != null) {
+                    log.warn("Rejecting presigned upload {}/{}: {}", bucketName, objectKey, violation);
+                    return removeObject(bucketName, objectKey)
+                        .then(metadataIndex.remove(bucketName, List.of(objectKey)))
+                        .then(Mono.error(new InvalidStorageRequestException("Uploaded object rejected: " + violation)));
+                }
+                String publicUrl = String.join("/", storageConfigProperties.publicUrlPrefix(), bucketName, objectKey);
+                return metadataIndex.record(bucketName, objectKey, objectKey, stat.size(), stat.contentType(), stat.etag(), null)
+                    .then(Mono.fromSupplier(() -> new FileUploadResponse(objectKey, bucketName, publicUrl,
+                        thumbnailService.generateInBackground(bucketName, objectKey, objectKey, stat.contentType()))));
+            })
+            .onErrorMap(e -> !(e instanceof MinioOperationException || e instanceof InvalidStorageRequestException
+                               || e instanceof StorageObjectNotFoundException),
+                        e -> new MinioOperationException("Unexpected error confirming upload for " + objectKey, e));
+    }
+
+    private static String violation(StatObjectResponse stat, String contentTypePrefix, long maxLength) {
+        if (stat.size() <= 0 || stat.size() > maxLength) {
+            return "size " + stat.size() + " is outside 1.." + maxLength;
+        }
+        if (StringUtils.hasText(contentTypePrefix)
+            && (stat.contentType() == null || !stat.contentType().regionMatches(true, 0, contentTypePrefix, 0, contentTypePrefix.length()))) {
+            return "content type " + stat.contentType() + " does not match " + contentTypePrefix;
+        }
+        return null;
+    }
+
+    private Mono<Void> removeObject(String bucketName, String objectKey) {
+        return Mono.fromFuture(() -> {
+                try {
+                    return minioAsyncClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectKey).build());
+                } catch (Exception e) {
+                    throw new MinioOperationException("Error deleting file from MinIO: " + objectKey, e);
+                }
+            })
+            .doOnError(e -> log.warn("Failed to remove rejected upload {}/{}: {}", bucketName, objectKey, e.getMessage()))
+            .onErrorResume(e -> Mono.empty())
+            .then();
+    }
+
+    private static InvalidStorageRequestException deduplicated(String bucketName) {
+        return new InvalidStorageRequestException("Bucket '" + bucketName + "' is deduplicated and does not take presigned uploads.");
+    }
+
+    private boolean isReserved(String bucketName) {
+        return bucketName.equals(minioProperties.bucket().system());
+    }
+
+    private static String publicEndpoint(PresignProperties presignProperties, MinioProperties minioProperties) {
+        String endpoint = StringUtils.hasText(presignProperties.publicEndpoint()) ? presignProperties.publicEndpoint() : minioProperties.url();
+        return endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+    }
+}
@@ -0,0 +1,351 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.MinioProperties;
+import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.config.UploadProperties;
+import com.withfy.storageservice.dto.FileUploadResponse;
+import com.withfy.storageservice.exception.InvalidStorageRequestException;
+import com.withfy.storageservice.exception.UploadConflictException;
+import com.withfy.storageservice.exception.UploadSessionNotFoundException;
+import com.withfy.storageservice.service.UploadSession.SessionPart;
+import com.withfy.storageservice.service.UploadSession.TailChunk;
+import io.minio.messages.Part;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads in the style of tus: a session is created up front, chunks are appended at the offset
+ * the server reports, and the session is finalised into a single object. Each session is backed by one S3
+ * multipart upload. Full parts are committed as they arrive, and bytes that do not yet fill a part are kept
+ * as tail chunks, so the reported offset always covers every byte the server has received. Each append stores
+ * only its own bytes as a new chunk; the chunks are read back once, when the part they start fills up, so the
+ * traffic an upload costs stays proportional to its size however small its chunks are.
+ * <p>
+ * Sessions belong to the user who created them, and their objects are written under {@code uploads/<userId>/},
+ * so a user can neither touch another user's session nor overwrite objects outside their own prefix.
+ * Deduplicated buckets are refused: the assembled object would sit at its key with no reference or blob behind
+ * it, so uploads to them go through {@link FileStorageService} instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+
+    private final MultipartUploader multipartUploader;
+    private final UploadSessionStore sessionStore;
+    private final UploadProperties uploadProperties;
+    private final MinioProperties minioProperties;
+    private final StorageConfigProperties storageConfigProperties;
+    private final ObjectMetadataIndex metadataIndex;
+    private final ContentAddressedStore contentStore;
+
+    private static final String KEY_PREFIX = "uploads/";
+
+    private final Set<String> activeSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Opens a session for {@code ownerId}. {@code objectKey} is relative to the owner's prefix.
+     */
+    public Mono<UploadSession> createSession(String ownerId, String bucketName, String objectKey, String contentType, Long uploadLength) {
+        if (!StringUtils.hasText(ownerId) || ownerId.contains("/")) {
+            return Mono.error(new InvalidStorageRequestException("A valid user is required."));
+        }
+        if (!StringUtils.hasText(bucketName) || !StringUtils.hasText(objectKey)) {
+            return Mono.error(new InvalidStorageRequestException("Bucket name and object key are required."));
+        }
+        if (objectKey.startsWith("/") || Arrays.asList(objectKey.split("/")).contains("..")) {
+            return Mono.error(new InvalidStorageRequestException("Object key must be a relative path."));
+        }
+        if (bucketName.equals(minioProperties.bucket().system())) {
+            return Mono.error(new InvalidStorageRequestException("Bucket '" + bucketName + "' is reserved."));
+        }
+        if (contentStore.isEnabledFor(bucketName)) {
+            return Mono.error(deduplicated(bucketName));
+        }
+        if (uploadLength != null && uploadLength < 0) {
+            return Mono.error(new InvalidStorageRequestException("Upload-Length must not be negative."));
+        }
+        String resolvedContentType = StringUtils.hasText(contentType) ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        String ownedKey = KEY_PREFIX + ownerId + "/" + objectKey;
+        Instant now = Instant.now();
+        return multipartUploader.createUpload(bucketName, ownedKey, resolvedContentType)
+            .map(uploadId -> new UploadSession(UUID.randomUUID().toString(), ownerId, bucketName, ownedKey, resolvedContentType,
+                uploadId, uploadLength, List.of(), List.of(), now, now.plus(uploadProperties.sessionTtl())))
+            .flatMap(sessionStore::save)
+            .doOnNext(session -> log.info("Upload session {} created for {}/{}", session.id(), bucketName, ownedKey));
+    }
+
+    /**
+     * The live session {@code sessionId} of {@code ownerId}. Other users' sessions are reported as not found.
+     */
+    public Mono<UploadSession> getSession(String ownerId, String sessionId) {
+        return sessionStore.find(sessionId)
+            .filter(session -> !session.isExpired(Instant.now()) && session.ownerId() != null && session.ownerId().equals(ownerId))
+            .switchIfEmpty(Mono.error(new UploadSessionNotFoundException("Upload session not found: " + sessionId)));
+    }
+
+    /**
+     * Appends {@code body} at {@code offset}. If the client disconnects mid-chunk, the bytes received before the
+     * disconnect are kept and the session's offset reflects them.
+     */
+    public Mono<UploadSession> appendChunk(String ownerId, String sessionId, long offset, Flux<DataBuffer> body) {
+        return withSessionLock(sessionId, getSession(ownerId, sessionId)
+            .flatMap(session -> {
+                if (offset != session.offset()) {
+                    return Mono.error(new UploadConflictException("Upload offset mismatch: expected " + session.offset() + ", got " + offset));
+                }
+                return append(session, body);
+            }));
+    }
+
+    public Mono<FileUploadResponse> complete(String ownerId, String sessionId) {
+        return withSessionLock(sessionId, getSession(ownerId, sessionId)
+            .flatMap(session -> {
+                if (session.uploadLength() != null && session.offset() != session.uploadLength()) {
+                    return Mono.error(new UploadConflictException("Upload is incomplete: " + session.offset() + " of " + session.uploadLength() + " bytes received"));
+                }
+                if (contentStore.isEnabledFor(session.bucketName())) {
+                    return Mono.error(deduplicated(session.bucketName()));
+                }
+                return sessionStore.loadTail(session)
+                    .flatMap(tail -> finish(session, tail))
+                    .flatMap(etag -> metadataIndex.record(session.bucketName(), session.objectKey(), session.objectKey(),
+                        session.offset(), session.contentType(), etag, null))
+                    .then(sessionStore.delete(session))
+                    .then(Mono.fromSupplier(() -> {
+                        String publicUrl = String.join("/", storageConfigProperties.publicUrlPrefix(), session.bucketName(), session.objectKey());
+                        log.info("Upload session {} completed: {}/{}", session.id(), session.bucketName(), session.objectKey());
+                        return new FileUploadResponse(session.objectKey(), session.bucketName(), publicUrl);
+                    }));
+            }));
+    }
+
+    public Mono<Void> abort(String ownerId, String sessionId) {
+        return withSessionLock(sessionId, getSession(ownerId, sessionId)
+            .flatMap(session -> multipartUploader.abortUpload(session.bucketName(), session.objectKey(), session.uploadId())
+                .then(sessionStore.delete(session))));
+    }
+
+    /**
+     * Aborts the multipart upload of every expired session and removes its tail and session objects, so abandoned
+     * uploads do not keep their parts in MinIO. Tail chunks older than the session TTL are removed as well: they can
+     * only belong to an expired or finished session, and are left behind when removing consumed chunks fails. Emits the number of
+     * sessions reaped.
+     */
+    public Mono<Long> reapExpiredSessions() {
+        Instant now = Instant.now();
+        Instant staleBefore = now.minus(uploadProperties.sessionTtl());
+        return sessionStore.listObjects()
+            .concatMap(object -> {
+                String sessionId = UploadSessionStore.sessionIdOf(object.key());
+                if (sessionId == null) {
+                    return object.lastModified().isBefore(staleBefore)
+                        ? sessionStore.deleteKey(object.key()).then(Mono.<Long>empty())
+                        : Mono.<Long>empty();
+                }
+                return withSessionLock(sessionId, sessionStore.find(sessionId)
+                        .filter(session -> session.isExpired(now))
+                        .flatMap(session -> multipartUploader.abortUpload(session.bucketName(), session.objectKey(), session.uploadId())
+                            .then(sessionStore.delete(session))
+                            .thenReturn(1L)))
+                    .onErrorResume(e -> {
+                        log.warn("Could not reap upload session {}: {}", sessionId, e.getMessage());
+                        return Mono.empty();
+                    });
+            })
+            .reduce(0L, Long::sum)
+            .doOnNext(reaped -> {
+                if (reaped > 0) {
+                    log.info("Reaped {} expired upload sessions", reaped);
+                }
+            });
+    }
+
+    private Mono<UploadSession> append(UploadSession session, Flux<DataBuffer> body) {
+        long limit = session.uploadLength() != null ? session.uploadLength() - session.offset() : Long.MAX_VALUE;
+        PartBuffer buffer = new PartBuffer(multipartUploader.partSize(session.bucketName()), session.tailLength(),
+            session.nextPartNumber(), limit);
+        List<SessionPart> committed = Collections.synchronizedList(new ArrayList<>());
+
+        return body
+            .onErrorResume(e -> {
+                log.warn("Upload session {} chunk ended early: {}", session.id(), e.getMessage());
+                return Flux.empty();
+            })
+            .concatMapIterable(buffer::append)
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+            .concatMap(part -> withStoredTail(session, part)
+                .flatMap(data -> multipartUploader.uploadPart(session.bucketName(), session.objectKey(), session.uploadId(),
+                    part.partNumber(), data, part.length()))
+                .map(uploaded -> new SessionPart(uploaded.partNumber(), uploaded.etag(), part.length())), 1)
+            .doOnNext(committed::add)
+            .then(Mono.defer(() -> persist(session, committed, buffer.remaining(), buffer.remainingLength(), buffer.received())))
+            .onErrorResume(e -> committed.isEmpty()
+                ? Mono.error(e)
+                : persist(session, committed, new byte[0], 0, 0).then(Mono.error(e)));
+    }
+
+    /**
+     * The full bytes of {@code part}, reading the session's stored tail chunks in front of the new bytes if the
+     * part starts with them.
+     */
+    private Mono<byte[]> withStoredTail(UploadSession session, PendingPart part) {
+        if (part.storedLength() == 0) {
+            return Mono.just(part.data());
+        }
+        return sessionStore.loadTail(session).map(tail -> {
+            byte[] data = new byte[part.length()];
+            System.arraycopy(tail, 0, data, 0, part.storedLength());
+            System.arraycopy(part.data(), 0, data, part.storedLength(), part.length() - part.storedLength());
+            return data;
+        });
+    }
+
+    /**
+     * Saves the bytes left over after the last full part as a new tail chunk and records the progress. Once a part
+     * has been committed the stored chunks are part of it, so they are dropped from the session and removed.
+     */
+    private Mono<UploadSession> persist(UploadSession session, List<SessionPart> committed, byte[] remainder,
+                                        int remainderLength, long received) {
+        List<SessionPart> appended = List.copyOf(committed);
+        List<TailChunk> kept = appended.isEmpty() ? session.tail() : List.of();
+        List<TailChunk> consumed = appended.isEmpty() ? List.of() : session.tail();
+        long startOffset = session.offset() + received - remainderLength;
+        return sessionStore.saveTail(session, startOffset, remainder, remainderLength)
+            .map(chunk -> {
+                List<TailChunk> tail = new ArrayList<>(kept.size() + 1);
+                tail.addAll(kept);
+                tail.add(chunk);
+                return tail;
+            })
+            .defaultIfEmpty(kept)
+            .flatMap(tail -> sessionStore.save(session.withProgress(appended, tail)))
+            .flatMap(saved -> sessionStore.deleteTail(consumed).thenReturn(saved));
+    }
+
+    /**
+     * Assembles the object and emits its ETag.
+     */
+    private Mono<String> finish(UploadSession session, byte[] tail) {
+        if (session.parts().isEmpty()) {
+            return multipartUploader.abortUpload(session.bucketName(), session.objectKey(), session.uploadId())
+                .then(multipartUploader.put(session.bucketName(), session.objectKey(), session.contentType(), tail, tail.length));
+        }
+        List<Part> parts = new ArrayList<>(session.parts().size() + 1);
+        for (SessionPart part : session.parts()) {
+            parts.add(new Part(part.partNumber(), part.etag()));
+        }
+        Mono<Void> lastPart = tail.length == 0
+            ? Mono.empty()
+            : multipartUploader.uploadPart(session.bucketName(), session.objectKey(), session.uploadId(),
+                    session.nextPartNumber(), tail, tail.length)
+                .doOnNext(parts::add)
+                .then();
+        return lastPart.then(Mono.defer(() -> multipartUploader.completeUpload(session.bucketName(), session.objectKey(), session.uploadId(), parts)));
+    }
+
+    private static InvalidStorageRequestException deduplicated(String bucketName) {
+        return new InvalidStorageRequestException("Bucket '" + bucketName + "' is deduplicated and does not take resumable uploads.");
+    }
+
+    private <T> Mono<T> withSessionLock(String sessionId, Mono<T> action) {
+        return Mono.defer(() -> {
+            if (!activeSessions.add(sessionId)) {
+                return Mono.error(new UploadConflictException("Upload session " + sessionId + " is busy"));
+            }
+            return action.doFinally(signal -> activeSessions.remove(sessionId));
+        });
+    }
+
+    /**
+     * A full part. The first {@code storedLength} bytes of it are the session's stored tail chunks and are not in
+     * {@code data}, which holds the rest of the part from index 0.
+     */
+    record PendingPart(int partNumber, byte[] data, int length, int storedLength) {}
+
+    /**
+     * Fills part-sized arrays with the bytes of one append, counting the session's stored tail toward the first
+     * part, and emits each part as soon as it is full.
+     */
+    static final class PartBuffer {
+        private static final int INITIAL_CAPACITY = 64 * 1024;
+
+        private final int partSize;
+        private int storedLength;
+        private byte[] current;
+        private int length;
+        private int partNumber;
+        private long remainingAllowed;
+        private long received;
+
+        PartBuffer(int partSize, int storedLength, int firstPartNumber, long limit) {
+            this.partSize = partSize;
+            this.storedLength = storedLength;
+            this.current = new byte[Math.min(partSize - storedLength, INITIAL_CAPACITY)];
+            this.partNumber = firstPartNumber;
+            this.remainingAllowed = limit;
+        }
+
+        List<PendingPart> append(DataBuffer buffer) {
+            List<PendingPart> ready = new ArrayList<>(1);
+            try {
+                int remaining = buffer.readableByteCount();
+                if (remaining > remainingAllowed) {
+                    throw new InvalidStorageRequestException("Chunk exceeds the declared Upload-Length.");
+                }
+                remainingAllowed -= remaining;
+                received += remaining;
+                while (remaining > 0) {
+                    int capacity = partSize - storedLength;
+                    int n = Math.min(remaining, capacity - length);
+                    if (length + n > current.length) {
+                        current = Arrays.copyOf(current, Math.min(capacity, Math.max(length + n, current.length * 2)));
+                    }
+                    buffer.read(current, length, n);
+                    length += n;
+                    remaining -= n;
+                    if (length == capacity) {
+                        ready.add(new PendingPart(partNumber++, current, partSize, storedLength));
+                        storedLength = 0;
+                        current = new byte[partSize];
+                        length = 0;
+                    }
+                }
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            return ready;
+        }
+
+        /**
+         * The bytes of this append that do not fill a part, from index 0.
+         */
+        byte[] remaining() {
+            return current;
+        }
+
+        int remainingLength() {
+            return length;
+        }
+
+        long received() {
+            return received;
+        }
+    }
+}
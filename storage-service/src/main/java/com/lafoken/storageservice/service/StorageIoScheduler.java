@@ -0,0 +1,102 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.StorageIoProperties;
+import com.withfy.storageservice.exception.StorageBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking object-storage calls off the Netty event loop. Buckets listed in {@code storage.io.bucket-concurrency}
+ * get a pool of that many threads to themselves, so a burst against one bucket cannot starve the others; every other
+ * bucket shares a pool of {@code storage.io.threads}. Each pool queues at most {@code storage.io.queue-capacity}
+ * tasks and rejects the rest with {@link StorageBusyException}.
+ * <p>
+ * Pools are published as {@code executor.*} meters tagged {@code name=storage.io.<pool>}: {@code executor.queued}
+ * and {@code executor.active} for depth, {@code executor.idle} for the time a task waited for a thread.
+ */
+@Component
+@Slf4j
+public class StorageIoScheduler {
+
+    private static final String SHARED_POOL = "shared";
+
+    private final Map<String, Scheduler> bucketSchedulers = new HashMap<>();
+    private final Scheduler sharedScheduler;
+
+    public StorageIoScheduler(StorageIoProperties properties, MeterRegistry meterRegistry) {
+        this.sharedScheduler = newScheduler(SHARED_POOL, properties.threads(), properties, meterRegistry);
+        properties.bucketConcurrency().forEach((bucketName, concurrency) ->
+            bucketSchedulers.put(bucketName, newScheduler(bucketName, Math.max(1, concurrency), properties, meterRegistry)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sharedScheduler.dispose();
+        bucketSchedulers.values().forEach(Scheduler::dispose);
+    }
+
+    public Scheduler scheduler(String bucketName) {
+        return bucketSchedulers.getOrDefault(bucketName, sharedScheduler);
+    }
+
+    /**
+     * Runs {@code task} on the pool for {@code bucketName}.
+     */
+    public <T> Mono<T> call(String bucketName, Callable<T> task) {
+        return Mono.fromCallable(task)
+            .subscribeOn(scheduler(bucketName))
+            .onErrorMap(RejectedExecutionException.class, e -> busy(bucketName, e));
+    }
+
+    /**
+     * Subscribes to {@code source}, and so runs its blocking reads, on the pool for {@code bucketName}.
+     */
+    public <T> Flux<T> stream(String bucketName, Flux<T> source) {
+        return source
+            .subscribeOn(scheduler(bucketName))
+            .onErrorMap(RejectedExecutionException.class, e -> busy(bucketName, e));
+    }
+
+    private static StorageBusyException busy(String bucketName, Throwable cause) {
+        return new StorageBusyException("Too many pending storage operations for bucket " + bucketName + ", try again later", cause);
+    }
+
+    private static Scheduler newScheduler(String pool, int threads, StorageIoProperties properties, MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+            properties.keepAlive().toMillis(), TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.queueCapacity()), threadFactory(pool));
+        executor.allowCoreThreadTimeOut(true);
+        String name = "storage.io." + pool;
+        ExecutorService monitored = ExecutorServiceMetrics.monitor(meterRegistry, executor, name, Tags.of("pool", pool));
+        log.debug("Storage I/O pool {} has {} threads", pool, threads);
+        return Schedulers.fromExecutorService(monitored, name);
+    }
+
+    private static ThreadFactory threadFactory(String pool) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "storage-io-" + pool + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
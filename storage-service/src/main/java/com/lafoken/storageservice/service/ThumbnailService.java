@@ -0,0 +1,274 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.config.ThumbnailProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.GetObjectArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Renders resized copies of images uploaded to the buckets in {@code storage.thumbnails.buckets} and stores them next
+ * to the original as {@code <name>-<size>.<format>}, each fitted into a {@code size x size} box.
+ * <p>
+ * Uploads do not wait for renditions: rendition keys are derived from the object key, so their URLs are returned
+ * straight away and the rendering runs in the background. Decoding and scaling run on a dedicated pool with a bounded
+ * queue, so a burst of uploads neither blocks the event loop nor queues without limit; work that does not fit is
+ * skipped, and its rendition URLs stay missing until the image is uploaded again.
+ * Large sources are decoded with subsampling, so decode memory follows the largest rendition rather than the photo.
+ */
+@Service
+@Slf4j
+public class ThumbnailService {
+
+    private final MinioAsyncClient minioAsyncClient;
+    private final ThumbnailProperties thumbnailProperties;
+    private final StorageConfigProperties storageConfigProperties;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler scheduler;
+    private final String renditionContentType;
+    private final boolean opaque;
+    private final int largestSize;
+
+    public ThumbnailService(MinioAsyncClient minioAsyncClient, ThumbnailProperties thumbnailProperties,
+                            StorageConfigProperties storageConfigProperties, MeterRegistry meterRegistry) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(thumbnailProperties.format());
+        if (!writers.hasNext()) {
+            throw new IllegalArgumentException("No image writer for thumbnail format " + thumbnailProperties.format());
+        }
+        // renditions are small; the default file-backed cache would put a temp file behind every decode
+        ImageIO.setUseCache(false);
+        this.minioAsyncClient = minioAsyncClient;
+        this.thumbnailProperties = thumbnailProperties;
+        this.storageConfigProperties = storageConfigProperties;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Schedulers.newBoundedElastic(thumbnailProperties.workers(), thumbnailProperties.queueCapacity(), "thumbnails");
+        this.renditionContentType = writers.next().getOriginatingProvider().getMIMETypes()[0];
+        this.opaque = renditionContentType.equals("image/jpeg");
+        this.largestSize = Collections.max(thumbnailProperties.sizes());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+
+    public boolean hasRenditions(String bucketName) {
+        return thumbnailProperties.isEnabledFor(bucketName);
+    }
+
+    public int renditionCount() {
+        return thumbnailProperties.sizes().size();
+    }
+
+    public List<String> renditionKeys(String objectKey) {
+        return thumbnailProperties.sizes().stream().map(size -> renditionKey(objectKey, size)).toList();
+    }
+
+    String renditionKey(String objectKey, int size) {
+        int slash = objectKey.lastIndexOf('/');
+        int dot = objectKey.lastIndexOf('.');
+        String base = dot > slash + 1 ? objectKey.substring(0, dot) : objectKey;
+        return base + "-" + size + "." + thumbnailProperties.format();
+    }
+
+    /**
+     * Starts rendering {@code sourceKey} in the background and returns, without waiting for it, the public URLs of the
+     * renditions by size. A rendition URL answers 404 until its rendition is stored, and for good if rendering fails,
+     * so clients fall back to the original. Returns an empty map for buckets and content without renditions.
+     */
+    public Map<String, String> generateInBackground(String bucketName, String objectKey, String sourceKey, String contentType) {
+        if (!hasRenditions(bucketName) || !isSupported(contentType)) {
+            return Map.of();
+        }
+        generate(bucketName, objectKey, sourceKey, contentType).subscribe();
+        Map<String, String> renditions = new LinkedHashMap<>();
+        for (int size : thumbnailProperties.sizes()) {
+            renditions.put(String.valueOf(size), publicUrl(bucketName, renditionKey(objectKey, size)));
+        }
+        return renditions;
+    }
+
+    /**
+     * Renders every configured size of {@code sourceKey} and stores it under keys derived from {@code objectKey}.
+     * Emits the rendition public URLs by size. The original is already stored at this point, so a failure is logged
+     * and emits an empty map instead of failing the upload.
+     */
+    public Mono<Map<String, String>> generate(String bucketName, String objectKey, String sourceKey, String contentType) {
+        if (!hasRenditions(bucketName) || !isSupported(contentType)) {
+            return Mono.just(Map.of());
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return Mono.fromCallable(() -> render(bucketName, objectKey, sourceKey))
+            .subscribeOn(scheduler)
+            .flatMapMany(Flux::fromIterable)
+            .flatMapSequential(rendition -> store(bucketName, rendition).thenReturn(rendition))
+            .collectMap(rendition -> String.valueOf(rendition.size()),
+                        rendition -> publicUrl(bucketName, rendition.key()),
+                        LinkedHashMap::new)
+            .timeout(thumbnailProperties.timeout())
+            .doOnSuccess(renditions -> {
+                sample.stop(meterRegistry.timer("storage.thumbnails.duration", "bucket", bucketName));
+                record(bucketName, "generated");
+                log.info("Generated {} renditions for {}/{}", renditions.size(), bucketName, objectKey);
+            })
+            .onErrorResume(e -> {
+                boolean rejected = e instanceof RejectedExecutionException;
+                record(bucketName, rejected ? "rejected" : "failed");
+                log.warn("No renditions for {}/{}: {}", bucketName, objectKey, rejected ? "thumbnail queue is full" : e.getMessage());
+                return Mono.just(Map.of());
+            });
+    }
+
+    private String publicUrl(String bucketName, String key) {
+        return String.join("/", storageConfigProperties.publicUrlPrefix(), bucketName, key);
+    }
+
+    private boolean isSupported(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int parameters = contentType.indexOf(';');
+        String mimeType = (parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim();
+        return ImageIO.getImageReadersByMIMEType(mimeType).hasNext();
+    }
+
+    private List<Rendition> render(String bucketName, String objectKey, String sourceKey) throws Exception {
+        try (InputStream in = minioAsyncClient.getObject(GetObjectArgs.builder().bucket(bucketName).object(sourceKey).build()).get();
+             ImageInputStream images = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(images);
+            if (!readers.hasNext()) {
+                throw new IOException("Unrecognised image data");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(images, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > thumbnailProperties.maxSourcePixels()) {
+                    throw new IOException("Source is " + width + "x" + height + ", over the " + thumbnailProperties.maxSourcePixels() + " pixel limit");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * largestSize));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage source = reader.read(0, param);
+                List<Rendition> renditions = new ArrayList<>(thumbnailProperties.sizes().size());
+                for (int size : thumbnailProperties.sizes()) {
+                    renditions.add(new Rendition(size, renditionKey(objectKey, size), encode(scale(source, size, opaque))));
+                }
+                return renditions;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fits {@code source} into a {@code size x size} box without upscaling. Large reductions are done in halving
+     * steps, since a single bilinear pass samples too few source pixels and aliases.
+     */
+    static BufferedImage scale(BufferedImage source, int size, boolean opaque) {
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int width = source.getWidth();
+        int height = source.getHeight();
+        BufferedImage current = source;
+        do {
+            width = width / 2 >= targetWidth ? width / 2 : targetWidth;
+            height = height / 2 >= targetHeight ? height / 2 : targetHeight;
+            current = draw(current, width, height, opaque);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, boolean opaque) {
+        BufferedImage target = new BufferedImage(width, height, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            if (opaque) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(thumbnailProperties.format()).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (opaque) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(thumbnailProperties.quality());
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private Mono<Void> store(String bucketName, Rendition rendition) {
+        return Mono.fromFuture(() -> {
+                try {
+                    return minioAsyncClient.putObject(PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(rendition.key())
+                        .stream(new ByteArrayInputStream(rendition.data()), rendition.data().length, -1)
+                        .contentType(renditionContentType)
+                        .build());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Error storing rendition " + rendition.key(), e);
+                }
+            })
+            .then();
+    }
+
+    private void record(String bucketName, String result) {
+        meterRegistry.counter("storage.thumbnails", "bucket", bucketName, "result", result).increment();
+    }
+
+    private record Rendition(int size, String key, byte[] data) {}
+}
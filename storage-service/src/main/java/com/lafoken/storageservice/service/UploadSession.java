@@ -0,0 +1,66 @@
+package com.withfy.storageservice.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of a resumable upload. Bytes received so far are either committed multipart parts or, for the
+ * trailing bytes that do not yet fill a part, tail chunks in the system bucket: one object per append, in
+ * order. {@code ownerId} is the user who created the session; no one else can see or change it.
+ */
+public record UploadSession(
+    String id,
+    String ownerId,
+    String bucketName,
+    String objectKey,
+    String contentType,
+    String uploadId,
+    Long uploadLength,
+    List<SessionPart> parts,
+    List<TailChunk> tail,
+    Instant createdAt,
+    Instant expiresAt
+) {
+    public UploadSession {
+        if (tail == null) {
+            tail = List.of();
+        }
+    }
+
+    public record SessionPart(int partNumber, String etag, long size) {}
+
+    public record TailChunk(String key, int length) {}
+
+    public long offset() {
+        long committed = 0;
+        for (SessionPart part : parts) {
+            committed += part.size();
+        }
+        return committed + tailLength();
+    }
+
+    public int tailLength() {
+        int length = 0;
+        for (TailChunk chunk : tail) {
+            length += chunk.length();
+        }
+        return length;
+    }
+
+    public int nextPartNumber() {
+        return parts.size() + 1;
+    }
+
+    public boolean isExpired(Instant now) {
+        return now.isAfter(expiresAt);
+    }
+
+    UploadSession withProgress(List<SessionPart> appended, List<TailChunk> tail) {
+        List<SessionPart> allParts = new ArrayList<>(parts.size() + appended.size());
+        allParts.addAll(parts);
+        allParts.addAll(appended);
+        return new UploadSession(id, ownerId, bucketName, objectKey, contentType, uploadId, uploadLength,
+            List.copyOf(allParts), List.copyOf(tail), createdAt, expiresAt);
+    }
+}
@@ -0,0 +1,33 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.UploadProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs {@link ResumableUploadService#reapExpiredSessions()} every {@code storage.upload.reap-interval}.
+ */
+@Service
+@Slf4j
+public class UploadSessionReaper {
+
+    private final Disposable schedule;
+
+    public UploadSessionReaper(ResumableUploadService resumableUploadService, UploadProperties uploadProperties) {
+        this.schedule = Flux.interval(uploadProperties.reapInterval(), uploadProperties.reapInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> resumableUploadService.reapExpiredSessions()
+                .doOnError(e -> log.warn("Upload session reaping failed: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty()))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        schedule.dispose();
+    }
+}
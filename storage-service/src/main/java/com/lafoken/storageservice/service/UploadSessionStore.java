@@ -0,0 +1,198 @@
+package com.withfy.storageservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.withfy.storageservice.config.MinioProperties;
+import com.withfy.storageservice.exception.MinioOperationException;
+import com.withfy.storageservice.service.UploadSession.TailChunk;
+import io.minio.GetObjectArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Persists {@link UploadSession}s and their tail chunks as objects in the private system bucket, so sessions
+ * survive restarts and need nothing beyond MinIO.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionStore {
+
+    private static final String PREFIX = "upload-sessions/";
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+    private static final String SESSION_FILE = "/session.json";
+
+    private final MinioAsyncClient minioAsyncClient;
+    private final MinioProperties minioProperties;
+    private final ObjectMapper objectMapper;
+    private final StorageIoScheduler ioScheduler;
+
+    public Mono<UploadSession> find(String sessionId) {
+        return read(sessionKey(sessionId))
+            .map(bytes -> {
+                try {
+                    return objectMapper.readValue(bytes, UploadSession.class);
+                } catch (Exception e) {
+                    throw new MinioOperationException("Corrupt upload session " + sessionId, e);
+                }
+            });
+    }
+
+    public Mono<UploadSession> save(UploadSession session) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsBytes(session))
+            .flatMap(bytes -> write(sessionKey(session.id()), bytes, bytes.length, "application/json"))
+            .thenReturn(session);
+    }
+
+    /**
+     * Reads the session's tail chunks back into one array. Only done when the tail is about to become part of a
+     * multipart part, so every byte is downloaded once.
+     */
+    public Mono<byte[]> loadTail(UploadSession session) {
+        int tailLength = session.tailLength();
+        if (tailLength == 0) {
+            return Mono.just(new byte[0]);
+        }
+        return Mono.defer(() -> {
+            byte[] tail = new byte[tailLength];
+            int[] position = {0};
+            return Flux.fromIterable(session.tail())
+                .concatMap(chunk -> read(chunk.key())
+                    .switchIfEmpty(Mono.error(new MinioOperationException("Tail of upload session " + session.id() + " is missing")))
+                    .doOnNext(bytes -> {
+                        if (bytes.length != chunk.length()) {
+                            throw new MinioOperationException("Tail of upload session " + session.id() + " is corrupt");
+                        }
+                        System.arraycopy(bytes, 0, tail, position[0], bytes.length);
+                        position[0] += bytes.length;
+                    }))
+                .then(Mono.just(tail));
+        });
+    }
+
+    /**
+     * Writes the bytes of one append as a tail chunk, under a key unique to where they start in the upload, so a
+     * crash between writing the chunk and writing the session never leaves the session pointing at the wrong bytes.
+     */
+    public Mono<TailChunk> saveTail(UploadSession session, long startOffset, byte[] data, int length) {
+        if (length == 0) {
+            return Mono.empty();
+        }
+        String key = PREFIX + session.id() + "/tail-" + startOffset + "-" + length;
+        return write(key, data, length, "application/octet-stream").thenReturn(new TailChunk(key, length));
+    }
+
+    public Mono<Void> deleteTail(List<TailChunk> tail) {
+        return Flux.fromIterable(tail).concatMap(chunk -> deleteKey(chunk.key())).then();
+    }
+
+    public Mono<Void> delete(UploadSession session) {
+        return deleteTail(session.tail()).then(deleteKey(sessionKey(session.id())));
+    }
+
+    public Mono<Void> deleteKey(String key) {
+        if (key == null) {
+            return Mono.empty();
+        }
+        return fromFuture(() -> minioAsyncClient.removeObject(RemoveObjectArgs.builder()
+                .bucket(minioProperties.bucket().system())
+                .object(key)
+                .build()))
+            .onErrorResume(e -> {
+                log.warn("Could not remove upload session object {}: {}", key, e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * Streams every session and tail object in the store, one listing page at a time.
+     */
+    public Flux<StoredObject> listObjects() {
+        String bucketName = minioProperties.bucket().system();
+        return ioScheduler.stream(bucketName, Flux.defer(() -> Flux.fromIterable(minioAsyncClient.listObjects(ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(PREFIX)
+                .recursive(true)
+                .build())))
+            .map(UploadSessionStore::item)
+            .filter(item -> !item.isDir())
+            .map(item -> new StoredObject(item.objectName(), item.lastModified().toInstant())));
+    }
+
+    /**
+     * The id of the session {@code key} stores, or {@code null} if {@code key} holds a tail chunk.
+     */
+    public static String sessionIdOf(String key) {
+        if (!key.startsWith(PREFIX) || !key.endsWith(SESSION_FILE)) {
+            return null;
+        }
+        return key.substring(PREFIX.length(), key.length() - SESSION_FILE.length());
+    }
+
+    private static Item item(Result<Item> result) {
+        try {
+            return result.get();
+        } catch (Exception e) {
+            throw new MinioOperationException("Error listing upload sessions", e);
+        }
+    }
+
+    private Mono<byte[]> read(String key) {
+        return fromFuture(() -> minioAsyncClient.getObject(GetObjectArgs.builder()
+                .bucket(minioProperties.bucket().system())
+                .object(key)
+                .build()))
+            .flatMap(response -> ioScheduler.call(minioProperties.bucket().system(), () -> {
+                try (InputStream in = response) {
+                    return in.readAllBytes();
+                } catch (Exception e) {
+                    throw new MinioOperationException("Error reading upload session object " + key, e);
+                }
+            }))
+            .onErrorResume(ErrorResponseException.class, e -> NO_SUCH_KEY.equals(e.errorResponse().code())
+                ? Mono.empty()
+                : Mono.error(new MinioOperationException("Error reading upload session object " + key, e)));
+    }
+
+    private Mono<Void> write(String key, byte[] data, int length, String contentType) {
+        return fromFuture(() -> minioAsyncClient.putObject(PutObjectArgs.builder()
+                .bucket(minioProperties.bucket().system())
+                .object(key)
+                .stream(new ByteArrayInputStream(data, 0, length), length, -1)
+                .contentType(contentType)
+                .build()))
+            .then();
+    }
+
+    private static String sessionKey(String sessionId) {
+        return PREFIX + sessionId + SESSION_FILE;
+    }
+
+    private static <T> Mono<T> fromFuture(Callable<CompletableFuture<T>> call) {
+        return Mono.fromFuture(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    public record StoredObject(String key, Instant lastModified) {}
+}
@@ -0,0 +1,51 @@
+CREATE TABLE IF NOT EXISTS content_blobs (
+  id BIGSERIAL PRIMARY KEY,
+  bucket_name TEXT NOT NULL,
+  digest TEXT NOT NULL,
+  size BIGINT NOT NULL,
+  content_type TEXT NULL,
+  ref_count INTEGER NOT NULL,
+  stored BOOLEAN NOT NULL DEFAULT TRUE,
+  created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  CONSTRAINT uq_content_blobs_digest UNIQUE (bucket_name, digest)
+);
+
+ALTER TABLE content_blobs ADD COLUMN IF NOT EXISTS stored BOOLEAN NOT NULL DEFAULT TRUE;
+
+CREATE TABLE IF NOT EXISTS content_refs (
+  id BIGSERIAL PRIMARY KEY,
+  bucket_name TEXT NOT NULL,
+  object_key TEXT NOT NULL,
+  digest TEXT NOT NULL,
+  created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  CONSTRAINT uq_content_refs_key UNIQUE (bucket_name, object_key),
+  CONSTRAINT fk_content_refs_blob FOREIGN KEY (bucket_name, digest) REFERENCES content_blobs (bucket_name, digest)
+);
+
+CREATE INDEX IF NOT EXISTS idx_content_refs_digest ON content_refs (bucket_name, digest);
+
+CREATE TABLE IF NOT EXISTS pending_deletes (
+  id BIGSERIAL PRIMARY KEY,
+  bucket_name TEXT NOT NULL,
+  object_key TEXT NOT NULL,
+  attempts INTEGER NOT NULL DEFAULT 0,
+  last_error TEXT NULL,
+  next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  CONSTRAINT uq_pending_deletes_key UNIQUE (bucket_name, object_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_pending_deletes_due ON pending_deletes (next_attempt_at);
+
+CREATE TABLE IF NOT EXISTS object_metadata (
+  id BIGSERIAL PRIMARY KEY,
+  bucket_name TEXT NOT NULL,
+  object_key TEXT COLLATE "C" NOT NULL,
+  stored_key TEXT NOT NULL,
+  size BIGINT NOT NULL,
+  content_type TEXT NULL,
+  etag TEXT NULL,
+  sha256 TEXT NULL,
+  updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  CONSTRAINT uq_object_metadata_key UNIQUE (bucket_name, object_key)
+);
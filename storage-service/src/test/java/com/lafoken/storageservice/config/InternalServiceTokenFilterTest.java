@@ -0,0 +1,92 @@
+package com.withfy.storageservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InternalServiceTokenFilterTest {
+
+    private static final List<String> PATHS = List.of("/api/v1/storage/objects", "/api/v1/storage/object",
+        "/api/v1/storage/presign/**");
+
+    private final AtomicInteger chainCalls = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> {
+        chainCalls.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private MockServerWebExchange filter(String configuredToken, HttpMethod method, String path, String presentedToken) {
+        MockServerHttpRequest.BodyBuilder request = MockServerHttpRequest.method(method, URI.create(path));
+        if (presentedToken != null) {
+            request.header(InternalServiceTokenFilter.HEADER, presentedToken);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        new InternalServiceTokenFilter(new InternalServiceProperties(configuredToken, PATHS)).filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Test
+    void filter_whenInternalPathCarriesToken_shouldPassThrough() {
+        MockServerWebExchange exchange = filter("s3cret", HttpMethod.DELETE, "/api/v1/storage/objects", "s3cret");
+
+        assertEquals(1, chainCalls.get());
+        assertNull(exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_whenInternalPathTokenMissingOrWrong_shouldForbid() {
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.DELETE, "/api/v1/storage/objects", null).getResponse().getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.DELETE, "/api/v1/storage/object", "other").getResponse().getStatusCode());
+        assertEquals(0, chainCalls.get());
+    }
+
+    @Test
+    void filter_whenPathHidesBehindParametersOrEncoding_shouldStillForbid() {
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.DELETE, "/api/v1/storage/objects;x", null).getResponse().getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.DELETE, "/api/v1/storage/%6Fbject", null).getResponse().getStatusCode());
+        assertEquals(0, chainCalls.get());
+    }
+
+    @Test
+    void filter_whenMetadataOrListingCalledWithoutToken_shouldForbid() {
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.HEAD, "/api/v1/storage/object;v=1?bucketName=images&objectKey=a", null)
+            .getResponse().getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.GET, "/api/v1/storage/objects;x?bucketName=images", null)
+            .getResponse().getStatusCode());
+        assertEquals(0, chainCalls.get());
+    }
+
+    @Test
+    void filter_whenPresignCalledWithoutToken_shouldForbid() {
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.POST, "/api/v1/storage/presign/upload", null).getResponse().getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, filter("s3cret", HttpMethod.GET, "/api/v1/storage/presign;x/download", null).getResponse().getStatusCode());
+        assertEquals(0, chainCalls.get());
+
+        filter("s3cret", HttpMethod.POST, "/api/v1/storage/presign/confirm", "s3cret");
+        assertEquals(1, chainCalls.get());
+    }
+
+    @Test
+    void filter_whenNoTokenConfigured_shouldForbidInternalPaths() {
+        assertEquals(HttpStatus.FORBIDDEN, filter(null, HttpMethod.DELETE, "/api/v1/storage/objects", null).getResponse().getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, filter(" ", HttpMethod.DELETE, "/api/v1/storage/objects", " ").getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_whenPathIsNotInternal_shouldNotRequireToken() {
+        filter("s3cret", HttpMethod.POST, "/api/v1/storage/upload", null);
+
+        assertEquals(1, chainCalls.get());
+    }
+}
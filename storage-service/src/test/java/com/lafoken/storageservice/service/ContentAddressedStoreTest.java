@@ -0,0 +1,198 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.DedupProperties;
+import com.withfy.storageservice.exception.MinioOperationException;
+import com.withfy.storageservice.repository.ContentBlobRepository;
+import com.withfy.storageservice.repository.ContentRefRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.CopyObjectArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.RemoveObjectArgs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentAddressedStoreTest {
+
+    private static final String BUCKET_NAME = "songs";
+    private static final String OBJECT_KEY = "tracks/track-1.mp3";
+    private static final String STAGING_KEY = ".blobs/staging/s1";
+    private static final String DIGEST = "abcdef0123";
+    private static final String OLD_DIGEST = "ff00112233";
+
+    @Mock
+    private ContentBlobRepository blobRepository;
+
+    @Mock
+    private ContentRefRepository refRepository;
+
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ContentAddressedStore contentStore;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        contentStore = new ContentAddressedStore(blobRepository, refRepository, minioAsyncClient,
+            new DedupProperties(List.of(BUCKET_NAME), ".blobs/"), meterRegistry, transactionalOperator);
+        lenient().when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void commit_whenContentIsNew_shouldCopyStagedObjectBeforeTakingTheReference() throws Exception {
+        when(blobRepository.reserve(BUCKET_NAME, DIGEST, 100, "audio/mpeg")).thenReturn(Mono.just(false));
+        when(minioAsyncClient.copyObject(any(CopyObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(blobRepository.markStored(BUCKET_NAME, DIGEST)).thenReturn(Mono.just(1));
+        when(refRepository.findDigestForUpdate(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.empty());
+        when(blobRepository.acquire(BUCKET_NAME, DIGEST)).thenReturn(Mono.just(1));
+        when(refRepository.upsert(BUCKET_NAME, OBJECT_KEY, DIGEST)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(contentStore.commit(BUCKET_NAME, OBJECT_KEY, STAGING_KEY, DIGEST, 100, "audio/mpeg"))
+            .expectNext(".blobs/sha256/ab/" + DIGEST)
+            .verifyComplete();
+
+        ArgumentCaptor<CopyObjectArgs> captor = ArgumentCaptor.forClass(CopyObjectArgs.class);
+        verify(minioAsyncClient).copyObject(captor.capture());
+        assertEquals(".blobs/sha256/ab/" + DIGEST, captor.getValue().object());
+        assertEquals(STAGING_KEY, captor.getValue().source().object());
+        assertEquals(1.0, meterRegistry.counter("storage.dedup.commits", "bucket", BUCKET_NAME, "result", "stored").count());
+        InOrder inOrder = inOrder(minioAsyncClient, blobRepository, transactionalOperator);
+        inOrder.verify(minioAsyncClient).copyObject(any(CopyObjectArgs.class));
+        inOrder.verify(blobRepository).markStored(BUCKET_NAME, DIGEST);
+        inOrder.verify(transactionalOperator).transactional(any(Mono.class));
+    }
+
+    @Test
+    void commit_whenContentExists_shouldOnlyAddReference() throws Exception {
+        when(blobRepository.reserve(BUCKET_NAME, DIGEST, 100, "audio/mpeg")).thenReturn(Mono.just(true));
+        when(refRepository.findDigestForUpdate(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.empty());
+        when(blobRepository.acquire(BUCKET_NAME, DIGEST)).thenReturn(Mono.just(3));
+        when(refRepository.upsert(BUCKET_NAME, OBJECT_KEY, DIGEST)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(contentStore.commit(BUCKET_NAME, OBJECT_KEY, STAGING_KEY, DIGEST, 100, "audio/mpeg"))
+            .expectNext(".blobs/sha256/ab/" + DIGEST)
+            .verifyComplete();
+
+        verify(minioAsyncClient, never()).copyObject(any(CopyObjectArgs.class));
+        assertEquals(100.0, meterRegistry.counter("storage.dedup.bytes.saved", "bucket", BUCKET_NAME).count());
+    }
+
+    @Test
+    void commit_whenBlobRemovedBeforeReference_shouldCopyAgainAndRetry() throws Exception {
+        when(blobRepository.reserve(BUCKET_NAME, DIGEST, 100, "audio/mpeg")).thenReturn(Mono.just(true), Mono.just(false));
+        when(minioAsyncClient.copyObject(any(CopyObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(blobRepository.markStored(BUCKET_NAME, DIGEST)).thenReturn(Mono.just(1));
+        when(refRepository.findDigestForUpdate(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.empty());
+        when(blobRepository.acquire(BUCKET_NAME, DIGEST)).thenReturn(Mono.empty(), Mono.just(1));
+        when(refRepository.upsert(BUCKET_NAME, OBJECT_KEY, DIGEST)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(contentStore.commit(BUCKET_NAME, OBJECT_KEY, STAGING_KEY, DIGEST, 100, "audio/mpeg"))
+            .expectNext(".blobs/sha256/ab/" + DIGEST)
+            .verifyComplete();
+
+        verify(minioAsyncClient).copyObject(any(CopyObjectArgs.class));
+        verify(refRepository).upsert(BUCKET_NAME, OBJECT_KEY, DIGEST);
+        assertEquals(1.0, meterRegistry.counter("storage.dedup.commits", "bucket", BUCKET_NAME, "result", "stored").count());
+    }
+
+    @Test
+    void commit_whenCopyFails_shouldNotTakeReference() {
+        when(blobRepository.reserve(BUCKET_NAME, DIGEST, 100, "audio/mpeg")).thenReturn(Mono.just(false));
+        when(minioAsyncClient.copyObject(any(CopyObjectArgs.class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("minio down")));
+
+        StepVerifier.create(contentStore.commit(BUCKET_NAME, OBJECT_KEY, STAGING_KEY, DIGEST, 100, "audio/mpeg"))
+            .expectError(MinioOperationException.class)
+            .verify();
+
+        verify(blobRepository, never()).markStored(any(), any());
+        verifyNoInteractions(refRepository);
+    }
+
+    @Test
+    void commit_whenKeyPointedAtOtherContent_shouldReleaseAndRemoveOldBlob() throws Exception {
+        when(blobRepository.reserve(BUCKET_NAME, DIGEST, 100, "audio/mpeg")).thenReturn(Mono.just(true));
+        when(refRepository.findDigestForUpdate(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.just(OLD_DIGEST));
+        when(blobRepository.acquire(BUCKET_NAME, DIGEST)).thenReturn(Mono.just(2));
+        when(refRepository.upsert(BUCKET_NAME, OBJECT_KEY, DIGEST)).thenReturn(Mono.just(1));
+        when(blobRepository.release(BUCKET_NAME, OLD_DIGEST)).thenReturn(Mono.just(0));
+        when(blobRepository.deleteIfUnreferenced(BUCKET_NAME, OLD_DIGEST)).thenReturn(Mono.just(1));
+        when(minioAsyncClient.removeObject(any(RemoveObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        StepVerifier.create(contentStore.commit(BUCKET_NAME, OBJECT_KEY, STAGING_KEY, DIGEST, 100, "audio/mpeg"))
+            .expectNext(".blobs/sha256/ab/" + DIGEST)
+            .verifyComplete();
+
+        ArgumentCaptor<RemoveObjectArgs> captor = ArgumentCaptor.forClass(RemoveObjectArgs.class);
+        verify(minioAsyncClient).removeObject(captor.capture());
+        assertEquals(".blobs/sha256/ff/" + OLD_DIGEST, captor.getValue().object());
+    }
+
+    @Test
+    void commit_whenContentUnchanged_shouldNotTouchReferences() {
+        when(blobRepository.reserve(BUCKET_NAME, DIGEST, 100, "audio/mpeg")).thenReturn(Mono.just(true));
+        when(refRepository.findDigestForUpdate(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.just(DIGEST));
+
+        StepVerifier.create(contentStore.commit(BUCKET_NAME, OBJECT_KEY, STAGING_KEY, DIGEST, 100, "audio/mpeg"))
+            .expectNext(".blobs/sha256/ab/" + DIGEST)
+            .verifyComplete();
+
+        verify(blobRepository, never()).acquire(any(), any());
+        verify(refRepository, never()).upsert(any(), any(), any());
+    }
+
+    @Test
+    void release_whenOtherReferencesRemain_shouldKeepBlob() throws Exception {
+        when(refRepository.findDigestForUpdate(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.just(DIGEST));
+        when(refRepository.deleteByKey(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.just(1));
+        when(blobRepository.release(BUCKET_NAME, DIGEST)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(contentStore.release(BUCKET_NAME, OBJECT_KEY))
+            .expectNext(true)
+            .verifyComplete();
+
+        verify(blobRepository, never()).deleteIfUnreferenced(any(), any());
+        verify(minioAsyncClient, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    @Test
+    void release_whenKeyIsNotReference_shouldEmitFalse() {
+        when(refRepository.findDigestForUpdate(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.empty());
+
+        StepVerifier.create(contentStore.release(BUCKET_NAME, OBJECT_KEY))
+            .expectNext(false)
+            .verifyComplete();
+    }
+
+    @Test
+    void resolve_shouldMapReferenceToBlobKey() {
+        when(refRepository.findDigest(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.just(DIGEST));
+
+        StepVerifier.create(contentStore.resolve(BUCKET_NAME, OBJECT_KEY))
+            .expectNext(".blobs/sha256/ab/" + DIGEST)
+            .verifyComplete();
+        StepVerifier.create(contentStore.resolve("images", OBJECT_KEY))
+            .expectNext(OBJECT_KEY)
+            .verifyComplete();
+    }
+}
@@ -0,0 +1,147 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.DeleteQueueProperties;
+import com.withfy.storageservice.config.StorageIoProperties;
+import com.withfy.storageservice.entity.PendingDelete;
+import com.withfy.storageservice.repository.PendingDeleteRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeleteQueueTest {
+
+    private static final String BUCKET_NAME = "images";
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private PendingDeleteRepository pendingDeleteRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StorageIoScheduler ioScheduler;
+    private DeleteQueue deleteQueue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DeleteQueueProperties properties = new DeleteQueueProperties(2, Duration.ofMillis(50), 100, 1, Duration.ofMillis(1),
+            Duration.ofHours(1), 100, Duration.ofMinutes(1));
+        ioScheduler = new StorageIoScheduler(new StorageIoProperties(2, 10, null, null), meterRegistry);
+        deleteQueue = new DeleteQueue(minioClient, pendingDeleteRepository, properties, meterRegistry, ioScheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteQueue.shutdown();
+        ioScheduler.shutdown();
+    }
+
+    private static long size(RemoveObjectsArgs args) {
+        return StreamSupport.stream(args.objects().spliterator(), false).count();
+    }
+
+    private static Result<DeleteError> error(String objectKey) {
+        DeleteError deleteError = mock(DeleteError.class);
+        when(deleteError.objectName()).thenReturn(objectKey);
+        when(deleteError.code()).thenReturn("AccessDenied");
+        return new Result<>(deleteError);
+    }
+
+    @Test
+    void remove_shouldSplitKeysIntoBatches() {
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of());
+
+        StepVerifier.create(deleteQueue.remove(BUCKET_NAME, List.of("a", "b", "c")))
+            .expectNext(List.of())
+            .verifyComplete();
+
+        verify(minioClient, times(2)).removeObjects(any(RemoveObjectsArgs.class));
+        verifyNoInteractions(pendingDeleteRepository);
+        assertEquals(3.0, meterRegistry.counter("storage.deletes", "bucket", BUCKET_NAME, "result", "deleted").count());
+    }
+
+    @Test
+    void remove_whenMinioRejectsSomeKeys_shouldPersistAndEmitThem() {
+        Result<DeleteError> rejected = error("b");
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of(rejected));
+        when(pendingDeleteRepository.upsert(eq(BUCKET_NAME), any(), anyString(), anyDouble())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(deleteQueue.remove(BUCKET_NAME, List.of("a", "b")))
+            .expectNext(List.of("b"))
+            .verifyComplete();
+
+        ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
+        verify(pendingDeleteRepository).upsert(eq(BUCKET_NAME), captor.capture(), anyString(), eq(60.0));
+        assertArrayEquals(new String[] {"b"}, captor.getValue());
+    }
+
+    @Test
+    void remove_whenMinioIsUnreachable_shouldRetryThenPersistWholeBatch() {
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenThrow(new IllegalStateException("connection refused"));
+        when(pendingDeleteRepository.upsert(eq(BUCKET_NAME), any(), anyString(), anyDouble())).thenReturn(Mono.just(2));
+
+        StepVerifier.create(deleteQueue.remove(BUCKET_NAME, List.of("a", "b")))
+            .expectNext(List.of("a", "b"))
+            .verifyComplete();
+
+        verify(minioClient, times(2)).removeObjects(any(RemoveObjectsArgs.class));
+    }
+
+    @Test
+    void enqueue_shouldCoalesceKeysIntoBatches() {
+        List<Long> batches = new ArrayList<>();
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenAnswer(invocation -> {
+            synchronized (batches) {
+                batches.add(size(invocation.getArgument(0)));
+            }
+            return List.of();
+        });
+
+        StepVerifier.create(deleteQueue.enqueue(BUCKET_NAME, List.of("a", "b"))
+                .then(deleteQueue.enqueue(BUCKET_NAME, List.of("c"))))
+            .verifyComplete();
+
+        verify(minioClient, timeout(1000).times(2)).removeObjects(any(RemoveObjectsArgs.class));
+        assertEquals(List.of(2L, 1L), batches);
+    }
+
+    @Test
+    void sweep_shouldClearRemovedKeysFromTable() {
+        when(pendingDeleteRepository.findDue(100)).thenReturn(Flux.just(
+            PendingDelete.builder().bucketName(BUCKET_NAME).objectKey("a").attempts(1).build()));
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of());
+        when(pendingDeleteRepository.deleteByKeys(eq(BUCKET_NAME), any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(deleteQueue.sweep()).verifyComplete();
+
+        verify(pendingDeleteRepository).deleteByKeys(BUCKET_NAME, new String[] {"a"});
+        verify(pendingDeleteRepository, never()).upsert(any(), any(), any(), anyDouble());
+    }
+}
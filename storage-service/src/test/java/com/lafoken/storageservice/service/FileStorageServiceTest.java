@@ -1,21 +1,32 @@
 package com.withfy.storageservice.service;
 
+import com.withfy.storageservice.config.MinioProperties;
 import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.config.StorageIoProperties;
 import com.withfy.storageservice.dto.FileUploadResponse;
 import com.withfy.storageservice.exception.InvalidStorageRequestException;
 import com.withfy.storageservice.exception.MinioOperationException;
+import com.withfy.storageservice.exception.RangeNotSatisfiableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
 import io.minio.errors.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import okhttp3.Headers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.quality.Strictness;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -24,13 +35,21 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,9 +58,27 @@ class FileStorageServiceTest {
     @Mock
     private MinioClient minioClient;
 
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    @Mock
+    private MultipartUploader multipartUploader;
+
     @Mock
     private StorageConfigProperties storageConfigProperties;
 
+    @Mock
+    private ContentAddressedStore contentStore;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    @Mock
+    private DeleteQueue deleteQueue;
+
+    @Mock
+    private ObjectMetadataIndex metadataIndex;
+
     @InjectMocks
     private FileStorageService fileStorageService;
 
@@ -62,13 +99,21 @@ class FileStorageServiceTest {
         lenient().when(mockFilePart.content()).thenReturn(Flux.just(dataBuffer));
         storageConfigProperties = mock(StorageConfigProperties.class, withSettings().strictness(Strictness.LENIENT));
         lenient().when(storageConfigProperties.publicUrlPrefix()).thenReturn(PUBLIC_URL_PREFIX);
-        fileStorageService = new FileStorageService(minioClient, storageConfigProperties);
+        fileStorageService = new FileStorageService(minioClient, minioAsyncClient, multipartUploader, storageConfigProperties,
+            new MinioProperties("http://minio:9000", "key", "secret", new MinioProperties.BucketProperties("images", "songs", "system")),
+            contentStore, thumbnailService, deleteQueue,
+            new StorageIoScheduler(new StorageIoProperties(2, 10, null, null), new SimpleMeterRegistry()), metadataIndex);
+        lenient().when(contentStore.resolve(anyString(), anyString())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        lenient().when(thumbnailService.generateInBackground(anyString(), anyString(), anyString(), anyString())).thenReturn(Map.of());
+        lenient().when(metadataIndex.record(any(), any(), any(), anyLong(), any(), any(), any())).thenReturn(Mono.empty());
+        lenient().when(metadataIndex.remove(any(), any())).thenReturn(Mono.empty());
 
     }
 
     @Test
-    void uploadFile_whenValidInput_shouldSucceed() throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
-        when(minioClient.putObject(any(PutObjectArgs.class))).thenReturn(null);
+    void uploadFile_whenValidInput_shouldSucceed() {
+        when(multipartUploader.upload(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(MediaType.TEXT_PLAIN_VALUE), any()))
+            .thenAnswer(invocation -> invocation.<Flux<DataBuffer>>getArgument(3).then(Mono.just("etag")));
 
         Mono<FileUploadResponse> result = fileStorageService.uploadFile(BUCKET_NAME, OBJECT_KEY, mockFilePart);
 
@@ -80,7 +125,9 @@ class FileStorageServiceTest {
             )
             .verifyComplete();
 
-        verify(minioClient, times(1)).putObject(any(PutObjectArgs.class));
+        verify(multipartUploader, times(1)).upload(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(MediaType.TEXT_PLAIN_VALUE), any());
+        verify(metadataIndex).record(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, 12, MediaType.TEXT_PLAIN_VALUE, "etag",
+            "6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72");
     }
 
     @Test
@@ -91,7 +138,7 @@ class FileStorageServiceTest {
             .expectError(InvalidStorageRequestException.class)
             .verify();
 
-        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        verify(multipartUploader, never()).upload(any(), any(), any(), any());
     }
 
     @Test
@@ -101,7 +148,7 @@ class FileStorageServiceTest {
         StepVerifier.create(result)
             .expectError(InvalidStorageRequestException.class)
             .verify();
-        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        verify(multipartUploader, never()).upload(any(), any(), any(), any());
     }
 
     @Test
@@ -111,7 +158,7 @@ class FileStorageServiceTest {
         StepVerifier.create(result)
             .expectError(InvalidStorageRequestException.class)
             .verify();
-        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        verify(multipartUploader, never()).upload(any(), any(), any(), any());
     }
 
     @Test
@@ -122,13 +169,13 @@ class FileStorageServiceTest {
         StepVerifier.create(result)
             .expectError(InvalidStorageRequestException.class)
             .verify();
-        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        verify(multipartUploader, never()).upload(any(), any(), any(), any());
     }
 
 
     @Test
-    void uploadFile_whenMinioClientThrowsException_shouldThrowMinioOperationException() throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
-        when(minioClient.putObject(any(PutObjectArgs.class))).thenThrow(new IOException("MinIO network error"));
+    void uploadFile_whenMinioClientThrowsException_shouldThrowMinioOperationException() {
+        when(multipartUploader.upload(any(), any(), any(), any())).thenReturn(Mono.error(new IOException("MinIO network error")));
 
         Mono<FileUploadResponse> result = fileStorageService.uploadFile(BUCKET_NAME, OBJECT_KEY, mockFilePart);
 
@@ -177,6 +224,7 @@ class FileStorageServiceTest {
             .verifyComplete();
 
         verify(minioClient, times(1)).removeObject(any(RemoveObjectArgs.class));
+        verify(metadataIndex).remove(BUCKET_NAME, List.of(OBJECT_KEY));
     }
 
     @Test
@@ -212,4 +260,174 @@ class FileStorageServiceTest {
             })
             .verify();
     }
+
+    private void stubStat(long size) throws Exception {
+        StatObjectResponse stat = mock(StatObjectResponse.class, withSettings().strictness(Strictness.LENIENT));
+        when(stat.size()).thenReturn(size);
+        when(stat.contentType()).thenReturn("audio/mpeg");
+        when(stat.etag()).thenReturn("abc");
+        when(minioAsyncClient.statObject(any(StatObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(stat));
+    }
+
+    @Test
+    void streamFile_whenRangeRequested_shouldFetchOnlyThatWindow() throws Exception {
+        stubStat(1000);
+        byte[] window = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        GetObjectResponse response = new GetObjectResponse(Headers.of(), BUCKET_NAME, null, OBJECT_KEY, new ByteArrayInputStream(window));
+        when(minioAsyncClient.getObject(any(GetObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(response));
+
+        StepVerifier.create(fileStorageService.streamFile(BUCKET_NAME, OBJECT_KEY, "bytes=100-109")
+                .flatMap(stream -> DataBufferUtils.join(stream.content())
+                    .map(buffer -> buffer.toString(StandardCharsets.US_ASCII))
+                    .map(body -> stream.range().contentRange(stream.objectSize()) + " " + stream.contentLength() + " " + body)))
+            .expectNext("bytes 100-109/1000 10 0123456789")
+            .verifyComplete();
+
+        ArgumentCaptor<GetObjectArgs> args = ArgumentCaptor.forClass(GetObjectArgs.class);
+        verify(minioAsyncClient).getObject(args.capture());
+        assertEquals(100L, args.getValue().offset());
+        assertEquals(10L, args.getValue().length());
+    }
+
+    @Test
+    void streamFile_whenRangeStartsPastEnd_shouldThrowRangeNotSatisfiableException() throws Exception {
+        stubStat(1000);
+
+        StepVerifier.create(fileStorageService.streamFile(BUCKET_NAME, OBJECT_KEY, "bytes=1000-"))
+            .expectError(RangeNotSatisfiableException.class)
+            .verify();
+        verify(minioAsyncClient, never()).getObject(any(GetObjectArgs.class));
+    }
+
+    @Test
+    void streamFile_whenObjectKeyIsEmpty_shouldThrowInvalidStorageRequestException() throws Exception {
+        StepVerifier.create(fileStorageService.streamFile(BUCKET_NAME, "", null))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verify(minioAsyncClient, never()).statObject(any(StatObjectArgs.class));
+    }
+
+    @Test
+    void deleteFile_whenBucketIsReserved_shouldThrowInvalidStorageRequestException() throws Exception {
+        StepVerifier.create(fileStorageService.deleteFile("system", "upload-sessions/x/session.json"))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    @Test
+    void uploadFile_whenBucketIsDeduplicated_shouldStageHashAndPointAtBlob() {
+        String digest = "6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72";
+        String blobKey = ".blobs/sha256/6a/" + digest;
+        when(contentStore.isEnabledFor(BUCKET_NAME)).thenReturn(true);
+        when(contentStore.stagingKey()).thenReturn(".blobs/staging/s1");
+        when(multipartUploader.upload(eq(BUCKET_NAME), eq(".blobs/staging/s1"), eq(MediaType.TEXT_PLAIN_VALUE), any()))
+            .thenAnswer(invocation -> invocation.<Flux<DataBuffer>>getArgument(3).then(Mono.just("etag")));
+        when(contentStore.commit(BUCKET_NAME, OBJECT_KEY, ".blobs/staging/s1", digest, 12, MediaType.TEXT_PLAIN_VALUE))
+            .thenReturn(Mono.just(blobKey));
+        when(contentStore.removeStaging(BUCKET_NAME, ".blobs/staging/s1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(fileStorageService.uploadFile(BUCKET_NAME, OBJECT_KEY, mockFilePart))
+            .assertNext(response -> {
+                assertEquals(OBJECT_KEY, response.objectKey());
+                assertEquals(PUBLIC_URL_PREFIX + "/" + BUCKET_NAME + "/" + blobKey, response.publicUrl());
+            })
+            .verifyComplete();
+        verify(contentStore).removeStaging(BUCKET_NAME, ".blobs/staging/s1");
+    }
+
+    @Test
+    void uploadFile_whenDeduplicatedUploadFails_shouldRemoveStagedObject() {
+        when(contentStore.isEnabledFor(BUCKET_NAME)).thenReturn(true);
+        when(contentStore.stagingKey()).thenReturn(".blobs/staging/s1");
+        when(multipartUploader.upload(any(), any(), any(), any())).thenReturn(Mono.error(new IOException("MinIO network error")));
+        when(contentStore.removeStaging(BUCKET_NAME, ".blobs/staging/s1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(fileStorageService.uploadFile(BUCKET_NAME, OBJECT_KEY, mockFilePart))
+            .expectError(MinioOperationException.class)
+            .verify();
+        verify(contentStore).removeStaging(BUCKET_NAME, ".blobs/staging/s1");
+        verify(contentStore, never()).commit(any(), any(), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void deleteFile_whenKeyIsReference_shouldReleaseInsteadOfRemoving() throws Exception {
+        when(contentStore.isEnabledFor(BUCKET_NAME)).thenReturn(true);
+        when(contentStore.isBlobKey(OBJECT_KEY)).thenReturn(false);
+        when(contentStore.release(BUCKET_NAME, OBJECT_KEY)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(fileStorageService.deleteFile(BUCKET_NAME, OBJECT_KEY)).verifyComplete();
+
+        verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    @Test
+    void deleteFile_whenKeyIsSharedBlob_shouldThrowInvalidStorageRequestException() throws Exception {
+        when(contentStore.isEnabledFor(BUCKET_NAME)).thenReturn(true);
+        when(contentStore.isBlobKey(".blobs/sha256/ab/abc")).thenReturn(true);
+
+        StepVerifier.create(fileStorageService.deleteFile(BUCKET_NAME, ".blobs/sha256/ab/abc"))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verify(contentStore, never()).release(any(), any());
+        verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    @Test
+    void uploadFile_whenBucketHasRenditions_shouldIncludeTheirUrlsInResponse() {
+        when(multipartUploader.upload(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(MediaType.TEXT_PLAIN_VALUE), any())).thenReturn(Mono.just("etag"));
+        when(thumbnailService.generateInBackground(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, MediaType.TEXT_PLAIN_VALUE))
+            .thenReturn(Map.of("64", PUBLIC_URL_PREFIX + "/" + BUCKET_NAME + "/test-object-64.jpg"));
+
+        StepVerifier.create(fileStorageService.uploadFile(BUCKET_NAME, OBJECT_KEY, mockFilePart))
+            .assertNext(response -> assertEquals(PUBLIC_URL_PREFIX + "/" + BUCKET_NAME + "/test-object-64.jpg", response.renditions().get("64")))
+            .verifyComplete();
+    }
+
+    @Test
+    void deleteFiles_shouldRemoveKeysInOneBatchAndReportPendingOnes() {
+        when(deleteQueue.remove(BUCKET_NAME, List.of("a.txt", "b.txt", "c.txt"))).thenReturn(Mono.just(List.of("b.txt")));
+
+        StepVerifier.create(fileStorageService.deleteFiles(BUCKET_NAME, List.of("a.txt", "b.txt", "a.txt", "c.txt"), false))
+            .assertNext(response -> {
+                assertEquals(List.of("a.txt", "c.txt"), response.deleted());
+                assertEquals(List.of("b.txt"), response.pending());
+            })
+            .verifyComplete();
+        verify(deleteQueue, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void deleteFiles_whenDeferred_shouldOnlyQueueKeysAndRenditions() {
+        when(thumbnailService.hasRenditions(BUCKET_NAME)).thenReturn(true);
+        when(thumbnailService.renditionKeys("a.png")).thenReturn(List.of("a-64.jpg"));
+        when(deleteQueue.enqueue(any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(fileStorageService.deleteFiles(BUCKET_NAME, List.of("a.png"), true))
+            .assertNext(response -> assertEquals(List.of("a.png"), response.pending()))
+            .verifyComplete();
+        verify(deleteQueue).enqueue(BUCKET_NAME, List.of("a.png"));
+        verify(deleteQueue).enqueue(BUCKET_NAME, List.of("a-64.jpg"));
+        verify(deleteQueue, never()).remove(any(), any());
+    }
+
+    @Test
+    void deleteFiles_whenKeysAreReferences_shouldReleaseThemAndRemoveOnlyPlainObjects() {
+        when(contentStore.isEnabledFor(BUCKET_NAME)).thenReturn(true);
+        when(contentStore.release(BUCKET_NAME, "ref.txt")).thenReturn(Mono.just(true));
+        when(contentStore.release(BUCKET_NAME, "plain.txt")).thenReturn(Mono.just(false));
+        when(deleteQueue.remove(BUCKET_NAME, List.of("plain.txt"))).thenReturn(Mono.just(List.of()));
+
+        StepVerifier.create(fileStorageService.deleteFiles(BUCKET_NAME, List.of("ref.txt", "plain.txt"), false))
+            .assertNext(response -> assertEquals(List.of("ref.txt", "plain.txt"), response.deleted()))
+            .verifyComplete();
+    }
+
+    @Test
+    void deleteFiles_whenBucketIsReserved_shouldThrowInvalidStorageRequestException() {
+        StepVerifier.create(fileStorageService.deleteFiles("system", List.of("upload-sessions/x/session.json"), false))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verifyNoInteractions(deleteQueue);
+    }
 }
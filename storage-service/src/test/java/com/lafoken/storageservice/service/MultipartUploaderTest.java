@@ -0,0 +1,178 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.MinioProperties;
+import com.withfy.storageservice.config.MultipartMinioClient;
+import com.withfy.storageservice.config.UploadProperties;
+import com.withfy.storageservice.config.UploadProperties.PartUploadProperties;
+import com.withfy.storageservice.exception.PartChecksumMismatchException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.UploadPartResponse;
+import io.minio.messages.Part;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MultipartUploaderTest {
+
+    private static final String BUCKET_NAME = "songs";
+    private static final String OBJECT_KEY = "track.mp3";
+    private static final String UPLOAD_ID = "upload-1";
+
+    @Mock
+    private MultipartMinioClient minioClient;
+
+    private MultipartUploader multipartUploader;
+    private SimpleMeterRegistry meterRegistry;
+    private List<String> uploadedParts;
+    private final PartUploadProperties settings = new PartUploadProperties(null, 2, 2, Duration.ofMillis(1));
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MinioProperties minioProperties = new MinioProperties("http://minio:9000", "key", "secret",
+            new MinioProperties.BucketProperties("images", BUCKET_NAME, "system"));
+        multipartUploader = new MultipartUploader(minioClient, new UploadProperties(settings, settings, null, null), minioProperties, meterRegistry);
+        uploadedParts = new ArrayList<>();
+    }
+
+    private Mono<String> upload(Flux<DataBuffer> body, int partSize) {
+        return multipartUploader.upload(BUCKET_NAME, OBJECT_KEY, "audio/mpeg", body, partSize, settings);
+    }
+
+    private static UploadPartResponse partResponse(int partNumber, String etag) {
+        return new UploadPartResponse(Headers.of(), BUCKET_NAME, null, OBJECT_KEY, UPLOAD_ID, partNumber, etag);
+    }
+
+    private static Flux<DataBuffer> body(String... chunks) {
+        return Flux.fromArray(chunks).map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private void stubParts() throws Exception {
+        when(minioClient.createMultipartUpload(BUCKET_NAME, OBJECT_KEY, "audio/mpeg")).thenReturn(CompletableFuture.completedFuture(UPLOAD_ID));
+        when(minioClient.uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), anyInt(), any(byte[].class), anyInt()))
+            .thenAnswer(invocation -> {
+                int partNumber = invocation.getArgument(3);
+                byte[] data = invocation.getArgument(4);
+                int length = invocation.getArgument(5);
+                synchronized (uploadedParts) {
+                    uploadedParts.add(partNumber + ":" + new String(data, 0, length, StandardCharsets.US_ASCII));
+                }
+                return CompletableFuture.completedFuture(partResponse(partNumber, "etag-" + partNumber));
+            });
+    }
+
+    @Test
+    void upload_whenBodyFitsInOnePart_shouldUsePlainPut() throws Exception {
+        when(minioClient.putObject(any(PutObjectArgs.class)))
+            .thenReturn(CompletableFuture.completedFuture(new ObjectWriteResponse(Headers.of(), BUCKET_NAME, null, OBJECT_KEY, "single", null)));
+
+        StepVerifier.create(upload(body("ab", "cd"), 8))
+            .expectNext("single")
+            .verifyComplete();
+
+        verify(minioClient, never()).createMultipartUpload(any(), any(), any());
+    }
+
+    @Test
+    void upload_whenBodySpansParts_shouldUploadPartsAndCompleteInOrder() throws Exception {
+        stubParts();
+        ArgumentCaptor<Part[]> parts = ArgumentCaptor.forClass(Part[].class);
+        when(minioClient.completeMultipartUpload(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), parts.capture()))
+            .thenReturn(CompletableFuture.completedFuture(new ObjectWriteResponse(Headers.of(), BUCKET_NAME, null, OBJECT_KEY, "multi", null)));
+
+        StepVerifier.create(upload(body("abc", "defgh", "ij"), 4))
+            .expectNext("multi")
+            .verifyComplete();
+
+        assertEquals(List.of("1:abcd", "2:efgh", "3:ij"), uploadedParts.stream().sorted().toList());
+        assertEquals(3, parts.getValue().length);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, parts.getValue()[i].partNumber());
+            assertEquals("etag-" + (i + 1), parts.getValue()[i].etag());
+        }
+        assertEquals(10.0, meterRegistry.get("storage.upload.bytes").tag("bucket", BUCKET_NAME).counter().count());
+        assertEquals(3, meterRegistry.get("storage.upload.part.duration").tag("bucket", BUCKET_NAME).timer().count());
+    }
+
+    @Test
+    void upload_whenPartFailsOnce_shouldRetryOnlyThatPart() throws Exception {
+        when(minioClient.createMultipartUpload(BUCKET_NAME, OBJECT_KEY, "audio/mpeg")).thenReturn(CompletableFuture.completedFuture(UPLOAD_ID));
+        AtomicInteger secondPartAttempts = new AtomicInteger();
+        when(minioClient.uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), anyInt(), any(byte[].class), anyInt()))
+            .thenAnswer(invocation -> {
+                int partNumber = invocation.getArgument(3);
+                if (partNumber == 2 && secondPartAttempts.incrementAndGet() == 1) {
+                    return CompletableFuture.failedFuture(new IOException("connection reset"));
+                }
+                return CompletableFuture.completedFuture(partResponse(partNumber, "etag-" + partNumber));
+            });
+        when(minioClient.completeMultipartUpload(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ObjectWriteResponse(Headers.of(), BUCKET_NAME, null, OBJECT_KEY, "multi", null)));
+
+        StepVerifier.create(upload(body("abcdefgh", "ij"), 4))
+            .expectNext("multi")
+            .verifyComplete();
+
+        verify(minioClient, times(1)).uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), eq(1), any(byte[].class), anyInt());
+        verify(minioClient, times(2)).uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), eq(2), any(byte[].class), anyInt());
+        assertEquals(1.0, meterRegistry.get("storage.upload.part.retries").tag("bucket", BUCKET_NAME).counter().count());
+    }
+
+    @Test
+    void upload_whenStoredPartEtagDoesNotMatchMd5_shouldFailAndAbort() throws Exception {
+        when(minioClient.createMultipartUpload(BUCKET_NAME, OBJECT_KEY, "audio/mpeg")).thenReturn(CompletableFuture.completedFuture(UPLOAD_ID));
+        when(minioClient.uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), anyInt(), any(byte[].class), anyInt()))
+            .thenAnswer(invocation -> CompletableFuture.completedFuture(partResponse(invocation.getArgument(3), "00000000000000000000000000000000")));
+        when(minioClient.abortMultipartUpload(BUCKET_NAME, OBJECT_KEY, UPLOAD_ID)).thenReturn(CompletableFuture.completedFuture(null));
+
+        StepVerifier.create(upload(body("abcdefgh", "ij"), 4))
+            .expectError(PartChecksumMismatchException.class)
+            .verify();
+
+        verify(minioClient).abortMultipartUpload(BUCKET_NAME, OBJECT_KEY, UPLOAD_ID);
+    }
+
+    @Test
+    void upload_whenPartFails_shouldAbortUpload() throws Exception {
+        when(minioClient.createMultipartUpload(BUCKET_NAME, OBJECT_KEY, "audio/mpeg")).thenReturn(CompletableFuture.completedFuture(UPLOAD_ID));
+        when(minioClient.uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), anyInt(), any(byte[].class), anyInt()))
+            .thenReturn(CompletableFuture.failedFuture(new IOException("connection reset")));
+        when(minioClient.abortMultipartUpload(BUCKET_NAME, OBJECT_KEY, UPLOAD_ID)).thenReturn(CompletableFuture.completedFuture(null));
+
+        StepVerifier.create(upload(body("abcdefgh", "ij"), 4))
+            .expectError(IOException.class)
+            .verify();
+
+        verify(minioClient).abortMultipartUpload(BUCKET_NAME, OBJECT_KEY, UPLOAD_ID);
+        verify(minioClient, never()).completeMultipartUpload(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,137 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.entity.ObjectMetadata;
+import com.withfy.storageservice.exception.InvalidStorageRequestException;
+import com.withfy.storageservice.exception.StorageObjectNotFoundException;
+import com.withfy.storageservice.repository.ObjectMetadataRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ObjectMetadataIndexTest {
+
+    private static final String BUCKET_NAME = "songs";
+
+    @Mock
+    private ObjectMetadataRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ObjectMetadataIndex index;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new ObjectMetadataIndex(repository, meterRegistry);
+    }
+
+    private static ObjectMetadata metadata(String objectKey) {
+        return ObjectMetadata.builder().bucketName(BUCKET_NAME).objectKey(objectKey).storedKey(objectKey)
+            .size(10L).contentType("audio/mpeg").etag("etag").updatedAt(Instant.now()).build();
+    }
+
+    @Test
+    void list_whenMoreRowsThanLimit_shouldReturnCursorForNextPage() {
+        when(repository.findPageInRange(BUCKET_NAME, "albums/", "albums0", "", 3))
+            .thenReturn(Flux.just(metadata("albums/a"), metadata("albums/b"), metadata("albums/c")));
+
+        StepVerifier.create(index.list(BUCKET_NAME, "albums/", null, 2))
+            .assertNext(response -> {
+                assertEquals(List.of("albums/a", "albums/b"), response.objects().stream().map(o -> o.objectKey()).toList());
+                assertEquals("albums/b", response.nextAfter());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void list_whenLastPage_shouldReturnNoCursor() {
+        when(repository.findPage(BUCKET_NAME, "", "albums/b", 101)).thenReturn(Flux.just(metadata("albums/c")));
+
+        StepVerifier.create(index.list(BUCKET_NAME, null, "albums/b", null))
+            .assertNext(response -> {
+                assertEquals(1, response.objects().size());
+                assertNull(response.nextAfter());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void list_whenPrefixGiven_shouldBoundTheScanAtTheEndOfThePrefix() {
+        when(repository.findPageInRange(BUCKET_NAME, "albums/a", "albums/b", "", 101))
+            .thenReturn(Flux.just(metadata("albums/a/1.mp3")));
+
+        StepVerifier.create(index.list(BUCKET_NAME, "albums/a", null, null))
+            .assertNext(response -> {
+                assertEquals(List.of("albums/a/1.mp3"), response.objects().stream().map(o -> o.objectKey()).toList());
+                assertNull(response.nextAfter());
+            })
+            .verifyComplete();
+        verify(repository, never()).findPage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void prefixUpperBound_shouldExcludeEveryKeyAfterThePrefixRange() {
+        String bound = ObjectMetadataIndex.prefixUpperBound("albums/a");
+
+        assertEquals("albums/b", bound);
+        for (String key : List.of("albums/a", "albums/a/1.mp3", "albums/a\uFFFF", "albums/a\uD83C\uDFB5")) {
+            assertTrue(key.compareTo(bound) < 0, key);
+        }
+        for (String key : List.of("albums/b", "albums/b/1.mp3", "albums/c", "zzz")) {
+            assertTrue(key.compareTo(bound) >= 0, key);
+        }
+    }
+
+    @Test
+    void prefixUpperBound_shouldCarryPastCodePointsThatCannotBeIncremented() {
+        String maxCodePoint = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+        assertEquals("b", ObjectMetadataIndex.prefixUpperBound("a" + maxCodePoint));
+        assertEquals("a\uE000", ObjectMetadataIndex.prefixUpperBound("a\uD7FF"));
+        assertEquals(new String(Character.toChars(0x1F3B6)), ObjectMetadataIndex.prefixUpperBound(new String(Character.toChars(0x1F3B5))));
+        assertNull(ObjectMetadataIndex.prefixUpperBound(""));
+        assertNull(ObjectMetadataIndex.prefixUpperBound(maxCodePoint));
+    }
+
+    @Test
+    void list_whenLimitTooLarge_shouldFail() {
+        StepVerifier.create(index.list(BUCKET_NAME, null, null, ObjectMetadataIndex.MAX_PAGE_SIZE + 1))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void find_whenNotIndexed_shouldFailWithNotFound() {
+        when(repository.findByBucketNameAndObjectKey(BUCKET_NAME, "missing.mp3")).thenReturn(Mono.empty());
+
+        StepVerifier.create(index.find(BUCKET_NAME, "missing.mp3"))
+            .expectError(StorageObjectNotFoundException.class)
+            .verify();
+    }
+
+    @Test
+    void remove_whenRepositoryFails_shouldCompleteAndCountFailure() {
+        when(repository.deleteByKeys(eq(BUCKET_NAME), any())).thenReturn(Mono.error(new IllegalStateException("db down")));
+
+        StepVerifier.create(index.remove(BUCKET_NAME, List.of("a", "b"))).verifyComplete();
+
+        assertEquals(2.0, meterRegistry.counter("storage.index.failures", "bucket", BUCKET_NAME, "operation", "remove").count());
+    }
+}
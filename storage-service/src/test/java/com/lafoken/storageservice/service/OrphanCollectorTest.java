@@ -0,0 +1,157 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.OrphanCollectorProperties;
+import com.withfy.storageservice.config.StorageIoProperties;
+import com.withfy.storageservice.dto.DeleteObjectsResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanCollectorTest {
+
+    private static final String BUCKET_NAME = "images";
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ContentAddressedStore contentStore;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StorageIoScheduler ioScheduler;
+    private String references;
+    private String presentedToken;
+    private OrphanCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        references = "{\"objectKey\":\"avatars/u1/live.png\"}\n";
+        WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+            presentedToken = request.headers().getFirst(OrphanCollector.INTERNAL_TOKEN_HEADER);
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .body(references)
+                .build());
+        });
+        OrphanCollectorProperties properties = new OrphanCollectorProperties(false, BUCKET_NAME, "avatars/", "http://user-service/keys",
+            "s3cret", null, null, Duration.ofHours(1), 100, 0.001, 10, 10_000, false);
+        ioScheduler = new StorageIoScheduler(new StorageIoProperties(2, 10, null, null), meterRegistry);
+        collector = new OrphanCollector(minioClient, fileStorageService, contentStore, thumbnailService, properties, meterRegistry,
+            ioScheduler, webClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        collector.shutdown();
+        ioScheduler.shutdown();
+    }
+
+    private static Result<Item> item(String key, long size, Duration age) {
+        Item item = mock(Item.class, withSettings().strictness(Strictness.LENIENT));
+        when(item.objectName()).thenReturn(key);
+        when(item.size()).thenReturn(size);
+        when(item.lastModified()).thenReturn(ZonedDateTime.now().minus(age));
+        return new Result<>(item);
+    }
+
+    @Test
+    void collect_shouldDeleteOnlyOldUnreferencedObjects() {
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(List.of(
+            item("avatars/u1/live.png", 100, Duration.ofDays(2)),
+            item("avatars/u1/orphan.png", 200, Duration.ofDays(2)),
+            item("avatars/u2/fresh.png", 300, Duration.ofMinutes(5))));
+        when(fileStorageService.deleteFiles(BUCKET_NAME, List.of("avatars/u1/orphan.png"), false))
+            .thenReturn(Mono.just(new DeleteObjectsResponse(BUCKET_NAME, List.of("avatars/u1/orphan.png"), List.of())));
+
+        StepVerifier.create(collector.collect())
+            .assertNext(result -> {
+                assertEquals(3, result.scanned());
+                assertEquals(1, result.orphans());
+                assertEquals(1, result.deleted());
+                assertEquals(200, result.bytesReclaimed());
+            })
+            .verifyComplete();
+        assertEquals(200.0, meterRegistry.counter("storage.gc.bytes.reclaimed", "bucket", BUCKET_NAME).count());
+        assertEquals("s3cret", presentedToken);
+    }
+
+    @Test
+    void collect_whenThumbnailsEnabled_shouldKeepRenditionsOfReferencedObjects() {
+        when(thumbnailService.hasRenditions(BUCKET_NAME)).thenReturn(true);
+        when(thumbnailService.renditionCount()).thenReturn(1);
+        when(thumbnailService.renditionKeys("avatars/u1/live.png")).thenReturn(List.of("avatars/u1/live-64.jpg"));
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(List.of(
+            item("avatars/u1/live-64.jpg", 10, Duration.ofDays(2))));
+
+        StepVerifier.create(collector.collect())
+            .assertNext(result -> assertEquals(0, result.orphans()))
+            .verifyComplete();
+        verify(fileStorageService, never()).deleteFiles(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void collect_whenNoReferencesLoad_shouldFailWithoutListing() {
+        references = "";
+
+        StepVerifier.create(collector.collect())
+            .expectError(IllegalStateException.class)
+            .verify();
+        verify(minioClient, never()).listObjects(any(ListObjectsArgs.class));
+        verify(fileStorageService, never()).deleteFiles(any(), any(), eq(false));
+    }
+
+    @Test
+    void bloomFilter_shouldNeverMissAnInsertedKey() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("avatars/" + i + ".png");
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("avatars/" + i + ".png"));
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain("avatars/" + i + ".png")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+        assertFalse(BloomFilter.create(10, 0.01).mightContain("anything"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.MinioProperties;
+import com.withfy.storageservice.config.PresignProperties;
+import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.exception.InvalidStorageRequestException;
+import com.withfy.storageservice.exception.StorageObjectNotFoundException;
+import io.minio.MinioAsyncClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresignedUrlServiceTest {
+
+    private static final String BUCKET_NAME = "images";
+    private static final String OBJECT_KEY = "avatars/user-1/avatar.png";
+
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    @Mock
+    private ObjectMetadataIndex metadataIndex;
+
+    @Mock
+    private ContentAddressedStore contentStore;
+
+    private PresignedUrlService presignedUrlService;
+
+    @BeforeEach
+    void setUp() {
+        MinioProperties minioProperties = new MinioProperties("http://minio:9000", "access-key", "secret-key",
+            new MinioProperties.BucketProperties(BUCKET_NAME, "songs", "system"));
+        PresignProperties presignProperties = new PresignProperties("https://files.example.com/", null,
+            Duration.ofMinutes(5), Duration.ofMinutes(5), DataSize.ofMegabytes(1));
+        presignedUrlService = new PresignedUrlService(minioAsyncClient, presignProperties, minioProperties,
+            new StorageConfigProperties("http://cdn"), thumbnailService, metadataIndex, contentStore);
+        lenient().when(contentStore.resolve(anyString(), anyString())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+    }
+
+    private StatObjectResponse stat(long size, String contentType) {
+        StatObjectResponse stat = mock(StatObjectResponse.class, withSettings().strictness(Strictness.LENIENT));
+        when(stat.size()).thenReturn(size);
+        when(stat.contentType()).thenReturn(contentType);
+        return stat;
+    }
+
+    @Test
+    void presignUpload_shouldSignPolicyPinningKeyContentTypeAndLength() {
+        StepVerifier.create(presignedUrlService.presignUpload(BUCKET_NAME, OBJECT_KEY, "image/png", 2048))
+            .assertNext(response -> {
+                assertEquals("https://files.example.com/images", response.url());
+                assertEquals(OBJECT_KEY, response.formData().get("key"));
+                assertEquals("image/png", response.formData().get("Content-Type"));
+                assertTrue(response.formData().containsKey("x-amz-signature"));
+                String policy = new String(Base64.getDecoder().decode(response.formData().get("policy")), StandardCharsets.UTF_8);
+                assertTrue(policy.contains("\"content-length-range\",1,2048"), policy);
+                assertTrue(policy.contains("image/png"), policy);
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void presignUpload_whenLengthExceedsLimit_shouldFail() {
+        StepVerifier.create(presignedUrlService.presignUpload(BUCKET_NAME, OBJECT_KEY, "image/png", DataSize.ofMegabytes(2).toBytes()))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+    }
+
+    @Test
+    void presignUpload_whenBucketReserved_shouldFail() {
+        StepVerifier.create(presignedUrlService.presignUpload("system", OBJECT_KEY, "image/png", 10))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+    }
+
+    @Test
+    void presignDownload_shouldSignAgainstPublicEndpoint() {
+        StepVerifier.create(presignedUrlService.presignDownload(BUCKET_NAME, OBJECT_KEY))
+            .assertNext(response -> {
+                assertTrue(response.url().startsWith("https://files.example.com/images/avatars/user-1/avatar.png?"), response.url());
+                assertTrue(response.url().contains("X-Amz-Expires=300"), response.url());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void presignDownload_whenBucketDeduplicated_shouldSignTheReferencedBlob() {
+        when(contentStore.resolve("songs", "tracks/a.mp3")).thenReturn(Mono.just(".blobs/sha256/ab/abcd"));
+
+        StepVerifier.create(presignedUrlService.presignDownload("songs", "tracks/a.mp3"))
+            .assertNext(response -> assertTrue(response.url().startsWith("https://files.example.com/songs/.blobs/sha256/ab/abcd?"), response.url()))
+            .verifyComplete();
+    }
+
+    @Test
+    void presignUploadAndConfirm_whenBucketDeduplicated_shouldFail() {
+        when(contentStore.isEnabledFor("songs")).thenReturn(true);
+
+        StepVerifier.create(presignedUrlService.presignUpload("songs", "tracks/a.mp3", "audio/mpeg", 10))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        StepVerifier.create(presignedUrlService.confirmUpload("songs", "tracks/a.mp3", "audio/", null))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verifyNoInteractions(minioAsyncClient, metadataIndex);
+    }
+
+    @Test
+    void confirmUpload_whenObjectMatches_shouldReturnPublicUrl() throws Exception {
+        StatObjectResponse stat = stat(1024, "image/png");
+        when(minioAsyncClient.statObject(any(StatObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(stat));
+
+        when(metadataIndex.record(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, 1024, "image/png", null, null)).thenReturn(Mono.empty());
+        when(thumbnailService.generateInBackground(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, "image/png"))
+            .thenReturn(Map.of("64", "http://cdn/images/avatars/user-1/avatar-64.jpg"));
+
+        StepVerifier.create(presignedUrlService.confirmUpload(BUCKET_NAME, OBJECT_KEY, "image/", 2048L))
+            .assertNext(response -> {
+                assertEquals("http://cdn/images/" + OBJECT_KEY, response.publicUrl());
+                assertEquals("http://cdn/images/avatars/user-1/avatar-64.jpg", response.renditions().get("64"));
+            })
+            .verifyComplete();
+        verify(minioAsyncClient, never()).removeObject(any(RemoveObjectArgs.class));
+    }
+
+    @Test
+    void confirmUpload_whenContentTypeDiffers_shouldRemoveObjectAndFail() throws Exception {
+        StatObjectResponse stat = stat(1024, "text/html");
+        when(minioAsyncClient.statObject(any(StatObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(stat));
+        when(minioAsyncClient.removeObject(any(RemoveObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(metadataIndex.remove(BUCKET_NAME, List.of(OBJECT_KEY))).thenReturn(Mono.empty());
+
+        StepVerifier.create(presignedUrlService.confirmUpload(BUCKET_NAME, OBJECT_KEY, "image/", null))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verify(minioAsyncClient).removeObject(any(RemoveObjectArgs.class));
+        verify(metadataIndex, never()).record(any(), any(), any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void confirmUpload_whenObjectMissing_shouldFailWithNotFound() throws Exception {
+        ErrorResponseException notFound = new ErrorResponseException(
+            new ErrorResponse("NoSuchKey", "missing", BUCKET_NAME, OBJECT_KEY, null, null, null), null, null);
+        when(minioAsyncClient.statObject(any(StatObjectArgs.class))).thenReturn(CompletableFuture.failedFuture(notFound));
+
+        StepVerifier.create(presignedUrlService.confirmUpload(BUCKET_NAME, OBJECT_KEY, "image/", null))
+            .expectError(StorageObjectNotFoundException.class)
+            .verify();
+    }
+}
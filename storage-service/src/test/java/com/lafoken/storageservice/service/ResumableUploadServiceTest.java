@@ -0,0 +1,239 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.MinioProperties;
+import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.config.UploadProperties;
+import com.withfy.storageservice.exception.InvalidStorageRequestException;
+import com.withfy.storageservice.exception.UploadConflictException;
+import com.withfy.storageservice.exception.UploadSessionNotFoundException;
+import com.withfy.storageservice.service.UploadSession.SessionPart;
+import com.withfy.storageservice.service.UploadSession.TailChunk;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ResumableUploadServiceTest {
+
+    private static final String SESSION_ID = "session-1";
+    private static final String OWNER_ID = "user-1";
+    private static final String BUCKET_NAME = "songs";
+    private static final String OBJECT_KEY = "track.mp3";
+    private static final String UPLOAD_ID = "upload-1";
+
+    @Mock
+    private MultipartUploader multipartUploader;
+
+    @Mock
+    private UploadSessionStore sessionStore;
+
+    @Mock
+    private ObjectMetadataIndex metadataIndex;
+
+    @Mock
+    private ContentAddressedStore contentStore;
+
+    private ResumableUploadService resumableUploadService;
+
+    @BeforeEach
+    void setUp() {
+        MinioProperties minioProperties = new MinioProperties("http://minio:9000", "key", "secret",
+            new MinioProperties.BucketProperties("images", BUCKET_NAME, "system"));
+        resumableUploadService = new ResumableUploadService(multipartUploader, sessionStore,
+            new UploadProperties(null, null, null, null), minioProperties, new StorageConfigProperties("http://cdn"),
+            metadataIndex, contentStore);
+        lenient().when(multipartUploader.partSize(BUCKET_NAME)).thenReturn(4);
+        lenient().when(sessionStore.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    }
+
+    private static UploadSession session(List<SessionPart> parts, List<TailChunk> tail) {
+        return new UploadSession(SESSION_ID, OWNER_ID, BUCKET_NAME, OBJECT_KEY, "audio/mpeg", UPLOAD_ID, null, parts, tail,
+            Instant.now(), Instant.now().plusSeconds(3600));
+    }
+
+    private static Flux<DataBuffer> body(String content) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void appendChunk_whenOffsetDoesNotMatch_shouldThrowConflict() {
+        when(sessionStore.find(SESSION_ID)).thenReturn(Mono.just(session(List.of(), List.of())));
+
+        StepVerifier.create(resumableUploadService.appendChunk(OWNER_ID, SESSION_ID, 3, body("abc")))
+            .expectError(UploadConflictException.class)
+            .verify();
+        verify(sessionStore, never()).save(any());
+    }
+
+    @Test
+    void appendChunk_shouldCommitFullPartsAndKeepRemainderAsTail() {
+        TailChunk stored = new TailChunk("upload-sessions/session-1/tail-0-2", 2);
+        TailChunk remainder = new TailChunk("upload-sessions/session-1/tail-4-1", 1);
+        UploadSession existing = session(List.of(), List.of(stored));
+        when(sessionStore.find(SESSION_ID)).thenReturn(Mono.just(existing));
+        when(sessionStore.loadTail(existing)).thenReturn(Mono.just("ab".getBytes(StandardCharsets.US_ASCII)));
+        when(multipartUploader.uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), eq(1), any(byte[].class), eq(4)))
+            .thenReturn(Mono.just(new Part(1, "etag-1")));
+        when(sessionStore.saveTail(any(), eq(4L), any(byte[].class), eq(1))).thenReturn(Mono.just(remainder));
+        when(sessionStore.deleteTail(List.of(stored))).thenReturn(Mono.empty());
+
+        StepVerifier.create(resumableUploadService.appendChunk(OWNER_ID, SESSION_ID, 2, body("cde")))
+            .expectNextMatches(session -> session.offset() == 5
+                && session.parts().equals(List.of(new SessionPart(1, "etag-1", 4)))
+                && session.tail().equals(List.of(remainder)))
+            .verifyComplete();
+
+        ArgumentCaptor<byte[]> part = ArgumentCaptor.forClass(byte[].class);
+        verify(multipartUploader).uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), eq(1), part.capture(), eq(4));
+        assertEquals("abcd", new String(part.getValue(), 0, 4, StandardCharsets.US_ASCII));
+        verify(sessionStore).deleteTail(List.of(stored));
+    }
+
+    @Test
+    void appendChunk_whenPartDoesNotFill_shouldStoreOnlyNewBytesWithoutReadingTail() {
+        TailChunk stored = new TailChunk("upload-sessions/session-1/tail-0-1", 1);
+        TailChunk appended = new TailChunk("upload-sessions/session-1/tail-1-2", 2);
+        when(sessionStore.find(SESSION_ID)).thenReturn(Mono.just(session(List.of(), List.of(stored))));
+        ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+        when(sessionStore.saveTail(any(), eq(1L), bytes.capture(), eq(2))).thenReturn(Mono.just(appended));
+        when(sessionStore.deleteTail(List.of())).thenReturn(Mono.empty());
+
+        StepVerifier.create(resumableUploadService.appendChunk(OWNER_ID, SESSION_ID, 1, body("bc")))
+            .expectNextMatches(session -> session.offset() == 3 && session.tail().equals(List.of(stored, appended)))
+            .verifyComplete();
+
+        assertEquals("bc", new String(bytes.getValue(), 0, 2, StandardCharsets.US_ASCII));
+        verify(sessionStore, never()).loadTail(any());
+        verify(multipartUploader, never()).uploadPart(any(), any(), any(), anyInt(), any(byte[].class), anyInt());
+    }
+
+    @Test
+    void appendChunk_whenChunkExceedsUploadLength_shouldReject() {
+        UploadSession existing = new UploadSession(SESSION_ID, OWNER_ID, BUCKET_NAME, OBJECT_KEY, "audio/mpeg", UPLOAD_ID, 2L, List.of(), List.of(),
+            Instant.now(), Instant.now().plusSeconds(3600));
+        when(sessionStore.find(SESSION_ID)).thenReturn(Mono.just(existing));
+
+        StepVerifier.create(resumableUploadService.appendChunk(OWNER_ID, SESSION_ID, 0, body("abc")))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+    }
+
+    @Test
+    void complete_shouldUploadTailAsLastPartAndCompleteUpload() {
+        UploadSession existing = session(List.of(new SessionPart(1, "etag-1", 4)),
+            List.of(new TailChunk("upload-sessions/session-1/tail-4-1", 1)));
+        when(sessionStore.find(SESSION_ID)).thenReturn(Mono.just(existing));
+        when(sessionStore.loadTail(existing)).thenReturn(Mono.just("e".getBytes(StandardCharsets.US_ASCII)));
+        when(multipartUploader.uploadPart(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), eq(2), any(byte[].class), anyInt()))
+            .thenReturn(Mono.just(new Part(2, "etag-2")));
+        ArgumentCaptor<List<Part>> parts = ArgumentCaptor.forClass(List.class);
+        when(multipartUploader.completeUpload(eq(BUCKET_NAME), eq(OBJECT_KEY), eq(UPLOAD_ID), parts.capture())).thenReturn(Mono.just("final"));
+        when(sessionStore.delete(existing)).thenReturn(Mono.empty());
+        when(metadataIndex.record(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, 5, "audio/mpeg", "final", null)).thenReturn(Mono.empty());
+
+        StepVerifier.create(resumableUploadService.complete(OWNER_ID, SESSION_ID))
+            .expectNextMatches(response -> response.publicUrl().equals("http://cdn/songs/track.mp3"))
+            .verifyComplete();
+
+        verify(metadataIndex).record(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, 5, "audio/mpeg", "final", null);
+
+        assertEquals(2, parts.getValue().size());
+        assertEquals(2, parts.getValue().get(1).partNumber());
+    }
+
+    @Test
+    void createSession_shouldPlaceObjectUnderOwnersPrefix() {
+        when(multipartUploader.createUpload(BUCKET_NAME, "uploads/user-1/albums/track.mp3", "audio/mpeg")).thenReturn(Mono.just(UPLOAD_ID));
+
+        StepVerifier.create(resumableUploadService.createSession(OWNER_ID, BUCKET_NAME, "albums/track.mp3", "audio/mpeg", 5L))
+            .expectNextMatches(session -> session.ownerId().equals(OWNER_ID)
+                && session.objectKey().equals("uploads/user-1/albums/track.mp3"))
+            .verifyComplete();
+    }
+
+    @Test
+    void createSession_whenKeyEscapesOwnersPrefix_shouldReject() {
+        StepVerifier.create(resumableUploadService.createSession(OWNER_ID, BUCKET_NAME, "../user-2/track.mp3", "audio/mpeg", 5L))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        StepVerifier.create(resumableUploadService.createSession(OWNER_ID, BUCKET_NAME, "/avatars/user-2/a.png", "image/png", 5L))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        StepVerifier.create(resumableUploadService.createSession(null, BUCKET_NAME, "track.mp3", "audio/mpeg", 5L))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verify(multipartUploader, never()).createUpload(any(), any(), any());
+    }
+
+    @Test
+    void createSession_whenBucketDeduplicated_shouldReject() {
+        when(contentStore.isEnabledFor(BUCKET_NAME)).thenReturn(true);
+
+        StepVerifier.create(resumableUploadService.createSession(OWNER_ID, BUCKET_NAME, "track.mp3", "audio/mpeg", 5L))
+            .expectError(InvalidStorageRequestException.class)
+            .verify();
+        verify(multipartUploader, never()).createUpload(any(), any(), any());
+    }
+
+    @Test
+    void appendChunk_whenSessionBelongsToAnotherUser_shouldReportNotFound() {
+        when(sessionStore.find(SESSION_ID)).thenReturn(Mono.just(session(List.of(), List.of())));
+
+        StepVerifier.create(resumableUploadService.appendChunk("user-2", SESSION_ID, 0, body("abc")))
+            .expectError(UploadSessionNotFoundException.class)
+            .verify();
+        verify(sessionStore, never()).loadTail(any());
+    }
+
+    @Test
+    void reapExpiredSessions_shouldAbortExpiredSessionsAndRemoveStaleTails() {
+        Instant now = Instant.now();
+        UploadSession expired = new UploadSession(SESSION_ID, OWNER_ID, BUCKET_NAME, OBJECT_KEY, "audio/mpeg", UPLOAD_ID, null, List.of(),
+            List.of(new TailChunk("upload-sessions/session-1/tail-0-3", 3)), now.minus(Duration.ofDays(2)), now.minus(Duration.ofDays(1)));
+        UploadSession live = new UploadSession("session-2", "user-2", BUCKET_NAME, "other.mp3", "audio/mpeg", "upload-2", null, List.of(),
+            List.of(), now, now.plusSeconds(3600));
+        when(sessionStore.listObjects()).thenReturn(Flux.just(
+            new UploadSessionStore.StoredObject("upload-sessions/session-1/session.json", now.minus(Duration.ofDays(2))),
+            new UploadSessionStore.StoredObject("upload-sessions/session-2/session.json", now),
+            new UploadSessionStore.StoredObject("upload-sessions/session-3/tail-2-5", now.minus(Duration.ofDays(2))),
+            new UploadSessionStore.StoredObject("upload-sessions/session-2/tail-0-3", now.minusSeconds(60))));
+        when(sessionStore.find(SESSION_ID)).thenReturn(Mono.just(expired));
+        when(sessionStore.find("session-2")).thenReturn(Mono.just(live));
+        when(multipartUploader.abortUpload(BUCKET_NAME, OBJECT_KEY, UPLOAD_ID)).thenReturn(Mono.empty());
+        when(sessionStore.delete(expired)).thenReturn(Mono.empty());
+        when(sessionStore.deleteKey("upload-sessions/session-3/tail-2-5")).thenReturn(Mono.empty());
+
+        StepVerifier.create(resumableUploadService.reapExpiredSessions())
+            .expectNext(1L)
+            .verifyComplete();
+
+        verify(multipartUploader).abortUpload(BUCKET_NAME, OBJECT_KEY, UPLOAD_ID);
+        verify(multipartUploader, never()).abortUpload(BUCKET_NAME, "other.mp3", "upload-2");
+        verify(sessionStore).delete(expired);
+        verify(sessionStore, never()).delete(live);
+        verify(sessionStore, never()).deleteKey("upload-sessions/session-2/tail-0-3");
+    }
+}
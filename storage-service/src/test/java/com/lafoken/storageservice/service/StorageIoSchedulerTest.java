@@ -0,0 +1,69 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.StorageIoProperties;
+import com.withfy.storageservice.exception.StorageBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageIoSchedulerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StorageIoScheduler ioScheduler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ioScheduler = new StorageIoScheduler(new StorageIoProperties(2, 1, null, Map.of("songs", 1)), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ioScheduler.shutdown();
+    }
+
+    @Test
+    void call_shouldRunOnThePoolForTheBucket() {
+        StepVerifier.create(ioScheduler.call("songs", () -> Thread.currentThread().getName()))
+            .assertNext(thread -> assertTrue(thread.startsWith("storage-io-songs-"), thread))
+            .verifyComplete();
+        StepVerifier.create(ioScheduler.call("images", () -> Thread.currentThread().getName()))
+            .assertNext(thread -> assertTrue(thread.startsWith("storage-io-shared-"), thread))
+            .verifyComplete();
+    }
+
+    @Test
+    void call_whenPoolAndQueueAreFull_shouldRejectWithStorageBusyException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        ioScheduler.call("songs", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }).subscribe();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ioScheduler.call("songs", () -> true).subscribe();
+
+        StepVerifier.create(ioScheduler.call("songs", () -> true))
+            .expectError(StorageBusyException.class)
+            .verify();
+        release.countDown();
+    }
+
+    @Test
+    void pools_shouldPublishExecutorMetrics() {
+        StepVerifier.create(ioScheduler.call("songs", () -> 1).then(Mono.just(true))).expectNext(true).verifyComplete();
+
+        assertNotNull(meterRegistry.find("executor.queued").tag("name", "storage.io.songs").gauge());
+        assertNotNull(meterRegistry.find("executor.idle").tag("name", "storage.io.songs").timer());
+    }
+}
@@ -0,0 +1,152 @@
+package com.withfy.storageservice.service;
+
+import com.withfy.storageservice.config.StorageConfigProperties;
+import com.withfy.storageservice.config.ThumbnailProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ThumbnailServiceTest {
+
+    private static final String BUCKET_NAME = "images";
+    private static final String OBJECT_KEY = "avatars/user-1/photo.png";
+
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ThumbnailService thumbnailService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ThumbnailProperties properties = new ThumbnailProperties(List.of(BUCKET_NAME), List.of(64, 128), "jpg", 0.8f,
+            1, 4, 1_000_000, Duration.ofSeconds(5));
+        thumbnailService = new ThumbnailService(minioAsyncClient, properties, new StorageConfigProperties("http://cdn"), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    private GetObjectResponse object(byte[] data) {
+        return new GetObjectResponse(Headers.of(), BUCKET_NAME, null, OBJECT_KEY, new ByteArrayInputStream(data));
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void generate_shouldStoreEverySizeNextToOriginal() throws Exception {
+        when(minioAsyncClient.getObject(any(GetObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(object(png(800, 400))));
+        when(minioAsyncClient.putObject(any(PutObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        StepVerifier.create(thumbnailService.generate(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, "image/png"))
+            .assertNext(renditions -> {
+                assertEquals(List.of("64", "128"), List.copyOf(renditions.keySet()));
+                assertEquals("http://cdn/images/avatars/user-1/photo-64.jpg", renditions.get("64"));
+            })
+            .verifyComplete();
+
+        ArgumentCaptor<PutObjectArgs> captor = ArgumentCaptor.forClass(PutObjectArgs.class);
+        verify(minioAsyncClient, times(2)).putObject(captor.capture());
+        PutObjectArgs smallest = captor.getAllValues().stream()
+            .filter(args -> args.object().endsWith("-64.jpg")).findFirst().orElseThrow();
+        assertEquals("image/jpeg", smallest.contentType());
+        BufferedImage stored = ImageIO.read(smallest.stream());
+        assertEquals(64, stored.getWidth());
+        assertEquals(32, stored.getHeight());
+    }
+
+    @Test
+    void generateInBackground_shouldReturnRenditionUrlsBeforeRendering() throws Exception {
+        CompletableFuture<GetObjectResponse> source = new CompletableFuture<>();
+        when(minioAsyncClient.getObject(any(GetObjectArgs.class))).thenReturn(source);
+        when(minioAsyncClient.putObject(any(PutObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        Map<String, String> renditions = thumbnailService.generateInBackground(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, "image/png");
+
+        assertEquals(List.of("64", "128"), List.copyOf(renditions.keySet()));
+        assertEquals("http://cdn/images/avatars/user-1/photo-128.jpg", renditions.get("128"));
+        verify(minioAsyncClient, never()).putObject(any(PutObjectArgs.class));
+
+        source.complete(object(png(800, 400)));
+        verify(minioAsyncClient, timeout(5000).times(2)).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void generateInBackground_whenContentIsNotAnImage_shouldReturnNoUrls() {
+        assertTrue(thumbnailService.generateInBackground(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, "application/pdf").isEmpty());
+        verifyNoInteractions(minioAsyncClient);
+    }
+
+    @Test
+    void generate_whenContentIsNotAnImage_shouldSkipRendering() throws Exception {
+        StepVerifier.create(thumbnailService.generate(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, "application/pdf"))
+            .assertNext(renditions -> assertTrue(renditions.isEmpty()))
+            .verifyComplete();
+        StepVerifier.create(thumbnailService.generate("songs", OBJECT_KEY, OBJECT_KEY, "image/png"))
+            .assertNext(renditions -> assertTrue(renditions.isEmpty()))
+            .verifyComplete();
+
+        verify(minioAsyncClient, never()).getObject(any(GetObjectArgs.class));
+    }
+
+    @Test
+    void generate_whenSourceExceedsPixelLimit_shouldReturnNoRenditions() throws Exception {
+        when(minioAsyncClient.getObject(any(GetObjectArgs.class))).thenReturn(CompletableFuture.completedFuture(object(png(2000, 1000))));
+
+        StepVerifier.create(thumbnailService.generate(BUCKET_NAME, OBJECT_KEY, OBJECT_KEY, "image/png"))
+            .assertNext(renditions -> assertTrue(renditions.isEmpty()))
+            .verifyComplete();
+
+        verify(minioAsyncClient, never()).putObject(any(PutObjectArgs.class));
+        assertEquals(1.0, meterRegistry.counter("storage.thumbnails", "bucket", BUCKET_NAME, "result", "failed").count());
+    }
+
+    @Test
+    void renditionKeys_shouldDeriveOneKeyPerSize() {
+        assertEquals(List.of("avatars/user-1/photo-64.jpg", "avatars/user-1/photo-128.jpg"), thumbnailService.renditionKeys(OBJECT_KEY));
+    }
+
+    @Test
+    void scale_shouldFitIntoBoxWithoutUpscaling() {
+        BufferedImage scaled = ThumbnailService.scale(new BufferedImage(1000, 250, BufferedImage.TYPE_INT_RGB), 128, true);
+        assertEquals(128, scaled.getWidth());
+        assertEquals(32, scaled.getHeight());
+
+        BufferedImage small = ThumbnailService.scale(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), 128, true);
+        assertEquals(40, small.getWidth());
+        assertEquals(30, small.getHeight());
+    }
+}
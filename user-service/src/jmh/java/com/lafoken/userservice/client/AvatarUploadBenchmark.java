@@ -0,0 +1,131 @@
+package com.withfy.userservice.client;
+
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.codec.multipart.PartEventHttpMessageReader;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-upload heap cost of reading an avatar out of a multipart request and handing it to the outgoing request body.
+ * {@code bufferedFilePart} is the previous path: the aggregating part reader holds parts up to
+ * {@code spring.webflux.multipart.max-in-memory-size} and copies each one into a single array before the
+ * {@link FilePart} is emitted. {@code streamingPartEvents} is the pass-through used by
+ * {@code UserProfileController.uploadAvatar}. The request body is Netty buffers over a shared array, as Reactor Netty
+ * hands them over, so {@code gc.alloc.rate.norm} from the gc profiler is the allocation each path adds.
+ * Run with {@code gradle jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AvatarUploadBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_IN_MEMORY_SIZE = 10 * 1024 * 1024;
+    private static final String BOUNDARY = "avatar-benchmark-boundary";
+    private static final ResolvableType PART_TYPE = ResolvableType.forClass(Part.class);
+    private static final ResolvableType PART_EVENT_TYPE = ResolvableType.forClass(PartEvent.class);
+    private static final NettyDataBufferFactory BUFFER_FACTORY = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+
+    @Param({"262144", "4194304"})
+    private int avatarSize;
+
+    private byte[] body;
+    private DefaultPartHttpMessageReader bufferedReader;
+    private PartEventHttpMessageReader streamingReader;
+
+    @Setup
+    public void setUp() {
+        bufferedReader = new DefaultPartHttpMessageReader();
+        bufferedReader.setMaxInMemorySize(MAX_IN_MEMORY_SIZE);
+        streamingReader = new PartEventHttpMessageReader();
+
+        byte[] avatar = new byte[avatarSize];
+        ThreadLocalRandom.current().nextBytes(avatar);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(avatarSize + 512);
+        out.writeBytes(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"avatarFile\"; filename=\"avatar.png\"\r\n"
+            + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(avatar);
+        out.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        body = out.toByteArray();
+    }
+
+    @Benchmark
+    public long bufferedFilePart() {
+        return bufferedReader.read(PART_TYPE, request(), Map.of())
+            .ofType(FilePart.class)
+            .concatMap(part -> write(part.content()))
+            .reduce(0L, Long::sum)
+            .block();
+    }
+
+    @Benchmark
+    public long streamingPartEvents() {
+        return streamingReader.read(PART_EVENT_TYPE, request(), Map.of())
+            .windowUntil(PartEvent::isLast)
+            .concatMap(partEvents -> partEvents.switchOnFirst((signal, events) -> signal.get() instanceof FilePartEvent
+                ? write(StorageServiceClient.limit(events.map(PartEvent::content), MAX_IN_MEMORY_SIZE))
+                : events.doOnNext(event -> DataBufferUtils.release(event.content())).then(Mono.just(0L))))
+            .reduce(0L, Long::sum)
+            .block();
+    }
+
+    // stands in for the outgoing request body, which releases each buffer once it is written to the socket
+    private static Mono<Long> write(Flux<DataBuffer> content) {
+        return content.map(buffer -> {
+                long length = buffer.readableByteCount();
+                DataBufferUtils.release(buffer);
+                return length;
+            })
+            .reduce(0L, Long::sum);
+    }
+
+    private ReactiveHttpInputMessage request() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType(MediaType.MULTIPART_FORM_DATA, Map.of("boundary", BOUNDARY)));
+        Flux<DataBuffer> chunks = Flux.range(0, (body.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+            .map(i -> {
+                int offset = i * CHUNK_SIZE;
+                int length = Math.min(CHUNK_SIZE, body.length - offset);
+                return (DataBuffer) BUFFER_FACTORY.wrap(Unpooled.wrappedBuffer(body, offset, length));
+            });
+        return new ReactiveHttpInputMessage() {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return chunks;
+            }
+        };
+    }
+}
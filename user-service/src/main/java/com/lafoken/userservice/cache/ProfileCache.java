@@ -0,0 +1,135 @@
+package com.withfy.userservice.cache;
+
+import com.withfy.userservice.config.ProfileCacheProperties;
+import com.withfy.userservice.dto.VersionedProfile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded read-through cache of profiles, with their entity tags, keyed by user id.
+ * <p>
+ * An entry holds the load itself rather than its result, so concurrent misses for the same user subscribe to one
+ * query instead of each issuing their own, and an invalidation that lands while a load is in flight drops that load
+ * for every later reader. Failed and empty loads are not kept. Entries expire {@code app.profile-cache.ttl} after the
+ * load started; once {@code app.profile-cache.max-entries} is reached and nothing has expired, further misses go
+ * straight to the loader.
+ */
+@Component
+public class ProfileCache {
+
+    static final String CACHE_NAME = "user.profiles";
+    private static final long PURGE_INTERVAL_MS = 1000;
+
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final AtomicLong lastPurgeAt = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Timer loadSuccess;
+    private final Timer loadFailure;
+
+    @Autowired
+    public ProfileCache(ProfileCacheProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::currentTimeMillis);
+    }
+
+    ProfileCache(ProfileCacheProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.maxEntries = properties.maxEntries();
+        this.ttlMillis = properties.ttl().toMillis();
+        this.clock = clock;
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        this.loadSuccess = Timer.builder("cache.loads").tag("cache", CACHE_NAME).tag("result", "success").register(meterRegistry);
+        this.loadFailure = Timer.builder("cache.loads").tag("cache", CACHE_NAME).tag("result", "failure").register(meterRegistry);
+        Gauge.builder("cache.size", entries, ConcurrentHashMap::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached profile for {@code userId}, or the one {@code loader} emits, caching it. The loader completes
+     * empty for users that do not exist.
+     */
+    public Mono<VersionedProfile> get(UUID userId, Function<UUID, Mono<VersionedProfile>> loader) {
+        if (maxEntries <= 0) {
+            return timed(loader.apply(userId));
+        }
+        return Mono.defer(() -> {
+            long now = clock.getAsLong();
+            Entry entry = entries.get(userId);
+            if (entry != null) {
+                if (entry.expiresAtMillis() > now) {
+                    hits.increment();
+                    return entry.profile();
+                }
+                if (entries.remove(userId, entry)) {
+                    evictions.increment();
+                }
+            }
+            misses.increment();
+
+            if (entries.size() >= maxEntries) {
+                purgeExpired(now);
+                if (entries.size() >= maxEntries) {
+                    return timed(loader.apply(userId));
+                }
+            }
+            Mono<VersionedProfile> load = timed(Mono.defer(() -> loader.apply(userId)))
+                .cache(profile -> Duration.ofMillis(ttlMillis), error -> Duration.ZERO, () -> Duration.ZERO);
+            Entry created = new Entry(load, now + ttlMillis);
+            Entry existing = entries.putIfAbsent(userId, created);
+            if (existing != null) {
+                return existing.profile();
+            }
+            return created.profile()
+                .doOnError(e -> entries.remove(userId, created))
+                .switchIfEmpty(Mono.fromRunnable(() -> entries.remove(userId, created)));
+        });
+    }
+
+    public void invalidate(UUID userId) {
+        entries.remove(userId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Mono<VersionedProfile> timed(Mono<VersionedProfile> load) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return load.doFinally(signal -> (signal == SignalType.ON_ERROR ? loadFailure : loadSuccess)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private void purgeExpired(long now) {
+        long last = lastPurgeAt.get();
+        if (now - last < PURGE_INTERVAL_MS || !lastPurgeAt.compareAndSet(last, now)) {
+            return;
+        }
+        entries.forEach((userId, entry) -> {
+            if (entry.expiresAtMillis() <= now && entries.remove(userId, entry)) {
+                evictions.increment();
+            }
+        });
+    }
+
+    private record Entry(Mono<VersionedProfile> profile, long expiresAtMillis) {}
+}
@@ -1,22 +1,31 @@
 package com.withfy.userservice.client;
 
+import com.withfy.userservice.exception.InvalidRequestException;
+import com.withfy.userservice.exception.PayloadTooLargeException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
-import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @RequiredArgsConstructor
@@ -28,36 +37,111 @@ public class StorageServiceClient {
 
     public static record FileUploadResponse(String objectKey, String bucketName, String publicUrl) {}
 
-    public Mono<FileUploadResponse> uploadFile(String bucketName, String objectKey, FilePart filePart) {
+    public static record DeleteObjectsRequest(String bucketName, List<String> objectKeys) {}
+
+    public static record PresignedUploadResponse(String bucketName, String objectKey, String url, Map<String, String> formData, Instant expiresAt) {}
+
+    /**
+     * Streams {@code content} to storage-service as the {@code file} part without aggregating it. Buffers are
+     * released as soon as they are written, and the upload fails with {@link PayloadTooLargeException} once more
+     * than {@code maxBytes} have passed through, which aborts the outgoing request mid-body.
+     */
+    public Mono<FileUploadResponse> uploadFile(String bucketName, String objectKey, String filename, MediaType contentType,
+                                               Flux<DataBuffer> content, long maxBytes) {
+        MultipartBodyBuilder bodyBuilder = new MultipartBodyBuilder();
+        bodyBuilder.asyncPart("file", limit(content, maxBytes), DataBuffer.class)
+                .filename(filename)
+                .contentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM);
+
         return webClient.post()
                 .uri(uriBuilder -> uriBuilder.path("/api/v1/storage/upload")
                         .queryParam("bucketName", bucketName)
                         .queryParam("objectKey", objectKey)
                         .build())
                 .contentType(MediaType.MULTIPART_FORM_DATA)
-                .body(BodyInserters.fromMultipartData("file", filePart))
+                .body(BodyInserters.fromMultipartData(bodyBuilder.build()))
                 .retrieve()
                 .bodyToMono(FileUploadResponse.class)
+                .onErrorMap(WebClientRequestException.class, e -> e.getCause() instanceof PayloadTooLargeException tooLarge ? tooLarge : e)
                 .doOnError(e -> log.error("Error uploading to storage service for {}/{}: {}", bucketName, objectKey, e.getMessage(), e))
                 .onErrorMap(WebClientResponseException.class, e ->
                         new RuntimeException(String.format("Storage service upload failed for %s with status %s: %s", objectKey, e.getStatusCode(), e.getResponseBodyAsString()), e))
-                .onErrorMap(e -> !(e instanceof RuntimeException && e.getMessage().startsWith("Storage service upload failed")),
+                .onErrorMap(e -> !(e instanceof PayloadTooLargeException
+                                   || (e instanceof RuntimeException && e.getMessage() != null && e.getMessage().startsWith("Storage service upload failed"))),
                         e -> new RuntimeException("Unexpected error during storage service upload for " + objectKey, e));
     }
 
-    public Mono<Void> deleteFile(String bucketName, String objectKey) {
-        return webClient.delete()
-                .uri(uriBuilder -> uriBuilder.path("/api/v1/storage/object")
+    static Flux<DataBuffer> limit(Flux<DataBuffer> content, long maxBytes) {
+        return Flux.defer(() -> {
+                    AtomicLong received = new AtomicLong();
+                    return content.<DataBuffer>handle((buffer, sink) -> {
+                        if (received.addAndGet(buffer.readableByteCount()) > maxBytes) {
+                            DataBufferUtils.release(buffer);
+                            sink.error(new PayloadTooLargeException("Upload exceeds the maximum size of " + maxBytes + " bytes."));
+                        } else {
+                            sink.next(buffer);
+                        }
+                    });
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    public Mono<PresignedUploadResponse> presignUpload(String bucketName, String objectKey, String contentType, long contentLength) {
+        return webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/api/v1/storage/presign/upload")
+                        .queryParam("bucketName", bucketName)
+                        .queryParam("objectKey", objectKey)
+                        .queryParam("contentType", contentType)
+                        .queryParam("contentLength", contentLength)
+                        .build())
+                .retrieve()
+                .bodyToMono(PresignedUploadResponse.class)
+                .doOnError(e -> log.error("Error presigning upload for {}/{}: {}", bucketName, objectKey, e.getMessage()))
+                .onErrorMap(WebClientResponseException.class, e ->
+                        new RuntimeException(String.format("Storage service presign failed for %s with status %s: %s", objectKey, e.getStatusCode(), e.getResponseBodyAsString()), e));
+    }
+
+    /**
+     * Asks storage-service to verify an object uploaded through a presigned form. A 4xx means the object is
+     * missing or was rejected, which is the client's doing, so it surfaces as {@link InvalidRequestException}.
+     */
+    public Mono<FileUploadResponse> confirmUpload(String bucketName, String objectKey, String contentTypePrefix, long maxContentLength) {
+        return webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/api/v1/storage/presign/confirm")
                         .queryParam("bucketName", bucketName)
                         .queryParam("objectKey", objectKey)
+                        .queryParam("contentTypePrefix", contentTypePrefix)
+                        .queryParam("maxContentLength", maxContentLength)
+                        .build())
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, response -> response.bodyToMono(String.class)
+                        .defaultIfEmpty("")
+                        .map(body -> new InvalidRequestException("Upload of " + objectKey + " could not be confirmed: " + body)))
+                .bodyToMono(FileUploadResponse.class)
+                .doOnError(e -> log.error("Error confirming upload for {}/{}: {}", bucketName, objectKey, e.getMessage()))
+                .onErrorMap(WebClientResponseException.class, e ->
+                        new RuntimeException(String.format("Storage service confirm failed for %s with status %s: %s", objectKey, e.getStatusCode(), e.getResponseBodyAsString()), e));
+    }
+
+    /**
+     * Hands {@code objectKeys} to storage-service's delete queue. The call returns once the keys are accepted;
+     * storage-service batches them and keeps retrying failed removals, so a transient MinIO error no longer
+     * leaves the objects behind.
+     */
+    public Mono<Void> deleteFiles(String bucketName, List<String> objectKeys) {
+        return webClient.method(HttpMethod.DELETE)
+                .uri(uriBuilder -> uriBuilder.path("/api/v1/storage/objects")
+                        .queryParam("deferred", true)
                         .build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new DeleteObjectsRequest(bucketName, objectKeys))
                 .retrieve()
                 .toBodilessEntity()
                 .then()
-                .doOnError(e -> log.error("Error deleting from storage service for {}/{}: {}", bucketName, objectKey, e.getMessage(), e))
+                .doOnError(e -> log.error("Error deleting from storage service for {}/{}: {}", bucketName, objectKeys, e.getMessage(), e))
                 .onErrorMap(WebClientResponseException.class, e ->
-                        new RuntimeException(String.format("Storage service delete failed for %s with status %s: %s", objectKey, e.getStatusCode(), e.getResponseBodyAsString()), e))
-                .onErrorMap(e -> !(e instanceof RuntimeException && e.getMessage().startsWith("Storage service delete failed")),
-                        e -> new RuntimeException("Unexpected error during storage service delete for " + objectKey, e));
+                        new RuntimeException(String.format("Storage service delete failed for %s with status %s: %s", objectKeys, e.getStatusCode(), e.getResponseBodyAsString()), e))
+                .onErrorMap(e -> !(e instanceof RuntimeException && e.getMessage() != null && e.getMessage().startsWith("Storage service delete failed")),
+                        e -> new RuntimeException("Unexpected error during storage service delete for " + objectKeys, e));
     }
 }
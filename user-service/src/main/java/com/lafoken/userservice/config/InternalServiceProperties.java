@@ -0,0 +1,12 @@
+package com.withfy.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * {@code token} is the shared secret other services send in {@code X-Internal-Service-Token}. While it is blank,
+ * the endpoints that require it refuse every request.
+ */
+@ConfigurationProperties(prefix = "app.internal-service")
+public record InternalServiceProperties(
+    String token
+) {}
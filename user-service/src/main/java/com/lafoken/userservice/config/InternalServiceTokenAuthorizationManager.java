@@ -0,0 +1,43 @@
+package com.withfy.userservice.config;
+
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Grants access to service-to-service endpoints when the request carries the configured internal service token.
+ * The user headers the gateway adds play no part, so a logged-in user cannot reach these endpoints by going around
+ * the gateway either.
+ */
+@Component
+public class InternalServiceTokenAuthorizationManager implements ReactiveAuthorizationManager<AuthorizationContext> {
+
+    public static final String HEADER = "X-Internal-Service-Token";
+
+    private final byte[] token;
+
+    public InternalServiceTokenAuthorizationManager(InternalServiceProperties properties) {
+        this.token = properties.token() != null && !properties.token().isBlank()
+            ? properties.token().getBytes(StandardCharsets.UTF_8)
+            : null;
+    }
+
+    @Override
+    public Mono<AuthorizationDecision> check(Mono<Authentication> authentication, AuthorizationContext context) {
+        String presented = context.getExchange().getRequest().getHeaders().getFirst(HEADER);
+        return Mono.just(new AuthorizationDecision(matches(presented)));
+    }
+
+    private boolean matches(String presented) {
+        if (token == null || presented == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,15 @@
+package com.withfy.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * {@code ttl} bounds how late a redelivery can arrive and still be recognised; it should comfortably exceed
+ * {@code app.rabbitmq.retry.delay} times {@code app.rabbitmq.retry.max-attempts}.
+ */
+@ConfigurationProperties(prefix = "app.processed-events")
+public record ProcessedEventProperties(
+    Duration ttl,
+    Duration purgeInterval
+) {}
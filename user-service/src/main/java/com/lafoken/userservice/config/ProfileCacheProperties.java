@@ -0,0 +1,15 @@
+package com.withfy.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * {@code maxEntries} of zero or less disables the cache. {@code ttl} is the longest a profile changed by another
+ * instance, which cannot invalidate this one's copy, is served stale.
+ */
+@ConfigurationProperties(prefix = "app.profile-cache")
+public record ProfileCacheProperties(
+    int maxEntries,
+    Duration ttl
+) {}
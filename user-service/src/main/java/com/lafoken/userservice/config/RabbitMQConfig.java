@@ -1,14 +1,25 @@
 package com.withfy.userservice.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Each consumed queue {@code q} comes with {@code q.retry}, where failed messages wait out
+ * {@code app.rabbitmq.retry.delay} before the broker dead-letters them back to {@code q}, and {@code q.dlq}, where
+ * messages end up once they are out of attempts or cannot be processed at all. Messages the listener rejects outright
+ * are dead-lettered to {@code q.dlq} by the broker.
+ */
 @Configuration
 public class RabbitMQConfig {
 
@@ -32,14 +43,57 @@ public class RabbitMQConfig {
         return new TopicExchange(userEventsExchangeName);
     }
 
+    public static String retryQueueName(String queueName) {
+        return queueName + ".retry";
+    }
+
+    public static String deadLetterQueueName(String queueName) {
+        return queueName + ".dlq";
+    }
+
     @Bean
     public Queue userRegisteredQueue() {
-        return new Queue(userRegisteredQueueName, true);
+        return consumedQueue(userRegisteredQueueName);
+    }
+
+    @Bean
+    public Queue userRegisteredRetryQueue(RetryProperties retryProperties) {
+        return retryQueue(userRegisteredQueueName, retryProperties);
+    }
+
+    @Bean
+    public Queue userRegisteredDeadLetterQueue() {
+        return QueueBuilder.durable(deadLetterQueueName(userRegisteredQueueName)).build();
     }
 
     @Bean
     public Queue userBannedQueue() {
-        return new Queue(userBannedQueueName, true);
+        return consumedQueue(userBannedQueueName);
+    }
+
+    @Bean
+    public Queue userBannedRetryQueue(RetryProperties retryProperties) {
+        return retryQueue(userBannedQueueName, retryProperties);
+    }
+
+    @Bean
+    public Queue userBannedDeadLetterQueue() {
+        return QueueBuilder.durable(deadLetterQueueName(userBannedQueueName)).build();
+    }
+
+    private static Queue consumedQueue(String queueName) {
+        return QueueBuilder.durable(queueName)
+            .deadLetterExchange("")
+            .deadLetterRoutingKey(deadLetterQueueName(queueName))
+            .build();
+    }
+
+    private static Queue retryQueue(String queueName, RetryProperties retryProperties) {
+        return QueueBuilder.durable(retryQueueName(queueName))
+            .ttl((int) retryProperties.delay().toMillis())
+            .deadLetterExchange("")
+            .deadLetterRoutingKey(queueName)
+            .build();
     }
 
     @Bean
@@ -56,4 +110,26 @@ public class RabbitMQConfig {
     public Jackson2JsonMessageConverter consumerJackson2MessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
+
+    /**
+     * Delivers {@code UserRegisteredEvent}s to the listener in batches of up to {@code batch-size}. A batch is acked
+     * when the listener returns and rejected, for redelivery, when it throws.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory userRegisteredContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            RegistrationConsumerProperties properties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(properties.batchSize());
+        factory.setReceiveTimeout(properties.receiveTimeout().toMillis());
+        factory.setPrefetchCount(properties.prefetch());
+        factory.setConcurrentConsumers(properties.concurrency());
+        factory.setMaxConcurrentConsumers(properties.maxConcurrency());
+        return factory;
+    }
 }
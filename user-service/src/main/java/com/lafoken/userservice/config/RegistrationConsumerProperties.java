@@ -0,0 +1,20 @@
+package com.withfy.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Each consumer holds one pooled R2DBC connection while it writes a batch, so {@code maxConcurrency} should stay
+ * below {@code spring.r2dbc.pool.max-size}. {@code prefetch} should be at least {@code batchSize}, otherwise a batch
+ * can never fill and always waits out {@code receiveTimeout}.
+ */
+@ConfigurationProperties(prefix = "app.rabbitmq.consumer.user-registered")
+public record RegistrationConsumerProperties(
+    int batchSize,
+    Duration receiveTimeout,
+    int prefetch,
+    int concurrency,
+    int maxConcurrency,
+    Duration commitTimeout
+) {}
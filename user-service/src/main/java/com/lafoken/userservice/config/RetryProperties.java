@@ -0,0 +1,15 @@
+package com.withfy.userservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * A message that fails is parked in its queue's {@code .retry} queue for {@code delay} and then redelivered; after
+ * {@code maxAttempts} deliveries it goes to the {@code .dlq} queue instead.
+ */
+@ConfigurationProperties(prefix = "app.rabbitmq.retry")
+public record RetryProperties(
+    int maxAttempts,
+    Duration delay
+) {}
@@ -55,7 +55,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http,
+                                                            InternalServiceTokenAuthorizationManager internalServiceAuthorization) {
         http
             .csrf(ServerHttpSecurity.CsrfSpec::disable)
             .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
@@ -65,6 +66,8 @@ public class SecurityConfig {
             .authorizeExchange(exchanges -> exchanges
                 .pathMatchers(HttpMethod.OPTIONS).permitAll()
                 .pathMatchers("/actuator/**").permitAll()
+                .pathMatchers("/api/v1/user/internal/profiles:batchGet", "/api/v1/user/internal/avatar-keys")
+                    .access(internalServiceAuthorization)
                 .pathMatchers("/api/v1/user/internal/**").permitAll()
                 .anyExchange().authenticated()
             )
@@ -12,8 +12,12 @@ public class WebClientConfig {
     private String storageServiceUrl;
 
     @Bean
-    public WebClient storageServiceWebClient(WebClient.Builder builder) {
-        return builder.baseUrl(storageServiceUrl).build();
+    public WebClient storageServiceWebClient(WebClient.Builder builder, InternalServiceProperties internalServiceProperties) {
+        builder.baseUrl(storageServiceUrl);
+        String token = internalServiceProperties.token();
+        if (token != null && !token.isBlank()) {
+            builder.defaultHeader(InternalServiceTokenAuthorizationManager.HEADER, token);
+        }
+        return builder.build();
     }
 }
-
@@ -1,19 +1,32 @@
 package com.withfy.userservice.controller;
 
+import com.withfy.userservice.dto.AvatarObjectKey;
+import com.withfy.userservice.dto.AvatarUploadCompleteRequest;
 import com.withfy.userservice.dto.AvatarUploadResponse;
+import com.withfy.userservice.dto.AvatarUploadUrlRequest;
+import com.withfy.userservice.dto.AvatarUploadUrlResponse;
+import com.withfy.userservice.dto.ProfileBatchGetRequest;
+import com.withfy.userservice.dto.ProfileSummary;
 import com.withfy.userservice.dto.StripeCustomerUpdateRequest;
 import com.withfy.userservice.dto.UpdateUserProfileRequest;
 import com.withfy.userservice.dto.UserProfileResponse;
+import com.withfy.userservice.dto.VersionedProfile;
 import com.withfy.userservice.exception.InvalidRequestException;
 import com.withfy.userservice.service.UserProfileService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -21,18 +34,36 @@ import reactor.core.publisher.Mono;
 public class UserProfileController {
 
     private static final Logger log = LoggerFactory.getLogger(UserProfileController.class);
+    private static final String AVATAR_PART_NAME = "avatarFile";
+    private static final CacheControl PROFILE_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final UserProfileService userProfileService;
 
     public UserProfileController(UserProfileService userProfileService) {
         this.userProfileService = userProfileService;
     }
 
+    /**
+     * Tags the profile with a weak ETag. A request carrying {@code If-None-Match} is first checked against the row's
+     * {@code updated_at} alone and answered with 304 when it still matches, without loading the profile. Otherwise the
+     * profile is served only from a copy carrying that same tag.
+     */
     @GetMapping("/profile/me")
-    public Mono<UserProfileResponse> getCurrentUserProfile(@RequestHeader("X-User-ID") String userId) {
+    public Mono<ResponseEntity<UserProfileResponse>> getCurrentUserProfile(@RequestHeader("X-User-ID") String userId, ServerWebExchange exchange) {
          if (userId == null || userId.isBlank()) {
              throw new InvalidRequestException("X-User-ID header is missing or blank.");
         }
-        return userProfileService.getUserProfile(userId);
+        if (!exchange.getRequest().getHeaders().containsKey(HttpHeaders.IF_NONE_MATCH)) {
+            return userProfileService.getVersionedProfile(userId).map(UserProfileController::versioned);
+        }
+        return userProfileService.getProfileETag(userId)
+            .flatMap(eTag -> exchange.checkNotModified(eTag)
+                ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(PROFILE_CACHE_CONTROL).<UserProfileResponse>build())
+                : userProfileService.getVersionedProfile(userId, eTag).map(UserProfileController::versioned));
+    }
+
+    private static ResponseEntity<UserProfileResponse> versioned(VersionedProfile versioned) {
+        return ResponseEntity.ok().eTag(versioned.eTag()).cacheControl(PROFILE_CACHE_CONTROL).body(versioned.profile());
     }
 
     @PatchMapping("/profile/me")
@@ -45,16 +76,48 @@ public class UserProfileController {
         return userProfileService.updateUserProfile(userId, request);
     }
 
+    /**
+     * Reads the multipart body as a stream of part events rather than aggregated parts, so the avatar's
+     * buffers are forwarded to storage-service as they arrive. Other parts are drained and released.
+     */
     @PostMapping(value = "/profile/me/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public Mono<AvatarUploadResponse> uploadAvatar(
             @RequestHeader("X-User-ID") String userId,
-            @RequestPart("avatarFile") Mono<FilePart> filePartMono) {
+            @RequestBody Flux<PartEvent> parts) {
         if (userId == null || userId.isBlank()) {
              throw new InvalidRequestException("X-User-ID header is missing or blank.");
         }
-        return filePartMono
-            .switchIfEmpty(Mono.error(new InvalidRequestException("Avatar file (FilePart) is required.")))
-            .flatMap(filePart -> userProfileService.uploadAvatar(userId, filePart))
+        return parts.windowUntil(PartEvent::isLast)
+            .concatMap(partEvents -> partEvents.switchOnFirst((signal, events) -> {
+                if (signal.get() instanceof FilePartEvent filePart && AVATAR_PART_NAME.equals(filePart.name())) {
+                    return userProfileService.uploadAvatar(userId, filePart.filename(), filePart.headers().getContentType(),
+                        events.map(PartEvent::content));
+                }
+                return events.doOnNext(event -> DataBufferUtils.release(event.content())).then(Mono.<UserProfileResponse>empty());
+            }))
+            .next()
+            .switchIfEmpty(Mono.error(new InvalidRequestException("Avatar file part '" + AVATAR_PART_NAME + "' is required.")))
+            .map(userProfile -> new AvatarUploadResponse(userProfile.avatarUrl()));
+    }
+
+    @PostMapping("/profile/me/avatar/upload-url")
+    public Mono<AvatarUploadUrlResponse> createAvatarUploadUrl(
+            @RequestHeader("X-User-ID") String userId,
+            @Valid @RequestBody AvatarUploadUrlRequest request) {
+        if (userId == null || userId.isBlank()) {
+            throw new InvalidRequestException("X-User-ID header is missing or blank.");
+        }
+        return userProfileService.createAvatarUploadUrl(userId, request.contentType(), request.contentLength());
+    }
+
+    @PostMapping("/profile/me/avatar/complete")
+    public Mono<AvatarUploadResponse> completeAvatarUpload(
+            @RequestHeader("X-User-ID") String userId,
+            @Valid @RequestBody AvatarUploadCompleteRequest request) {
+        if (userId == null || userId.isBlank()) {
+            throw new InvalidRequestException("X-User-ID header is missing or blank.");
+        }
+        return userProfileService.completeAvatarUpload(userId, request.objectKey())
             .map(userProfile -> new AvatarUploadResponse(userProfile.avatarUrl()));
     }
 
@@ -82,4 +145,22 @@ public class UserProfileController {
         }
         return userProfileService.updateUserStripeCustomerId(userId, request.stripeCustomerId());
     }
+
+    /**
+     * Streams one profile summary per line as it is read, so callers can start rendering before the whole batch is
+     * out. Requires the internal service token; see {@link com.withfy.userservice.config.SecurityConfig}.
+     */
+    @PostMapping(value = "/internal/profiles:batchGet", consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ProfileSummary> batchGetProfiles(@Valid @RequestBody ProfileBatchGetRequest request) {
+        return userProfileService.getProfileSummaries(request.ids());
+    }
+
+    /**
+     * Every key names its owner's user id, so this also requires the internal service token.
+     */
+    @GetMapping(value = "/internal/avatar-keys", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AvatarObjectKey> streamAvatarObjectKeys() {
+        return userProfileService.streamAvatarObjectKeys();
+    }
 }
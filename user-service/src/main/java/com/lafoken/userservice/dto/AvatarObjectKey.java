@@ -0,0 +1,3 @@
+package com.withfy.userservice.dto;
+
+public record AvatarObjectKey(String objectKey) {}
@@ -0,0 +1,10 @@
+package com.withfy.userservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record AvatarUploadCompleteRequest(
+    @NotBlank(message = "Object key is required")
+    @Size(max = 512, message = "Object key must be less than 512 characters")
+    String objectKey
+) {}
@@ -0,0 +1,14 @@
+package com.withfy.userservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+public record AvatarUploadUrlRequest(
+    @NotBlank(message = "Content type is required")
+    @Pattern(regexp = "^image/[a-zA-Z0-9.+-]+$", message = "Avatar must be an image")
+    String contentType,
+
+    @Positive(message = "Content length must be positive")
+    long contentLength
+) {}
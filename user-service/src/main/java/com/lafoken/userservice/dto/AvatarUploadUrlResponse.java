@@ -0,0 +1,11 @@
+package com.withfy.userservice.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record AvatarUploadUrlResponse(
+    String objectKey,
+    String url,
+    Map<String, String> formData,
+    Instant expiresAt
+) {}
@@ -0,0 +1,10 @@
+package com.withfy.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record ProfileBatchGetRequest(
+    @NotEmpty(message = "At least one user id is required")
+    List<String> ids
+) {}
@@ -0,0 +1,12 @@
+package com.withfy.userservice.dto;
+
+import java.util.UUID;
+
+/**
+ * What another service needs to render a user in a list. Contact and billing details stay out of it.
+ */
+public record ProfileSummary(
+    UUID id,
+    String fullName,
+    String avatarUrl
+) {}
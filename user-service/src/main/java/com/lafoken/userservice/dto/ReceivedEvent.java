@@ -0,0 +1,10 @@
+package com.withfy.userservice.dto;
+
+/**
+ * An event as taken off the queue. {@code eventId} is the message id the publisher assigned, or {@code null} for
+ * messages published without one.
+ */
+public record ReceivedEvent<T>(
+    String eventId,
+    T payload
+) {}
@@ -0,0 +1,34 @@
+package com.withfy.userservice.dto;
+
+import com.withfy.userservice.entity.UserProfile;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A {@code user_profiles} row as written by an update, plus the {@code avatar_url} it held before.
+ */
+public record UpdatedProfile(
+    UUID id,
+    String email,
+    String fullName,
+    String avatarUrl,
+    String billingAddress,
+    String paymentMethod,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    String previousAvatarUrl
+) {
+    public UserProfile toEntity() {
+        return UserProfile.builder()
+            .id(id)
+            .email(email)
+            .fullName(fullName)
+            .avatarUrl(avatarUrl)
+            .billingAddress(billingAddress)
+            .paymentMethod(paymentMethod)
+            .createdAt(createdAt)
+            .updatedAt(updatedAt)
+            .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.withfy.userservice.dto;
+
+import com.withfy.userservice.entity.UserProfile;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * A profile together with the entity tag of the row it was read from.
+ */
+public record VersionedProfile(
+    UserProfileResponse profile,
+    String eTag
+) {
+    public static VersionedProfile fromEntity(UserProfile entity) {
+        return new VersionedProfile(UserProfileResponse.fromEntity(entity), eTag(entity.getId(), entity.getUpdatedAt()));
+    }
+
+    /**
+     * Weak, because it changes whenever the row is written rather than only when the representation does.
+     */
+    public static String eTag(UUID id, LocalDateTime updatedAt) {
+        long micros = updatedAt == null ? 0 : updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+        return "W/\"" + id + "-" + Long.toHexString(micros) + "\"";
+    }
+}
@@ -0,0 +1,21 @@
+package com.withfy.userservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("processed_events")
+public class ProcessedEvent {
+    @Id
+    private String eventId;
+    private LocalDateTime processedAt;
+}
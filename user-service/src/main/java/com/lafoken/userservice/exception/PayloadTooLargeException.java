@@ -0,0 +1,9 @@
+package com.withfy.userservice.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class PayloadTooLargeException extends AppException {
+    public PayloadTooLargeException(String message) {
+        super(message, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+}
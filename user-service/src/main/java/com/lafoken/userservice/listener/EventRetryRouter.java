@@ -0,0 +1,59 @@
+package com.withfy.userservice.listener;
+
+import com.withfy.userservice.config.RabbitMQConfig;
+import com.withfy.userservice.config.RetryProperties;
+import com.withfy.userservice.exception.InvalidRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Takes a message its listener failed on off the hot path: into the queue's {@code .retry} queue while it has
+ * attempts left, otherwise, or when retrying cannot help, into its {@code .dlq} queue. The listener then returns
+ * normally, so the original delivery is acked rather than requeued straight back onto the consumer.
+ */
+@Component
+public class EventRetryRouter {
+    private static final Logger log = LoggerFactory.getLogger(EventRetryRouter.class);
+
+    static final String ATTEMPTS_HEADER = "x-attempts";
+    static final String ERROR_HEADER = "x-last-error";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final RetryProperties retryProperties;
+
+    public EventRetryRouter(RabbitTemplate rabbitTemplate, RetryProperties retryProperties) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.retryProperties = retryProperties;
+    }
+
+    public void retryOrDeadLetter(Message message, String queueName, Throwable error) {
+        MessageProperties properties = message.getMessageProperties();
+        Integer previous = properties.getHeader(ATTEMPTS_HEADER);
+        int attempts = (previous != null ? previous : 0) + 1;
+        properties.setHeader(ATTEMPTS_HEADER, attempts);
+        properties.setHeader(ERROR_HEADER, String.valueOf(error.getMessage()));
+
+        if (isRetryable(error) && attempts < retryProperties.maxAttempts()) {
+            log.warn("Message {} from {} failed (attempt {} of {}), retrying in {}: {}", properties.getMessageId(), queueName,
+                attempts, retryProperties.maxAttempts(), retryProperties.delay(), error.getMessage());
+            rabbitTemplate.send("", RabbitMQConfig.retryQueueName(queueName), message);
+        } else {
+            log.error("Message {} from {} failed after {} attempt(s), dead-lettering it: {}", properties.getMessageId(), queueName,
+                attempts, error.getMessage());
+            rabbitTemplate.send("", RabbitMQConfig.deadLetterQueueName(queueName), message);
+        }
+    }
+
+    /**
+     * Malformed payloads fail the same way every time.
+     */
+    private static boolean isRetryable(Throwable error) {
+        return !(error instanceof IOException) && !(error instanceof InvalidRequestException);
+    }
+}
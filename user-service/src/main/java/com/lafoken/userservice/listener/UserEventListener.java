@@ -1,35 +1,92 @@
 package com.withfy.userservice.listener;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.withfy.userservice.config.RegistrationConsumerProperties;
+import com.withfy.userservice.dto.ReceivedEvent;
 import com.withfy.userservice.dto.UserBannedEvent;
 import com.withfy.userservice.dto.UserRegisteredEvent;
 import com.withfy.userservice.service.UserProfileService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class UserEventListener {
     private static final Logger log = LoggerFactory.getLogger(UserEventListener.class);
     private final UserProfileService userProfileService;
+    private final RegistrationConsumerProperties registrationConsumerProperties;
+    private final EventRetryRouter retryRouter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.rabbitmq.queue.user-registered}")
+    private String userRegisteredQueueName;
+
+    @Value("${app.rabbitmq.queue.user-banned}")
+    private String userBannedQueueName;
 
-    public UserEventListener(UserProfileService userProfileService) {
+    public UserEventListener(UserProfileService userProfileService,
+                             RegistrationConsumerProperties registrationConsumerProperties,
+                             EventRetryRouter retryRouter,
+                             ObjectMapper objectMapper) {
         this.userProfileService = userProfileService;
+        this.registrationConsumerProperties = registrationConsumerProperties;
+        this.retryRouter = retryRouter;
+        this.objectMapper = objectMapper;
     }
 
-    @RabbitListener(queues = "${app.rabbitmq.queue.user-registered}")
-    public void onUserRegistered(UserRegisteredEvent event) {
-        log.info("Received UserRegisteredEvent: {}", event);
-        userProfileService.handleUserRegisteredEvent(event)
-            .doOnError(error -> log.error("Error handling UserRegisteredEvent for userId {}: {}", event.userId(), error.getMessage()))
-            .subscribe();
+    /**
+     * Waits on the consumer thread until the batch has committed, so the container acks the messages only once their
+     * rows exist. Holding the thread also means a consumer takes no new batch while one is in flight. When the batch
+     * fails, its events are tried one at a time so that a single bad event does not hold back the rest, and whatever
+     * still fails is handed to {@link EventRetryRouter}.
+     */
+    @RabbitListener(queues = "${app.rabbitmq.queue.user-registered}", containerFactory = "userRegisteredContainerFactory")
+    public void onUserRegistered(List<Message> messages) {
+        log.info("Received {} UserRegisteredEvents", messages.size());
+        List<Message> accepted = new ArrayList<>(messages.size());
+        List<ReceivedEvent<UserRegisteredEvent>> events = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                events.add(new ReceivedEvent<>(message.getMessageProperties().getMessageId(),
+                    objectMapper.readValue(message.getBody(), UserRegisteredEvent.class)));
+                accepted.add(message);
+            } catch (IOException e) {
+                retryRouter.retryOrDeadLetter(message, userRegisteredQueueName, e);
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            userProfileService.handleUserRegisteredEvents(events).block(registrationConsumerProperties.commitTimeout());
+        } catch (RuntimeException batchError) {
+            log.warn("Batch of {} UserRegisteredEvents failed, retrying them one at a time: {}", events.size(), batchError.getMessage());
+            for (int i = 0; i < events.size(); i++) {
+                try {
+                    userProfileService.handleUserRegisteredEvents(List.of(events.get(i))).block(registrationConsumerProperties.commitTimeout());
+                } catch (RuntimeException e) {
+                    retryRouter.retryOrDeadLetter(accepted.get(i), userRegisteredQueueName, e);
+                }
+            }
+        }
     }
 
     @RabbitListener(queues = "${app.rabbitmq.queue.user-banned}")
-    public void onUserBanned(UserBannedEvent event) {
-        log.info("Received UserBannedEvent for userId: {}", event.userId());
-        userProfileService.handleUserBannedEvent(event.userId())
-            .doOnError(error -> log.error("Error handling UserBannedEvent for userId {}: {}", event.userId(), error.getMessage()))
-            .subscribe();
+    public void onUserBanned(Message message) {
+        try {
+            UserBannedEvent event = objectMapper.readValue(message.getBody(), UserBannedEvent.class);
+            log.info("Received UserBannedEvent for userId: {}", event.userId());
+            userProfileService.handleUserBannedEvent(event.userId()).block(registrationConsumerProperties.commitTimeout());
+        } catch (IOException | RuntimeException e) {
+            log.error("Error handling UserBannedEvent {}: {}", message.getMessageProperties().getMessageId(), e.getMessage());
+            retryRouter.retryOrDeadLetter(message, userBannedQueueName, e);
+        }
     }
 }
@@ -0,0 +1,25 @@
+package com.withfy.userservice.repository;
+
+import com.withfy.userservice.entity.ProcessedEvent;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ProcessedEventRepository extends ReactiveCrudRepository<ProcessedEvent, String> {
+
+    /**
+     * Records the ids and returns the ones that were not recorded before, i.e. the events seen for the first time.
+     */
+    @Query("INSERT INTO processed_events (event_id) SELECT * FROM UNNEST(:eventIds) " +
+           "ON CONFLICT DO NOTHING RETURNING event_id")
+    Flux<String> markProcessed(@Param("eventIds") String[] eventIds);
+
+    @Modifying
+    @Query("DELETE FROM processed_events WHERE processed_at < NOW() - make_interval(secs => :ttlSeconds)")
+    Mono<Integer> deleteOlderThan(@Param("ttlSeconds") double ttlSeconds);
+}
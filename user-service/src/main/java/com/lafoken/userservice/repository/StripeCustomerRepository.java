@@ -1,7 +1,9 @@
 package com.withfy.userservice.repository;
 
 import com.withfy.userservice.entity.StripeCustomer;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
@@ -11,7 +13,12 @@ import java.util.UUID;
 public interface StripeCustomerRepository extends ReactiveCrudRepository<StripeCustomer, UUID> {
 
     @Query("INSERT INTO stripe_customers (id, stripe_customer_id, created_at, updated_at) " +
-           "VALUES (:#{#stripeCustomer.id}, :#{#stripeCustomer.stripeCustomerId}, :#{#stripeCustomer.createdAt}, :#{#stripeCustomer.updatedAt})")
+           "VALUES (:#{#stripeCustomer.id}, :#{#stripeCustomer.stripeCustomerId}, :#{#stripeCustomer.createdAt}, :#{#stripeCustomer.updatedAt}) " +
+           "ON CONFLICT DO NOTHING")
     Mono<Void> insertStripeCustomer(StripeCustomer stripeCustomer);
+
+    @Modifying
+    @Query("INSERT INTO stripe_customers (id) SELECT * FROM UNNEST(:ids) ON CONFLICT DO NOTHING")
+    Mono<Integer> insertStripeCustomers(@Param("ids") UUID[] ids);
 }
 
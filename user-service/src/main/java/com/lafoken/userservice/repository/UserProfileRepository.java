@@ -1,11 +1,14 @@
 package com.withfy.userservice.repository;
 
+import com.withfy.userservice.dto.ProfileSummary;
+import com.withfy.userservice.dto.UpdatedProfile;
 import com.withfy.userservice.entity.UserProfile;
 import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -14,20 +17,51 @@ import java.util.UUID;
 public interface UserProfileRepository extends ReactiveCrudRepository<UserProfile, UUID> {
     Mono<UserProfile> findByEmail(String email);
 
+    @Query("SELECT updated_at FROM user_profiles WHERE id = :id")
+    Mono<LocalDateTime> findUpdatedAtById(@Param("id") UUID id);
+
+    /**
+     * Binds the ids as one array parameter, so the statement text, and its prepared plan, is the same for any number
+     * of ids. Ids without a row are skipped; rows come back in no particular order.
+     */
+    @Query("SELECT id, full_name, avatar_url FROM user_profiles WHERE id = ANY(:ids)")
+    Flux<ProfileSummary> findSummariesByIds(@Param("ids") UUID[] ids);
+
+    @Query("SELECT avatar_url FROM user_profiles WHERE avatar_url IS NOT NULL")
+    Flux<String> findAllAvatarUrls();
+
     @Query("INSERT INTO user_profiles (id, email, full_name, avatar_url, billing_address, payment_method, created_at, updated_at) " +
            "VALUES (:#{#userProfile.id}, :#{#userProfile.email}, :#{#userProfile.fullName}, :#{#userProfile.avatarUrl}, " +
-           ":#{#userProfile.billingAddress}, :#{#userProfile.paymentMethod}, :#{#userProfile.createdAt}, :#{#userProfile.updatedAt})")
+           ":#{#userProfile.billingAddress}, :#{#userProfile.paymentMethod}, :#{#userProfile.createdAt}, :#{#userProfile.updatedAt}) " +
+           "ON CONFLICT DO NOTHING")
     Mono<Void> insertProfile(UserProfile userProfile);
 
+    /**
+     * Inserts one row per index of the parallel arrays in a single statement and returns the ids actually inserted.
+     * Rows whose id or email already exists are skipped, so a redelivered batch is harmless.
+     */
+    @Query("INSERT INTO user_profiles (id, email, full_name) " +
+           "SELECT * FROM UNNEST(:ids, :emails, :fullNames) " +
+           "ON CONFLICT DO NOTHING RETURNING id")
+    Flux<UUID> insertProfiles(@Param("ids") UUID[] ids, @Param("emails") String[] emails, @Param("fullNames") String[] fullNames);
+
     @Modifying
     @Query("UPDATE user_profiles SET full_name = :fullName, updated_at = :updatedAt WHERE id = :id")
     Mono<Integer> updateFullNameAndTimestamp(@Param("id") UUID id, @Param("fullName") String fullName, @Param("updatedAt") LocalDateTime updatedAt);
-    @Modifying
-    @Query("UPDATE user_profiles SET " +
-           "full_name = COALESCE(:#{#request.fullName}, full_name), " +
-           "avatar_url = COALESCE(:#{#request.avatarUrl}, avatar_url), " +
+
+    /**
+     * Applies the non-null fields and returns the written row together with the avatar URL it replaced, in one round
+     * trip. The sub-select locks the row, so {@code previous_avatar_url} is the value this update overwrote. Completes
+     * empty when there is no such profile.
+     */
+    @Query("UPDATE user_profiles p SET " +
+           "full_name = COALESCE(:fullName, p.full_name), " +
+           "avatar_url = COALESCE(:avatarUrl, p.avatar_url), " +
            "updated_at = :updatedAt " +
-           "WHERE id = :id")
-    Mono<Integer> updateProfile(@Param("id") UUID id, @Param("request") com.withfy.userservice.dto.UpdateUserProfileRequest request, @Param("updatedAt") LocalDateTime updatedAt);
+           "FROM (SELECT id, avatar_url FROM user_profiles WHERE id = :id FOR UPDATE) previous " +
+           "WHERE p.id = previous.id " +
+           "RETURNING p.*, previous.avatar_url AS previous_avatar_url")
+    Mono<UpdatedProfile> updateProfile(@Param("id") UUID id, @Param("fullName") String fullName,
+                                       @Param("avatarUrl") String avatarUrl, @Param("updatedAt") LocalDateTime updatedAt);
 }
 
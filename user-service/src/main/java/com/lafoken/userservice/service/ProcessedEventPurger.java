@@ -0,0 +1,50 @@
+package com.withfy.userservice.service;
+
+import com.withfy.userservice.config.ProcessedEventProperties;
+import com.withfy.userservice.repository.ProcessedEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Deletes {@code processed_events} rows older than {@code app.processed-events.ttl} every
+ * {@code app.processed-events.purge-interval}, so the idempotency store stays the size of the redelivery window.
+ */
+@Service
+public class ProcessedEventPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessedEventPurger.class);
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final ProcessedEventProperties properties;
+    private final Disposable schedule;
+
+    public ProcessedEventPurger(ProcessedEventRepository processedEventRepository, ProcessedEventProperties properties) {
+        this.processedEventRepository = processedEventRepository;
+        this.properties = properties;
+        this.schedule = Flux.interval(properties.purgeInterval(), properties.purgeInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> purge()
+                .doOnError(e -> log.warn("Processed event purge failed: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty()))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        schedule.dispose();
+    }
+
+    Mono<Integer> purge() {
+        return processedEventRepository.deleteOlderThan(properties.ttl().toMillis() / 1000.0)
+            .doOnNext(deleted -> {
+                if (deleted > 0) {
+                    log.info("Purged {} expired processed event ids", deleted);
+                }
+            });
+    }
+}
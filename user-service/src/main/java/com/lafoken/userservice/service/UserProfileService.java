@@ -1,27 +1,48 @@
 package com.withfy.userservice.service;
 
+import com.withfy.userservice.cache.ProfileCache;
 import com.withfy.userservice.client.StorageServiceClient;
+import com.withfy.userservice.dto.AvatarObjectKey;
+import com.withfy.userservice.dto.AvatarUploadUrlResponse;
+import com.withfy.userservice.dto.ProfileSummary;
+import com.withfy.userservice.dto.ReceivedEvent;
 import com.withfy.userservice.dto.UpdateUserProfileRequest;
 import com.withfy.userservice.dto.UserRegisteredEvent;
 import com.withfy.userservice.dto.UserProfileResponse;
+import com.withfy.userservice.dto.VersionedProfile;
 import com.withfy.userservice.entity.StripeCustomer;
 import com.withfy.userservice.entity.UserProfile;
 import com.withfy.userservice.exception.InvalidRequestException;
+import com.withfy.userservice.exception.PayloadTooLargeException;
 import com.withfy.userservice.exception.StorageServiceException;
 import com.withfy.userservice.exception.UserProfileNotFoundException;
+import com.withfy.userservice.repository.ProcessedEventRepository;
 import com.withfy.userservice.repository.StripeCustomerRepository;
 import com.withfy.userservice.repository.UserProfileRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class UserProfileService {
@@ -30,18 +51,41 @@ public class UserProfileService {
     private final UserProfileRepository userProfileRepository;
     private final StripeCustomerRepository stripeCustomerRepository;
     private final StorageServiceClient storageServiceClient;
+    private final ProcessedEventRepository processedEventRepository;
+    private final ProfileCache profileCache;
+
+    private static final String AVATAR_CONTENT_TYPE_PREFIX = "image/";
+    private static final Map<String, String> AVATAR_EXTENSIONS = Map.of(
+        "image/jpeg", ".jpg",
+        "image/png", ".png",
+        "image/gif", ".gif",
+        "image/webp", ".webp"
+    );
 
     @Value("${storage.service.bucket.images}")
     private String imagesBucketName;
 
+    @Value("${storage.service.avatar.max-size:10MB}")
+    private DataSize maxAvatarSize;
+
+    @Value("${app.profiles.batch-get.max-ids:500}")
+    private int maxBatchGetIds;
+
     public UserProfileService(UserProfileRepository userProfileRepository,
                               StripeCustomerRepository stripeCustomerRepository,
-                              StorageServiceClient storageServiceClient) {
+                              StorageServiceClient storageServiceClient,
+                              ProcessedEventRepository processedEventRepository,
+                              ProfileCache profileCache) {
         this.userProfileRepository = userProfileRepository;
         this.stripeCustomerRepository = stripeCustomerRepository;
         this.storageServiceClient = storageServiceClient;
+        this.processedEventRepository = processedEventRepository;
+        this.profileCache = profileCache;
     }
 
+    /**
+     * Inserts are no-ops for a user that already exists, so handling the same event twice is harmless.
+     */
     @Transactional
     public Mono<Void> handleUserRegisteredEvent(UserRegisteredEvent event) {
         log.info("Handling UserRegisteredEvent: {}", event);
@@ -83,7 +127,70 @@ public class UserProfileService {
             .then();
     }
 
+    /**
+     * Creates the profiles and Stripe customer rows for a batch of registrations with one insert per table, in one
+     * transaction. Events whose id is already in {@code processed_events} are redeliveries and are skipped without
+     * touching the profile tables; the ids of the rest are recorded in the same transaction. Events that are
+     * malformed are logged and dropped rather than failing the batch, and duplicate user ids or emails are skipped
+     * by the inserts themselves.
+     */
+    @Transactional
+    public Mono<Void> handleUserRegisteredEvents(List<ReceivedEvent<UserRegisteredEvent>> received) {
+        String[] eventIds = received.stream()
+            .map(ReceivedEvent::eventId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toArray(String[]::new);
+        Mono<Set<String>> firstSeen = eventIds.length == 0
+            ? Mono.just(Set.of())
+            : processedEventRepository.markProcessed(eventIds).collect(Collectors.toSet());
+        return firstSeen.flatMap(fresh -> {
+            List<UserRegisteredEvent> events = received.stream()
+                .filter(event -> event.eventId() == null || fresh.contains(event.eventId()))
+                .map(ReceivedEvent::payload)
+                .toList();
+            if (events.size() < received.size()) {
+                log.info("Skipping {} already processed UserRegisteredEvents", received.size() - events.size());
+            }
+            return registerUsers(events);
+        });
+    }
+
+    private Mono<Void> registerUsers(List<UserRegisteredEvent> events) {
+        Map<UUID, UserRegisteredEvent> registrations = new LinkedHashMap<>();
+        for (UserRegisteredEvent event : events) {
+            if (event == null || event.userId() == null || event.email() == null) {
+                log.error("Skipping invalid UserRegisteredEvent: {}", event);
+                continue;
+            }
+            try {
+                registrations.putIfAbsent(UUID.fromString(event.userId()), event);
+            } catch (IllegalArgumentException e) {
+                log.error("Skipping UserRegisteredEvent with invalid userId: {}", event.userId());
+            }
+        }
+        if (registrations.isEmpty()) {
+            return Mono.empty();
+        }
+
+        UUID[] ids = registrations.keySet().toArray(UUID[]::new);
+        String[] emails = registrations.values().stream().map(UserRegisteredEvent::email).toArray(String[]::new);
+        String[] fullNames = registrations.values().stream().map(UserRegisteredEvent::fullName).toArray(String[]::new);
+
+        return userProfileRepository.insertProfiles(ids, emails, fullNames)
+            .collectList()
+            .flatMap(inserted -> inserted.isEmpty()
+                ? Mono.just(0)
+                : stripeCustomerRepository.insertStripeCustomers(inserted.toArray(UUID[]::new)))
+            .doOnSuccess(count -> log.info("Registered {} of {} users from a batch of {} events", count, ids.length, events.size()))
+            .then();
+    }
+
     public Mono<UserProfileResponse> getUserProfile(String userIdString) {
+        return getVersionedProfile(userIdString).map(VersionedProfile::profile);
+    }
+
+    public Mono<VersionedProfile> getVersionedProfile(String userIdString) {
         log.info("Attempting to get profile for userId: {}", userIdString);
         UUID userId;
         try {
@@ -91,14 +198,74 @@ public class UserProfileService {
         } catch (IllegalArgumentException e) {
             return Mono.error(new InvalidRequestException("Invalid userId format: " + userIdString));
         }
-        return userProfileRepository.findById(userId)
-            .map(UserProfileResponse::fromEntity)
+        return profileCache.get(userId, id -> userProfileRepository.findById(id).map(VersionedProfile::fromEntity))
             .switchIfEmpty(Mono.defer(() -> {
                 log.warn("UserProfile not found for ID (getUserProfile): {}", userIdString);
                 return Mono.error(new UserProfileNotFoundException("User profile not found for ID: " + userIdString));
             }));
     }
 
+    /**
+     * Like {@link #getVersionedProfile(String)}, but only trusts a cached copy tagged {@code currentETag}, the tag just
+     * read from the database. A copy with any other tag was outdated by another instance, so it is dropped and the
+     * profile is loaded again.
+     */
+    public Mono<VersionedProfile> getVersionedProfile(String userIdString, String currentETag) {
+        return getVersionedProfile(userIdString)
+            .flatMap(versioned -> {
+                if (versioned.eTag().equals(currentETag)) {
+                    return Mono.just(versioned);
+                }
+                log.debug("Cached profile for userId {} is stale, reloading it", userIdString);
+                profileCache.invalidate(UUID.fromString(userIdString));
+                return getVersionedProfile(userIdString);
+            });
+    }
+
+    /**
+     * Reads only {@code updated_at}, so a conditional request can be answered without loading the profile. Goes to
+     * the database rather than the cache so that a 304 is never based on a copy another instance has outdated.
+     */
+    public Mono<String> getProfileETag(String userIdString) {
+        UUID userId;
+        try {
+            userId = UUID.fromString(userIdString);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new InvalidRequestException("Invalid userId format: " + userIdString));
+        }
+        return userProfileRepository.findUpdatedAtById(userId)
+            .map(updatedAt -> VersionedProfile.eTag(userId, updatedAt))
+            .switchIfEmpty(Mono.error(() -> new UserProfileNotFoundException("User profile not found for ID: " + userIdString)));
+    }
+
+    /**
+     * Resolves the display fields of a list of users in one query, for services rendering user lists. Duplicate ids
+     * are looked up once; ids without a profile are left out rather than failing the batch, and results do not follow
+     * the order of {@code userIdStrings}. Bypasses the profile cache, which could only save the query if every id were
+     * a hit.
+     */
+    public Flux<ProfileSummary> getProfileSummaries(List<String> userIdStrings) {
+        if (userIdStrings == null || userIdStrings.isEmpty()) {
+            return Flux.error(new InvalidRequestException("At least one userId is required."));
+        }
+        if (userIdStrings.size() > maxBatchGetIds) {
+            return Flux.error(new InvalidRequestException("At most " + maxBatchGetIds + " userIds can be requested at once."));
+        }
+        Set<UUID> userIds = new LinkedHashSet<>();
+        for (String userIdString : userIdStrings) {
+            if (userIdString == null) {
+                return Flux.error(new InvalidRequestException("userIds cannot contain null."));
+            }
+            try {
+                userIds.add(UUID.fromString(userIdString));
+            } catch (IllegalArgumentException e) {
+                return Flux.error(new InvalidRequestException("Invalid userId format: " + userIdString));
+            }
+        }
+        log.debug("Batch-getting {} profiles", userIds.size());
+        return userProfileRepository.findSummariesByIds(userIds.toArray(UUID[]::new));
+    }
+
     @Transactional
     public Mono<UserProfileResponse> updateUserProfile(String userIdString, UpdateUserProfileRequest request) {
         log.info("Attempting to update profile for userId: {} with request: {}", userIdString, request);
@@ -115,72 +282,46 @@ public class UserProfileService {
             return this.getUserProfile(userIdString);
         }
 
-        return userProfileRepository.findById(userUuid)
-            .switchIfEmpty(Mono.error(new UserProfileNotFoundException("User profile not found for update for ID: " + userIdString)))
-            .flatMap(profile -> {
-                String newAvatarFullUrl = request.avatarUrl();
-                String oldAvatarFullUrl = profile.getAvatarUrl();
-                Mono<Void> deleteOldAvatarMono = Mono.empty();
-                String objectKeyForDeletionAttempt = null;
-
-                if (StringUtils.hasText(oldAvatarFullUrl) &&
-                    ((StringUtils.hasText(newAvatarFullUrl) && !newAvatarFullUrl.equals(oldAvatarFullUrl)) || !StringUtils.hasText(newAvatarFullUrl))) {
-                    String tempKey = oldAvatarFullUrl;
-                    if (oldAvatarFullUrl.startsWith("http")) {
-                        try {
-                            String prefixToRemove = "/" + imagesBucketName + "/";
-                            int keyStartIndex = oldAvatarFullUrl.indexOf(prefixToRemove);
-                            if (keyStartIndex != -1) {
-                                tempKey = oldAvatarFullUrl.substring(keyStartIndex + prefixToRemove.length());
-                            } else {
-                                log.warn("Could not reliably extract object key from old avatar URL: {}", oldAvatarFullUrl);
-                                tempKey = null;
-                            }
-                        } catch (Exception e) {
-                            log.warn("Error parsing old avatar URL to extract object key, skipping deletion: {}", oldAvatarFullUrl, e);
-                            tempKey = null;
-                        }
-                    }
-                    if (StringUtils.hasText(tempKey) && !tempKey.startsWith("http")) {
-                        objectKeyForDeletionAttempt = tempKey;
-                    }
-                }
-
-                if (StringUtils.hasText(objectKeyForDeletionAttempt)) {
-                    final String finalObjectKeyToDelete = objectKeyForDeletionAttempt;
-                    log.info("Attempting to delete old avatar. ObjectKey: {}", finalObjectKeyToDelete);
-                    deleteOldAvatarMono = storageServiceClient.deleteFile(imagesBucketName, finalObjectKeyToDelete)
-                        .doOnError(e -> log.warn("Failed to delete old avatar {} for user {} from storage. Continuing update. Error: {}", finalObjectKeyToDelete, userIdString, e.getMessage()))
-                        .onErrorResume(e -> Mono.empty());
-                }
+        return invalidateCachedProfile(userUuid)
+            .then(userProfileRepository.updateProfile(userUuid, request.fullName(), request.avatarUrl(), now))
+            .switchIfEmpty(Mono.error(() -> new UserProfileNotFoundException("User profile not found for update for ID: " + userIdString)))
+            .flatMap(updated -> afterCommit(deleteReplacedAvatar(userIdString, updated.previousAvatarUrl(), updated.avatarUrl()))
+                .thenReturn(UserProfileResponse.fromEntity(updated.toEntity())));
+    }
 
-                UpdateUserProfileRequest requestToSave = new UpdateUserProfileRequest(
-                    request.fullName(),
-                    newAvatarFullUrl
-                );
-
-                return deleteOldAvatarMono.then(
-                    userProfileRepository.updateProfile(userUuid, requestToSave, now)
-                    .flatMap(updatedCount -> {
-                        log.info("Rows updated by updateProfile for user {}: {}", userIdString, updatedCount);
-                        if (updatedCount > 0) {
-                            return userProfileRepository.findById(userUuid);
-                        } else {
-                            log.warn("Update returned 0 rows for user {}. Profile might not exist or no changes made.", userIdString);
-                            return userProfileRepository.findById(userUuid);
-                        }
-                    })
-                );
-            })
-            .map(UserProfileResponse::fromEntity);
+    /**
+     * Removes the object behind an avatar URL the update overwrote. Failures are logged and left to storage-service's
+     * orphan collector.
+     */
+    private Mono<Void> deleteReplacedAvatar(String userIdString, String previousAvatarUrl, String currentAvatarUrl) {
+        if (!StringUtils.hasText(previousAvatarUrl) || previousAvatarUrl.equals(currentAvatarUrl)) {
+            return Mono.empty();
+        }
+        String objectKey = previousAvatarUrl;
+        if (previousAvatarUrl.startsWith("http")) {
+            String prefixToRemove = "/" + imagesBucketName + "/";
+            int keyStartIndex = previousAvatarUrl.indexOf(prefixToRemove);
+            if (keyStartIndex == -1) {
+                log.warn("Could not reliably extract object key from old avatar URL: {}", previousAvatarUrl);
+                return Mono.empty();
+            }
+            objectKey = previousAvatarUrl.substring(keyStartIndex + prefixToRemove.length());
+        }
+        String objectKeyToDelete = objectKey;
+        log.info("Attempting to delete old avatar. ObjectKey: {}", objectKeyToDelete);
+        return storageServiceClient.deleteFiles(imagesBucketName, List.of(objectKeyToDelete))
+            .doOnError(e -> log.warn("Failed to delete old avatar {} for user {} from storage. Error: {}", objectKeyToDelete, userIdString, e.getMessage()))
+            .onErrorResume(e -> Mono.empty());
     }
 
+    /**
+     * Streams the avatar straight through to storage-service; {@code content} is never aggregated in this service.
+     */
     @Transactional
-    public Mono<UserProfileResponse> uploadAvatar(String userIdString, FilePart filePart) {
-        if (filePart == null) {
-            return Mono.error(new InvalidRequestException("Avatar file part cannot be null."));
+    public Mono<UserProfileResponse> uploadAvatar(String userIdString, String originalFilename, MediaType contentType, Flux<DataBuffer> content) {
+        if (content == null) {
+            return Mono.error(new InvalidRequestException("Avatar content cannot be null."));
         }
-        String originalFilename = filePart.filename();
         if (!StringUtils.hasText(originalFilename)) {
             return Mono.error(new InvalidRequestException("Avatar filename cannot be empty."));
         }
@@ -191,8 +332,9 @@ public class UserProfileService {
         }
         String objectKey = "avatars/" + userIdString + "/" + UUID.randomUUID().toString() + extension;
 
-        return storageServiceClient.uploadFile(imagesBucketName, objectKey, filePart)
-            .onErrorMap(e -> new StorageServiceException("Failed to upload avatar to storage service for user " + userIdString, e))
+        return storageServiceClient.uploadFile(imagesBucketName, objectKey, originalFilename, contentType, content, maxAvatarSize.toBytes())
+            .onErrorMap(e -> !(e instanceof PayloadTooLargeException),
+                        e -> new StorageServiceException("Failed to upload avatar to storage service for user " + userIdString, e))
             .flatMap(uploadResponse -> {
                 log.info("Avatar uploaded to storage service. ObjectKey: {}, Full Public URL from storage service: {}", uploadResponse.objectKey(), uploadResponse.publicUrl());
                 UpdateUserProfileRequest updateRequest = new UpdateUserProfileRequest(null, uploadResponse.publicUrl());
@@ -200,6 +342,50 @@ public class UserProfileService {
             });
     }
 
+    /**
+     * Issues a presigned form the client posts the avatar to directly; storage-service pins the key,
+     * content type and size in the signed policy. Nothing is recorded until {@link #completeAvatarUpload}.
+     */
+    public Mono<AvatarUploadUrlResponse> createAvatarUploadUrl(String userIdString, String contentType, long contentLength) {
+        try {
+            UUID.fromString(userIdString);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new InvalidRequestException("Invalid userId format: " + userIdString));
+        }
+        String extension = contentType != null ? AVATAR_EXTENSIONS.get(contentType.toLowerCase()) : null;
+        if (extension == null) {
+            return Mono.error(new InvalidRequestException("Unsupported avatar content type: " + contentType));
+        }
+        if (contentLength <= 0 || contentLength > maxAvatarSize.toBytes()) {
+            return Mono.error(new InvalidRequestException("Avatar size must be between 1 and " + maxAvatarSize.toBytes() + " bytes."));
+        }
+        String objectKey = avatarKeyPrefix(userIdString) + UUID.randomUUID() + extension;
+
+        return storageServiceClient.presignUpload(imagesBucketName, objectKey, contentType.toLowerCase(), contentLength)
+            .onErrorMap(e -> new StorageServiceException("Failed to presign avatar upload for user " + userIdString, e))
+            .map(presigned -> new AvatarUploadUrlResponse(presigned.objectKey(), presigned.url(), presigned.formData(), presigned.expiresAt()));
+    }
+
+    @Transactional
+    public Mono<UserProfileResponse> completeAvatarUpload(String userIdString, String objectKey) {
+        String prefix = avatarKeyPrefix(userIdString);
+        if (!StringUtils.hasText(objectKey) || !objectKey.startsWith(prefix)
+            || objectKey.indexOf('/', prefix.length()) != -1 || objectKey.contains("..")) {
+            return Mono.error(new InvalidRequestException("Object key does not belong to this user's avatars: " + objectKey));
+        }
+        return storageServiceClient.confirmUpload(imagesBucketName, objectKey, AVATAR_CONTENT_TYPE_PREFIX, maxAvatarSize.toBytes())
+            .onErrorMap(e -> !(e instanceof InvalidRequestException),
+                        e -> new StorageServiceException("Failed to confirm avatar upload for user " + userIdString, e))
+            .flatMap(confirmed -> {
+                log.info("Presigned avatar upload confirmed for user {}. ObjectKey: {}", userIdString, confirmed.objectKey());
+                return updateUserProfile(userIdString, new UpdateUserProfileRequest(null, confirmed.publicUrl()));
+            });
+    }
+
+    private static String avatarKeyPrefix(String userIdString) {
+        return "avatars/" + userIdString + "/";
+    }
+
     @Transactional
     public Mono<Void> deleteAvatar(String userIdString) {
          UUID userUuid;
@@ -208,7 +394,8 @@ public class UserProfileService {
         } catch (IllegalArgumentException e) {
             return Mono.error(new InvalidRequestException("Invalid userId format: " + userIdString));
         }
-        return userProfileRepository.findById(userUuid)
+        return invalidateCachedProfile(userUuid)
+            .then(userProfileRepository.findById(userUuid))
             .switchIfEmpty(Mono.error(new UserProfileNotFoundException("User profile not found for avatar deletion: " + userIdString)))
             .flatMap(profile -> {
                 String avatarUrlFromDb = profile.getAvatarUrl();
@@ -234,7 +421,7 @@ public class UserProfileService {
                     if (StringUtils.hasText(objectKeyToDelete)) {
                         final String finalObjectKeyToDelete = objectKeyToDelete;
                         log.info("Attempting to delete avatar from storage for user {}: objectKey {}", userIdString, finalObjectKeyToDelete);
-                        deleteFromStorageMono = storageServiceClient.deleteFile(imagesBucketName, finalObjectKeyToDelete)
+                        deleteFromStorageMono = storageServiceClient.deleteFiles(imagesBucketName, List.of(finalObjectKeyToDelete))
                             .doOnError(e -> log.warn("Failed to delete avatar {} for user {} from storage. Error: {}", finalObjectKeyToDelete, userIdString, e.getMessage()))
                             .onErrorResume(e -> Mono.empty());
                     } else {
@@ -255,6 +442,28 @@ public class UserProfileService {
             }).then();
     }
 
+    /**
+     * Streams the storage object key of every avatar still referenced by a profile. storage-service's orphan
+     * collector treats any avatar object not in this stream as unreferenced, so keys that cannot be parsed are
+     * logged rather than silently dropped.
+     */
+    public Flux<AvatarObjectKey> streamAvatarObjectKeys() {
+        String prefix = "/" + imagesBucketName + "/";
+        return userProfileRepository.findAllAvatarUrls()
+            .<AvatarObjectKey>handle((avatarUrl, sink) -> {
+                if (!avatarUrl.startsWith("http")) {
+                    sink.next(new AvatarObjectKey(avatarUrl));
+                    return;
+                }
+                int keyStartIndex = avatarUrl.indexOf(prefix);
+                if (keyStartIndex != -1) {
+                    sink.next(new AvatarObjectKey(avatarUrl.substring(keyStartIndex + prefix.length())));
+                } else {
+                    log.warn("Avatar URL {} does not point into bucket {}; not reporting it as a reference", avatarUrl, imagesBucketName);
+                }
+            });
+    }
+
     @Transactional
     public Mono<Void> updateUserStripeCustomerId(String userIdString, String stripeCustomerId) {
         UUID userUuid;
@@ -300,7 +509,8 @@ public class UserProfileService {
         }
         log.info("Handling UserBannedEvent for userId: {}. Deleting user profile and related data (excluding avatar for now based on previous decision).", userId);
 
-        return stripeCustomerRepository.deleteById(userId)
+        return invalidateCachedProfile(userId)
+            .then(stripeCustomerRepository.deleteById(userId))
             .doOnSuccess(v -> log.info("Deleted StripeCustomer for banned user: {}", userId))
             .onErrorResume(e -> {
                 log.warn("Error deleting StripeCustomer for banned user {}: {}", userId, e.getMessage());
@@ -314,4 +524,37 @@ public class UserProfileService {
                 }))
             .then();
     }
+
+    /**
+     * Drops the cached profile now and again once the surrounding transaction has finished, so a read that races
+     * the write cannot put the pre-commit row back into the cache for the rest of its TTL.
+     */
+    private Mono<Void> invalidateCachedProfile(UUID userId) {
+        return Mono.fromRunnable(() -> profileCache.invalidate(userId))
+            .then(TransactionSynchronizationManager.forCurrentTransaction())
+            .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public Mono<Void> afterCompletion(int status) {
+                    return Mono.fromRunnable(() -> profileCache.invalidate(userId));
+                }
+            }))
+            .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+            .then();
+    }
+
+    /**
+     * Runs {@code action} once the surrounding transaction has committed, or straight away outside a transaction, so
+     * that nothing irreversible happens for a write that is then rolled back.
+     */
+    private Mono<Void> afterCommit(Mono<Void> action) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+            .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public Mono<Void> afterCommit() {
+                    return action;
+                }
+            }))
+            .then()
+            .onErrorResume(NoTransactionException.class, e -> action);
+    }
 }
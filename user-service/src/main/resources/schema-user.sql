@@ -19,3 +19,12 @@ CREATE TABLE stripe_customers (
   updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
 );
 
+
+DROP TABLE IF EXISTS processed_events;
+
+CREATE TABLE processed_events (
+  event_id TEXT PRIMARY KEY,
+  processed_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_processed_events_processed_at ON processed_events (processed_at);
@@ -0,0 +1,127 @@
+package com.withfy.userservice.cache;
+
+import com.withfy.userservice.config.ProfileCacheProperties;
+import com.withfy.userservice.dto.UserProfileResponse;
+import com.withfy.userservice.dto.VersionedProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProfileCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private MeterRegistry meterRegistry;
+    private ProfileCache cache;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ProfileCache(new ProfileCacheProperties(2, Duration.ofSeconds(60)), meterRegistry, now::get);
+        userId = UUID.randomUUID();
+    }
+
+    private static VersionedProfile profile(UUID id, String fullName) {
+        return new VersionedProfile(new UserProfileResponse(id.toString(), "user@example.com", fullName, null, null, null), "W/\"" + id + "\"");
+    }
+
+    private Function<UUID, Mono<VersionedProfile>> loader(String fullName) {
+        return id -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return profile(id, fullName);
+        });
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", ProfileCache.CACHE_NAME).tag("result", result).counter().count();
+    }
+
+    @Test
+    void get_whenCached_shouldNotLoadAgain() {
+        StepVerifier.create(cache.get(userId, loader("A"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(userId, loader("B")))
+            .expectNextMatches(response -> response.profile().fullName().equals("A"))
+            .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+        assertEquals(1, meterRegistry.get("cache.loads").tag("result", "success").timer().count());
+    }
+
+    @Test
+    void get_whenMissesOverlap_shouldShareOneLoad() {
+        Sinks.One<VersionedProfile> result = Sinks.one();
+        Function<UUID, Mono<VersionedProfile>> slowLoader = id -> {
+            loads.incrementAndGet();
+            return result.asMono();
+        };
+
+        StepVerifier first = StepVerifier.create(cache.get(userId, slowLoader)).expectNextCount(1).expectComplete().verifyLater();
+        StepVerifier second = StepVerifier.create(cache.get(userId, slowLoader)).expectNextCount(1).expectComplete().verifyLater();
+        result.tryEmitValue(profile(userId, "A"));
+
+        first.verify(Duration.ofSeconds(1));
+        second.verify(Duration.ofSeconds(1));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_whenEntryExpired_shouldLoadAgain() {
+        StepVerifier.create(cache.get(userId, loader("A"))).expectNextCount(1).verifyComplete();
+        now.addAndGet(60_000);
+
+        StepVerifier.create(cache.get(userId, loader("B")))
+            .expectNextMatches(response -> response.profile().fullName().equals("B"))
+            .verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_whenInvalidated_shouldLoadAgain() {
+        StepVerifier.create(cache.get(userId, loader("A"))).expectNextCount(1).verifyComplete();
+        cache.invalidate(userId);
+
+        StepVerifier.create(cache.get(userId, loader("B")))
+            .expectNextMatches(response -> response.profile().fullName().equals("B"))
+            .verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_whenLoadFailsOrIsEmpty_shouldNotCacheIt() {
+        StepVerifier.create(cache.get(userId, id -> Mono.error(new IllegalStateException("db down"))))
+            .verifyError(IllegalStateException.class);
+        StepVerifier.create(cache.get(userId, id -> Mono.empty())).verifyComplete();
+        assertEquals(0, cache.size());
+
+        StepVerifier.create(cache.get(userId, loader("A"))).expectNextCount(1).verifyComplete();
+        assertEquals(1, cache.size());
+        assertEquals(1, meterRegistry.get("cache.loads").tag("result", "failure").timer().count());
+    }
+
+    @Test
+    void get_whenFull_shouldLoadWithoutCaching() {
+        StepVerifier.create(cache.get(UUID.randomUUID(), loader("A"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(UUID.randomUUID(), loader("A"))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(cache.get(userId, loader("A"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(userId, loader("A"))).expectNextCount(1).verifyComplete();
+
+        assertEquals(2, cache.size());
+        assertEquals(4, loads.get());
+    }
+}
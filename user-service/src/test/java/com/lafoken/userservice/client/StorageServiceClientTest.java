@@ -0,0 +1,52 @@
+package com.withfy.userservice.client;
+
+import com.withfy.userservice.exception.PayloadTooLargeException;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StorageServiceClientTest {
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+
+    private List<NettyDataBuffer> chunks(int count, int size) {
+        List<NettyDataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            NettyDataBuffer chunk = bufferFactory.allocateBuffer(size);
+            chunk.write(new byte[size]);
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    @Test
+    void limit_whenWithinMaxBytes_shouldPassBuffersThrough() {
+        List<NettyDataBuffer> chunks = chunks(3, 100);
+
+        StepVerifier.create(StorageServiceClient.limit(Flux.<DataBuffer>fromIterable(chunks), 300).doOnNext(DataBufferUtils::release))
+            .expectNextCount(3)
+            .verifyComplete();
+    }
+
+    @Test
+    void limit_whenMaxBytesExceeded_shouldFailAndReleaseOffendingBuffer() {
+        List<NettyDataBuffer> chunks = chunks(3, 100);
+
+        StepVerifier.create(StorageServiceClient.limit(Flux.<DataBuffer>fromIterable(chunks), 250).doOnNext(DataBufferUtils::release))
+            .expectNextCount(2)
+            .expectError(PayloadTooLargeException.class)
+            .verify();
+
+        chunks.forEach(chunk -> assertEquals(0, chunk.getNativeBuffer().refCnt()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.withfy.userservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InternalServiceTokenAuthorizationManagerTest {
+
+    private static final String PATH = "/api/v1/user/internal/profiles:batchGet";
+
+    private static boolean granted(String configuredToken, String presentedToken) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post(PATH);
+        if (presentedToken != null) {
+            request.header(InternalServiceTokenAuthorizationManager.HEADER, presentedToken);
+        }
+        AuthorizationContext context = new AuthorizationContext(MockServerWebExchange.from(request));
+        AuthorizationDecision decision = new InternalServiceTokenAuthorizationManager(new InternalServiceProperties(configuredToken))
+            .check(Mono.empty(), context)
+            .block();
+        return decision != null && decision.isGranted();
+    }
+
+    @Test
+    void check_whenTokenMatches_shouldGrant() {
+        assertTrue(granted("s3cret", "s3cret"));
+    }
+
+    @Test
+    void check_whenTokenMissingOrWrong_shouldDeny() {
+        assertFalse(granted("s3cret", null));
+        assertFalse(granted("s3cret", "s3cre"));
+        assertFalse(granted("s3cret", "other"));
+    }
+
+    @Test
+    void check_whenNoTokenConfigured_shouldDenyEveryRequest() {
+        assertFalse(granted(null, null));
+        assertFalse(granted("", ""));
+        assertFalse(granted(" ", " "));
+    }
+}
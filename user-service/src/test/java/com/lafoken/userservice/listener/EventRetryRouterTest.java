@@ -0,0 +1,73 @@
+package com.withfy.userservice.listener;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.withfy.userservice.config.RetryProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EventRetryRouterTest {
+
+    private static final String QUEUE = "user.registered.queue";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private EventRetryRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = new EventRetryRouter(rabbitTemplate, new RetryProperties(3, Duration.ofSeconds(30)));
+    }
+
+    private static Message message(Integer attempts) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId("event-1");
+        if (attempts != null) {
+            properties.setHeader(EventRetryRouter.ATTEMPTS_HEADER, attempts);
+        }
+        return new Message("{}".getBytes(), properties);
+    }
+
+    @Test
+    void retryOrDeadLetter_whenAttemptsRemain_shouldSendToRetryQueue() {
+        Message message = message(null);
+
+        router.retryOrDeadLetter(message, QUEUE, new DataAccessResourceFailureException("connection refused"));
+
+        verify(rabbitTemplate).send("", "user.registered.queue.retry", message);
+        assertEquals(1, (Integer) message.getMessageProperties().getHeader(EventRetryRouter.ATTEMPTS_HEADER));
+        assertEquals("connection refused", message.getMessageProperties().getHeader(EventRetryRouter.ERROR_HEADER));
+    }
+
+    @Test
+    void retryOrDeadLetter_whenOutOfAttempts_shouldSendToDeadLetterQueue() {
+        Message message = message(2);
+
+        router.retryOrDeadLetter(message, QUEUE, new DataAccessResourceFailureException("connection refused"));
+
+        verify(rabbitTemplate).send("", "user.registered.queue.dlq", message);
+        assertEquals(3, (Integer) message.getMessageProperties().getHeader(EventRetryRouter.ATTEMPTS_HEADER));
+    }
+
+    @Test
+    void retryOrDeadLetter_whenPayloadIsMalformed_shouldDeadLetterWithoutRetrying() {
+        Message message = message(null);
+
+        router.retryOrDeadLetter(message, QUEUE, new JsonParseException(null, "Unexpected character"));
+
+        verify(rabbitTemplate).send("", "user.registered.queue.dlq", message);
+    }
+}
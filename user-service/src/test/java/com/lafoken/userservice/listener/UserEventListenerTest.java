@@ -0,0 +1,113 @@
+package com.withfy.userservice.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.withfy.userservice.config.RegistrationConsumerProperties;
+import com.withfy.userservice.dto.ReceivedEvent;
+import com.withfy.userservice.dto.UserRegisteredEvent;
+import com.withfy.userservice.service.UserProfileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserEventListenerTest {
+
+    private static final String QUEUE = "user.registered.queue";
+
+    @Mock
+    private UserProfileService userProfileService;
+
+    @Mock
+    private EventRetryRouter retryRouter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private UserEventListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new UserEventListener(userProfileService,
+            new RegistrationConsumerProperties(50, Duration.ofMillis(200), 100, 1, 2, Duration.ofSeconds(5)),
+            retryRouter, objectMapper);
+        ReflectionTestUtils.setField(listener, "userRegisteredQueueName", QUEUE);
+    }
+
+    private Message message(String eventId, String userId) throws IOException {
+        UserRegisteredEvent event = new UserRegisteredEvent(userId, userId + "@example.com", "User " + userId, "LOCAL");
+        return message(eventId, objectMapper.writeValueAsBytes(event));
+    }
+
+    private static Message message(String eventId, byte[] body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(eventId);
+        return new Message(body, properties);
+    }
+
+    private static ReceivedEvent<UserRegisteredEvent> received(String eventId, String userId) {
+        return new ReceivedEvent<>(eventId, new UserRegisteredEvent(userId, userId + "@example.com", "User " + userId, "LOCAL"));
+    }
+
+    @Test
+    void onUserRegistered_whenBatchSucceeds_shouldHandleItOnceWithoutRouting() throws IOException {
+        when(userProfileService.handleUserRegisteredEvents(any())).thenReturn(Mono.empty());
+
+        assertDoesNotThrow(() -> listener.onUserRegistered(List.of(message("event-1", "user-1"), message("event-2", "user-2"))));
+
+        verify(userProfileService).handleUserRegisteredEvents(List.of(received("event-1", "user-1"), received("event-2", "user-2")));
+        verifyNoInteractions(retryRouter);
+    }
+
+    @Test
+    void onUserRegistered_whenBatchFails_shouldRetryEachEventAndRouteOnlyTheFailingOne() throws IOException {
+        Message first = message("event-1", "user-1");
+        Message failing = message("event-2", "user-2");
+        Message third = message("event-3", "user-3");
+        DataAccessResourceFailureException error = new DataAccessResourceFailureException("duplicate stripe customer");
+        when(userProfileService.handleUserRegisteredEvents(List.of(
+                received("event-1", "user-1"), received("event-2", "user-2"), received("event-3", "user-3"))))
+            .thenReturn(Mono.error(error));
+        when(userProfileService.handleUserRegisteredEvents(List.of(received("event-1", "user-1")))).thenReturn(Mono.empty());
+        when(userProfileService.handleUserRegisteredEvents(List.of(received("event-2", "user-2")))).thenReturn(Mono.error(error));
+        when(userProfileService.handleUserRegisteredEvents(List.of(received("event-3", "user-3")))).thenReturn(Mono.empty());
+
+        assertDoesNotThrow(() -> listener.onUserRegistered(List.of(first, failing, third)));
+
+        verify(retryRouter).retryOrDeadLetter(same(failing), eq(QUEUE), same(error));
+        verify(retryRouter, never()).retryOrDeadLetter(same(first), any(), any());
+        verify(retryRouter, never()).retryOrDeadLetter(same(third), any(), any());
+    }
+
+    @Test
+    void onUserRegistered_whenBodyIsMalformed_shouldRouteItAndProcessTheRest() throws IOException {
+        Message malformed = message("event-1", "{not json".getBytes(StandardCharsets.UTF_8));
+        Message valid = message("event-2", "user-2");
+        when(userProfileService.handleUserRegisteredEvents(any())).thenReturn(Mono.empty());
+
+        assertDoesNotThrow(() -> listener.onUserRegistered(List.of(malformed, valid)));
+
+        verify(retryRouter).retryOrDeadLetter(same(malformed), eq(QUEUE), any(IOException.class));
+        verify(retryRouter, never()).retryOrDeadLetter(same(valid), any(), any());
+        verify(userProfileService).handleUserRegisteredEvents(List.of(received("event-2", "user-2")));
+    }
+}
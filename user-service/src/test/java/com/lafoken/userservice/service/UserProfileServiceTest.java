@@ -1,34 +1,57 @@
  
 package com.withfy.userservice.service;
 
+import com.withfy.userservice.cache.ProfileCache;
 import com.withfy.userservice.client.StorageServiceClient;
+import com.withfy.userservice.config.ProfileCacheProperties;
+import com.withfy.userservice.dto.AvatarObjectKey;
+import com.withfy.userservice.dto.AvatarUploadUrlResponse;
+import com.withfy.userservice.dto.ProfileSummary;
+import com.withfy.userservice.dto.ReceivedEvent;
 import com.withfy.userservice.dto.UpdateUserProfileRequest;
+import com.withfy.userservice.dto.UpdatedProfile;
 import com.withfy.userservice.dto.UserRegisteredEvent;
 import com.withfy.userservice.dto.UserProfileResponse;
+import com.withfy.userservice.dto.VersionedProfile;
 import com.withfy.userservice.entity.StripeCustomer;
 import com.withfy.userservice.entity.UserProfile;
 import com.withfy.userservice.exception.InvalidRequestException;
+import com.withfy.userservice.exception.PayloadTooLargeException;
 import com.withfy.userservice.exception.StorageServiceException;
 import com.withfy.userservice.exception.UserProfileNotFoundException;
+import com.withfy.userservice.repository.ProcessedEventRepository;
 import com.withfy.userservice.repository.StripeCustomerRepository;
 import com.withfy.userservice.repository.UserProfileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.quality.Strictness;
-import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -45,6 +68,12 @@ class UserProfileServiceTest {
     @Mock
     private StorageServiceClient storageServiceClient;
 
+    @Mock
+    private ProcessedEventRepository processedEventRepository;
+
+    @Spy
+    private ProfileCache profileCache = new ProfileCache(new ProfileCacheProperties(100, Duration.ofMinutes(5)), new SimpleMeterRegistry());
+
     @InjectMocks
     private UserProfileService userProfileService;
 
@@ -70,10 +99,17 @@ class UserProfileServiceTest {
             .build();
 
         ReflectionTestUtils.setField(userProfileService, "imagesBucketName", "test-images-bucket");
+        ReflectionTestUtils.setField(userProfileService, "maxAvatarSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(userProfileService, "maxBatchGetIds", 3);
         lenient().when(userProfileRepository.insertProfile(any(UserProfile.class))).thenReturn(Mono.empty());
         lenient().when(stripeCustomerRepository.insertStripeCustomer(any(StripeCustomer.class))).thenReturn(Mono.empty());
     }
 
+    private static UpdatedProfile updated(UserProfile profile, String previousAvatarUrl) {
+        return new UpdatedProfile(profile.getId(), profile.getEmail(), profile.getFullName(), profile.getAvatarUrl(),
+            profile.getBillingAddress(), profile.getPaymentMethod(), profile.getCreatedAt(), profile.getUpdatedAt(), previousAvatarUrl);
+    }
+
     @Test
     void handleUserRegisteredEvent_whenValidEvent_shouldSaveProfileAndStripeCustomer() {
         Mono<Void> result = userProfileService.handleUserRegisteredEvent(userRegisteredEvent);
@@ -108,6 +144,82 @@ class UserProfileServiceTest {
             .verify();
     }
 
+    private static List<ReceivedEvent<UserRegisteredEvent>> received(UserRegisteredEvent... events) {
+        return Arrays.stream(events).map(event -> new ReceivedEvent<>(null, event)).toList();
+    }
+
+    @Test
+    void handleUserRegisteredEvents_whenBatchIsValid_shouldInsertAllRowsWithOneStatementPerTable() {
+        UUID otherUserId = UUID.randomUUID();
+        UserRegisteredEvent other = new UserRegisteredEvent(otherUserId.toString(), "other@example.com", null, "GOOGLE");
+        when(userProfileRepository.insertProfiles(any(), any(), any())).thenReturn(Flux.just(testUserId, otherUserId));
+        when(stripeCustomerRepository.insertStripeCustomers(any())).thenReturn(Mono.just(2));
+
+        StepVerifier.create(userProfileService.handleUserRegisteredEvents(received(userRegisteredEvent, other)))
+            .verifyComplete();
+
+        verify(userProfileRepository).insertProfiles(
+            new UUID[] {testUserId, otherUserId},
+            new String[] {testUserEmail, "other@example.com"},
+            new String[] {testUserFullName, null});
+        verify(stripeCustomerRepository).insertStripeCustomers(new UUID[] {testUserId, otherUserId});
+        verify(userProfileRepository, never()).insertProfile(any());
+        verify(stripeCustomerRepository, never()).insertStripeCustomer(any());
+    }
+
+    @Test
+    void handleUserRegisteredEvents_whenBatchHasInvalidAndDuplicateEvents_shouldInsertOnlyValidOnes() {
+        UserRegisteredEvent invalid = new UserRegisteredEvent("not-a-uuid", "bad@example.com", null, "LOCAL");
+        when(userProfileRepository.insertProfiles(any(), any(), any())).thenReturn(Flux.just(testUserId));
+        when(stripeCustomerRepository.insertStripeCustomers(any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(userProfileService.handleUserRegisteredEvents(received(userRegisteredEvent, invalid, null, userRegisteredEvent)))
+            .verifyComplete();
+
+        verify(userProfileRepository).insertProfiles(
+            new UUID[] {testUserId}, new String[] {testUserEmail}, new String[] {testUserFullName});
+        verify(stripeCustomerRepository).insertStripeCustomers(new UUID[] {testUserId});
+    }
+
+    @Test
+    void handleUserRegisteredEvents_whenProfilesAlreadyExist_shouldSkipStripeInsert() {
+        when(userProfileRepository.insertProfiles(any(), any(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(userProfileService.handleUserRegisteredEvents(received(userRegisteredEvent)))
+            .verifyComplete();
+
+        verify(stripeCustomerRepository, never()).insertStripeCustomers(any());
+    }
+
+    @Test
+    void handleUserRegisteredEvents_whenEventWasAlreadyProcessed_shouldSkipItWithoutTouchingProfiles() {
+        UUID otherUserId = UUID.randomUUID();
+        UserRegisteredEvent other = new UserRegisteredEvent(otherUserId.toString(), "other@example.com", null, "LOCAL");
+        when(processedEventRepository.markProcessed(any())).thenReturn(Flux.just("event-2"));
+        when(userProfileRepository.insertProfiles(any(), any(), any())).thenReturn(Flux.just(otherUserId));
+        when(stripeCustomerRepository.insertStripeCustomers(any())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(userProfileService.handleUserRegisteredEvents(List.of(
+                new ReceivedEvent<>("event-1", userRegisteredEvent),
+                new ReceivedEvent<>("event-2", other))))
+            .verifyComplete();
+
+        verify(processedEventRepository).markProcessed(new String[] {"event-1", "event-2"});
+        verify(userProfileRepository).insertProfiles(
+            new UUID[] {otherUserId}, new String[] {"other@example.com"}, new String[] {null});
+    }
+
+    @Test
+    void handleUserRegisteredEvents_whenWholeBatchWasAlreadyProcessed_shouldBeNoOp() {
+        when(processedEventRepository.markProcessed(any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(userProfileService.handleUserRegisteredEvents(List.of(new ReceivedEvent<>("event-1", userRegisteredEvent))))
+            .verifyComplete();
+
+        verify(userProfileRepository, never()).insertProfiles(any(), any(), any());
+        verify(stripeCustomerRepository, never()).insertStripeCustomers(any());
+    }
+
     @Test
     void getUserProfile_whenUserExists_shouldReturnProfile() {
         when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
@@ -123,6 +235,115 @@ class UserProfileServiceTest {
             .verifyComplete();
     }
 
+    @Test
+    void getUserProfile_whenCalledAgain_shouldServeFromCache() {
+        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
+
+        StepVerifier.create(userProfileService.getUserProfile(testUserId.toString())).expectNextCount(1).verifyComplete();
+        StepVerifier.create(userProfileService.getUserProfile(testUserId.toString())).expectNextCount(1).verifyComplete();
+
+        verify(userProfileRepository, times(1)).findById(testUserId);
+    }
+
+    @Test
+    void getProfileETag_whenUserExists_shouldDeriveWeakETagFromUpdatedAt() {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+        when(userProfileRepository.findUpdatedAtById(testUserId)).thenReturn(Mono.just(updatedAt));
+
+        StepVerifier.create(userProfileService.getProfileETag(testUserId.toString()))
+            .expectNext(VersionedProfile.eTag(testUserId, updatedAt))
+            .verifyComplete();
+
+        verify(userProfileRepository, never()).findById(any(UUID.class));
+        assertTrue(VersionedProfile.eTag(testUserId, updatedAt).startsWith("W/\"" + testUserId));
+        assertNotEquals(VersionedProfile.eTag(testUserId, updatedAt), VersionedProfile.eTag(testUserId, updatedAt.plusNanos(1_000)));
+    }
+
+    @Test
+    void getProfileETag_whenUserNotFound_shouldThrowUserProfileNotFoundException() {
+        when(userProfileRepository.findUpdatedAtById(testUserId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(userProfileService.getProfileETag(testUserId.toString()))
+            .expectError(UserProfileNotFoundException.class)
+            .verify();
+    }
+
+    @Test
+    void getVersionedProfile_shouldTagProfileWithItsRowVersion() {
+        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
+
+        StepVerifier.create(userProfileService.getVersionedProfile(testUserId.toString()))
+            .expectNextMatches(versioned -> versioned.eTag().equals(VersionedProfile.eTag(testUserId, userProfile.getUpdatedAt()))
+                && versioned.profile().email().equals(testUserEmail))
+            .verifyComplete();
+    }
+
+    @Test
+    void getVersionedProfile_whenCachedCopyIsOlderThanDatabase_shouldReloadIt() {
+        UserProfile newerProfile = UserProfile.builder()
+            .id(testUserId).email(testUserEmail).fullName("Renamed Elsewhere")
+            .createdAt(userProfile.getCreatedAt()).updatedAt(userProfile.getUpdatedAt().plusSeconds(1)).build();
+        String currentETag = VersionedProfile.eTag(testUserId, newerProfile.getUpdatedAt());
+        when(userProfileRepository.findById(testUserId))
+            .thenReturn(Mono.just(userProfile))
+            .thenReturn(Mono.just(newerProfile));
+        userProfileService.getVersionedProfile(testUserId.toString()).block();
+
+        StepVerifier.create(userProfileService.getVersionedProfile(testUserId.toString(), currentETag))
+            .expectNextMatches(versioned -> versioned.eTag().equals(currentETag)
+                && versioned.profile().fullName().equals("Renamed Elsewhere"))
+            .verifyComplete();
+
+        verify(profileCache).invalidate(testUserId);
+        verify(userProfileRepository, times(2)).findById(testUserId);
+    }
+
+    @Test
+    void getVersionedProfile_whenCachedCopyIsCurrent_shouldNotReload() {
+        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
+        String currentETag = VersionedProfile.eTag(testUserId, userProfile.getUpdatedAt());
+        userProfileService.getVersionedProfile(testUserId.toString()).block();
+
+        StepVerifier.create(userProfileService.getVersionedProfile(testUserId.toString(), currentETag))
+            .expectNextMatches(versioned -> versioned.eTag().equals(currentETag))
+            .verifyComplete();
+
+        verify(profileCache, never()).invalidate(any(UUID.class));
+        verify(userProfileRepository, times(1)).findById(testUserId);
+    }
+
+    @Test
+    void updateUserProfile_shouldInvalidateCachedProfile() {
+        UserProfile updatedProfile = UserProfile.builder()
+            .id(testUserId).email(testUserEmail).fullName("Updated Name")
+            .createdAt(userProfile.getCreatedAt()).updatedAt(LocalDateTime.now()).build();
+        when(userProfileRepository.findById(testUserId))
+            .thenReturn(Mono.just(userProfile))
+            .thenReturn(Mono.just(updatedProfile));
+        when(userProfileRepository.updateProfile(eq(testUserId), eq("Updated Name"), isNull(), any(LocalDateTime.class)))
+            .thenReturn(Mono.just(updated(updatedProfile, null)));
+
+        StepVerifier.create(userProfileService.getUserProfile(testUserId.toString())).expectNextCount(1).verifyComplete();
+        StepVerifier.create(userProfileService.updateUserProfile(testUserId.toString(), new UpdateUserProfileRequest("Updated Name", null)))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        StepVerifier.create(userProfileService.getUserProfile(testUserId.toString()))
+            .expectNextMatches(response -> response.fullName().equals("Updated Name"))
+            .verifyComplete();
+        verify(profileCache).invalidate(testUserId);
+    }
+
+    @Test
+    void handleUserBannedEvent_shouldInvalidateCachedProfile() {
+        when(stripeCustomerRepository.deleteById(testUserId)).thenReturn(Mono.empty());
+        when(userProfileRepository.deleteById(testUserId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(userProfileService.handleUserBannedEvent(testUserId.toString())).verifyComplete();
+
+        verify(profileCache).invalidate(testUserId);
+    }
+
     @Test
     void getUserProfile_whenUserNotFound_shouldThrowUserProfileNotFoundException() {
         when(userProfileRepository.findById(testUserId)).thenReturn(Mono.empty());
@@ -150,10 +371,8 @@ class UserProfileServiceTest {
             .id(testUserId).email(testUserEmail).fullName("Updated Name").avatarUrl("http://new.avatar.url/image.png")
             .createdAt(userProfile.getCreatedAt()).updatedAt(LocalDateTime.now()).build();
 
-        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
-        when(userProfileRepository.updateProfile(eq(testUserId), any(UpdateUserProfileRequest.class), any(LocalDateTime.class)))
-            .thenReturn(Mono.just(1));
-        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(updatedProfile));
+        when(userProfileRepository.updateProfile(eq(testUserId), eq("Updated Name"), eq("http://new.avatar.url/image.png"), any(LocalDateTime.class)))
+            .thenReturn(Mono.just(updated(updatedProfile, null)));
 
         Mono<UserProfileResponse> result = userProfileService.updateUserProfile(testUserId.toString(), updateRequest);
 
@@ -164,7 +383,45 @@ class UserProfileServiceTest {
             )
             .verifyComplete();
 
-        verify(userProfileRepository, times(1)).updateProfile(eq(testUserId), any(UpdateUserProfileRequest.class), any(LocalDateTime.class));
+        // the whole update is one statement: no read before it for the old avatar, none after it for the response
+        verify(userProfileRepository, times(1)).updateProfile(eq(testUserId), any(), any(), any(LocalDateTime.class));
+        verifyNoMoreInteractions(userProfileRepository);
+        verifyNoInteractions(storageServiceClient);
+    }
+
+    @Test
+    void updateUserProfile_whenAvatarReplaced_shouldDeletePreviousAvatarObject() {
+        String oldAvatarUrl = "http://localhost:9000/test-images-bucket/avatars/" + testUserId + "/old.png";
+        String newAvatarUrl = "http://localhost:9000/test-images-bucket/avatars/" + testUserId + "/new.png";
+        UserProfile updatedProfile = UserProfile.builder()
+            .id(testUserId).email(testUserEmail).fullName(testUserFullName).avatarUrl(newAvatarUrl)
+            .createdAt(userProfile.getCreatedAt()).updatedAt(LocalDateTime.now()).build();
+        when(userProfileRepository.updateProfile(eq(testUserId), isNull(), eq(newAvatarUrl), any(LocalDateTime.class)))
+            .thenReturn(Mono.just(updated(updatedProfile, oldAvatarUrl)));
+        when(storageServiceClient.deleteFiles("test-images-bucket", List.of("avatars/" + testUserId + "/old.png")))
+            .thenReturn(Mono.empty());
+
+        StepVerifier.create(userProfileService.updateUserProfile(testUserId.toString(), new UpdateUserProfileRequest(null, newAvatarUrl)))
+            .expectNextMatches(response -> newAvatarUrl.equals(response.avatarUrl()))
+            .verifyComplete();
+
+        verify(storageServiceClient).deleteFiles("test-images-bucket", List.of("avatars/" + testUserId + "/old.png"));
+    }
+
+    @Test
+    void updateUserProfile_whenOnlyNameChanges_shouldKeepAvatarObject() {
+        String avatarUrl = "http://localhost:9000/test-images-bucket/avatars/" + testUserId + "/current.png";
+        UserProfile updatedProfile = UserProfile.builder()
+            .id(testUserId).email(testUserEmail).fullName("Renamed").avatarUrl(avatarUrl)
+            .createdAt(userProfile.getCreatedAt()).updatedAt(LocalDateTime.now()).build();
+        when(userProfileRepository.updateProfile(eq(testUserId), eq("Renamed"), isNull(), any(LocalDateTime.class)))
+            .thenReturn(Mono.just(updated(updatedProfile, avatarUrl)));
+
+        StepVerifier.create(userProfileService.updateUserProfile(testUserId.toString(), new UpdateUserProfileRequest("Renamed", null)))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        verifyNoInteractions(storageServiceClient);
     }
 
     @Test
@@ -174,11 +431,8 @@ class UserProfileServiceTest {
             .id(testUserId).email(testUserEmail).fullName("Updated FullName Only").avatarUrl(userProfile.getAvatarUrl())
             .createdAt(userProfile.getCreatedAt()).updatedAt(LocalDateTime.now()).build();
 
-        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
-        when(userProfileRepository.updateProfile(eq(testUserId), any(UpdateUserProfileRequest.class), any(LocalDateTime.class)))
-            .thenReturn(Mono.just(1));
-        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(profileAfterUpdate));
-
+        when(userProfileRepository.updateProfile(eq(testUserId), any(), any(), any(LocalDateTime.class)))
+            .thenReturn(Mono.just(updated(profileAfterUpdate, userProfile.getAvatarUrl())));
 
         Mono<UserProfileResponse> result = userProfileService.updateUserProfile(testUserId.toString(), updateRequest);
 
@@ -189,14 +443,14 @@ class UserProfileServiceTest {
             )
             .verifyComplete();
 
-        verify(userProfileRepository).updateProfile(eq(testUserId), argThat(req -> "Updated FullName Only".equals(req.fullName()) && req.avatarUrl() == null), any(LocalDateTime.class));
+        verify(userProfileRepository).updateProfile(eq(testUserId), eq("Updated FullName Only"), isNull(), any(LocalDateTime.class));
 
     }
 
     @Test
     void updateUserProfile_whenUserNotFound_shouldThrowUserProfileNotFoundException() {
         UpdateUserProfileRequest updateRequest = new UpdateUserProfileRequest("New Name", null);
-        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.empty());
+        when(userProfileRepository.updateProfile(eq(testUserId), any(), any(), any(LocalDateTime.class))).thenReturn(Mono.empty());
 
         Mono<UserProfileResponse> result = userProfileService.updateUserProfile(testUserId.toString(), updateRequest);
 
@@ -206,9 +460,8 @@ class UserProfileServiceTest {
     }
 
     @Test
-    void uploadAvatar_whenValidFile_shouldUploadAndUpdateProfile() {
-        FilePart mockFilePart = mock(FilePart.class, withSettings().strictness(Strictness.LENIENT));
-        when(mockFilePart.filename()).thenReturn("avatar.png");
+    void uploadAvatar_whenValidFile_shouldStreamAndUpdateProfile() {
+        Flux<DataBuffer> content = Flux.just(DefaultDataBufferFactory.sharedInstance.wrap("png-bytes".getBytes()));
         String newAvatarUrl = "http://localhost:9000/test-images-bucket/avatars/" + testUserId + "/new-avatar.png";
         StorageServiceClient.FileUploadResponse uploadResponse = new StorageServiceClient.FileUploadResponse(
             "avatars/" + testUserId + "/new-avatar.png",
@@ -218,38 +471,104 @@ class UserProfileServiceTest {
         UserProfile profileWithNewAvatar = UserProfile.builder()
             .id(testUserId).email(testUserEmail).fullName(testUserFullName).avatarUrl(newAvatarUrl).build();
 
-        when(storageServiceClient.uploadFile(eq("test-images-bucket"), anyString(), eq(mockFilePart)))
+        when(storageServiceClient.uploadFile(eq("test-images-bucket"), startsWith("avatars/" + testUserId + "/"), eq("avatar.png"),
+                eq(MediaType.IMAGE_PNG), same(content), eq(DataSize.ofMegabytes(1).toBytes())))
             .thenReturn(Mono.just(uploadResponse));
 
-        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
-        when(userProfileRepository.updateProfile(eq(testUserId), argThat(req -> newAvatarUrl.equals(req.avatarUrl())), any(LocalDateTime.class)))
-            .thenReturn(Mono.just(1));
-        when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(profileWithNewAvatar));
+        when(userProfileRepository.updateProfile(eq(testUserId), isNull(), eq(newAvatarUrl), any(LocalDateTime.class)))
+            .thenReturn(Mono.just(updated(profileWithNewAvatar, null)));
 
 
-        Mono<UserProfileResponse> result = userProfileService.uploadAvatar(testUserId.toString(), mockFilePart);
+        Mono<UserProfileResponse> result = userProfileService.uploadAvatar(testUserId.toString(), "avatar.png", MediaType.IMAGE_PNG, content);
 
         StepVerifier.create(result)
             .expectNextMatches(response -> response.avatarUrl().equals(newAvatarUrl))
             .verifyComplete();
-
-        verify(storageServiceClient, times(1)).uploadFile(eq("test-images-bucket"), anyString(), eq(mockFilePart));
     }
 
     @Test
     void uploadAvatar_whenStorageServiceFails_shouldThrowStorageServiceException() {
-        FilePart mockFilePart = mock(FilePart.class, withSettings().strictness(Strictness.LENIENT));
-        when(mockFilePart.filename()).thenReturn("avatar.png");
-        when(storageServiceClient.uploadFile(anyString(), anyString(), any(FilePart.class)))
+        when(storageServiceClient.uploadFile(anyString(), anyString(), anyString(), any(), any(), anyLong()))
             .thenReturn(Mono.error(new RuntimeException("MinIO error")));
 
-        Mono<UserProfileResponse> result = userProfileService.uploadAvatar(testUserId.toString(), mockFilePart);
+        Mono<UserProfileResponse> result = userProfileService.uploadAvatar(testUserId.toString(), "avatar.png", MediaType.IMAGE_PNG, Flux.empty());
 
         StepVerifier.create(result)
             .expectError(StorageServiceException.class)
             .verify();
     }
 
+    @Test
+    void uploadAvatar_whenLimitExceeded_shouldPropagatePayloadTooLarge() {
+        when(storageServiceClient.uploadFile(anyString(), anyString(), anyString(), any(), any(), anyLong()))
+            .thenReturn(Mono.error(new PayloadTooLargeException("too large")));
+
+        Mono<UserProfileResponse> result = userProfileService.uploadAvatar(testUserId.toString(), "avatar.png", MediaType.IMAGE_PNG, Flux.empty());
+
+        StepVerifier.create(result)
+            .expectError(PayloadTooLargeException.class)
+            .verify();
+        verify(userProfileRepository, never()).updateProfile(any(), any(), any(), any());
+    }
+
+    @Test
+    void createAvatarUploadUrl_whenValidImage_shouldPresignKeyUnderUserPrefix() {
+        Instant expiresAt = Instant.now().plusSeconds(600);
+        when(storageServiceClient.presignUpload(eq("test-images-bucket"), anyString(), eq("image/png"), eq(2048L)))
+            .thenAnswer(invocation -> Mono.just(new StorageServiceClient.PresignedUploadResponse(
+                "test-images-bucket", invocation.getArgument(1), "http://minio/test-images-bucket", Map.of("policy", "p"), expiresAt)));
+
+        Mono<AvatarUploadUrlResponse> result = userProfileService.createAvatarUploadUrl(testUserId.toString(), "image/png", 2048);
+
+        StepVerifier.create(result)
+            .expectNextMatches(response -> response.objectKey().startsWith("avatars/" + testUserId + "/")
+                && response.objectKey().endsWith(".png")
+                && response.expiresAt().equals(expiresAt))
+            .verifyComplete();
+    }
+
+    @Test
+    void createAvatarUploadUrl_whenTooLargeOrNotImage_shouldRejectWithoutStorageCall() {
+        StepVerifier.create(userProfileService.createAvatarUploadUrl(testUserId.toString(), "image/png", DataSize.ofMegabytes(2).toBytes()))
+            .expectError(InvalidRequestException.class)
+            .verify();
+        StepVerifier.create(userProfileService.createAvatarUploadUrl(testUserId.toString(), "image/svg+xml", 100))
+            .expectError(InvalidRequestException.class)
+            .verify();
+
+        verify(storageServiceClient, never()).presignUpload(anyString(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void completeAvatarUpload_whenConfirmed_shouldRecordPublicUrl() {
+        String objectKey = "avatars/" + testUserId + "/direct.png";
+        String newAvatarUrl = "http://localhost:9000/test-images-bucket/" + objectKey;
+        UserProfile profileWithNewAvatar = UserProfile.builder()
+            .id(testUserId).email(testUserEmail).fullName(testUserFullName).avatarUrl(newAvatarUrl).build();
+        when(storageServiceClient.confirmUpload("test-images-bucket", objectKey, "image/", DataSize.ofMegabytes(1).toBytes()))
+            .thenReturn(Mono.just(new StorageServiceClient.FileUploadResponse(objectKey, "test-images-bucket", newAvatarUrl)));
+        when(userProfileRepository.updateProfile(eq(testUserId), isNull(), eq(newAvatarUrl), any(LocalDateTime.class)))
+            .thenReturn(Mono.just(updated(profileWithNewAvatar, null)));
+
+        StepVerifier.create(userProfileService.completeAvatarUpload(testUserId.toString(), objectKey))
+            .expectNextMatches(response -> newAvatarUrl.equals(response.avatarUrl()))
+            .verifyComplete();
+    }
+
+    @Test
+    void completeAvatarUpload_whenKeyBelongsToAnotherUser_shouldRejectWithoutStorageCall() {
+        String foreignKey = "avatars/" + UUID.randomUUID() + "/direct.png";
+
+        StepVerifier.create(userProfileService.completeAvatarUpload(testUserId.toString(), foreignKey))
+            .expectError(InvalidRequestException.class)
+            .verify();
+        StepVerifier.create(userProfileService.completeAvatarUpload(testUserId.toString(), "avatars/" + testUserId + "/../x.png"))
+            .expectError(InvalidRequestException.class)
+            .verify();
+
+        verify(storageServiceClient, never()).confirmUpload(anyString(), anyString(), anyString(), anyLong());
+    }
+
     @Test
     void deleteAvatar_whenUserHasAvatar_shouldDeleteFromStorageAndUpdateProfile() {
         userProfile.setAvatarUrl("http://localhost:9000/test-images-bucket/avatars/" + testUserId + "/old-avatar.png");
@@ -265,14 +584,14 @@ class UserProfileServiceTest {
             .build();
 
         when(userProfileRepository.findById(testUserId)).thenReturn(Mono.just(userProfile));
-        when(storageServiceClient.deleteFile(eq("test-images-bucket"), startsWith("avatars/" + testUserId + "/"))).thenReturn(Mono.empty());
+        when(storageServiceClient.deleteFiles(eq("test-images-bucket"), argThat(keys -> keys.size() == 1 && keys.get(0).startsWith("avatars/" + testUserId + "/")))).thenReturn(Mono.empty());
         when(userProfileRepository.save(any(UserProfile.class))).thenReturn(Mono.just(profileToBeSavedWithNullAvatar));
 
         Mono<Void> result = userProfileService.deleteAvatar(testUserId.toString());
 
         StepVerifier.create(result).verifyComplete();
 
-        verify(storageServiceClient, times(1)).deleteFile(eq("test-images-bucket"), startsWith("avatars/" + testUserId + "/"));
+        verify(storageServiceClient, times(1)).deleteFiles(eq("test-images-bucket"), argThat(keys -> keys.size() == 1 && keys.get(0).startsWith("avatars/" + testUserId + "/")));
         verify(userProfileRepository, times(1)).save(argThat(savedProfile ->
             savedProfile.getId().equals(testUserId) && savedProfile.getAvatarUrl() == null
         ));
@@ -287,7 +606,7 @@ class UserProfileServiceTest {
 
         StepVerifier.create(result).verifyComplete();
 
-        verify(storageServiceClient, never()).deleteFile(anyString(), anyString());
+        verify(storageServiceClient, never()).deleteFiles(anyString(), anyList());
         verify(userProfileRepository, never()).save(any(UserProfile.class));
     }
 
@@ -327,4 +646,49 @@ class UserProfileServiceTest {
         StepVerifier.create(result).verifyComplete();
         verify(stripeCustomerRepository).save(argThat(c -> c.getStripeCustomerId().equals(stripeId) && c.getId().equals(testUserId)));
     }
+
+    @Test
+    void streamAvatarObjectKeys_shouldExtractKeysFromUrlsInImagesBucket() {
+        when(userProfileRepository.findAllAvatarUrls()).thenReturn(Flux.just(
+            "http://cdn/test-images-bucket/avatars/u1/a.png",
+            "avatars/u2/b.png",
+            "https://elsewhere.example.com/c.png"));
+
+        StepVerifier.create(userProfileService.streamAvatarObjectKeys())
+            .expectNext(new AvatarObjectKey("avatars/u1/a.png"), new AvatarObjectKey("avatars/u2/b.png"))
+            .verifyComplete();
+    }
+
+    @Test
+    void getProfileSummaries_shouldLookUpDistinctIdsInOneQuery() {
+        UUID otherUserId = UUID.randomUUID();
+        ProfileSummary summary = new ProfileSummary(testUserId, testUserFullName, null);
+        when(userProfileRepository.findSummariesByIds(any(UUID[].class))).thenReturn(Flux.just(summary));
+
+        StepVerifier.create(userProfileService.getProfileSummaries(
+                List.of(testUserId.toString(), otherUserId.toString(), testUserId.toString())))
+            .expectNext(summary)
+            .verifyComplete();
+
+        verify(userProfileRepository).findSummariesByIds(argThat(ids -> Arrays.equals(ids, new UUID[] {testUserId, otherUserId})));
+    }
+
+    @Test
+    void getProfileSummaries_shouldRejectTooManyIds() {
+        List<String> ids = List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(), UUID.randomUUID().toString());
+
+        StepVerifier.create(userProfileService.getProfileSummaries(ids))
+            .expectError(InvalidRequestException.class)
+            .verify();
+        verify(userProfileRepository, never()).findSummariesByIds(any());
+    }
+
+    @Test
+    void getProfileSummaries_shouldRejectInvalidId() {
+        StepVerifier.create(userProfileService.getProfileSummaries(List.of(testUserId.toString(), "not-a-uuid")))
+            .expectError(InvalidRequestException.class)
+            .verify();
+        verify(userProfileRepository, never()).findSummariesByIds(any());
+    }
 }